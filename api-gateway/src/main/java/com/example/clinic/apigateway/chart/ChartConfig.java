@@ -0,0 +1,19 @@
+package com.example.clinic.apigateway.chart;
+
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+@Configuration
+public class ChartConfig {
+
+    /**
+     * WebClient that resolves http://service-name/ through Eureka, like the lb:// routes.
+     */
+    @Bean
+    @LoadBalanced
+    WebClient.Builder loadBalancedWebClientBuilder() {
+        return WebClient.builder();
+    }
+}
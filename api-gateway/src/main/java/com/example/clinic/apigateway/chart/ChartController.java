@@ -0,0 +1,114 @@
+package com.example.clinic.apigateway.chart;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import jakarta.validation.constraints.Min;
+import reactor.core.publisher.Mono;
+
+/**
+ * Patient chart composed at the gateway: the patient, its medical records and its visits are fetched
+ * concurrently, each under its own timeout, and merged into one document. A backend that fails or is too
+ * slow leaves its section null and is listed in <code>degraded</code>; only a missing patient fails the chart.
+ * <p>
+ * Served only through the "charts" route, which forwards /api/v1/charts/{patientId} here after its
+ * RequestRateLimiter, Resilience and AdaptiveConcurrency filters; a request reaching /charts directly is
+ * answered 404.
+ */
+@RestController
+public class ChartController {
+
+    private static final Logger log = LoggerFactory.getLogger(ChartController.class);
+
+    private final WebClient webClient;
+    private final Duration patientTimeout;
+    private final Duration recordsTimeout;
+    private final Duration visitsTimeout;
+
+    public ChartController(WebClient.Builder loadBalancedWebClientBuilder,
+                           @Value("${gateway.charts.timeout.patient:2s}") Duration patientTimeout,
+                           @Value("${gateway.charts.timeout.records:2s}") Duration recordsTimeout,
+                           @Value("${gateway.charts.timeout.visits:2s}") Duration visitsTimeout) {
+        this.webClient = loadBalancedWebClientBuilder.build();
+        this.patientTimeout = patientTimeout;
+        this.recordsTimeout = recordsTimeout;
+        this.visitsTimeout = visitsTimeout;
+    }
+
+    @GetMapping("/charts/{patientId}")
+    public Mono<Chart> chart(@PathVariable("patientId") @Min(1) int patientId, ServerWebExchange exchange) {
+        if (exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR) == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
+        }
+        return Mono.zip(
+                        fetch("patient", "http://patient-service/patients/{id}/summary", patientId, patientTimeout),
+                        fetch("records", "http://patient-service/patients/{id}/records", patientId, recordsTimeout),
+                        fetch("visits", "http://visits-service/visits/patients/{id}", patientId, visitsTimeout))
+                .map(parts -> {
+                    final Map<String, String> degraded = new LinkedHashMap<>();
+                    parts.getT1().reportInto(degraded);
+                    parts.getT2().reportInto(degraded);
+                    parts.getT3().reportInto(degraded);
+                    return new Chart(patientId, parts.getT1().body(), parts.getT2().body(), parts.getT3().body(),
+                            degraded);
+                });
+    }
+
+    private Mono<Part> fetch(String section, String uri, int patientId, Duration timeout) {
+        return webClient.get()
+                .uri(uri, patientId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(timeout)
+                .map(body -> new Part(section, body, null))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.error(
+                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Patient " + patientId + " not found")))
+                .onErrorResume(e -> !(e instanceof ResponseStatusException), e -> {
+                    final String reason = e instanceof TimeoutException ? "timeout" : "error";
+                    log.warn("Chart section {} for patient {} degraded: {}", section, patientId, e.toString());
+                    return Mono.just(new Part(section, null, reason));
+                })
+                // the patient endpoint answers an unknown id with an empty body
+                .switchIfEmpty(Mono.defer(() -> "patient".equals(section)
+                        ? Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Patient " + patientId + " not found"))
+                        : Mono.just(new Part(section, null, null))));
+    }
+
+    private record Part(String section, JsonNode body, String degradedReason) {
+
+        void reportInto(Map<String, String> degraded) {
+            if (degradedReason != null) {
+                degraded.put(section, degradedReason);
+            }
+        }
+    }
+
+    /**
+     * @param degraded sections that could not be loaded, mapped to "timeout" or "error"; empty when complete
+     */
+    public record Chart(
+            int patientId,
+            JsonNode patient,
+            JsonNode records,
+            JsonNode visits,
+            Map<String, String> degraded
+    ) {
+    }
+}
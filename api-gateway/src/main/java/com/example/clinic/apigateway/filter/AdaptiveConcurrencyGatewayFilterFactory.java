@@ -0,0 +1,232 @@
+package com.example.clinic.apigateway.filter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Sheds load on a route when its backend slows down, see {@link ConcurrencyLimiter}.
+ *
+ * Usage in a route:
+ * <pre>
+ * - name: AdaptiveConcurrency
+ *   args:
+ *     initial-limit: 20
+ *     min-limit: 2
+ *     max-limit: 200
+ *     max-queue: 50
+ *     max-wait: 100ms
+ *     tolerance: 1.5
+ * </pre>
+ * A shed request is answered 429 with Retry-After at once, without touching the backend. Responses 502, 503
+ * and 504 and connection errors shrink the limit like rising latency does. Streaming (NDJSON / SSE / CBOR
+ * sequence) responses hold a permit but are not used as latency samples.
+ *
+ * Metrics: gateway.concurrency.requests{route,result=admitted|queued|shed}, gateway.concurrency.limit,
+ * gateway.concurrency.inflight, gateway.concurrency.queued.
+ */
+@Component
+public class AdaptiveConcurrencyGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveConcurrencyGatewayFilterFactory.Config> {
+
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public AdaptiveConcurrencyGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        final String routeId = config.getRouteId() != null ? config.getRouteId() : "unknown";
+        final ConcurrencyLimiter limiter = limiter(routeId, config.settings());
+        final String retryAfter = String.valueOf(Math.max(1, config.getRetryAfter().toSeconds()));
+        return (exchange, chain) -> limiter.acquire()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(permit -> {
+                    if (permit.isEmpty()) {
+                        count(routeId, "shed");
+                        return shed(exchange, retryAfter);
+                    }
+                    count(routeId, permit.get().waited() ? "queued" : "admitted");
+                    return forward(exchange, chain, permit.get());
+                });
+    }
+
+    /**
+     * One limiter per route, kept across route refreshes unless the route's settings changed.
+     */
+    private ConcurrencyLimiter limiter(String routeId, ConcurrencyLimiter.Settings settings) {
+        final boolean[] created = new boolean[1];
+        final ConcurrencyLimiter limiter = limiters.compute(routeId, (id, existing) -> {
+            if (existing != null && existing.settings().equals(settings)) {
+                return existing;
+            }
+            created[0] = existing == null;
+            return new ConcurrencyLimiter(settings);
+        });
+        if (created[0]) {
+            // registered once per route; they read whichever limiter is current
+            gauge("gateway.concurrency.limit", routeId, ConcurrencyLimiter::limit, "Current concurrency limit");
+            gauge("gateway.concurrency.inflight", routeId, ConcurrencyLimiter::inFlight, "Requests holding a permit");
+            gauge("gateway.concurrency.queued", routeId, ConcurrencyLimiter::queued, "Requests waiting for a permit");
+        }
+        return limiter;
+    }
+
+    private static Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain,
+                                      ConcurrencyLimiter.Permit permit) {
+        final boolean streaming = isStreaming(exchange);
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    final HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (signal == SignalType.CANCEL || streaming) {
+                        permit.ignore();
+                    } else if (signal == SignalType.ON_ERROR || isOverloaded(status)) {
+                        permit.dropped();
+                    } else {
+                        permit.success();
+                    }
+                });
+    }
+
+    /**
+     * 502, 503 and 504 mean the backend is unreachable or overloaded; other 5xx are application errors
+     * that say nothing about capacity.
+     */
+    static boolean isOverloaded(HttpStatusCode status) {
+        return status != null && (status.value() == HttpStatus.BAD_GATEWAY.value()
+                || status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status.value() == HttpStatus.GATEWAY_TIMEOUT.value());
+    }
+
+    private static Mono<Void> shed(ServerWebExchange exchange, String retryAfter) {
+        final ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+        return response.setComplete();
+    }
+
+    static boolean isStreaming(ServerWebExchange exchange) {
+        final String accept = exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT);
+        return accept != null
+                && (accept.contains("x-ndjson") || accept.contains("event-stream") || accept.contains("cbor-seq"));
+    }
+
+    private void count(String routeId, String result) {
+        meterRegistry.counter("gateway.concurrency.requests", "route", routeId, "result", result).increment();
+    }
+
+    private void gauge(String name, String routeId, ToIntFunction<ConcurrencyLimiter> value,
+                       String description) {
+        Gauge.builder(name, limiters, current -> {
+                    final ConcurrencyLimiter limiter = current.get(routeId);
+                    return limiter == null ? 0 : value.applyAsInt(limiter);
+                })
+                .tag("route", routeId)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        private int maxQueue = 50;
+        private Duration maxWait = Duration.ofMillis(100);
+        private double tolerance = 1.5;
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        ConcurrencyLimiter.Settings settings() {
+            return new ConcurrencyLimiter.Settings(initialLimit, minLimit, maxLimit, maxQueue, maxWait, tolerance);
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public void setMaxQueue(int maxQueue) {
+            this.maxQueue = maxQueue;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
+}
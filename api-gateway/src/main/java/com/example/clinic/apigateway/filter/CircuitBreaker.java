@@ -0,0 +1,137 @@
+package com.example.clinic.apigateway.filter;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Count-based circuit breaker.
+ * <p>
+ * While closed, the outcomes of the last <code>windowSize</code> calls are kept; once at least
+ * <code>minimumCalls</code> of them are in and <code>failureRatePercent</code> or more failed, the breaker opens
+ * and rejects every call for <code>openDuration</code>. After that it is half-open: <code>halfOpenCalls</code>
+ * probe calls go through, and it closes when all of them succeed or opens again on the first failure.
+ * <p>
+ * Every call is tagged with the epoch it was admitted in, and outcomes of calls from an earlier state are
+ * ignored, so a slow call admitted while closed cannot decide a half-open probe.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    record Settings(int windowSize, int minimumCalls, int failureRatePercent, Duration openDuration,
+                    int halfOpenCalls) {
+    }
+
+    private final Settings settings;
+    private final Consumer<State> onTransition;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private long epoch;
+    private final boolean[] window;
+    private int next;
+    private int calls;
+    private int failures;
+    private long openUntilNanos;
+    private int probesLeft;
+    private int probesSucceeded;
+
+    CircuitBreaker(Settings settings, Consumer<State> onTransition) {
+        this.settings = settings;
+        this.onTransition = onTransition;
+        this.window = new boolean[Math.max(1, settings.windowSize())];
+    }
+
+    Settings settings() {
+        return settings;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return the epoch to report the outcome with, or -1 when the call is rejected
+     */
+    synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openUntilNanos < 0) {
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+            probesLeft = settings.halfOpenCalls();
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesLeft == 0) {
+                return -1;
+            }
+            probesLeft--;
+        }
+        return epoch;
+    }
+
+    synchronized void onResult(long callEpoch, boolean success) {
+        if (callEpoch != epoch) {
+            return;
+        }
+        if (state == State.CLOSED) {
+            if (calls == window.length) {
+                if (!window[next]) {
+                    failures--;
+                }
+            } else {
+                calls++;
+            }
+            window[next] = success;
+            next = (next + 1) % window.length;
+            if (!success) {
+                failures++;
+            }
+            if (calls >= settings.minimumCalls() && failures * 100 >= settings.failureRatePercent() * calls) {
+                open();
+            }
+        } else if (state == State.HALF_OPEN) {
+            if (!success) {
+                open();
+            } else if (++probesSucceeded >= settings.halfOpenCalls()) {
+                transition(State.CLOSED);
+                calls = 0;
+                failures = 0;
+                next = 0;
+            }
+        }
+    }
+
+    /**
+     * The call ended without an outcome (client went away): a half-open probe slot is given back.
+     */
+    synchronized void onIgnored(long callEpoch) {
+        if (callEpoch == epoch && state == State.HALF_OPEN) {
+            probesLeft++;
+        }
+    }
+
+    /**
+     * Time until an open breaker lets probe calls through, zero when not open.
+     */
+    synchronized Duration remainingOpen() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openUntilNanos - System.nanoTime()));
+    }
+
+    private void open() {
+        openUntilNanos = System.nanoTime() + settings.openDuration().toNanos();
+        transition(State.OPEN);
+    }
+
+    private void transition(State to) {
+        state = to;
+        epoch++;
+        onTransition.accept(to);
+    }
+}
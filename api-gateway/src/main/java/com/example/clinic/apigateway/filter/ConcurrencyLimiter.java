@@ -0,0 +1,232 @@
+package com.example.clinic.apigateway.filter;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Concurrency limit that adapts to backend latency, after the gradient algorithm of Netflix's
+ * concurrency-limits.
+ * <p>
+ * Two moving averages of the response time are kept: a short one (the last few dozen requests) and a long one
+ * (the last few hundred) that stands in for the latency of an unloaded backend. While the short average stays
+ * within <code>tolerance</code> times the long one and the limit is actually in use, the limit grows by about its
+ * square root per sample; when latency rises above that, it shrinks by the ratio, down to half per sample.
+ * A request the backend could not serve counts as a strong signal and halves the target. Changes are smoothed
+ * so one slow request does not move the limit much.
+ * <p>
+ * Requests over the limit wait in a FIFO queue of at most <code>maxQueue</code> for up to <code>maxWait</code>,
+ * then are shed; a full queue sheds immediately.
+ */
+final class ConcurrencyLimiter {
+
+    private static final double SHORT_ALPHA = 2.0 / (20 + 1);
+    private static final double LONG_ALPHA = 2.0 / (600 + 1);
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double DROP_GRADIENT = 0.5;
+
+    record Settings(int initialLimit, int minLimit, int maxLimit, int maxQueue, Duration maxWait, double tolerance) {
+    }
+
+    private final Settings settings;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private volatile double limit;
+
+    // guarded by this
+    private double shortRtt;
+    private double longRtt;
+
+    ConcurrencyLimiter(Settings settings) {
+        this.settings = settings;
+        this.limit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(), settings.initialLimit()));
+    }
+
+    Settings settings() {
+        return settings;
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    /**
+     * A permit right away, a permit once one frees up within maxWait, or empty when the request is to be shed.
+     * A permit emitted to a subscriber that has gone away is released through Reactor's discard hook.
+     */
+    Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+                    if (tryAcquire()) {
+                        sink.success(new Permit(false));
+                        return;
+                    }
+                    if (queued.incrementAndGet() > settings.maxQueue()) {
+                        queued.decrementAndGet();
+                        sink.success();
+                        return;
+                    }
+                    final Waiter waiter = new Waiter(sink);
+                    sink.onCancel(waiter::expire);
+                    waiter.timer = Schedulers.parallel().schedule(waiter::expire,
+                            settings.maxWait().toNanos(), TimeUnit.NANOSECONDS);
+                    waiters.add(waiter);
+                    drain();
+                })
+                .doOnDiscard(Permit.class, Permit::ignore);
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    /**
+     * Hand free permits to waiting requests, oldest first.
+     */
+    private void drain() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            final Waiter waiter = waiters.poll();
+            if (waiter == null) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            if (!waiter.grant()) {
+                // expired meanwhile: the permit goes to the next one
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private synchronized void sample(long rttNanos, boolean dropped) {
+        if (shortRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+        }
+        shortRtt += (rttNanos - shortRtt) * SHORT_ALPHA;
+        longRtt += (rttNanos - longRtt) * LONG_ALPHA;
+        if (longRtt > 2 * shortRtt) {
+            // latency has stayed well below the baseline: let the baseline follow it down faster
+            longRtt *= 0.95;
+        }
+
+        final double current = limit;
+        if (!dropped && inFlight.get() < current / 2) {
+            // far from the limit, the samples say nothing about whether it could be higher
+            return;
+        }
+        final double gradient = dropped
+                ? DROP_GRADIENT
+                : Math.max(MIN_GRADIENT, Math.min(1.0, settings.tolerance() * longRtt / shortRtt));
+        final double target = current * gradient + Math.sqrt(current);
+        final double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(), next));
+    }
+
+    /**
+     * One admitted request. Exactly one of {@link #success}, {@link #dropped} or {@link #ignore} takes effect.
+     */
+    final class Permit {
+
+        private final boolean waited;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        Permit(boolean waited) {
+            this.waited = waited;
+        }
+
+        /**
+         * Whether the request had to queue for this permit.
+         */
+        boolean waited() {
+            return waited;
+        }
+
+        void success() {
+            complete(true, false);
+        }
+
+        /**
+         * The backend was unreachable or overloaded (502, 503, 504 or a connection error).
+         */
+        void dropped() {
+            complete(true, true);
+        }
+
+        /**
+         * Release without a latency sample, e.g. when the client went away or the response is a long stream.
+         */
+        void ignore() {
+            complete(false, false);
+        }
+
+        private void complete(boolean measured, boolean droppedRequest) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            if (measured) {
+                sample(System.nanoTime() - startNanos, droppedRequest);
+            }
+            release();
+        }
+    }
+
+    private final class Waiter {
+
+        private final MonoSink<Permit> sink;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private volatile Disposable timer;
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        boolean grant() {
+            if (!settled.compareAndSet(false, true)) {
+                return false;
+            }
+            queued.decrementAndGet();
+            timer.dispose();
+            sink.success(new Permit(true));
+            return true;
+        }
+
+        void expire() {
+            if (settled.compareAndSet(false, true)) {
+                queued.decrementAndGet();
+                waiters.remove(this);
+                sink.success();
+            }
+        }
+    }
+}
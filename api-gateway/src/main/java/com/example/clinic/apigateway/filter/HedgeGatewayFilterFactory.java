@@ -0,0 +1,333 @@
+package com.example.clinic.apigateway.filter;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.example.clinic.apigateway.loadbalancer.InstanceStatsRegistry;
+import com.example.clinic.apigateway.loadbalancer.LatencyAwareLoadBalancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Hedged GETs: when the instance a request went to has not answered within <code>delay</code>, the same request
+ * is also sent to another instance of the service and whichever answers first is used; the other is cancelled.
+ * Only for idempotent routes.
+ *
+ * Usage in a route, after StripPrefix (it sends the request itself and ends the filter chain):
+ * <pre>
+ * - name: Hedge
+ *   args:
+ *     delay: 50ms
+ *     budget-percent: 10
+ * </pre>
+ * <code>delay</code> should sit around the route's p95, so only the tail gets a second request. Hedges are
+ * further capped at <code>budget-percent</code> of the route's requests, so a slow service is not hit with twice
+ * its load. Non-GET, streaming (NDJSON / SSE / CBOR sequence) and non-lb:// requests pass through untouched.
+ * Responses are buffered up to <code>gateway.hedge.max-body-bytes</code>; 502, 503 and 504 from one instance leave
+ * the other attempt running. Attempts go through the gateway's own HTTP client, with its connect and response
+ * timeouts. When no attempt gets an answer (connection errors, timeouts, a body larger than the buffer), the
+ * request is routed the ordinary way, unhedged and streamed, rather than failed.
+ *
+ * Metrics: gateway.hedge.requests{route,result=sent|won|denied|fallback}.
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    private final LoadBalancerClientFactory loadBalancerClientFactory;
+    private final ObjectProvider<InstanceStatsRegistry> instanceStatsRegistry;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFilters;
+    private final MeterRegistry meterRegistry;
+    private final WebClient webClient;
+    private final Duration responseTimeout;
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    public HedgeGatewayFilterFactory(LoadBalancerClientFactory loadBalancerClientFactory,
+            ObjectProvider<InstanceStatsRegistry> instanceStatsRegistry,
+            ObjectProvider<List<HttpHeadersFilter>> headersFilters, MeterRegistry meterRegistry,
+            HttpClient httpClient, HttpClientProperties httpClientProperties,
+            @Value("${gateway.hedge.max-body-bytes:4194304}") int maxBodyBytes) {
+        super(Config.class);
+        this.loadBalancerClientFactory = loadBalancerClientFactory;
+        this.instanceStatsRegistry = instanceStatsRegistry;
+        this.headersFilters = headersFilters;
+        this.meterRegistry = meterRegistry;
+        // instances are resolved here, so not the @LoadBalanced builder; the gateway's client brings its
+        // connection pool and connect timeout, the response timeout is applied per attempt as the routing filter does
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxBodyBytes))
+                .build();
+        this.responseTimeout = httpClientProperties.getResponseTimeout();
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        final String routeId = config.getRouteId() != null ? config.getRouteId() : "unknown";
+        final Budget budget = budgets.compute(routeId, (id, existing) ->
+                existing != null && existing.percent == config.getBudgetPercent()
+                        ? existing
+                        : new Budget(config.getBudgetPercent()));
+        return (exchange, chain) -> {
+            final Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            if (route == null || !"lb".equals(route.getUri().getScheme())
+                    || exchange.getRequest().getMethod() != HttpMethod.GET
+                    || AdaptiveConcurrencyGatewayFilterFactory.isStreaming(exchange)) {
+                return chain.filter(exchange);
+            }
+            final ReactorServiceInstanceLoadBalancer loadBalancer = loadBalancerClientFactory
+                    .getInstance(route.getUri().getHost(), ReactorServiceInstanceLoadBalancer.class);
+            if (loadBalancer == null) {
+                return chain.filter(exchange);
+            }
+            ServerWebExchangeUtils.setAlreadyRouted(exchange);
+            budget.deposit();
+            return hedged(exchange, chain, loadBalancer, config.getDelay(), budget, routeId);
+        };
+    }
+
+    private Mono<Void> hedged(ServerWebExchange exchange, GatewayFilterChain chain,
+                              ReactorServiceInstanceLoadBalancer loadBalancer, Duration delay, Budget budget,
+                              String routeId) {
+        final Request<RequestDataContext> lbRequest =
+                new DefaultRequest<>(new RequestDataContext(new RequestData(exchange.getRequest())));
+        final HttpHeaders headers = new HttpHeaders();
+        headers.addAll(HttpHeadersFilter.filterRequest(headersFilters.getIfAvailable(), exchange));
+        headers.remove(HttpHeaders.HOST);
+        // the last 502/503/504 seen, answered when no attempt did better
+        final AtomicReference<ResponseEntity<byte[]>> unavailable = new AtomicReference<>();
+
+        return loadBalancer.choose(lbRequest)
+                .filter(Response::hasServer)
+                .map(Response::getServer)
+                .flatMap(primary -> {
+                    final Mono<ResponseEntity<byte[]>> first = send(exchange, primary, headers, unavailable);
+                    // charged only once there is another instance to send the hedge to
+                    final Mono<ResponseEntity<byte[]>> second = Mono.delay(delay)
+                            .flatMap(tick -> chooseOther(loadBalancer, lbRequest, primary))
+                            .filter(other -> {
+                                final boolean allowed = budget.tryWithdraw();
+                                count(routeId, allowed ? "sent" : "denied");
+                                return allowed;
+                            })
+                            .flatMap(other -> send(exchange, other, headers, unavailable))
+                            .doOnNext(entity -> count(routeId, "won"));
+                    return Mono.firstWithValue(first, second);
+                })
+                .onErrorResume(error -> Mono.empty())
+                .switchIfEmpty(Mono.fromSupplier(unavailable::get))
+                .map(entity -> write(exchange, entity))
+                .defaultIfEmpty(Mono.defer(() -> routeUnhedged(exchange, chain, routeId)))
+                .flatMap(response -> response);
+    }
+
+    /**
+     * The rest of the filter chain, with its routing filter, for requests no attempt got an answer to.
+     */
+    private Mono<Void> routeUnhedged(ServerWebExchange exchange, GatewayFilterChain chain, String routeId) {
+        count(routeId, "fallback");
+        ServerWebExchangeUtils.removeAlreadyRouted(exchange);
+        return chain.filter(exchange);
+    }
+
+    private Mono<ServiceInstance> chooseOther(ReactorServiceInstanceLoadBalancer loadBalancer,
+                                              Request<RequestDataContext> lbRequest, ServiceInstance primary) {
+        final Mono<Response<ServiceInstance>> choice = loadBalancer instanceof LatencyAwareLoadBalancer latencyAware
+                ? latencyAware.chooseOther(lbRequest, primary)
+                : loadBalancer.choose(lbRequest);
+        return choice.filter(Response::hasServer)
+                .map(Response::getServer)
+                .filter(other -> !other.getHost().equals(primary.getHost()) || other.getPort() != primary.getPort());
+    }
+
+    /**
+     * One attempt; empty when the instance answered 502, 503 or 504, which is kept in <code>unavailable</code>.
+     */
+    private Mono<ResponseEntity<byte[]>> send(ServerWebExchange exchange, ServiceInstance instance,
+                                              HttpHeaders headers,
+                                              AtomicReference<ResponseEntity<byte[]>> unavailable) {
+        final ServerHttpRequest request = exchange.getRequest();
+        final URI uri = UriComponentsBuilder.fromUri(instance.getUri())
+                .replacePath(request.getURI().getRawPath())
+                .replaceQuery(request.getURI().getRawQuery())
+                .build(true)
+                .toUri();
+        final InstanceStatsRegistry stats = instanceStatsRegistry.getIfAvailable();
+        if (stats == null) {
+            return attempt(uri, headers).filter(entity -> isUsable(entity, unavailable));
+        }
+        return Mono.defer(() -> {
+                    stats.start(instance);
+                    final long startNanos = System.nanoTime();
+                    // recorded before the outcome is passed on, so a fallback's choice of instance already sees it
+                    return attempt(uri, headers)
+                            .doOnSuccess(entity -> record(stats, instance, entity, System.nanoTime() - startNanos))
+                            .doOnError(error -> {
+                                if (isTooLarge(error)) {
+                                    // a body too large to buffer is an answer, just not one this filter can hedge
+                                    stats.cancel(instance);
+                                } else {
+                                    stats.failure(instance);
+                                }
+                            })
+                            .doOnCancel(() -> {
+                                // the other attempt winning says nothing about this one, the route timing out does
+                                if (ResilienceGatewayFilterFactory.isTimedOut(exchange)) {
+                                    stats.failure(instance);
+                                } else {
+                                    stats.cancel(instance);
+                                }
+                            });
+                })
+                .filter(entity -> isUsable(entity, unavailable));
+    }
+
+    private Mono<ResponseEntity<byte[]>> attempt(URI uri, HttpHeaders headers) {
+        final Mono<ResponseEntity<byte[]>> response = webClient.get()
+                .uri(uri)
+                .headers(h -> h.addAll(headers))
+                .exchangeToMono(clientResponse -> clientResponse.toEntity(byte[].class));
+        return responseTimeout != null ? response.timeout(responseTimeout) : response;
+    }
+
+    private static boolean isUsable(ResponseEntity<byte[]> entity,
+                                    AtomicReference<ResponseEntity<byte[]>> unavailable) {
+        if (AdaptiveConcurrencyGatewayFilterFactory.isOverloaded(entity.getStatusCode())) {
+            unavailable.set(entity);
+            return false;
+        }
+        return true;
+    }
+
+    private static void record(InstanceStatsRegistry stats, ServiceInstance instance,
+                               ResponseEntity<byte[]> entity, long rttNanos) {
+        if (entity == null || AdaptiveConcurrencyGatewayFilterFactory.isOverloaded(entity.getStatusCode())) {
+            stats.failure(instance);
+        } else {
+            stats.success(instance, rttNanos);
+        }
+    }
+
+    private static boolean isTooLarge(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataBufferLimitException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, ResponseEntity<byte[]> entity) {
+        final ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(entity.getStatusCode());
+        response.getHeaders().putAll(HttpHeadersFilter.filter(headersFilters.getIfAvailable(),
+                entity.getHeaders(), exchange, HttpHeadersFilter.Type.RESPONSE));
+        response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        final byte[] body = entity.getBody();
+        if (body == null) {
+            response.getHeaders().setContentLength(0);
+            return response.setComplete();
+        }
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private void count(String routeId, String result) {
+        meterRegistry.counter("gateway.hedge.requests", "route", routeId, "result", result).increment();
+    }
+
+    /**
+     * Earns <code>percent</code>/100 of a hedge per request, up to a burst of ten.
+     */
+    private static final class Budget {
+
+        private static final double MAX_BALANCE = 10;
+
+        private final int percent;
+        private double balance;
+
+        Budget(int percent) {
+            this.percent = percent;
+        }
+
+        synchronized void deposit() {
+            balance = Math.min(MAX_BALANCE, balance + percent / 100.0);
+        }
+
+        synchronized boolean tryWithdraw() {
+            if (balance < 1) {
+                return false;
+            }
+            balance -= 1;
+            return true;
+        }
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+        private Duration delay = Duration.ofMillis(50);
+        private int budgetPercent = 10;
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public Duration getDelay() {
+            return delay;
+        }
+
+        public void setDelay(Duration delay) {
+            this.delay = delay;
+        }
+
+        public int getBudgetPercent() {
+            return budgetPercent;
+        }
+
+        public void setBudgetPercent(int budgetPercent) {
+            this.budgetPercent = budgetPercent;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.clinic.apigateway.filter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+/**
+ * Per-route response timeout, retries of idempotent requests and a {@link CircuitBreaker}.
+ *
+ * Usage in a route, before AdaptiveConcurrency so every attempt takes its own permit:
+ * <pre>
+ * - name: Resilience
+ *   args:
+ *     timeout: 3s
+ *     retries: 2
+ *     first-backoff: 50ms
+ *     max-backoff: 500ms
+ *     failure-rate-threshold: 50
+ *     window-size: 20
+ *     minimum-calls: 10
+ *     open-duration: 10s
+ *     half-open-calls: 3
+ * </pre>
+ * <code>timeout</code> bounds each attempt until the response headers arrive; an attempt that runs over is
+ * cancelled and answered 504. {@link #TIMED_OUT_ATTR} is set on the exchange just before the cancel, so filters
+ * further down can tell a timed-out call from a client that went away. GET, HEAD and OPTIONS are retried after a connection error, a timeout or a 502, 503
+ * or 504, with exponential backoff and jitter, unless the response was already sent. Each attempt counts
+ * towards the breaker, which treats errors, timeouts and any 5xx as failures; while it is open, requests are
+ * answered 503 with Retry-After at once. A ResponseCache on the route serves its stale entry instead of these
+ * answers where it has one.
+ *
+ * Metrics: gateway.circuit.state{route} (0 closed, 1 half-open, 2 open),
+ * gateway.circuit.calls{route,result=success|failure|rejected}, gateway.circuit.transitions{route,state},
+ * gateway.retry.attempts{route}, gateway.timeouts{route}.
+ */
+@Component
+public class ResilienceGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResilienceGatewayFilterFactory.Config> {
+
+    /**
+     * Exchange attribute set to <code>true</code> when the current attempt ran over its timeout and is being
+     * cancelled; removed again before a retry.
+     */
+    public static final String TIMED_OUT_ATTR = ResilienceGatewayFilterFactory.class.getName() + ".timedOut";
+
+    private static final Set<HttpMethod> IDEMPOTENT = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public ResilienceGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        final String routeId = config.getRouteId() != null ? config.getRouteId() : "unknown";
+        final CircuitBreaker breaker = breaker(routeId, config.breakerSettings());
+        return (exchange, chain) -> attempt(exchange, chain, config, breaker, routeId, 0);
+    }
+
+    /**
+     * One breaker per route, kept across route refreshes unless the route's settings changed.
+     */
+    private CircuitBreaker breaker(String routeId, CircuitBreaker.Settings settings) {
+        final boolean[] created = new boolean[1];
+        final CircuitBreaker breaker = breakers.compute(routeId, (id, existing) -> {
+            if (existing != null && existing.settings().equals(settings)) {
+                return existing;
+            }
+            created[0] = existing == null;
+            return new CircuitBreaker(settings, state -> meterRegistry.counter("gateway.circuit.transitions",
+                    "route", routeId, "state", state.name().toLowerCase()).increment());
+        });
+        if (created[0]) {
+            // registered once per route; it reads whichever breaker is current
+            Gauge.builder("gateway.circuit.state", breakers, current -> {
+                        final CircuitBreaker b = current.get(routeId);
+                        return b == null ? 0 : b.state().ordinal();
+                    })
+                    .tag("route", routeId)
+                    .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                    .register(meterRegistry);
+        }
+        return breaker;
+    }
+
+    private Mono<Void> attempt(ServerWebExchange exchange, GatewayFilterChain chain, Config config,
+                               CircuitBreaker breaker, String routeId, int attempt) {
+        final long epoch = breaker.tryAcquire();
+        if (epoch < 0) {
+            count(routeId, "rejected");
+            return reject(exchange, breaker);
+        }
+        return chain.filter(exchange)
+                // the attribute is set before the timeout cancels the attempt, so the cancel can be read as one
+                .timeout(Mono.delay(config.getTimeout())
+                        .doOnNext(tick -> exchange.getAttributes().put(TIMED_OUT_ATTR, Boolean.TRUE)))
+                .then(Mono.fromSupplier(Optional::<Throwable>empty))
+                .onErrorResume(error -> Mono.just(Optional.of(error)))
+                .doOnCancel(() -> breaker.onIgnored(epoch))
+                .flatMap(error -> {
+                    final HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    final boolean failed = error.isPresent() || (status != null && status.is5xxServerError());
+                    breaker.onResult(epoch, !failed);
+                    count(routeId, failed ? "failure" : "success");
+                    if (!failed) {
+                        return Mono.empty();
+                    }
+                    if (attempt < config.getRetries() && isRetryable(exchange, error, status)) {
+                        meterRegistry.counter("gateway.retry.attempts", "route", routeId).increment();
+                        return Mono.delay(backoff(config, attempt))
+                                .then(Mono.defer(() -> {
+                                    reset(exchange);
+                                    return attempt(exchange, chain, config, breaker, routeId, attempt + 1);
+                                }));
+                    }
+                    if (error.isEmpty()) {
+                        // pass the failing response through
+                        return Mono.empty();
+                    }
+                    if (error.get() instanceof TimeoutException) {
+                        meterRegistry.counter("gateway.timeouts", "route", routeId).increment();
+                        return respond(exchange, HttpStatus.GATEWAY_TIMEOUT);
+                    }
+                    return Mono.error(error.get());
+                });
+    }
+
+    /**
+     * Whether the exchange's current attempt is being cancelled because it ran over the route's timeout.
+     */
+    public static boolean isTimedOut(ServerWebExchange exchange) {
+        return Boolean.TRUE.equals(exchange.getAttribute(TIMED_OUT_ATTR));
+    }
+
+    private static boolean isRetryable(ServerWebExchange exchange, Optional<Throwable> error,
+                                       HttpStatusCode status) {
+        if (!IDEMPOTENT.contains(exchange.getRequest().getMethod()) || exchange.getResponse().isCommitted()) {
+            return false;
+        }
+        return error.isPresent() || AdaptiveConcurrencyGatewayFilterFactory.isOverloaded(status);
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": somewhere between half and all of the capped exponential delay,
+     * so retries of many requests failing together spread out instead of arriving in waves.
+     */
+    private static Duration backoff(Config config, int attempt) {
+        final long cap = config.getMaxBackoff().toNanos();
+        final long exponential = Math.min(cap, config.getFirstBackoff().toNanos() << Math.min(attempt, 20));
+        final long half = exponential / 2;
+        return Duration.ofNanos(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    /**
+     * Make the exchange routable again after a failed attempt, dropping the failed upstream response.
+     */
+    private static void reset(ServerWebExchange exchange) {
+        final Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.dispose();
+            exchange.getAttributes().remove(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        }
+        exchange.getAttributes().remove(ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR);
+        exchange.getAttributes().remove(TIMED_OUT_ATTR);
+        ServerWebExchangeUtils.reset(exchange);
+        exchange.getResponse().setStatusCode(null);
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, CircuitBreaker breaker) {
+        final long seconds = (breaker.remainingOpen().toMillis() + 999) / 1000;
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, seconds)));
+        return respond(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private static Mono<Void> respond(ServerWebExchange exchange, HttpStatus status) {
+        final ServerHttpResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.empty();
+        }
+        response.setStatusCode(status);
+        return response.setComplete();
+    }
+
+    private void count(String routeId, String result) {
+        meterRegistry.counter("gateway.circuit.calls", "route", routeId, "result", result).increment();
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+        private Duration timeout = Duration.ofSeconds(5);
+        private int retries = 2;
+        private Duration firstBackoff = Duration.ofMillis(50);
+        private Duration maxBackoff = Duration.ofMillis(500);
+        private int failureRateThreshold = 50;
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private Duration openDuration = Duration.ofSeconds(10);
+        private int halfOpenCalls = 3;
+
+        CircuitBreaker.Settings breakerSettings() {
+            return new CircuitBreaker.Settings(windowSize, minimumCalls, failureRateThreshold, openDuration,
+                    halfOpenCalls);
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getRetries() {
+            return retries;
+        }
+
+        public void setRetries(int retries) {
+            this.retries = retries;
+        }
+
+        public Duration getFirstBackoff() {
+            return firstBackoff;
+        }
+
+        public void setFirstBackoff(Duration firstBackoff) {
+            this.firstBackoff = firstBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public int getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public int getHalfOpenCalls() {
+            return halfOpenCalls;
+        }
+
+        public void setHalfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+        }
+    }
+}
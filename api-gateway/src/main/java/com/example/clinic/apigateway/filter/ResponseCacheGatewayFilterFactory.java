@@ -0,0 +1,449 @@
+package com.example.clinic.apigateway.filter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Caches successful GET responses per route and coalesces identical in-flight requests.
+ *
+ * Usage in a route: <code>- ResponseCache=30s</code> (the TTL of the route's entries).
+ * Entries are keyed on path, query and Accept (not Accept-Encoding: the gateway strips it and compresses at the
+ * edge), carry an ETag and answer a matching If-None-Match with 304. Only the representation headers listed
+ * in {@link #STORED_HEADERS} are kept with an entry, so per-client headers such as X-RateLimit-Remaining are
+ * never replayed to other clients. Bodies are buffered up to <code>gateway.response-cache.max-body-bytes</code>;
+ * a larger response is passed through as it arrives and not cached. While one request for a key is on its way
+ * upstream, identical requests wait for its response instead of sending their own. Streaming (NDJSON / SSE / CBOR sequence) requests bypass
+ * the cache.
+ *
+ * A successful (2xx) POST, PUT, PATCH or DELETE on a route drops all of the route's entries before its response
+ * goes out, and GETs already on their way upstream do not store what they fetched, so a client reads its own
+ * writes through this gateway instance. Writes that bypass it (other gateway instances, service-to-service
+ * calls) are only seen once the TTL runs out, which is why the TTLs stay short.
+ *
+ * Past its TTL an entry is kept for another <code>stale-if-error</code> (second shortcut argument, default
+ * <code>gateway.response-cache.stale-if-error</code>): the next request goes upstream, and if that fails with an
+ * error or a 5xx (including the gateway's own timeout and open-circuit answers) the stale entry is served
+ * instead, marked <code>X-Cache: STALE</code>.
+ *
+ * Metrics: gateway.cache.requests{route,result=hit|miss|collapsed|bypass|stale}, gateway.cache.evictions{route},
+ * gateway.cache.hit.ratio, gateway.cache.size.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    /**
+     * Upstream headers stored with an entry and replayed on hits; Content-Length is set from the stored body.
+     */
+    static final List<String> STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.CONTENT_DISPOSITION,
+            HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.ETAG,
+            HttpHeaders.LAST_MODIFIED,
+            HttpHeaders.EXPIRES,
+            HttpHeaders.VARY,
+            HttpHeaders.LINK,
+            "X-Next-Cursor");
+
+    private final Cache<String, CachedResponse> cache;
+    private final Map<String, Sinks.One<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+    // per route, bumped by every eviction: a response fetched under an older generation is not stored
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int maxBodyBytes;
+    private final Duration defaultStaleIfError;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseCacheGatewayFilterFactory(MeterRegistry meterRegistry,
+            @Value("${gateway.response-cache.maximum-size:10000}") long maximumSize,
+            @Value("${gateway.response-cache.max-body-bytes:1048576}") int maxBodyBytes,
+            @Value("${gateway.response-cache.stale-if-error:0s}") Duration defaultStaleIfError) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.maxBodyBytes = maxBodyBytes;
+        this.defaultStaleIfError = defaultStaleIfError;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                        return value.retention().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse value, long currentTime,
+                                                  long currentDuration) {
+                        return value.retention().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        Gauge.builder("gateway.cache.hit.ratio", this, ResponseCacheGatewayFilterFactory::hitRatio)
+                .description("Share of cacheable GETs answered from the gateway cache")
+                .register(meterRegistry);
+        Gauge.builder("gateway.cache.size", cache, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl", "staleIfError");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // must wrap the response before NettyWriteResponseFilter writes the upstream body to it
+        return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, config),
+                NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Config config) {
+        final ServerHttpRequest request = exchange.getRequest();
+        final String routeId = routeId(exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR));
+        if (!isCacheable(request)) {
+            count(exchange, "bypass");
+            if (isWrite(request.getMethod())) {
+                final ServerHttpResponse response = exchange.getResponse();
+                response.beforeCommit(() -> {
+                    if (response.getStatusCode() != null && response.getStatusCode().is2xxSuccessful()) {
+                        evict(routeId);
+                    }
+                    return Mono.empty();
+                });
+            }
+            return chain.filter(exchange);
+        }
+
+        final String key = key(routeId, request);
+        final CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null && cached.isFresh()) {
+            hits.increment();
+            count(exchange, "hit");
+            return write(exchange.getRequest(), exchange.getResponse(), cached, "HIT");
+        }
+        // past its TTL but kept to stand in for a failing upstream
+        final CachedResponse stale = cached;
+
+        final Sinks.One<CachedResponse> mine = Sinks.one();
+        final Sinks.One<CachedResponse> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            count(exchange, "collapsed");
+            // an empty result means the leader's response was not cacheable: go upstream ourselves
+            return leader.asMono()
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(response -> response.isPresent()
+                            ? write(exchange.getRequest(), exchange.getResponse(), response.get(),
+                                    response.get().isFresh() ? "HIT" : "STALE")
+                            : chain.filter(exchange));
+        }
+
+        misses.increment();
+        count(exchange, "miss");
+        final long generation = generation(routeId).get();
+        final Duration staleIfError = config.getStaleIfError() != null
+                ? config.getStaleIfError()
+                : defaultStaleIfError;
+        final CachingResponse response =
+                new CachingResponse(exchange, key, generation, config.getTtl(), staleIfError, mine, stale);
+        // released before completion is signalled (not in doFinally), so a request sent right after this one
+        // completes does not find it still in flight
+        final Runnable release = () -> {
+            inFlight.remove(key, mine);
+            mine.tryEmitEmpty();
+        };
+        return chain.filter(exchange.mutate().response(response).build())
+                .onErrorResume(error -> stale != null && !response.isCommitted()
+                        ? response.serveStale()
+                        : Mono.error(error))
+                .doOnTerminate(release)
+                .doOnCancel(release);
+    }
+
+    private static boolean isCacheable(ServerHttpRequest request) {
+        if (!HttpMethod.GET.equals(request.getMethod())) {
+            return false;
+        }
+        final String cacheControl = request.getHeaders().getCacheControl();
+        if (cacheControl != null && (cacheControl.contains("no-store") || cacheControl.contains("no-cache"))) {
+            return false;
+        }
+        final String accept = request.getHeaders().getFirst(HttpHeaders.ACCEPT);
+        return accept == null
+                || !(accept.contains("x-ndjson") || accept.contains("event-stream") || accept.contains("cbor-seq"));
+    }
+
+    private static boolean isWrite(HttpMethod method) {
+        return HttpMethod.POST.equals(method) || HttpMethod.PUT.equals(method)
+                || HttpMethod.PATCH.equals(method) || HttpMethod.DELETE.equals(method);
+    }
+
+    private static String key(String routeId, ServerHttpRequest request) {
+        final HttpHeaders headers = request.getHeaders();
+        return routeId + ' ' + request.getURI().getRawPath()
+                + '?' + request.getURI().getRawQuery()
+                + '|' + headers.getFirst(HttpHeaders.ACCEPT);
+    }
+
+    private AtomicLong generation(String routeId) {
+        return generations.computeIfAbsent(routeId, id -> new AtomicLong());
+    }
+
+    /**
+     * Drops the route's entries, stale ones included, and lets later GETs go upstream rather than wait for
+     * a response fetched before the write.
+     */
+    private void evict(String routeId) {
+        generation(routeId).incrementAndGet();
+        final String prefix = routeId + ' ';
+        inFlight.keySet().removeIf(key -> key.startsWith(prefix));
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        meterRegistry.counter("gateway.cache.evictions", "route", routeId).increment();
+    }
+
+    private static boolean notModified(ServerHttpRequest request, String etag) {
+        final List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        return ifNoneMatch.contains(etag) || ifNoneMatch.contains("*");
+    }
+
+    private static Mono<Void> write(ServerHttpRequest request, ServerHttpResponse response, CachedResponse cached,
+                                    String cacheStatus) {
+        response.getHeaders().putAll(cached.headers());
+        response.getHeaders().set(CACHE_STATUS_HEADER, cacheStatus);
+        if (notModified(request, cached.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setStatusCode(cached.status());
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private void count(ServerWebExchange exchange, String result) {
+        count(exchange.<Route>getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR), result);
+    }
+
+    private void count(Route route, String result) {
+        meterRegistry.counter("gateway.cache.requests",
+                "route", routeId(route),
+                "result", result).increment();
+    }
+
+    private static String routeId(Route route) {
+        return route != null ? route.getId() : "unknown";
+    }
+
+    private double hitRatio() {
+        final long hit = hits.sum();
+        final long total = hit + misses.sum();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    /**
+     * Buffers the upstream body so it can be stored, tagged with an ETag and handed to waiting requests;
+     * replaces a failed upstream response with the stale entry, if there is one. Responses that cannot be
+     * stored are passed through unbuffered.
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerHttpRequest request;
+        private final Route route;
+        private final String key;
+        private final long generation;
+        private final Duration ttl;
+        private final Duration staleIfError;
+        private final Sinks.One<CachedResponse> sink;
+        private final CachedResponse stale;
+
+        CachingResponse(ServerWebExchange exchange, String key, long generation, Duration ttl,
+                        Duration staleIfError, Sinks.One<CachedResponse> sink, CachedResponse stale) {
+            super(exchange.getResponse());
+            this.request = exchange.getRequest();
+            this.route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            this.key = key;
+            this.generation = generation;
+            this.ttl = ttl;
+            this.staleIfError = staleIfError;
+            this.sink = sink;
+            this.stale = stale;
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            if (stale != null && isServerError(getStatusCode())) {
+                return serveStale();
+            }
+            return super.setComplete();
+        }
+
+        Mono<Void> serveStale() {
+            count(route, "stale");
+            sink.tryEmitValue(stale);
+            getHeaders().clear();
+            return write(request, getDelegate(), stale, "STALE");
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            final HttpStatusCode status = getStatusCode();
+            if (stale != null && isServerError(status)) {
+                // the failed body is not needed, only drained
+                return Flux.from(body)
+                        .doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(this::serveStale));
+            }
+            final HttpHeaders headers = getHeaders();
+            headers.set(CACHE_STATUS_HEADER, "MISS");
+            if (!isStorable(status, headers) || headers.getContentLength() > maxBodyBytes) {
+                return super.writeWith(body);
+            }
+            // buffer until the end of the body, or until it turns out larger than maxBodyBytes: then the
+            // buffered part and the rest go out as they come, uncached
+            final AtomicLong size = new AtomicLong();
+            return Flux.<DataBuffer>from(body)
+                    .bufferUntil(buffer -> size.addAndGet(buffer.readableByteCount()) > maxBodyBytes)
+                    .switchOnFirst((first, chunks) -> {
+                        final Flux<DataBuffer> buffers = chunks.flatMapIterable(Function.identity());
+                        if (size.get() > maxBodyBytes) {
+                            return super.writeWith(buffers);
+                        }
+                        return DataBufferUtils.join(buffers)
+                                .defaultIfEmpty(bufferFactory().wrap(new byte[0]))
+                                .flatMap(this::store);
+                    })
+                    .then();
+        }
+
+        private Mono<Void> store(DataBuffer joined) {
+            final byte[] bytes = new byte[joined.readableByteCount()];
+            joined.read(bytes);
+            DataBufferUtils.release(joined);
+
+            final HttpHeaders headers = getHeaders();
+            if (headers.getETag() == null) {
+                headers.setETag("\"" + DigestUtils.md5DigestAsHex(bytes) + "\"");
+            }
+            final HttpHeaders stored = new HttpHeaders();
+            for (String name : STORED_HEADERS) {
+                final List<String> values = headers.get(name);
+                if (values != null) {
+                    stored.put(name, values);
+                }
+            }
+            stored.setContentLength(bytes.length);
+            final CachedResponse cached = new CachedResponse(getStatusCode(), stored, bytes, headers.getETag(),
+                    System.nanoTime() + ttl.toNanos(), ttl.plus(staleIfError));
+            // the route was written to while this was upstream: hand it to the requests that waited for it,
+            // which were sent before the write too, but do not keep it
+            if (generation(routeId(route)).get() == generation) {
+                cache.put(key, cached);
+            }
+            sink.tryEmitValue(cached);
+
+            if (notModified(request, cached.etag())) {
+                setStatusCode(HttpStatus.NOT_MODIFIED);
+                headers.remove(HttpHeaders.CONTENT_LENGTH);
+                return setComplete();
+            }
+            return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+        }
+    }
+
+    /**
+     * A 200 that may be shared: not private or no-store, not setting cookies, and not encoded for one client.
+     */
+    private static boolean isStorable(HttpStatusCode status, HttpHeaders headers) {
+        final String cacheControl = String.valueOf(headers.getCacheControl());
+        return status != null && status.value() == HttpStatus.OK.value()
+                && !cacheControl.contains("no-store")
+                && !cacheControl.contains("private")
+                && !headers.containsKey(HttpHeaders.SET_COOKIE)
+                && !headers.containsKey(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    private static boolean isServerError(HttpStatusCode status) {
+        return status != null && status.is5xxServerError();
+    }
+
+    /**
+     * @param freshUntilNanos {@link System#nanoTime()} up to which the entry is served as a hit
+     * @param retention how long the entry is kept in all, its TTL plus the stale-if-error window
+     */
+    record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, String etag,
+                          long freshUntilNanos, Duration retention) {
+
+        boolean isFresh() {
+            return System.nanoTime() - freshUntilNanos < 0;
+        }
+    }
+
+    public static class Config {
+
+        private Duration ttl = Duration.ofSeconds(30);
+        private Duration staleIfError;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getStaleIfError() {
+            return staleIfError;
+        }
+
+        public void setStaleIfError(Duration staleIfError) {
+            this.staleIfError = staleIfError;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.clinic.apigateway.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * What the gateway has observed of one service instance: requests in flight, a peak-sensitive moving
+ * average of its latency, consecutive failures and whether it is currently ejected.
+ * <p>
+ * The latency average jumps up to any slower sample at once and decays towards faster ones with time constant
+ * <code>decayNanos</code>; it also decays while no samples arrive, so an instance that was slow once gets
+ * probed again instead of being avoided forever. Failed calls are not latency samples (a refused connection
+ * returns faster than any answer); each one doubles the estimate instead, to at least
+ * <code>failurePenaltyNanos</code>.
+ */
+final class InstanceStats {
+
+    private final long decayNanos;
+    private final long failurePenaltyNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // guarded by this
+    private boolean latencyKnown;
+    private double latencyNanos;
+    private long stampNanos;
+    private long samples;
+    private int consecutiveFailures;
+    private int ejections;
+    private long ejectedUntilNanos;
+
+    InstanceStats(long decayNanos, long failurePenaltyNanos) {
+        this.decayNanos = decayNanos;
+        this.failurePenaltyNanos = failurePenaltyNanos;
+    }
+
+    void start() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * End of a request that got a usable response; <code>rttNanos</code> is negative when it should not
+     * count as a latency sample (streams).
+     */
+    synchronized void success(long rttNanos) {
+        inFlight.decrementAndGet();
+        consecutiveFailures = 0;
+        if (rttNanos >= 0) {
+            sample(rttNanos, System.nanoTime());
+        }
+    }
+
+    /**
+     * End of a request the instance could not serve (connection error, 502, 503, 504, route timeout).
+     * @return the number of failures in a row, including this one
+     */
+    synchronized int failure() {
+        inFlight.decrementAndGet();
+        penalize(System.nanoTime());
+        return ++consecutiveFailures;
+    }
+
+    /**
+     * End of a request whose outcome says nothing about the instance (client went away, hedge lost).
+     */
+    void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    synchronized long samples() {
+        return samples;
+    }
+
+    /**
+     * Latency estimate as of <code>nowNanos</code>, 0 when unknown.
+     */
+    synchronized double latency(long nowNanos) {
+        if (!latencyKnown) {
+            return 0;
+        }
+        return latencyNanos * Math.exp(-(double) Math.max(0, nowNanos - stampNanos) / decayNanos);
+    }
+
+    synchronized boolean isEjected(long nowNanos) {
+        if (ejectedUntilNanos == 0) {
+            return false;
+        }
+        if (nowNanos - ejectedUntilNanos >= 0) {
+            // back in rotation with a clean slate, so its old latency does not keep it out
+            ejectedUntilNanos = 0;
+            samples = 0;
+            latencyKnown = false;
+            latencyNanos = 0;
+            consecutiveFailures = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Take the instance out of rotation; each ejection in a row lasts <code>baseNanos</code> longer, up to ten times.
+     */
+    synchronized void eject(long nowNanos, long baseNanos) {
+        ejections = Math.min(ejections + 1, 10);
+        ejectedUntilNanos = nowNanos + baseNanos * ejections;
+        if (ejectedUntilNanos == 0) {
+            ejectedUntilNanos = 1;
+        }
+    }
+
+    /**
+     * Forget past ejections once the instance has served well for a while.
+     */
+    synchronized void forgive() {
+        ejections = 0;
+    }
+
+    private void sample(long rttNanos, long nowNanos) {
+        if (!latencyKnown) {
+            latencyNanos = rttNanos;
+            latencyKnown = true;
+        } else {
+            final double decayed = latency(nowNanos);
+            if (rttNanos > decayed) {
+                latencyNanos = rttNanos;
+            } else {
+                final double weight = Math.exp(-(double) Math.max(0, nowNanos - stampNanos) / decayNanos);
+                latencyNanos = latencyNanos * weight + rttNanos * (1 - weight);
+            }
+        }
+        stampNanos = nowNanos;
+        samples++;
+        if (samples % 1000 == 0) {
+            forgive();
+        }
+    }
+
+    private void penalize(long nowNanos) {
+        latencyNanos = Math.max(latency(nowNanos) * 2, failurePenaltyNanos);
+        latencyKnown = true;
+        stampNanos = nowNanos;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.clinic.apigateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.clinic.apigateway.filter.ResilienceGatewayFilterFactory;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Feeds {@link InstanceStatsRegistry} from routed requests: runs right after the load balancer picked an
+ * instance and measures until the instance's response headers arrive (the body is relayed afterwards, so
+ * long streams do not count as slow). Connection errors, 502, 503 and 504, and calls the route's Resilience
+ * timeout cancelled count as failures of the instance; other statuses, including application 5xx, as successes.
+ * Other cancels (the client went away) count as neither.
+ */
+public class InstanceStatsGlobalFilter implements GlobalFilter, Ordered {
+
+    private final InstanceStatsRegistry registry;
+
+    public InstanceStatsGlobalFilter(InstanceStatsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        final Response<ServiceInstance> response =
+                exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (response == null || !response.hasServer()) {
+            return chain.filter(exchange);
+        }
+        final ServiceInstance instance = response.getServer();
+        registry.start(instance);
+        final long startNanos = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    final boolean timedOut = signal == SignalType.CANCEL
+                            && ResilienceGatewayFilterFactory.isTimedOut(exchange);
+                    if (signal == SignalType.CANCEL && !timedOut) {
+                        registry.cancel(instance);
+                    } else if (timedOut || signal == SignalType.ON_ERROR
+                            || isUnavailable(exchange.getResponse().getStatusCode())) {
+                        registry.failure(instance);
+                    } else {
+                        registry.success(instance, System.nanoTime() - startNanos);
+                    }
+                });
+    }
+
+    /**
+     * 502, 503 and 504: the instance is unreachable or overloaded.
+     */
+    private static boolean isUnavailable(HttpStatusCode status) {
+        return status != null && (status.value() == 502 || status.value() == 503 || status.value() == 504);
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.clinic.apigateway.loadbalancer;
+
+import java.time.Duration;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@link InstanceStats} of every instance the gateway has talked to, shared by the load balancers of all
+ * services and the filters that observe the calls. Instances not used for an hour are forgotten, so
+ * instances that left the registry do not accumulate.
+ */
+public class InstanceStatsRegistry {
+
+    private final Cache<String, InstanceStats> stats = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+    private final LoadBalancerSettings settings;
+    private final MeterRegistry meterRegistry;
+
+    public InstanceStatsRegistry(LoadBalancerSettings settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+    }
+
+    InstanceStats get(ServiceInstance instance) {
+        return stats.get(key(instance), k -> new InstanceStats(settings.decayTime().toNanos(),
+                settings.failurePenalty().toNanos()));
+    }
+
+    LoadBalancerSettings settings() {
+        return settings;
+    }
+
+    /**
+     * Call started on an instance picked by a load balancer.
+     */
+    public void start(ServiceInstance instance) {
+        get(instance).start();
+    }
+
+    /**
+     * Call finished with a usable response; a negative <code>rttNanos</code> records no latency sample.
+     */
+    public void success(ServiceInstance instance, long rttNanos) {
+        get(instance).success(rttNanos);
+    }
+
+    /**
+     * Call failed in a way that points at the instance; raises its latency estimate rather than sampling the
+     * failed call, and ejects it after too many failures in a row.
+     */
+    public void failure(ServiceInstance instance) {
+        final InstanceStats instanceStats = get(instance);
+        if (instanceStats.failure() >= settings.consecutiveErrors()) {
+            eject(instance, instanceStats, "errors");
+        }
+    }
+
+    public void cancel(ServiceInstance instance) {
+        get(instance).cancel();
+    }
+
+    void eject(ServiceInstance instance, InstanceStats instanceStats, String reason) {
+        instanceStats.eject(System.nanoTime(), settings.ejectionTime().toNanos());
+        meterRegistry.counter("gateway.lb.ejections",
+                "service", String.valueOf(instance.getServiceId()),
+                "reason", reason).increment();
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + '@' + instance.getHost() + ':' + instance.getPort();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.clinic.apigateway.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Picks the instance of a service with the lower expected cost out of two chosen at random ("power of two
+ * choices"), where the cost is the instance's latency average times the requests it already has in flight.
+ * Two random candidates keep the choice cheap and avoid the herding onto one "best" instance that always taking
+ * the minimum causes.
+ * <p>
+ * Instances are ejected for a while after too many failures in a row (see {@link InstanceStatsRegistry}) or when
+ * their latency is a large multiple of the median of the others. Never more than
+ * <code>max-ejection-percent</code> of the instances are out at once, and when all are out they are all used,
+ * so ejection cannot take a service down on its own.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    // added to every latency so idle instances with no samples yet are still ranked by their in-flight count
+    private static final double BASE_COST_NANOS = 1_000_000;
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final InstanceStatsRegistry registry;
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+            InstanceStatsRegistry registry) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        return choose(request, null);
+    }
+
+    /**
+     * Like {@link #choose(Request)}, but never <code>avoid</code> unless it is the only instance; used for
+     * hedged requests, which should go to a different instance than the first attempt.
+     */
+    public Mono<Response<ServiceInstance>> chooseOther(Request request, ServiceInstance avoid) {
+        return choose(request, avoid);
+    }
+
+    private Mono<Response<ServiceInstance>> choose(Request request, ServiceInstance avoid) {
+        final ServiceInstanceListSupplier supplier =
+                serviceInstanceListSupplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> select(instances, avoid));
+    }
+
+    private Response<ServiceInstance> select(List<ServiceInstance> instances, ServiceInstance avoid) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        final long now = System.nanoTime();
+        final List<Candidate> candidates = new ArrayList<>(instances.size());
+        int ejected = 0;
+        for (ServiceInstance instance : instances) {
+            final InstanceStats stats = registry.get(instance);
+            if (stats.isEjected(now)) {
+                ejected++;
+            } else {
+                candidates.add(new Candidate(instance, stats, stats.latency(now)));
+            }
+        }
+        ejectSlowest(candidates, instances.size(), ejected);
+        if (candidates.isEmpty()) {
+            for (ServiceInstance instance : instances) {
+                final InstanceStats stats = registry.get(instance);
+                candidates.add(new Candidate(instance, stats, stats.latency(now)));
+            }
+        }
+        if (avoid != null && candidates.size() > 1) {
+            candidates.removeIf(candidate -> sameInstance(candidate.instance(), avoid));
+        }
+        return new DefaultResponse(pick(candidates).instance());
+    }
+
+    /**
+     * Eject the slowest candidate if it is an outlier and the ejection budget allows it.
+     */
+    private void ejectSlowest(List<Candidate> candidates, int total, int ejected) {
+        final LoadBalancerSettings settings = registry.settings();
+        if (candidates.size() < 2 || (ejected + 1) * 100 > total * settings.maxEjectionPercent()) {
+            return;
+        }
+        final List<Candidate> measured = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            if (candidate.stats().samples() >= settings.minSamples()) {
+                measured.add(candidate);
+            }
+        }
+        if (measured.size() < 2) {
+            return;
+        }
+        measured.sort(Comparator.comparingDouble(Candidate::latency));
+        final Candidate slowest = measured.get(measured.size() - 1);
+        // median of the others
+        final double median = measured.get((measured.size() - 1) / 2).latency();
+        if (slowest.latency() < settings.latencyOutlierMinimum().toNanos()
+                || slowest.latency() <= median * settings.latencyOutlierFactor()) {
+            return;
+        }
+        registry.eject(slowest.instance(), slowest.stats(), "latency");
+        candidates.remove(slowest);
+    }
+
+    private static Candidate pick(List<Candidate> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        final Candidate a = candidates.get(first);
+        final Candidate b = candidates.get(second);
+        return a.cost() <= b.cost() ? a : b;
+    }
+
+    static boolean sameInstance(ServiceInstance a, ServiceInstance b) {
+        return a.getHost().equals(b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    private record Candidate(ServiceInstance instance, InstanceStats stats, double latency) {
+
+        double cost() {
+            return (latency + BASE_COST_NANOS) * (stats.inFlight() + 1);
+        }
+    }
+}
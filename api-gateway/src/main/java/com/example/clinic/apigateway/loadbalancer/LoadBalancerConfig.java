@@ -0,0 +1,41 @@
+package com.example.clinic.apigateway.loadbalancer;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Replaces the round-robin load balancer of every lb:// service with {@link LatencyAwareLoadBalancer}, unless
+ * <code>gateway.load-balancer.strategy</code> is set to anything but <code>latency-aware</code>.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.load-balancer.strategy", havingValue = "latency-aware", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+
+    @Bean
+    InstanceStatsRegistry instanceStatsRegistry(MeterRegistry meterRegistry,
+            @Value("${gateway.load-balancer.decay-time:10s}") Duration decayTime,
+            @Value("${gateway.load-balancer.failure-penalty:1s}") Duration failurePenalty,
+            @Value("${gateway.load-balancer.consecutive-errors:5}") int consecutiveErrors,
+            @Value("${gateway.load-balancer.ejection-time:30s}") Duration ejectionTime,
+            @Value("${gateway.load-balancer.max-ejection-percent:50}") int maxEjectionPercent,
+            @Value("${gateway.load-balancer.latency-outlier-factor:3.0}") double latencyOutlierFactor,
+            @Value("${gateway.load-balancer.latency-outlier-minimum:50ms}") Duration latencyOutlierMinimum,
+            @Value("${gateway.load-balancer.min-samples:20}") int minSamples) {
+        return new InstanceStatsRegistry(new LoadBalancerSettings(decayTime, failurePenalty, consecutiveErrors,
+                ejectionTime, maxEjectionPercent, latencyOutlierFactor, latencyOutlierMinimum, minSamples),
+                meterRegistry);
+    }
+
+    @Bean
+    InstanceStatsGlobalFilter instanceStatsGlobalFilter(InstanceStatsRegistry instanceStatsRegistry) {
+        return new InstanceStatsGlobalFilter(instanceStatsRegistry);
+    }
+}
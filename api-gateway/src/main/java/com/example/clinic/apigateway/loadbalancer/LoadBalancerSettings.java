@@ -0,0 +1,27 @@
+package com.example.clinic.apigateway.loadbalancer;
+
+import java.time.Duration;
+
+/**
+ * Tuning of {@link LatencyAwareLoadBalancer}, from the gateway.load-balancer.* properties.
+ *
+ * @param decayTime time constant of the latency average
+ * @param failurePenalty latency estimate a failed call raises an instance to at least; it doubles otherwise
+ * @param consecutiveErrors failures in a row that eject an instance
+ * @param ejectionTime how long a first ejection lasts; repeated ones last a multiple of it
+ * @param maxEjectionPercent share of a service's instances that may be ejected at the same time
+ * @param latencyOutlierFactor latency, relative to the median of the service, above which an instance is ejected
+ * @param latencyOutlierMinimum latency below which an instance is never ejected for being slow
+ * @param minSamples samples an instance needs before it can be ejected for being slow
+ */
+public record LoadBalancerSettings(
+        Duration decayTime,
+        Duration failurePenalty,
+        int consecutiveErrors,
+        Duration ejectionTime,
+        int maxEjectionPercent,
+        double latencyOutlierFactor,
+        Duration latencyOutlierMinimum,
+        int minSamples
+) {
+}
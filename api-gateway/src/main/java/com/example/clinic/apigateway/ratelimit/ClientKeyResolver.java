@@ -0,0 +1,91 @@
+package com.example.clinic.apigateway.ratelimit;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.List;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import io.netty.handler.ipfilter.IpFilterRuleType;
+import io.netty.handler.ipfilter.IpSubnetFilterRule;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rate-limit key of the client behind a request, in order of preference:
+ * <ol>
+ * <li>the authenticated principal, <code>user:&lt;name&gt;</code>;</li>
+ * <li>when the peer is one of the trusted proxies, the client id header it sets, <code>id:&lt;value&gt;</code>,
+ * or else the client address it appended to X-Forwarded-For, <code>ip:&lt;address&gt;</code>;</li>
+ * <li>the peer address, <code>ip:&lt;address&gt;</code>.</li>
+ * </ol>
+ * The client id header of any other peer is ignored: a client choosing its own key could take a fresh bucket
+ * with every request and, by sending many ids, push real clients' buckets out of the bounded store.
+ */
+public class ClientKeyResolver implements KeyResolver {
+
+    private final String clientHeader;
+    private final List<IpSubnetFilterRule> trustedProxies;
+    private final XForwardedRemoteAddressResolver forwardedResolver =
+            XForwardedRemoteAddressResolver.maxTrustedIndex(1);
+
+    /**
+     * @param trustedProxies addresses or CIDR ranges, e.g. <code>10.0.0.0/8</code>; empty trusts no proxy
+     */
+    public ClientKeyResolver(String clientHeader, List<String> trustedProxies) {
+        this.clientHeader = clientHeader;
+        this.trustedProxies = trustedProxies.stream()
+                .filter(StringUtils::hasText)
+                .map(ClientKeyResolver::subnet)
+                .toList();
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .filter(StringUtils::hasText)
+                .map(name -> "user:" + name)
+                .switchIfEmpty(Mono.fromSupplier(() -> fromConnection(exchange)));
+    }
+
+    private String fromConnection(ServerWebExchange exchange) {
+        final InetSocketAddress peer = exchange.getRequest().getRemoteAddress();
+        if (peer == null || peer.getAddress() == null) {
+            return "ip:unknown";
+        }
+        if (!isTrusted(peer)) {
+            return "ip:" + peer.getAddress().getHostAddress();
+        }
+        final String client = exchange.getRequest().getHeaders().getFirst(clientHeader);
+        if (StringUtils.hasText(client)) {
+            return "id:" + client;
+        }
+        // the last X-Forwarded-For entry, appended by the trusted proxy; the peer itself when there is none
+        final InetSocketAddress forwarded = forwardedResolver.resolve(exchange);
+        return "ip:" + (forwarded.getAddress() != null
+                ? forwarded.getAddress().getHostAddress()
+                : forwarded.getHostString());
+    }
+
+    private boolean isTrusted(InetSocketAddress peer) {
+        for (IpSubnetFilterRule proxy : trustedProxies) {
+            if (proxy.matches(peer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static IpSubnetFilterRule subnet(String proxy) {
+        final String trimmed = proxy.trim();
+        final int slash = trimmed.indexOf('/');
+        if (slash < 0) {
+            return new IpSubnetFilterRule(trimmed, trimmed.contains(":") ? 128 : 32, IpFilterRuleType.ACCEPT);
+        }
+        return new IpSubnetFilterRule(trimmed.substring(0, slash), Integer.parseInt(trimmed.substring(slash + 1)),
+                IpFilterRuleType.ACCEPT);
+    }
+}
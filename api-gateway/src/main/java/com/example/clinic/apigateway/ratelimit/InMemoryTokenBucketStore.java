@@ -0,0 +1,78 @@
+package com.example.clinic.apigateway.ratelimit;
+
+import java.time.Duration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Token buckets in a bounded Caffeine cache. Buckets untouched for <code>idleExpiry</code> are evicted;
+ * an evicted bucket would have refilled to full by then anyway, so eviction never loosens a limit that
+ * was still in effect (as long as idleExpiry exceeds burstCapacity / replenishRate).
+ */
+public class InMemoryTokenBucketStore implements TokenBucketStore {
+
+    private final Cache<String, Bucket> buckets;
+
+    public InMemoryTokenBucketStore(long maximumSize, Duration idleExpiry) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    @Override
+    public Mono<Result> tryConsume(String key, Bandwidth bandwidth, int tokens) {
+        final Bucket bucket = buckets.get(key, k -> new Bucket(bandwidth.burstCapacity()));
+        return Mono.just(bucket.tryConsume(bandwidth, tokens, System.nanoTime()));
+    }
+
+    @Override
+    public Mono<Void> refund(String key, Bandwidth bandwidth, int tokens) {
+        final Bucket bucket = buckets.getIfPresent(key);
+        if (bucket != null) {
+            bucket.refund(bandwidth, tokens);
+        }
+        return Mono.empty();
+    }
+
+    long size() {
+        return buckets.estimatedSize();
+    }
+
+    /**
+     * Refilled lazily on access from the time elapsed since the previous one.
+     */
+    static final class Bucket {
+
+        private double tokens;
+        private long lastRefillNanos;
+
+        Bucket(long initialTokens) {
+            this.tokens = initialTokens;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized Result tryConsume(Bandwidth bandwidth, int requested, long nowNanos) {
+            final double elapsedSeconds = Math.max(0, nowNanos - lastRefillNanos) / 1e9;
+            tokens = Math.min(bandwidth.burstCapacity(), tokens + elapsedSeconds * bandwidth.replenishRate());
+            lastRefillNanos = nowNanos;
+
+            if (tokens >= requested) {
+                tokens -= requested;
+                return new Result(true, (long) tokens, Duration.ZERO);
+            }
+            final double missing = requested - tokens;
+            final long waitNanos = bandwidth.replenishRate() > 0
+                    ? (long) Math.ceil(missing / bandwidth.replenishRate() * 1e9)
+                    : Long.MAX_VALUE;
+            return new Result(false, (long) tokens, Duration.ofNanos(waitNanos));
+        }
+
+        synchronized void refund(Bandwidth bandwidth, int refunded) {
+            tokens = Math.min(bandwidth.burstCapacity(), tokens + refunded);
+        }
+    }
+}
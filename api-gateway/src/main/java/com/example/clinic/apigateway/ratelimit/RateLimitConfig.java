@@ -0,0 +1,55 @@
+package com.example.clinic.apigateway.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Rate limiter and client key resolver picked up by the <code>RequestRateLimiter</code> route filters.
+ */
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.rate-limit.store", havingValue = "memory", matchIfMissing = true)
+    TokenBucketStore tokenBucketStore(MeterRegistry meterRegistry,
+            @Value("${gateway.rate-limit.maximum-buckets:100000}") long maximumBuckets,
+            @Value("${gateway.rate-limit.idle-expiry:10m}") Duration idleExpiry) {
+        final InMemoryTokenBucketStore store = new InMemoryTokenBucketStore(maximumBuckets, idleExpiry);
+        Gauge.builder("gateway.ratelimit.buckets", store, InMemoryTokenBucketStore::size)
+                .description("Token buckets held in memory")
+                .register(meterRegistry);
+        return store;
+    }
+
+    @Bean
+    TokenBucketRateLimiter tokenBucketRateLimiter(TokenBucketStore tokenBucketStore,
+            ConfigurationService configurationService, MeterRegistry meterRegistry,
+            @Value("${gateway.rate-limit.replenish-rate:50}") double replenishRate,
+            @Value("${gateway.rate-limit.burst-capacity:100}") long burstCapacity,
+            @Value("${gateway.rate-limit.scale:1}") double scale) {
+        final TokenBucketRateLimiter.Config defaults = new TokenBucketRateLimiter.Config();
+        defaults.setReplenishRate(replenishRate);
+        defaults.setBurstCapacity(burstCapacity);
+        return new TokenBucketRateLimiter(tokenBucketStore, defaults, configurationService, meterRegistry, scale);
+    }
+
+    /**
+     * Keys the per-client buckets, see {@link ClientKeyResolver}. The client id header is only honoured from
+     * <code>gateway.rate-limit.trusted-proxies</code>.
+     */
+    @Bean
+    KeyResolver clientKeyResolver(@Value("${gateway.rate-limit.client-header:X-Client-Id}") String clientHeader,
+            @Value("${gateway.rate-limit.trusted-proxies:}") List<String> trustedProxies) {
+        return new ClientKeyResolver(clientHeader, trustedProxies);
+    }
+}
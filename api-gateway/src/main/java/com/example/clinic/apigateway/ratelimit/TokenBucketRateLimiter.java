@@ -0,0 +1,170 @@
+package com.example.clinic.apigateway.ratelimit;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Token-bucket {@link org.springframework.cloud.gateway.filter.ratelimit.RateLimiter} for the built-in
+ * <code>RequestRateLimiter</code> filter, which answers 429 on its own when a request is denied.
+ *
+ * Every client (see {@link RateLimitConfig#clientKeyResolver}) gets its own bucket per route; a route may
+ * additionally cap all of its clients together. Route arguments, all optional:
+ * <pre>
+ * - name: RequestRateLimiter
+ *   args:
+ *     token-bucket.replenish-rate: 20          # per client, tokens per second
+ *     token-bucket.burst-capacity: 40          # per client
+ *     token-bucket.route-replenish-rate: 500   # all clients of the route, 0 for no route-wide limit
+ *     token-bucket.route-burst-capacity: 1000
+ * </pre>
+ * Routes without arguments use the gateway.rate-limit.* defaults. gateway.rate-limit.scale multiplies every rate
+ * and capacity, route arguments and defaults alike, e.g. to keep a load test from measuring the limits rather
+ * than the services. A request the route-wide bucket denies does
+ * not cost its client anything. Denied requests carry Retry-After (whole seconds); all carry
+ * X-RateLimit-Remaining.
+ *
+ * Metrics: gateway.ratelimit.requests{route,result=allowed|limited}.
+ */
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "token-bucket";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final TokenBucketStore store;
+    private final Config defaultConfig;
+    private final MeterRegistry meterRegistry;
+    private final double scale;
+
+    public TokenBucketRateLimiter(TokenBucketStore store, Config defaultConfig,
+                                  ConfigurationService configurationService, MeterRegistry meterRegistry) {
+        this(store, defaultConfig, configurationService, meterRegistry, 1);
+    }
+
+    public TokenBucketRateLimiter(TokenBucketStore store, Config defaultConfig,
+                                  ConfigurationService configurationService, MeterRegistry meterRegistry,
+                                  double scale) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        if (scale <= 0) {
+            throw new IllegalArgumentException("gateway.rate-limit.scale must be positive, was " + scale);
+        }
+        this.store = store;
+        this.defaultConfig = defaultConfig;
+        this.meterRegistry = meterRegistry;
+        this.scale = scale;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        final Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        final String clientKey = routeId + '|' + id;
+        final TokenBucketStore.Bandwidth clientBandwidth = scaled(config.clientBandwidth());
+        return store.tryConsume(clientKey, clientBandwidth, config.getRequestedTokens())
+                .flatMap(client -> {
+                    if (!client.allowed() || config.getRouteReplenishRate() <= 0) {
+                        return Mono.just(respond(routeId, client, client));
+                    }
+                    return store.tryConsume(routeId, scaled(config.routeBandwidth()), config.getRequestedTokens())
+                            .flatMap(route -> route.allowed()
+                                    ? Mono.just(respond(routeId, client, route))
+                                    // the request does not go through, so the client keeps its tokens
+                                    : store.refund(clientKey, clientBandwidth, config.getRequestedTokens())
+                                            .thenReturn(respond(routeId, client, route)));
+                });
+    }
+
+    private TokenBucketStore.Bandwidth scaled(TokenBucketStore.Bandwidth bandwidth) {
+        if (scale == 1) {
+            return bandwidth;
+        }
+        return new TokenBucketStore.Bandwidth(bandwidth.replenishRate() * scale,
+                (long) Math.ceil(bandwidth.burstCapacity() * scale));
+    }
+
+    private Response respond(String routeId, TokenBucketStore.Result client, TokenBucketStore.Result route) {
+        final boolean allowed = client.allowed() && route.allowed();
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(REMAINING_HEADER, String.valueOf(allowed ? client.remaining() : 0));
+        if (!allowed) {
+            final Duration wait = client.allowed() ? route.retryAfter() : client.retryAfter();
+            headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(wait)));
+        }
+        meterRegistry.counter("gateway.ratelimit.requests",
+                "route", routeId,
+                "result", allowed ? "allowed" : "limited").increment();
+        return new Response(allowed, headers);
+    }
+
+    /**
+     * Retry-After takes whole seconds; round up so a client honouring it finds its tokens refilled.
+     */
+    private static long retryAfterSeconds(Duration wait) {
+        final long seconds = wait.toSeconds() + (wait.toNanosPart() > 0 ? 1 : 0);
+        return Math.max(1, seconds);
+    }
+
+    public static class Config {
+
+        private double replenishRate = 50;
+        private long burstCapacity = 100;
+        private double routeReplenishRate;
+        private long routeBurstCapacity;
+        private int requestedTokens = 1;
+
+        TokenBucketStore.Bandwidth clientBandwidth() {
+            return new TokenBucketStore.Bandwidth(replenishRate, burstCapacity);
+        }
+
+        TokenBucketStore.Bandwidth routeBandwidth() {
+            return new TokenBucketStore.Bandwidth(routeReplenishRate,
+                    routeBurstCapacity > 0 ? routeBurstCapacity : (long) Math.ceil(routeReplenishRate));
+        }
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public long getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(long burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+
+        public double getRouteReplenishRate() {
+            return routeReplenishRate;
+        }
+
+        public void setRouteReplenishRate(double routeReplenishRate) {
+            this.routeReplenishRate = routeReplenishRate;
+        }
+
+        public long getRouteBurstCapacity() {
+            return routeBurstCapacity;
+        }
+
+        public void setRouteBurstCapacity(long routeBurstCapacity) {
+            this.routeBurstCapacity = routeBurstCapacity;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public void setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+        }
+    }
+}
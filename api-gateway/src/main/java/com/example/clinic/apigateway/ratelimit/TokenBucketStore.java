@@ -0,0 +1,38 @@
+package com.example.clinic.apigateway.ratelimit;
+
+import java.time.Duration;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Where the token buckets of {@link TokenBucketRateLimiter} live.
+ * The default {@link InMemoryTokenBucketStore} limits each gateway instance on its own; a shared store
+ * (Redis, Hazelcast, ...) can be plugged in as a bean to enforce one budget across instances.
+ */
+public interface TokenBucketStore {
+
+    /**
+     * Take <code>tokens</code> from the bucket stored under <code>key</code>, creating a full one if there is none.
+     */
+    Mono<Result> tryConsume(String key, Bandwidth bandwidth, int tokens);
+
+    /**
+     * Put back <code>tokens</code> taken by {@link #tryConsume} for a request that was denied further on,
+     * up to the bucket's capacity; does nothing when there is no bucket under <code>key</code>.
+     */
+    Mono<Void> refund(String key, Bandwidth bandwidth, int tokens);
+
+    /**
+     * Bucket shape: refilled continuously at <code>replenishRate</code> tokens per second, holding at most
+     * <code>burstCapacity</code>.
+     */
+    record Bandwidth(double replenishRate, long burstCapacity) {
+    }
+
+    /**
+     * @param remaining whole tokens left after this call
+     * @param retryAfter how long until enough tokens have been refilled, zero when allowed
+     */
+    record Result(boolean allowed, long remaining, Duration retryAfter) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.clinic.apigateway.chart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Chart composition against stubbed backends: each path answers with the given status and JSON body after the
+ * given delay, and the exchange is marked as routed by the "charts" route as the gateway would.
+ */
+class ChartControllerTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(500);
+    private static final String PATIENT = "/patients/1/summary";
+    private static final String RECORDS = "/patients/1/records";
+    private static final String VISITS = "/visits/patients/1";
+
+    private final Map<String, Backend> backends = new HashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Test
+    void fetchesTheThreeSectionsConcurrently() {
+        backends.put(PATIENT, new Backend(HttpStatus.OK, "{\"id\":1,\"firstName\":\"Jane\"}", Duration.ofMillis(200)));
+        backends.put(RECORDS, new Backend(HttpStatus.OK, "[{\"id\":7}]", Duration.ofMillis(200)));
+        backends.put(VISITS, new Backend(HttpStatus.OK, "[{\"id\":9}]", Duration.ofMillis(200)));
+
+        routed().get().uri("/charts/1").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.patientId").isEqualTo(1)
+            .jsonPath("$.patient.firstName").isEqualTo("Jane")
+            .jsonPath("$.records[0].id").isEqualTo(7)
+            .jsonPath("$.visits[0].id").isEqualTo(9)
+            .jsonPath("$.degraded").isEmpty();
+
+        assertThat(maxInFlight).hasValue(3);
+    }
+
+    @Test
+    void aSlowSectionTimesOutOnItsOwn() {
+        backends.put(PATIENT, new Backend(HttpStatus.OK, "{\"id\":1}", Duration.ZERO));
+        backends.put(RECORDS, new Backend(HttpStatus.OK, "[{\"id\":7}]", Duration.ofMillis(300)));
+        backends.put(VISITS, new Backend(HttpStatus.OK, "[]", Duration.ofSeconds(5)));
+
+        long started = System.nanoTime();
+        routed().get().uri("/charts/1").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.records[0].id").isEqualTo(7)
+            .jsonPath("$.visits").doesNotExist()
+            .jsonPath("$.degraded.visits").isEqualTo("timeout")
+            .jsonPath("$.degraded.records").doesNotExist();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void aFailingSectionIsReportedAsAnError() {
+        backends.put(PATIENT, new Backend(HttpStatus.OK, "{\"id\":1}", Duration.ZERO));
+        backends.put(RECORDS, new Backend(HttpStatus.SERVICE_UNAVAILABLE, "", Duration.ZERO));
+        backends.put(VISITS, new Backend(HttpStatus.OK, "[{\"id\":9}]", Duration.ZERO));
+
+        routed().get().uri("/charts/1").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.patient.id").isEqualTo(1)
+            .jsonPath("$.records").doesNotExist()
+            .jsonPath("$.visits[0].id").isEqualTo(9)
+            .jsonPath("$.degraded.records").isEqualTo("error");
+    }
+
+    @Test
+    void aPatientAnsweredWithAnEmptyBodyIsNotFound() {
+        backends.put(PATIENT, new Backend(HttpStatus.OK, "", Duration.ZERO));
+        backends.put(RECORDS, new Backend(HttpStatus.OK, "[]", Duration.ZERO));
+        backends.put(VISITS, new Backend(HttpStatus.OK, "[]", Duration.ZERO));
+
+        routed().get().uri("/charts/1").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void aPatientAnswered404IsNotFound() {
+        backends.put(PATIENT, new Backend(HttpStatus.NOT_FOUND, "", Duration.ZERO));
+        backends.put(RECORDS, new Backend(HttpStatus.OK, "[]", Duration.ZERO));
+        backends.put(VISITS, new Backend(HttpStatus.OK, "[]", Duration.ZERO));
+
+        routed().get().uri("/charts/1").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void aRequestThatBypassedTheRouteIsNotFound() {
+        backends.put(PATIENT, new Backend(HttpStatus.OK, "{\"id\":1}", Duration.ZERO));
+        backends.put(RECORDS, new Backend(HttpStatus.OK, "[]", Duration.ZERO));
+        backends.put(VISITS, new Backend(HttpStatus.OK, "[]", Duration.ZERO));
+
+        WebTestClient.bindToController(controller()).build()
+            .get().uri("/charts/1").exchange().expectStatus().isNotFound();
+        assertThat(maxInFlight).hasValue(0);
+    }
+
+    private WebTestClient routed() {
+        Route route = Route.async().id("charts").uri(URI.create("forward:/charts")).predicate(exchange -> true).build();
+        return WebTestClient.bindToController(controller())
+            .webFilter((exchange, chain) -> {
+                exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+                return chain.filter(exchange);
+            })
+            .configureClient()
+            .responseTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    private ChartController controller() {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            Backend backend = backends.get(request.url().getPath());
+            return Mono.delay(backend.delay())
+                .then(Mono.fromSupplier(() -> {
+                    ClientResponse.Builder response = ClientResponse.create(backend.status());
+                    // like Spring MVC writing a null or empty Optional: no body, no content type
+                    if (!backend.body().isEmpty()) {
+                        response.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).body(backend.body());
+                    }
+                    return response.build();
+                }))
+                .doOnSubscribe(subscription -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                .doFinally(signal -> inFlight.decrementAndGet());
+        });
+        return new ChartController(builder, TIMEOUT, TIMEOUT, TIMEOUT);
+    }
+
+    private record Backend(HttpStatus status, String body, Duration delay) {
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.clinic.apigateway.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.clinic.apigateway.filter.CircuitBreaker.State;
+
+class CircuitBreakerTest {
+
+    private final List<State> transitions = new ArrayList<>();
+
+    @Test
+    void opensOnceEnoughCallsFailed() {
+        CircuitBreaker breaker = breaker(10, 5, 50, Duration.ofMinutes(1), 2);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, false);
+        }
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        call(breaker, false);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isEqualTo(-1);
+        assertThat(breaker.remainingOpen()).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(1));
+        assertThat(transitions).containsExactly(State.OPEN);
+    }
+
+    @Test
+    void onlyTheLastWindowOfCallsCounts() {
+        CircuitBreaker breaker = breaker(4, 4, 75, Duration.ofMinutes(1), 1);
+        // two failures age out of the window before the next ones come in
+        for (boolean success : new boolean[] {false, false, true, true, true, true, false, false}) {
+            call(breaker, success);
+        }
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        call(breaker, false);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void closesWhenEveryProbeSucceeds() {
+        CircuitBreaker breaker = breaker(1, 1, 100, Duration.ZERO, 2);
+        call(breaker, false);
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isEqualTo(-1);
+
+        breaker.onResult(first, true);
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        breaker.onResult(second, true);
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+        assertThat(breaker.remainingOpen()).isZero();
+        assertThat(transitions).containsExactly(State.OPEN, State.HALF_OPEN, State.CLOSED);
+    }
+
+    @Test
+    void reopensOnTheFirstFailedProbe() {
+        CircuitBreaker breaker = breaker(1, 1, 100, Duration.ofMillis(200), 2);
+        call(breaker, false);
+        assertThat(breaker.tryAcquire()).isEqualTo(-1);
+        awaitHalfOpen(breaker);
+
+        long probe = breaker.tryAcquire();
+        assertThat(probe).isNotNegative();
+        breaker.onResult(probe, false);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isEqualTo(-1);
+        assertThat(transitions).containsExactly(State.OPEN, State.HALF_OPEN, State.OPEN);
+    }
+
+    @Test
+    void outcomesFromAnEarlierStateAreIgnored() {
+        CircuitBreaker breaker = breaker(1, 1, 100, Duration.ZERO, 1);
+        long slow = breaker.tryAcquire();
+        call(breaker, false);
+        long probe = breaker.tryAcquire();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+
+        // admitted while closed: must neither close nor reopen the half-open breaker
+        breaker.onResult(slow, false);
+        breaker.onResult(slow, true);
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+
+        breaker.onResult(probe, true);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void ignoredProbeGivesItsSlotBack() {
+        CircuitBreaker breaker = breaker(1, 1, 100, Duration.ZERO, 1);
+        call(breaker, false);
+        long probe = breaker.tryAcquire();
+        assertThat(breaker.tryAcquire()).isEqualTo(-1);
+
+        breaker.onIgnored(probe);
+
+        long retry = breaker.tryAcquire();
+        assertThat(retry).isEqualTo(probe);
+        breaker.onResult(retry, true);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    private CircuitBreaker breaker(int windowSize, int minimumCalls, int failureRatePercent, Duration openDuration,
+                                   int halfOpenCalls) {
+        return new CircuitBreaker(
+            new CircuitBreaker.Settings(windowSize, minimumCalls, failureRatePercent, openDuration, halfOpenCalls),
+            transitions::add);
+    }
+
+    private static void call(CircuitBreaker breaker, boolean success) {
+        long epoch = breaker.tryAcquire();
+        assertThat(epoch).isNotNegative();
+        breaker.onResult(epoch, success);
+    }
+
+    private static void awaitHalfOpen(CircuitBreaker breaker) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!breaker.remainingOpen().isZero()) {
+            assertThat(System.nanoTime() - deadline).isNegative();
+            Thread.onSpinWait();
+        }
+    }
+}
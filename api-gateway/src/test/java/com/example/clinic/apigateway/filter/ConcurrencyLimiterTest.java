@@ -0,0 +1,134 @@
+package com.example.clinic.apigateway.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.clinic.apigateway.filter.ConcurrencyLimiter.Permit;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void admitsUpToTheLimitThenSheds() {
+        ConcurrencyLimiter limiter = limiter(2, 10, 0, Duration.ofSeconds(5));
+
+        Permit first = limiter.acquire().block();
+        Permit second = limiter.acquire().block();
+
+        assertThat(first.waited()).isFalse();
+        assertThat(second.waited()).isFalse();
+        assertThat(limiter.inFlight()).isEqualTo(2);
+        StepVerifier.create(limiter.acquire()).verifyComplete();
+
+        first.ignore();
+        first.ignore();
+        assertThat(limiter.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void queuedRequestsGetTheNextFreePermit() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 10, 1, Duration.ofSeconds(5));
+        Permit held = limiter.acquire().block();
+
+        CompletableFuture<Permit> waiting = limiter.acquire().toFuture();
+        assertThat(waiting).isNotDone();
+        assertThat(limiter.queued()).isEqualTo(1);
+        // the queue holds one request: the next is shed right away
+        StepVerifier.create(limiter.acquire()).verifyComplete();
+
+        held.ignore();
+
+        Permit granted = waiting.get(5, TimeUnit.SECONDS);
+        assertThat(granted.waited()).isTrue();
+        assertThat(limiter.queued()).isZero();
+        assertThat(limiter.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void queuedRequestsAreShedAfterMaxWait() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 10, 1, Duration.ofMillis(50));
+        Permit held = limiter.acquire().block();
+
+        assertThat(limiter.acquire().toFuture().get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(limiter.queued()).isZero();
+
+        held.ignore();
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void cancelledWaitersLeaveTheQueue() {
+        ConcurrencyLimiter limiter = limiter(1, 10, 1, Duration.ofSeconds(5));
+        Permit held = limiter.acquire().block();
+        Disposable waiter = limiter.acquire().subscribe();
+        assertThat(limiter.queued()).isEqualTo(1);
+
+        waiter.dispose();
+        held.ignore();
+
+        assertThat(limiter.queued()).isZero();
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void droppedRequestsShrinkTheLimit() {
+        ConcurrencyLimiter limiter = limiter(10, 100, 0, Duration.ZERO);
+        List<Permit> permits = acquire(limiter, 10);
+
+        int previous = limiter.limit();
+        for (Permit permit : permits) {
+            permit.dropped();
+            assertThat(limiter.limit()).isLessThanOrEqualTo(previous);
+            previous = limiter.limit();
+        }
+
+        // every drop moves the limit to 0.9 * limit + 0.2 * sqrt(limit), whatever the latency
+        assertThat(limiter.limit()).isEqualTo(7);
+    }
+
+    @Test
+    void steadyLatencyAtTheLimitGrowsItUpToMax() throws InterruptedException {
+        ConcurrencyLimiter limiter = limiter(4, 6, 0, Duration.ZERO);
+
+        for (int round = 0; round < 20; round++) {
+            List<Permit> permits = acquire(limiter, limiter.limit());
+            Thread.sleep(5);
+            permits.forEach(Permit::success);
+        }
+
+        assertThat(limiter.limit()).isEqualTo(6);
+    }
+
+    @Test
+    void samplesFarBelowTheLimitLeaveItAlone() {
+        ConcurrencyLimiter limiter = limiter(10, 100, 0, Duration.ZERO);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire().block().success();
+        }
+
+        assertThat(limiter.limit()).isEqualTo(10);
+    }
+
+    private static ConcurrencyLimiter limiter(int initialLimit, int maxLimit, int maxQueue, Duration maxWait) {
+        return new ConcurrencyLimiter(new ConcurrencyLimiter.Settings(initialLimit, 1, maxLimit, maxQueue, maxWait, 2.0));
+    }
+
+    private static List<Permit> acquire(ConcurrencyLimiter limiter, int count) {
+        List<Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Permit permit = limiter.acquire().block();
+            assertThat(permit).isNotNull();
+            permits.add(permit);
+        }
+        return permits;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.clinic.apigateway.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.example.clinic.apigateway.loadbalancer.InstanceStatsRegistry;
+import com.example.clinic.apigateway.loadbalancer.LoadBalancerSettings;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Hedges between two local instances of a service, answering "fast" and "slow" after the given delays.
+ */
+class HedgeGatewayFilterFactoryTest {
+
+    private static final String SERVICE = "doctor-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HttpClientProperties httpClientProperties = new HttpClientProperties();
+    // a single failure ejects an instance, so every failure recorded shows as an ejection
+    private final InstanceStatsRegistry instanceStats = new InstanceStatsRegistry(new LoadBalancerSettings(
+        Duration.ofSeconds(10), Duration.ofSeconds(1), 1, Duration.ofSeconds(30), 100, 3.0, Duration.ofMillis(50), 20),
+        meterRegistry);
+    private final AtomicBoolean routedUnhedged = new AtomicBoolean();
+    private final GatewayFilterChain chain = exchange -> {
+        routedUnhedged.set(!ServerWebExchangeUtils.isAlreadyRouted(exchange));
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        return exchange.getResponse().setComplete();
+    };
+    private DisposableServer fast;
+    private DisposableServer slow;
+
+    @AfterEach
+    void stopInstances() {
+        for (DisposableServer server : new DisposableServer[] {fast, slow}) {
+            if (server != null) {
+                server.disposeNow();
+            }
+        }
+    }
+
+    @Test
+    void answersFromTheFirstInstanceWithoutHedgingWithinTheDelay() {
+        fast = instance("fast", Duration.ZERO);
+        slow = instance("slow", Duration.ofSeconds(2));
+
+        MockServerWebExchange exchange = hedge(config(Duration.ofMillis(500), 100), 4096, fast, slow);
+
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("fast");
+        assertThat(meterRegistry.find("gateway.hedge.requests").counters()).isEmpty();
+    }
+
+    @Test
+    void hedgesASlowRequestToTheOtherInstance() {
+        slow = instance("slow", Duration.ofSeconds(2));
+        fast = instance("fast", Duration.ZERO);
+
+        long start = System.nanoTime();
+        MockServerWebExchange exchange = hedge(config(Duration.ofMillis(50), 100), 4096, slow, fast);
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("fast");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(count("sent")).isEqualTo(1);
+        assertThat(count("won")).isEqualTo(1);
+        assertThat(routedUnhedged).isFalse();
+    }
+
+    @Test
+    void hedgesOnlyWithinTheBudget() {
+        slow = instance("slow", Duration.ofMillis(200));
+        fast = instance("fast", Duration.ZERO);
+        HedgeGatewayFilterFactory.Config config = config(Duration.ofMillis(20), 50);
+        HedgeGatewayFilterFactory factory = factory(4096, slow, fast);
+
+        // every request earns half a hedge: the first finds the budget empty and waits for the slow instance
+        assertThat(filter(factory, config).getResponse().getBodyAsString().block()).isEqualTo("slow");
+        assertThat(count("denied")).isEqualTo(1);
+
+        assertThat(filter(factory, config).getResponse().getBodyAsString().block()).isEqualTo("fast");
+        assertThat(count("sent")).isEqualTo(1);
+        assertThat(count("denied")).isEqualTo(1);
+    }
+
+    @Test
+    void aServiceWithOneInstanceSpendsNoHedges() {
+        slow = instance("slow", Duration.ofMillis(200));
+
+        MockServerWebExchange exchange = hedge(config(Duration.ofMillis(20), 100), 4096, slow);
+
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("slow");
+        // nowhere to send a hedge: neither sent nor denied, and the budget is not charged
+        assertThat(meterRegistry.find("gateway.hedge.requests").counters()).isEmpty();
+    }
+
+    @Test
+    void routesUnhedgedWhenTheBodyIsTooLargeToBuffer() {
+        fast = instance("a body longer than sixteen bytes", Duration.ZERO);
+        slow = instance("another body longer than sixteen bytes", Duration.ZERO);
+
+        MockServerWebExchange exchange = hedge(config(Duration.ofMillis(50), 100), 16, fast, slow);
+
+        assertThat(routedUnhedged).isTrue();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(count("fallback")).isEqualTo(1);
+        // the instances answered: that is not held against them
+        assertThat(meterRegistry.find("gateway.lb.ejections").counter()).isNull();
+    }
+
+    @Test
+    void routesUnhedgedWhenNoInstanceAnswersInTime() {
+        httpClientProperties.setResponseTimeout(Duration.ofMillis(100));
+        slow = instance("slow", Duration.ofSeconds(2));
+        fast = instance("also slow", Duration.ofSeconds(2));
+
+        long start = System.nanoTime();
+        hedge(config(Duration.ofMillis(20), 100), 4096, slow, fast);
+
+        assertThat(routedUnhedged).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(count("fallback")).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.lb.ejections").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void attemptsCancelledByTheRouteTimeoutCountAgainstTheirInstances() {
+        slow = instance("slow", Duration.ofSeconds(1));
+        fast = instance("also slow", Duration.ofSeconds(1));
+        ResilienceGatewayFilterFactory.Config resilience = new ResilienceGatewayFilterFactory.Config();
+        resilience.setRouteId(SERVICE);
+        resilience.setTimeout(Duration.ofMillis(200));
+        resilience.setRetries(0);
+        GatewayFilter hedge = factory(4096, slow, fast).apply(config(Duration.ofMillis(20), 100));
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/doctors/1").build());
+
+        new ResilienceGatewayFilterFactory(meterRegistry).apply(resilience)
+            .filter(exchange, e -> hedge.filter(e, chain)).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        assertThat(meterRegistry.get("gateway.lb.ejections").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void passesNonGetRequestsThrough() {
+        fast = instance("fast", Duration.ZERO);
+        slow = instance("slow", Duration.ZERO);
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.post("/doctors").build());
+
+        factory(4096, fast, slow).apply(config(Duration.ofMillis(50), 100)).filter(exchange, chain)
+            .block(Duration.ofSeconds(5));
+
+        assertThat(routedUnhedged).isTrue();
+        assertThat(meterRegistry.find("gateway.hedge.requests").counters()).isEmpty();
+    }
+
+    private MockServerWebExchange hedge(HedgeGatewayFilterFactory.Config config, int maxBodyBytes,
+                                        DisposableServer... instances) {
+        return filter(factory(maxBodyBytes, instances), config);
+    }
+
+    private MockServerWebExchange filter(HedgeGatewayFilterFactory factory, HedgeGatewayFilterFactory.Config config) {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/doctors/1").build());
+        factory.apply(config).filter(exchange, chain).block(Duration.ofSeconds(5));
+        return exchange;
+    }
+
+    /**
+     * A filter over the given instances; every request goes to the first one, its hedge to the second.
+     */
+    @SuppressWarnings("unchecked")
+    private HedgeGatewayFilterFactory factory(int maxBodyBytes, DisposableServer... instances) {
+        List<ServiceInstance> serviceInstances = List.of(instances).stream()
+            .map(server -> (ServiceInstance) new DefaultServiceInstance(String.valueOf(server.port()), SERVICE,
+                server.host(), server.port(), false))
+            .toList();
+        Map<Request<?>, AtomicInteger> choices = Collections.synchronizedMap(new IdentityHashMap<>());
+        ReactorServiceInstanceLoadBalancer loadBalancer = request -> Mono.just(new DefaultResponse(serviceInstances
+            .get(choices.computeIfAbsent(request, r -> new AtomicInteger()).getAndIncrement() % serviceInstances.size())));
+        LoadBalancerClientFactory loadBalancerClientFactory = mock(LoadBalancerClientFactory.class);
+        when(loadBalancerClientFactory.getInstance(SERVICE, ReactorServiceInstanceLoadBalancer.class))
+            .thenReturn(loadBalancer);
+
+        ObjectProvider<InstanceStatsRegistry> instanceStatsProvider = mock(ObjectProvider.class);
+        when(instanceStatsProvider.getIfAvailable()).thenReturn(instanceStats);
+
+        return new HedgeGatewayFilterFactory(loadBalancerClientFactory, instanceStatsProvider,
+            (ObjectProvider<List<HttpHeadersFilter>>) mock(ObjectProvider.class), meterRegistry,
+            HttpClient.create(), httpClientProperties, maxBodyBytes);
+    }
+
+    private static HedgeGatewayFilterFactory.Config config(Duration delay, int budgetPercent) {
+        HedgeGatewayFilterFactory.Config config = new HedgeGatewayFilterFactory.Config();
+        config.setRouteId(SERVICE);
+        config.setDelay(delay);
+        config.setBudgetPercent(budgetPercent);
+        return config;
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+            .id(SERVICE)
+            .uri(URI.create("lb://" + SERVICE))
+            .predicate(e -> true)
+            .build());
+        return exchange;
+    }
+
+    private static DisposableServer instance(String body, Duration delay) {
+        return HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .handle((request, response) -> response
+                .header("Content-Type", "text/plain")
+                .sendString(Mono.just(body).delayElement(delay)))
+            .bindNow();
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("gateway.hedge.requests").tag("result", result).counter().count();
+    }
+}
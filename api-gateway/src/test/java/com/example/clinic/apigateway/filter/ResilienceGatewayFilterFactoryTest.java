@@ -0,0 +1,204 @@
+package com.example.clinic.apigateway.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.test.StepVerifier;
+
+/**
+ * Runs the filter against a chain standing in for the routing filter: each attempt is answered by the next of
+ * the given {@link #attempts}, the last one repeating. Like NettyRoutingFilter, an attempt marks the exchange
+ * routed, leaves its client connection in the attributes and sets the status without committing the response,
+ * which NettyWriteResponseFilter only writes once the filter is done.
+ */
+class ResilienceGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "doctor-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResilienceGatewayFilterFactory factory = new ResilienceGatewayFilterFactory(meterRegistry);
+    private final List<Connection> connections = new ArrayList<>();
+    private final List<Boolean> routedBefore = new ArrayList<>();
+    private List<Function<ServerWebExchange, Mono<Void>>> attempts = List.of();
+
+    private final GatewayFilterChain chain = exchange -> {
+        routedBefore.add(ServerWebExchangeUtils.isAlreadyRouted(exchange)
+                || exchange.getResponse().getStatusCode() != null);
+        ServerWebExchangeUtils.setAlreadyRouted(exchange);
+        final Connection connection = mock(Connection.class);
+        connections.add(connection);
+        exchange.getAttributes().put(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR, connection);
+        return attempts.get(Math.min(connections.size(), attempts.size()) - 1).apply(exchange);
+    };
+
+    @Test
+    void retriesAnIdempotentRequestOnAFreshExchange() {
+        attempts = List.of(status(HttpStatus.SERVICE_UNAVAILABLE), error(new IOException("connection reset")),
+                status(HttpStatus.OK));
+
+        final MockServerWebExchange exchange = filter(config(2, Duration.ofSeconds(1)),
+                MockServerHttpRequest.get("/doctors/1"));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(connections).hasSize(3);
+        // each retry starts unrouted, without the failed status, and closes the failed attempt's connection
+        assertThat(routedBefore).containsExactly(false, false, false);
+        verify(connections.get(0), times(1)).dispose();
+        verify(connections.get(1), times(1)).dispose();
+        assertThat(meterRegistry.get("gateway.retry.attempts").tag("route", ROUTE).counter().count()).isEqualTo(2);
+        assertThat(calls("failure")).isEqualTo(2);
+        assertThat(calls("success")).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterTheLastRetry() {
+        attempts = List.of(status(HttpStatus.BAD_GATEWAY));
+
+        final MockServerWebExchange exchange = filter(config(2, Duration.ofSeconds(1)),
+                MockServerHttpRequest.get("/doctors/1"));
+
+        assertThat(connections).hasSize(3);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+    }
+
+    @Test
+    void doesNotRetryNonIdempotentRequests() {
+        attempts = List.of(status(HttpStatus.SERVICE_UNAVAILABLE), status(HttpStatus.OK));
+
+        final MockServerWebExchange exchange = filter(config(2, Duration.ofSeconds(1)),
+                MockServerHttpRequest.post("/doctors"));
+
+        assertThat(connections).hasSize(1);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(meterRegistry.find("gateway.retry.attempts").counter()).isNull();
+    }
+
+    @Test
+    void doesNotRetryOnceTheResponseIsCommitted() {
+        attempts = List.of(exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return exchange.getResponse().setComplete().then(Mono.error(new IOException("connection reset")));
+        }, status(HttpStatus.OK));
+        final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/doctors/1"));
+        final GatewayFilter filter = factory.apply(config(2, Duration.ofSeconds(1)));
+
+        StepVerifier.create(filter.filter(exchange, chain))
+                .expectError(IOException.class)
+                .verify(Duration.ofSeconds(5));
+        assertThat(connections).hasSize(1);
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        attempts = List.of(status(HttpStatus.NOT_FOUND), status(HttpStatus.OK));
+
+        final MockServerWebExchange exchange = filter(config(2, Duration.ofSeconds(1)),
+                MockServerHttpRequest.get("/doctors/9"));
+
+        assertThat(connections).hasSize(1);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(calls("success")).isEqualTo(1);
+    }
+
+    @Test
+    void anAttemptThatRunsOverTheTimeoutIsCancelledAndAnswered504() {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        attempts = List.of(exchange -> Mono.<Void>never().doOnCancel(() -> cancelled.set(true)));
+
+        final MockServerWebExchange exchange = filter(config(0, Duration.ofMillis(100)),
+                MockServerHttpRequest.get("/doctors/1"));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        assertThat(cancelled).isTrue();
+        assertThat(meterRegistry.get("gateway.timeouts").tag("route", ROUTE).counter().count()).isEqualTo(1);
+        assertThat(calls("failure")).isEqualTo(1);
+    }
+
+    @Test
+    void aTimedOutAttemptIsRetried() {
+        attempts = List.of(exchange -> Mono.never(), status(HttpStatus.OK));
+
+        final MockServerWebExchange exchange = filter(config(1, Duration.ofMillis(100)),
+                MockServerHttpRequest.get("/doctors/1"));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(connections).hasSize(2);
+        verify(connections.get(0)).dispose();
+        assertThat(meterRegistry.find("gateway.timeouts").counter()).isNull();
+    }
+
+    @Test
+    void anOpenCircuitAnswers503WithRetryAfter() {
+        attempts = List.of(status(HttpStatus.SERVICE_UNAVAILABLE));
+        final ResilienceGatewayFilterFactory.Config config = config(0, Duration.ofSeconds(1));
+        config.setWindowSize(2);
+        config.setMinimumCalls(2);
+        config.setOpenDuration(Duration.ofSeconds(10));
+        filter(config, MockServerHttpRequest.get("/doctors/1"));
+        filter(config, MockServerHttpRequest.get("/doctors/1"));
+
+        final MockServerWebExchange rejected = filter(config, MockServerHttpRequest.get("/doctors/1"));
+
+        assertThat(connections).hasSize(2);
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER))
+                .satisfies(seconds -> assertThat(Integer.parseInt(seconds)).isBetween(9, 10));
+        assertThat(calls("rejected")).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.circuit.state").tag("route", ROUTE).gauge().value())
+                .isEqualTo(CircuitBreaker.State.OPEN.ordinal());
+    }
+
+    private MockServerWebExchange filter(ResilienceGatewayFilterFactory.Config config,
+                                         MockServerHttpRequest.BaseBuilder<?> request) {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        factory.apply(config).filter(exchange, chain).block(Duration.ofSeconds(5));
+        return exchange;
+    }
+
+    private static ResilienceGatewayFilterFactory.Config config(int retries, Duration timeout) {
+        final ResilienceGatewayFilterFactory.Config config = new ResilienceGatewayFilterFactory.Config();
+        config.setRouteId(ROUTE);
+        config.setRetries(retries);
+        config.setTimeout(timeout);
+        config.setFirstBackoff(Duration.ofMillis(1));
+        config.setMaxBackoff(Duration.ofMillis(2));
+        return config;
+    }
+
+    private static Function<ServerWebExchange, Mono<Void>> status(HttpStatus status) {
+        return exchange -> {
+            exchange.getResponse().setStatusCode(status);
+            return Mono.empty();
+        };
+    }
+
+    private static Function<ServerWebExchange, Mono<Void>> error(Throwable error) {
+        return exchange -> Mono.error(error);
+    }
+
+    private double calls(String result) {
+        return meterRegistry.get("gateway.circuit.calls").tag("route", ROUTE).tag("result", result).counter().count();
+    }
+}
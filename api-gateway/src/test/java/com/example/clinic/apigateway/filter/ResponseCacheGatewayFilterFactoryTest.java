@@ -0,0 +1,261 @@
+package com.example.clinic.apigateway.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs the filter against a chain standing in for the upstream service, which counts its calls and answers
+ * with {@link #status} and a body naming the call, after {@link #delay}.
+ */
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "visits-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCacheGatewayFilterFactory factory =
+            new ResponseCacheGatewayFilterFactory(meterRegistry, 100, 1024, Duration.ZERO);
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile HttpStatus status = HttpStatus.OK;
+    private volatile Duration delay = Duration.ZERO;
+    private volatile RuntimeException failure;
+
+    private final GatewayFilterChain chain = exchange -> {
+        final int call = calls.incrementAndGet();
+        if (failure != null) {
+            return Mono.error(failure);
+        }
+        final ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set("X-Next-Cursor", "42");
+        response.getHeaders().set("X-RateLimit-Remaining", "7");
+        return Mono.delay(delay).then(response.writeWith(Mono.fromSupplier(() ->
+                response.bufferFactory().wrap(("{\"call\":" + call + "}").getBytes(StandardCharsets.UTF_8)))));
+    };
+
+    @Test
+    void answersRepeatedGetsFromTheCache() {
+        final GatewayFilter filter = filter(Duration.ofMinutes(1), null);
+
+        final MockServerWebExchange miss = get(filter, "/visits/1");
+        final MockServerWebExchange hit = get(filter, "/visits/1");
+
+        assertThat(calls).hasValue(1);
+        assertThat(miss.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(hit.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(hit.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(hit.getResponse().getBodyAsString().block()).isEqualTo("{\"call\":1}");
+        assertThat(get(filter, "/visits/2").getResponse().getBodyAsString().block()).isEqualTo("{\"call\":2}");
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(2);
+    }
+
+    @Test
+    void answersAMatchingIfNoneMatchWith304() {
+        final GatewayFilter filter = filter(Duration.ofMinutes(1), null);
+        final String etag = get(filter, "/visits/1").getResponse().getHeaders().getETag();
+        assertThat(etag).startsWith("\"");
+
+        final MockServerWebExchange revalidated = exchange(MockServerHttpRequest.get("/visits/1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag));
+        filter.filter(revalidated, chain).block(Duration.ofSeconds(5));
+
+        assertThat(revalidated.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidated.getResponse().getHeaders().getETag()).isEqualTo(etag);
+        assertThat(revalidated.getResponse().getBodyAsString().block()).isEmpty();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void goesUpstreamAgainOnceTheTtlRunsOut() throws InterruptedException {
+        final GatewayFilter filter = filter(Duration.ofMillis(50), null);
+        get(filter, "/visits/1");
+
+        Thread.sleep(100);
+
+        final MockServerWebExchange refreshed = get(filter, "/visits/1");
+        assertThat(calls).hasValue(2);
+        assertThat(refreshed.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(refreshed.getResponse().getBodyAsString().block()).isEqualTo("{\"call\":2}");
+    }
+
+    @Test
+    void identicalRequestsInFlightShareOneUpstreamCall() {
+        final GatewayFilter filter = filter(Duration.ofMinutes(1), null);
+        delay = Duration.ofMillis(200);
+        final MockServerWebExchange first = exchange(MockServerHttpRequest.get("/visits/1"));
+        final MockServerWebExchange second = exchange(MockServerHttpRequest.get("/visits/1"));
+
+        Mono.when(filter.filter(first, chain), Mono.delay(Duration.ofMillis(50)).then(filter.filter(second, chain)))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(calls).hasValue(1);
+        assertThat(count("collapsed")).isEqualTo(1);
+        assertThat(second.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("{\"call\":1}");
+    }
+
+    @Test
+    void replaysOnlyTheStoredRepresentationHeaders() {
+        final GatewayFilter filter = filter(Duration.ofMinutes(1), null);
+        get(filter, "/visits/1");
+
+        final HttpHeaders replayed = get(filter, "/visits/1").getResponse().getHeaders();
+
+        assertThat(replayed.getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(replayed.getFirst("X-Next-Cursor")).isEqualTo("42");
+        assertThat(replayed.getContentLength()).isEqualTo("{\"call\":1}".length());
+        assertThat(replayed).doesNotContainKey("X-RateLimit-Remaining");
+    }
+
+    @Test
+    void servesTheStaleEntryWhenTheUpstreamFails() throws InterruptedException {
+        final GatewayFilter filter = filter(Duration.ofMillis(50), Duration.ofMinutes(1));
+        get(filter, "/visits/1");
+        Thread.sleep(100);
+
+        status = HttpStatus.SERVICE_UNAVAILABLE;
+        final MockServerWebExchange unavailable = get(filter, "/visits/1");
+        status = HttpStatus.OK;
+        failure = new IllegalStateException("connection refused");
+        final MockServerWebExchange failed = get(filter, "/visits/1");
+
+        for (MockServerWebExchange exchange : new MockServerWebExchange[] {unavailable, failed}) {
+            assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(exchange.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("STALE");
+            assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("{\"call\":1}");
+        }
+        assertThat(calls).hasValue(3);
+        assertThat(count("stale")).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotCacheUnsuccessfulResponses() {
+        final GatewayFilter filter = filter(Duration.ofMinutes(1), null);
+        status = HttpStatus.NOT_FOUND;
+        get(filter, "/visits/1");
+        status = HttpStatus.OK;
+
+        assertThat(get(filter, "/visits/1").getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void aSuccessfulWriteEvictsTheRoute() {
+        final GatewayFilter filter = filter(Duration.ofMinutes(1), null);
+        get(filter, "/visits/1");
+        get(filter, "/visits?patientId=1");
+
+        status = HttpStatus.CREATED;
+        write(filter, MockServerHttpRequest.post("/visits/patients/1"));
+        status = HttpStatus.OK;
+
+        assertThat(get(filter, "/visits/1").getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(get(filter, "/visits?patientId=1").getResponse().getHeaders().getFirst("X-Cache"))
+                .isEqualTo("MISS");
+        assertThat(calls).hasValue(5);
+        assertThat(meterRegistry.get("gateway.cache.evictions").tag("route", ROUTE).counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void aFailedWriteKeepsTheRoute() {
+        final GatewayFilter filter = filter(Duration.ofMinutes(1), null);
+        get(filter, "/visits/1");
+
+        status = HttpStatus.BAD_REQUEST;
+        write(filter, MockServerHttpRequest.put("/visits/1"));
+        status = HttpStatus.OK;
+
+        assertThat(get(filter, "/visits/1").getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(meterRegistry.find("gateway.cache.evictions").counter()).isNull();
+    }
+
+    @Test
+    void aWriteKeepsOtherRoutes() {
+        final GatewayFilter filter = filter(Duration.ofMinutes(1), null);
+        final MockServerWebExchange doctors = exchange(MockServerHttpRequest.get("/doctors/1"), "doctor-service");
+        filter.filter(doctors, chain).block(Duration.ofSeconds(5));
+
+        status = HttpStatus.NO_CONTENT;
+        write(filter, MockServerHttpRequest.delete("/visits/1"));
+        status = HttpStatus.OK;
+
+        final MockServerWebExchange again = exchange(MockServerHttpRequest.get("/doctors/1"), "doctor-service");
+        filter.filter(again, chain).block(Duration.ofSeconds(5));
+        assertThat(again.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+    }
+
+    @Test
+    void aGetInFlightDuringAWriteIsNotStored() {
+        final GatewayFilter filter = filter(Duration.ofMinutes(1), null);
+        delay = Duration.ofMillis(200);
+        final Mono<Void> before = filter.filter(exchange(MockServerHttpRequest.get("/visits/1")), chain);
+        final Mono<Void> written = Mono.delay(Duration.ofMillis(50)).then(Mono.defer(() -> {
+            delay = Duration.ZERO;
+            status = HttpStatus.CREATED;
+            return filter.filter(exchange(MockServerHttpRequest.post("/visits/patients/1")), chain);
+        }));
+
+        Mono.when(before, written).block(Duration.ofSeconds(5));
+        status = HttpStatus.OK;
+
+        final MockServerWebExchange after = get(filter, "/visits/1");
+        assertThat(after.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(calls).hasValue(3);
+    }
+
+    private GatewayFilter filter(Duration ttl, Duration staleIfError) {
+        final ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setTtl(ttl);
+        config.setStaleIfError(staleIfError);
+        return factory.apply(config);
+    }
+
+    private MockServerWebExchange get(GatewayFilter filter, String path) {
+        final MockServerWebExchange exchange = exchange(MockServerHttpRequest.get(path));
+        filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+        return exchange;
+    }
+
+    private void write(GatewayFilter filter, MockServerHttpRequest.BaseBuilder<?> request) {
+        filter.filter(exchange(request), chain).block(Duration.ofSeconds(5));
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return exchange(request, ROUTE);
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request, String routeId) {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(request.build());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id(routeId)
+                .uri(URI.create("lb://" + routeId))
+                .predicate(e -> true)
+                .build());
+        return exchange;
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("gateway.cache.requests").tag("route", ROUTE).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.clinic.apigateway.loadbalancer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.example.clinic.apigateway.filter.ResilienceGatewayFilterFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final int ROUNDS = 200;
+
+    private final ServiceInstance a = instance("a");
+    private final ServiceInstance b = instance("b");
+    private final ServiceInstance c = instance("c");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void theCostlierOfTwoRandomInstancesIsNeverPicked() {
+        InstanceStatsRegistry registry = registry(50);
+        sample(registry, a, millis(1));
+        sample(registry, b, millis(2));
+        // slower, but not three times the median
+        sample(registry, c, millis(5));
+
+        Map<String, Integer> picks = choose(balancer(registry, a, b, c), ROUNDS);
+
+        // c is always the costlier of any pair it is drawn in, b only loses to a
+        assertThat(picks).doesNotContainKey("c");
+        assertThat(picks.get("a")).isGreaterThan(picks.get("b"));
+        assertThat(picks.get("b")).isPositive();
+    }
+
+    @Test
+    void requestsInFlightCountAgainstAnInstance() {
+        InstanceStatsRegistry registry = registry(50);
+        for (int i = 0; i < 3; i++) {
+            registry.start(a);
+        }
+
+        assertThat(choose(balancer(registry, a, b), ROUNDS)).containsOnlyKeys("b");
+
+        for (int i = 0; i < 3; i++) {
+            registry.cancel(a);
+        }
+        assertThat(choose(balancer(registry, a, b), ROUNDS)).containsKeys("a", "b");
+    }
+
+    @Test
+    void consecutiveErrorsEjectAnInstance() {
+        InstanceStatsRegistry registry = registry(50);
+        fail(registry, a, 4);
+        assertThat(choose(balancer(registry, a, b), ROUNDS)).containsKey("b");
+
+        fail(registry, a, 1);
+
+        assertThat(registry.get(a).isEjected(System.nanoTime())).isTrue();
+        assertThat(choose(balancer(registry, a, b, c), ROUNDS)).containsOnlyKeys("b", "c");
+        assertThat(meterRegistry.get("gateway.lb.ejections").tag("reason", "errors").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void anInstanceThatKeepsTimingOutIsEjected() {
+        InstanceStatsRegistry registry = registry(50);
+        GatewayFilter timeout = new ResilienceGatewayFilterFactory(meterRegistry).apply(resilience(Duration.ofMillis(20)));
+        InstanceStatsGlobalFilter statsFilter = new InstanceStatsGlobalFilter(registry);
+
+        for (int i = 0; i < 5; i++) {
+            MockServerWebExchange exchange = routedTo(a);
+            // an instance stuck in GC: no response ever arrives
+            timeout.filter(exchange, e -> statsFilter.filter(e, routed -> Mono.never())).block(Duration.ofSeconds(5));
+            assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        }
+
+        assertThat(registry.get(a).inFlight()).isZero();
+        assertThat(registry.get(a).isEjected(System.nanoTime())).isTrue();
+        assertThat(choose(balancer(registry, a, b), ROUNDS)).containsOnlyKeys("b");
+    }
+
+    @Test
+    void aClientGoingAwayIsNotHeldAgainstTheInstance() {
+        InstanceStatsRegistry registry = registry(50);
+        InstanceStatsGlobalFilter statsFilter = new InstanceStatsGlobalFilter(registry);
+
+        for (int i = 0; i < 5; i++) {
+            statsFilter.filter(routedTo(a), routed -> Mono.never()).subscribe().dispose();
+        }
+
+        assertThat(registry.get(a).inFlight()).isZero();
+        assertThat(registry.get(a).isEjected(System.nanoTime())).isFalse();
+        assertThat(registry.get(a).latency(System.nanoTime())).isZero();
+    }
+
+    @Test
+    void allInstancesAreUsedWhenAllAreEjected() {
+        InstanceStatsRegistry registry = registry(50);
+        registry.eject(a, registry.get(a), "errors");
+        registry.eject(b, registry.get(b), "errors");
+
+        assertThat(choose(balancer(registry, a, b), ROUNDS)).containsKeys("a", "b");
+    }
+
+    @Test
+    void latencyOutliersAreEjectedWithinTheEjectionBudget() {
+        InstanceStatsRegistry registry = registry(50);
+        sample(registry, a, millis(2));
+        sample(registry, b, millis(2));
+        sample(registry, c, millis(100));
+
+        assertThat(choose(balancer(registry, a, b, c), ROUNDS)).doesNotContainKey("c");
+
+        assertThat(registry.get(c).isEjected(System.nanoTime())).isTrue();
+        assertThat(meterRegistry.get("gateway.lb.ejections").tag("reason", "latency").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void latencyOutliersStayInWhenTheEjectionBudgetIsSpent() {
+        // one instance out of three is more than 20%
+        InstanceStatsRegistry registry = registry(20);
+        sample(registry, a, millis(2));
+        sample(registry, b, millis(2));
+        sample(registry, c, millis(100));
+
+        choose(balancer(registry, a, b, c), ROUNDS);
+
+        assertThat(registry.get(c).isEjected(System.nanoTime())).isFalse();
+        assertThat(meterRegistry.find("gateway.lb.ejections").counter()).isNull();
+    }
+
+    @Test
+    void slowInstancesAreNotEjectedBelowTheLatencyMinimum() {
+        InstanceStatsRegistry registry = registry(50);
+        sample(registry, a, Duration.ofMillis(1).toNanos() / 10);
+        sample(registry, b, Duration.ofMillis(1).toNanos() / 10);
+        sample(registry, c, Duration.ofMillis(1).toNanos() * 9 / 10);
+
+        choose(balancer(registry, a, b, c), ROUNDS);
+
+        assertThat(registry.get(c).isEjected(System.nanoTime())).isFalse();
+    }
+
+    @Test
+    void chooseOtherAvoidsTheGivenInstance() {
+        // no ejections, so the slow instance stays a candidate
+        InstanceStatsRegistry registry = registry(0);
+        sample(registry, a, millis(1));
+        sample(registry, b, millis(30));
+        LatencyAwareLoadBalancer balancer = balancer(registry, a, b);
+
+        for (int i = 0; i < ROUNDS; i++) {
+            assertThat(balancer.chooseOther(new DefaultRequest<>(), a).block().getServer().getInstanceId())
+                .isEqualTo("b");
+        }
+    }
+
+    @Test
+    void chooseOtherFallsBackToTheOnlyInstanceLeft() {
+        InstanceStatsRegistry registry = registry(50);
+        fail(registry, b, 5);
+
+        assertThat(balancer(registry, a).chooseOther(new DefaultRequest<>(), a).block().getServer())
+            .isEqualTo(a);
+        assertThat(balancer(registry, a, b).chooseOther(new DefaultRequest<>(), a).block().getServer())
+            .isEqualTo(a);
+    }
+
+    @Test
+    void noInstancesGiveAnEmptyResponse() {
+        assertThat(balancer(registry(50)).choose(new DefaultRequest<>()).block().hasServer()).isFalse();
+    }
+
+    private InstanceStatsRegistry registry(int maxEjectionPercent) {
+        return new InstanceStatsRegistry(new LoadBalancerSettings(Duration.ofHours(1), Duration.ofSeconds(1), 5,
+            Duration.ofMinutes(1), maxEjectionPercent, 3.0, Duration.ofMillis(1), 1), meterRegistry);
+    }
+
+    private static ResilienceGatewayFilterFactory.Config resilience(Duration timeout) {
+        ResilienceGatewayFilterFactory.Config config = new ResilienceGatewayFilterFactory.Config();
+        config.setRouteId("visits-service");
+        config.setTimeout(timeout);
+        config.setRetries(0);
+        return config;
+    }
+
+    private static MockServerWebExchange routedTo(ServiceInstance instance) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/visits/1").build());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR,
+            new DefaultResponse(instance));
+        return exchange;
+    }
+
+    private static LatencyAwareLoadBalancer balancer(InstanceStatsRegistry registry, ServiceInstance... instances) {
+        return new LatencyAwareLoadBalancer(ServiceInstanceListSuppliers.toProvider("visits-service", instances),
+            registry);
+    }
+
+    private static Map<String, Integer> choose(LatencyAwareLoadBalancer balancer, int rounds) {
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < rounds; i++) {
+            picks.merge(balancer.choose(new DefaultRequest<>()).block().getServer().getInstanceId(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static void sample(InstanceStatsRegistry registry, ServiceInstance instance, long rttNanos) {
+        registry.start(instance);
+        registry.success(instance, rttNanos);
+    }
+
+    private static void fail(InstanceStatsRegistry registry, ServiceInstance instance, int times) {
+        for (int i = 0; i < times; i++) {
+            registry.start(instance);
+            registry.failure(instance);
+        }
+    }
+
+    private static long millis(long millis) {
+        return Duration.ofMillis(millis).toNanos();
+    }
+
+    private static ServiceInstance instance(String id) {
+        return new DefaultServiceInstance(id, "visits-service", id + ".internal", 8083, false);
+    }
+}
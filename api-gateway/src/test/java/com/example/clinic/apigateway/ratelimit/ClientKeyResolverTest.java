@@ -0,0 +1,67 @@
+package com.example.clinic.apigateway.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+class ClientKeyResolverTest {
+
+    private final ClientKeyResolver resolver = new ClientKeyResolver("X-Client-Id", List.of("10.0.0.0/8", " 192.0.2.1 "));
+
+    @Test
+    void authenticatedUsersAreKeyedByName() {
+        ServerWebExchange exchange = exchange(request("203.0.113.7").header("X-Client-Id", "mobile"))
+                .mutate().principal(Mono.just((Principal) () -> "alice")).build();
+
+        assertThat(resolver.resolve(exchange).block()).isEqualTo("user:alice");
+    }
+
+    @Test
+    void untrustedPeersAreKeyedByAddressWhateverTheyClaim() {
+        ServerWebExchange exchange = exchange(request("203.0.113.7")
+                .header("X-Client-Id", "mobile")
+                .header("X-Forwarded-For", "198.51.100.1"));
+
+        assertThat(resolver.resolve(exchange).block()).isEqualTo("ip:203.0.113.7");
+    }
+
+    @Test
+    void trustedProxiesPassTheClientIdHeader() {
+        assertThat(resolver.resolve(exchange(request("10.1.2.3").header("X-Client-Id", "mobile"))).block())
+                .isEqualTo("id:mobile");
+        assertThat(resolver.resolve(exchange(request("192.0.2.1").header("X-Client-Id", "web"))).block())
+                .isEqualTo("id:web");
+    }
+
+    @Test
+    void trustedProxiesWithoutClientIdPassTheAddressTheyAppended() {
+        ServerWebExchange forwarded = exchange(request("10.1.2.3")
+                .header("X-Forwarded-For", "198.51.100.1, 198.51.100.2"));
+        ServerWebExchange direct = exchange(request("10.1.2.3"));
+
+        assertThat(resolver.resolve(forwarded).block()).isEqualTo("ip:198.51.100.2");
+        assertThat(resolver.resolve(direct).block()).isEqualTo("ip:10.1.2.3");
+    }
+
+    @Test
+    void noPeerAddressSharesOneKey() {
+        assertThat(resolver.resolve(exchange(MockServerHttpRequest.get("/"))).block()).isEqualTo("ip:unknown");
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> request(String peer) {
+        return MockServerHttpRequest.get("/").remoteAddress(new InetSocketAddress(peer, 40000));
+    }
+
+    private static ServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.clinic.apigateway.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.clinic.apigateway.ratelimit.InMemoryTokenBucketStore.Bucket;
+import com.example.clinic.apigateway.ratelimit.TokenBucketStore.Bandwidth;
+import com.example.clinic.apigateway.ratelimit.TokenBucketStore.Result;
+
+/**
+ * Buckets are created after <code>start</code> and driven with explicit timestamps, so a first call at
+ * <code>start</code> refills nothing and refills are exact.
+ */
+class InMemoryTokenBucketStoreTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final Bandwidth bandwidth = new Bandwidth(5, 10);
+
+    @Test
+    void refillsAtTheReplenishRateUpToCapacity() {
+        long start = System.nanoTime();
+        Bucket bucket = new Bucket(bandwidth.burstCapacity());
+
+        assertThat(bucket.tryConsume(bandwidth, 10, start)).isEqualTo(new Result(true, 0, Duration.ZERO));
+        assertThat(bucket.tryConsume(bandwidth, 5, start + SECOND)).isEqualTo(new Result(true, 0, Duration.ZERO));
+        assertThat(bucket.tryConsume(bandwidth, 1, start + 100 * SECOND).remaining()).isEqualTo(9);
+    }
+
+    @Test
+    void deniedRequestsTakeNothingAndSayHowLongToWait() {
+        long start = System.nanoTime();
+        Bucket bucket = new Bucket(2);
+
+        Result denied = bucket.tryConsume(bandwidth, 3, start);
+
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.remaining()).isEqualTo(2);
+        assertThat(denied.retryAfter()).isEqualTo(Duration.ofMillis(200));
+        assertThat(bucket.tryConsume(bandwidth, 3, start + SECOND / 5).allowed()).isTrue();
+    }
+
+    @Test
+    void aBucketThatNeverRefillsNeverAllowsAgain() {
+        Bandwidth fixed = new Bandwidth(0, 1);
+        long start = System.nanoTime();
+        Bucket bucket = new Bucket(1);
+
+        assertThat(bucket.tryConsume(fixed, 1, start).allowed()).isTrue();
+        Result denied = bucket.tryConsume(fixed, 1, start + 1000 * SECOND);
+
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.retryAfter()).isEqualTo(Duration.ofNanos(Long.MAX_VALUE));
+    }
+
+    @Test
+    void refundsAreCappedAndNeedAnExistingBucket() {
+        InMemoryTokenBucketStore store = new InMemoryTokenBucketStore(100, Duration.ofMinutes(10));
+        Bandwidth bandwidth = new Bandwidth(0, 10);
+
+        store.refund("absent", bandwidth, 3).block();
+        assertThat(store.size()).isZero();
+
+        assertThat(store.tryConsume("client", bandwidth, 4).block().remaining()).isEqualTo(6);
+        store.refund("client", bandwidth, 3).block();
+        assertThat(store.tryConsume("client", bandwidth, 0).block().remaining()).isEqualTo(9);
+        store.refund("client", bandwidth, 5).block();
+        assertThat(store.tryConsume("client", bandwidth, 0).block().remaining()).isEqualTo(10);
+    }
+}
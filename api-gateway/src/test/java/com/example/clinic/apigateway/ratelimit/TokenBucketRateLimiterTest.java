@@ -0,0 +1,127 @@
+package com.example.clinic.apigateway.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Buckets refill at one token per second, slow enough for a test to drain them before any refill counts.
+ */
+class TokenBucketRateLimiterTest {
+
+    private final InMemoryTokenBucketStore store = new InMemoryTokenBucketStore(1000, Duration.ofMinutes(10));
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(store, config(1, 3),
+            mock(ConfigurationService.class), meterRegistry);
+
+    @Test
+    void allowsTheBurstThenDeniesWithRetryAfter() {
+        for (int remaining = 2; remaining >= 0; remaining--) {
+            Response response = isAllowed("patients", "ip:10.0.0.1");
+            assertThat(response.isAllowed()).isTrue();
+            assertThat(response.getHeaders())
+                    .containsEntry(TokenBucketRateLimiter.REMAINING_HEADER, String.valueOf(remaining))
+                    .doesNotContainKey(HttpHeaders.RETRY_AFTER);
+        }
+
+        Response denied = isAllowed("patients", "ip:10.0.0.1");
+
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getHeaders())
+                .containsEntry(TokenBucketRateLimiter.REMAINING_HEADER, "0")
+                .containsEntry(HttpHeaders.RETRY_AFTER, "1");
+        assertThat(requests("patients", "allowed")).isEqualTo(3);
+        assertThat(requests("patients", "limited")).isEqualTo(1);
+    }
+
+    @Test
+    void eachClientOfEachRouteHasItsOwnBucket() {
+        for (int i = 0; i < 3; i++) {
+            isAllowed("patients", "ip:10.0.0.1");
+        }
+        assertThat(isAllowed("patients", "ip:10.0.0.1").isAllowed()).isFalse();
+
+        assertThat(isAllowed("patients", "ip:10.0.0.2").isAllowed()).isTrue();
+        assertThat(isAllowed("doctors", "ip:10.0.0.1").isAllowed()).isTrue();
+    }
+
+    @Test
+    void routeConfigOverridesTheDefaults() {
+        TokenBucketRateLimiter.Config charts = config(1, 4);
+        charts.setRequestedTokens(3);
+        limiter.getConfig().put("charts", charts);
+
+        Response first = isAllowed("charts", "ip:10.0.0.1");
+        Response second = isAllowed("charts", "ip:10.0.0.1");
+
+        assertThat(first.isAllowed()).isTrue();
+        assertThat(first.getHeaders()).containsEntry(TokenBucketRateLimiter.REMAINING_HEADER, "1");
+        assertThat(second.isAllowed()).isFalse();
+        // two tokens short at one per second
+        assertThat(second.getHeaders()).containsEntry(HttpHeaders.RETRY_AFTER, "2");
+    }
+
+    @Test
+    void routeWideDenialDoesNotCostTheClient() {
+        TokenBucketRateLimiter.Config route = config(1, 5);
+        route.setRouteReplenishRate(1);
+        route.setRouteBurstCapacity(2);
+        limiter.getConfig().put("doctors", route);
+
+        assertThat(isAllowed("doctors", "ip:10.0.0.1").isAllowed()).isTrue();
+        assertThat(isAllowed("doctors", "ip:10.0.0.2").isAllowed()).isTrue();
+        Response denied = isAllowed("doctors", "ip:10.0.0.1");
+
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getHeaders())
+                .containsEntry(TokenBucketRateLimiter.REMAINING_HEADER, "0")
+                .containsEntry(HttpHeaders.RETRY_AFTER, "1");
+        // one token spent on the allowed request, the denied one refunded
+        TokenBucketStore.Result client = store.tryConsume("doctors|ip:10.0.0.1", route.clientBandwidth(), 0).block();
+        assertThat(client.remaining()).isEqualTo(4);
+    }
+
+    @Test
+    void scaleRaisesRouteArgumentsAndDefaults() {
+        TokenBucketRateLimiter scaled = new TokenBucketRateLimiter(store, config(1, 3),
+                mock(ConfigurationService.class), meterRegistry, 10);
+        TokenBucketRateLimiter.Config route = config(1, 2);
+        route.setRouteReplenishRate(1);
+        route.setRouteBurstCapacity(2);
+        scaled.getConfig().put("doctors", route);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(scaled.isAllowed("doctors", "ip:10.0.0.1").block().isAllowed()).isTrue();
+        }
+        assertThat(scaled.isAllowed("doctors", "ip:10.0.0.1").block().isAllowed()).isFalse();
+        for (int i = 0; i < 30; i++) {
+            assertThat(scaled.isAllowed("patients", "ip:10.0.0.1").block().isAllowed()).isTrue();
+        }
+        assertThat(scaled.isAllowed("patients", "ip:10.0.0.1").block().isAllowed()).isFalse();
+    }
+
+    private Response isAllowed(String routeId, String id) {
+        return limiter.isAllowed(routeId, id).block();
+    }
+
+    private double requests(String routeId, String result) {
+        return meterRegistry.get("gateway.ratelimit.requests").tag("route", routeId).tag("result", result)
+                .counter().count();
+    }
+
+    private static TokenBucketRateLimiter.Config config(double replenishRate, long burstCapacity) {
+        TokenBucketRateLimiter.Config config = new TokenBucketRateLimiter.Config();
+        config.setReplenishRate(replenishRate);
+        config.setBurstCapacity(burstCapacity);
+        return config;
+    }
+}
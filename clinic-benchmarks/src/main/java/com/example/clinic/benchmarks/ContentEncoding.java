@@ -0,0 +1,50 @@
+package com.example.clinic.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+/**
+ * The Content-Encodings the services and the gateway negotiate, at the levels they use by default:
+ * gzip level 6 (Tomcat and Netty) and Brotli quality 4 in text mode (Netty).
+ */
+public final class ContentEncoding {
+
+    private static final Encoder.Parameters BROTLI = new Encoder.Parameters().setQuality(4).setMode(Encoder.Mode.TEXT);
+
+    private ContentEncoding() {
+    }
+
+    /**
+     * <code>body</code> encoded as identity, gzip or br.
+     */
+    public static byte[] encode(String encoding, byte[] body) {
+        try {
+            return switch (encoding) {
+                case "identity" -> body;
+                case "gzip" -> gzip(body);
+                case "br" -> brotli(body);
+                default -> throw new IllegalArgumentException("Unknown encoding " + encoding);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] brotli(byte[] body) throws IOException {
+        Brotli4jLoader.ensureAvailability();
+        return Encoder.compress(body, BROTLI);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.clinic.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.example.clinic.benchmarks.baseline.BaselineMedicalRecord;
+import com.example.clinic.benchmarks.baseline.BaselinePatient;
+import com.example.clinic.doctorservice.model.Specialty;
+import com.example.clinic.doctorservice.model.doctor;
+import com.example.clinic.patientservice.controller.PatientRequest;
+import com.example.clinic.patientservice.model.MedicalRecord;
+import com.example.clinic.patientservice.model.Patient;
+import com.example.clinic.patientservice.model.PatientSummary;
+import com.example.clinic.visitservice.model.Visit;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Deterministic sample data shared by the benchmarks.
+ */
+public final class Fixtures {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long BASE = 1_700_000_000_000L;
+    private static final String[] RECORD_TYPES = {"Consultation", "Prescription", "Surgery", "Lab Test"};
+    private static final String[] FIRST_NAMES = {"Jane", "George", "Eduardo", "Harold", "Peter", "Jean", "Maria"};
+    private static final String[] LAST_NAMES = {"Smith", "Franklin", "Rodriquez", "Davis", "McTavish", "Coleman"};
+    private static final String[] CITIES = {"Shelbyville", "Madison", "Sun Prairie", "McFarland", "Monona"};
+    private static final String[] NOTE_WORDS = {
+        "patient", "reports", "mild", "persistent", "pain", "since", "last", "visit", "blood", "pressure",
+        "normal", "elevated", "prescribed", "ibuprofen", "amoxicillin", "follow-up", "in", "two", "weeks",
+        "no", "fever", "cough", "resolved", "advised", "rest", "and", "fluids", "x-ray", "shows", "no",
+        "abnormality", "referred", "to", "cardiology", "allergies", "none", "known", "weight", "stable",
+        "sleep", "improved", "dosage", "reduced", "continue", "current", "treatment", "lab", "results", "pending"
+    };
+
+    private Fixtures() {
+    }
+
+    /**
+     * ObjectMapper configured like Spring Boot's default one.
+     */
+    public static ObjectMapper objectMapper() {
+        return objectMapper(new JsonFactory());
+    }
+
+    /**
+     * ObjectMapper like {@link #objectMapper()} for a wire format the services negotiate: json, smile or cbor.
+     */
+    public static ObjectMapper objectMapper(String format) {
+        return switch (format) {
+            case "json" -> objectMapper(new JsonFactory());
+            case "smile" -> objectMapper(new SmileFactory());
+            case "cbor" -> objectMapper(new CBORFactory());
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+    }
+
+    private static ObjectMapper objectMapper(JsonFactory factory) {
+        return new ObjectMapper(factory)
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    public static PatientRequest patientRequest() {
+        return new PatientRequest("Jane", "Smith", "456 Oak Ave", "Shelbyville", "5559876543", "Female",
+            new Date(BASE - 12_000 * DAY));
+    }
+
+    public static Patient patient() {
+        Patient patient = new Patient();
+        patient.setFirstName("Jane");
+        patient.setLastName("Smith");
+        patient.setGender("Female");
+        patient.setDateOfBirth(new Date(BASE - 12_000 * DAY));
+        patient.setAddress("456 Oak Ave");
+        patient.setCity("Shelbyville");
+        patient.setTelephone("5559876543");
+        patient.setEmail("jane.smith@example.com");
+        patient.setBloodType("A-");
+        return patient;
+    }
+
+    /**
+     * A patient with <code>records</code> medical records, dated one day apart, newest first.
+     */
+    public static Patient patientWithRecords(int records) {
+        Patient patient = patient();
+        for (int i = 0; i < records; i++) {
+            patient.addRecord(medicalRecord(i + 1));
+        }
+        return patient;
+    }
+
+    public static MedicalRecord medicalRecord(int id) {
+        MedicalRecord record = new MedicalRecord();
+        record.setId(id);
+        record.setRecordType(RECORD_TYPES[id % RECORD_TYPES.length]);
+        record.setDescription("Follow-up " + id + ": blood pressure normal, continue current treatment");
+        record.setRecordDate(new Date(BASE - id * DAY));
+        return record;
+    }
+
+    /**
+     * Like {@link #patientWithRecords(int)}, with the record set the patient was mapped with before.
+     */
+    public static BaselinePatient baselinePatientWithRecords(int records) {
+        BaselinePatient patient = new BaselinePatient();
+        patient.setFirstName("Jane");
+        patient.setLastName("Smith");
+        patient.setGender("Female");
+        patient.setDateOfBirth(new Date(BASE - 12_000 * DAY));
+        patient.setAddress("456 Oak Ave");
+        patient.setCity("Shelbyville");
+        patient.setTelephone("5559876543");
+        patient.setEmail("jane.smith@example.com");
+        patient.setBloodType("A-");
+        for (int i = 0; i < records; i++) {
+            patient.addRecord(baselineMedicalRecord(i + 1));
+        }
+        return patient;
+    }
+
+    public static BaselineMedicalRecord baselineMedicalRecord(int id) {
+        BaselineMedicalRecord record = new BaselineMedicalRecord();
+        record.setId(id);
+        record.setRecordType(RECORD_TYPES[id % RECORD_TYPES.length]);
+        record.setDescription("Follow-up " + id + ": blood pressure normal, continue current treatment");
+        record.setRecordDate(new Date(BASE - id * DAY));
+        return record;
+    }
+
+    /**
+     * A visit whose description is <code>descriptionLength</code> characters long (the column allows 8192).
+     */
+    public static Visit visit(int id, int patientId, int descriptionLength) {
+        return Visit.VisitBuilder.aVisit()
+            .id(id)
+            .patient(patientId)
+            .date(new Date(BASE - id * DAY))
+            .description("x".repeat(descriptionLength))
+            .build();
+    }
+
+    /**
+     * Text of <code>length</code> characters that reads like a clinical note, so it compresses like real
+     * descriptions do rather than like a repeated character; the same seed gives the same text.
+     */
+    public static String notes(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 32);
+        while (text.length() < length) {
+            if (text.length() > 0) {
+                text.append(random.nextInt(10) == 0 ? ". " : " ");
+            }
+            text.append(NOTE_WORDS[random.nextInt(NOTE_WORDS.length)]);
+            if (random.nextInt(15) == 0) {
+                text.append(' ').append(random.nextInt(500));
+            }
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    /**
+     * Response body of an endpoint at its default page size:
+     * <ul>
+     * <li>patients: GET /patients, 50 summaries</li>
+     * <li>patient-records: a patient with 20 medical records</li>
+     * <li>visits: GET /visits, 100 visits with notes of 64 to 8192 characters</li>
+     * <li>doctors: GET /doctors, 50 doctors with 3 specialties each</li>
+     * </ul>
+     */
+    public static Object responseBody(String endpoint) {
+        return switch (endpoint) {
+            case "patients" -> patientSummaries(50);
+            case "patient-records" -> patientWithNotes(20);
+            case "visits" -> visitPage(100);
+            case "doctors" -> doctors(50, 3);
+            default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        };
+    }
+
+    public static List<PatientSummary> patientSummaries(int count) {
+        List<PatientSummary> patients = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            String firstName = FIRST_NAMES[id % FIRST_NAMES.length];
+            String lastName = LAST_NAMES[id % LAST_NAMES.length];
+            patients.add(new PatientSummary(id, firstName, lastName, id % 2 == 0 ? "Female" : "Male",
+                new Date(BASE - (8_000 + id * 37L) * DAY), (100 + id) + " Maple St.",
+                CITIES[id % CITIES.length], String.valueOf(6_085_550_000L + id),
+                firstName.toLowerCase() + '.' + lastName.toLowerCase() + id + "@example.com", "O+"));
+        }
+        return patients;
+    }
+
+    private static Patient patientWithNotes(int records) {
+        Patient patient = patient();
+        for (int i = 0; i < records; i++) {
+            MedicalRecord record = medicalRecord(i + 1);
+            record.setDescription(notes(200, i));
+            patient.addRecord(record);
+        }
+        return patient;
+    }
+
+    private static List<Visit> visitPage(int count) {
+        Random lengths = new Random(42);
+        List<Visit> visits = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            Visit visit = visit(id, 1 + id % 10, 0);
+            visit.setDescription(notes(64 + lengths.nextInt(8192 - 64), id));
+            visits.add(visit);
+        }
+        return visits;
+    }
+
+    public static List<doctor> doctors(int count, int specialties) {
+        List<doctor> doctors = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            doctors.add(doctor(id, specialties));
+        }
+        return doctors;
+    }
+
+    public static doctor doctor(int id, int specialties) {
+        doctor d = new doctor();
+        d.setId(id);
+        d.setFirstName("Helen");
+        d.setLastName("Leary");
+        d.setEmail("helen.leary@example.com");
+        d.setPhone("5550001111");
+        for (int i = 0; i < specialties; i++) {
+            Specialty s = new Specialty();
+            s.setName("specialty-" + i);
+            d.addSpecialty(s);
+        }
+        return d;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.clinic.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+
+import com.example.clinic.benchmarks.baseline.BaselineMedicalRecord;
+import com.example.clinic.benchmarks.baseline.BaselinePatient;
+import com.example.clinic.patientservice.model.MedicalRecord;
+import com.example.clinic.patientservice.model.Patient;
+import com.example.clinic.patientservice.model.PatientSummary;
+
+/**
+ * In-memory HSQLDB holding <code>patients</code> patients with <code>records</code> medical records each,
+ * read through two Hibernate session factories over the same rows: <i>baseline</i>, the eager record set of
+ * {@link BaselinePatient}, and <i>current</i>, the service's lazy, batch-fetched <code>Patient</code> and its
+ * <code>PatientSummary</code> projection. Each call runs in its own session and transaction, like a request.
+ */
+public final class PatientDatabase implements AutoCloseable {
+
+    public static final List<String> MAPPINGS = List.of("baseline", "current");
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final String url = "jdbc:hsqldb:mem:patients-" + DATABASES.incrementAndGet();
+    private final SessionFactory current;
+    private final SessionFactory baseline;
+
+    public PatientDatabase(int patients, int records) {
+        this.current = sessionFactory("create-drop", Patient.class, MedicalRecord.class);
+        this.baseline = sessionFactory("none", BaselinePatient.class, BaselineMedicalRecord.class);
+        seed(patients, records);
+    }
+
+    /**
+     * GET /patients/{id}: the patient with its records.
+     */
+    public Object findPatient(String mapping, int id) {
+        if (isBaseline(mapping)) {
+            return baseline.fromTransaction(session -> session.find(BaselinePatient.class, id));
+        }
+        return current.fromTransaction(session -> session
+            .createSelectionQuery("SELECT p FROM Patient p LEFT JOIN FETCH p.records WHERE p.id = :id", Patient.class)
+            .setParameter("id", id)
+            .getSingleResultOrNull());
+    }
+
+    /**
+     * GET /patients: a page of <code>size</code> patients after <code>afterId</code>. The baseline endpoint
+     * returned every patient; it is held to the same page here so the two differ only in what a row costs.
+     */
+    public List<?> listPatients(String mapping, int afterId, int size) {
+        if (isBaseline(mapping)) {
+            return baseline.fromTransaction(session -> session
+                .createSelectionQuery("SELECT p FROM BaselinePatient p WHERE p.id > :after ORDER BY p.id",
+                    BaselinePatient.class)
+                .setParameter("after", afterId)
+                .setMaxResults(size)
+                .getResultList());
+        }
+        return current.fromTransaction(session -> session
+            .createSelectionQuery("""
+                SELECT new com.example.clinic.patientservice.model.PatientSummary(
+                    p.id, p.firstName, p.lastName, p.gender, p.dateOfBirth,
+                    p.address, p.city, p.telephone, p.email, p.bloodType)
+                FROM Patient p WHERE p.id > :after ORDER BY p.id""", PatientSummary.class)
+            .setParameter("after", afterId)
+            .setMaxResults(size)
+            .getResultList());
+    }
+
+    /**
+     * PUT /patients/{id}: load the patient and change one column.
+     */
+    public void updatePatient(String mapping, int id, String city) {
+        if (isBaseline(mapping)) {
+            baseline.inTransaction(session -> session.find(BaselinePatient.class, id).setCity(city));
+        } else {
+            current.inTransaction(session -> session.find(Patient.class, id).setCity(city));
+        }
+    }
+
+    /**
+     * JDBC statements prepared so far by both mappings.
+     */
+    public long statements() {
+        return current.getStatistics().getPrepareStatementCount()
+            + baseline.getStatistics().getPrepareStatementCount();
+    }
+
+    @Override
+    public void close() {
+        baseline.close();
+        current.close();
+    }
+
+    private static boolean isBaseline(String mapping) {
+        return switch (mapping) {
+            case "baseline" -> true;
+            case "current" -> false;
+            default -> throw new IllegalArgumentException("Unknown mapping " + mapping);
+        };
+    }
+
+    private SessionFactory sessionFactory(String schemaAction, Class<?>... entities) {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+            .applySetting(AvailableSettings.JAKARTA_JDBC_URL, url)
+            .applySetting(AvailableSettings.JAKARTA_JDBC_USER, "SA")
+            .applySetting(AvailableSettings.JAKARTA_JDBC_PASSWORD, "")
+            .applySetting(AvailableSettings.JAKARTA_VALIDATION_MODE, "none")
+            .applySetting(AvailableSettings.HBM2DDL_AUTO, schemaAction)
+            .applySetting(AvailableSettings.GENERATE_STATISTICS, true)
+            .build();
+        MetadataSources sources = new MetadataSources(registry);
+        for (Class<?> entity : entities) {
+            sources.addAnnotatedClass(entity);
+        }
+        return sources.buildMetadata().buildSessionFactory();
+    }
+
+    private void seed(int patients, int records) {
+        current.inTransaction(session -> {
+            for (int p = 0; p < patients; p++) {
+                Patient patient = Fixtures.patient();
+                for (int r = 1; r <= records; r++) {
+                    MedicalRecord record = Fixtures.medicalRecord(r);
+                    record.setId(null); // generated by the database
+                    record.setDescription(Fixtures.notes(200, (long) p * records + r));
+                    patient.addRecord(record);
+                }
+                session.persist(patient); // cascades to the records
+                if (p % 50 == 49) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+        });
+        current.getStatistics().clear();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.clinic.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.clinic.patientservice.controller.PatientRequest;
+import com.example.clinic.patientservice.controller.mapper.PatientEntityMapper;
+import com.example.clinic.patientservice.model.Patient;
+
+/**
+ * PatientEntityMapper.map, the request-to-entity copy done on every patient create and update.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientMapperBenchmark {
+
+    private PatientEntityMapper mapper;
+    private PatientRequest request;
+
+    @Setup
+    public void setUp() {
+        mapper = new PatientEntityMapper();
+        request = Fixtures.patientRequest();
+    }
+
+    @Benchmark
+    public Patient mapNewPatient() {
+        return mapper.map(new Patient(), request);
+    }
+}
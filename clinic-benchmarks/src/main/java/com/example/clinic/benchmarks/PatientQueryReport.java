@@ -0,0 +1,48 @@
+package com.example.clinic.benchmarks;
+
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Prints the JDBC statements and response bytes of each patient request per mapping and record count, for
+ * the same requests {@link PatientReadBenchmark} times.
+ * <pre>
+ * java -cp clinic-benchmarks/target/benchmarks.jar com.example.clinic.benchmarks.PatientQueryReport
+ * </pre>
+ */
+public final class PatientQueryReport {
+
+    private static final List<Integer> RECORDS = List.of(10, 100);
+
+    private PatientQueryReport() {
+    }
+
+    public static void main(String[] args) throws JsonProcessingException {
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        System.out.printf("%-14s %-8s %7s %10s %10s%n", "request", "mapping", "records", "statements", "bytes");
+        for (int records : RECORDS) {
+            try (PatientDatabase database = new PatientDatabase(PatientReadBenchmark.PATIENTS, records)) {
+                for (String mapping : PatientDatabase.MAPPINGS) {
+                    long before = database.statements();
+                    int bytes = objectMapper.writeValueAsBytes(database.findPatient(mapping, 1)).length;
+                    print("findPatient", mapping, records, database.statements() - before, bytes);
+
+                    before = database.statements();
+                    bytes = objectMapper.writeValueAsBytes(
+                        database.listPatients(mapping, 0, PatientReadBenchmark.PAGE_SIZE)).length;
+                    print("listPatients", mapping, records, database.statements() - before, bytes);
+
+                    before = database.statements();
+                    database.updatePatient(mapping, 1, "Madison");
+                    print("updatePatient", mapping, records, database.statements() - before, 0);
+                }
+            }
+        }
+    }
+
+    private static void print(String request, String mapping, int records, long statements, int bytes) {
+        System.out.printf("%-14s %-8s %7d %10d %10d%n", request, mapping, records, statements, bytes);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.clinic.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The patient endpoints' persistence work, from query to JSON body, with the eager record set the service
+ * used to map ("baseline") and the lazy records and summary projection it maps now ("current"); see
+ * {@link PatientDatabase}. Run with <code>-prof gc</code> for the allocation per request; the statements
+ * each request prepares come from {@link PatientQueryReport}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientReadBenchmark {
+
+    static final int PATIENTS = 200;
+    static final int PAGE_SIZE = 50;
+
+    @Param({"baseline", "current"})
+    public String mapping;
+
+    @Param({"10", "100"})
+    public int records;
+
+    private PatientDatabase database;
+    private ObjectMapper objectMapper;
+    private int nextId;
+
+    @Setup
+    public void setUp() {
+        database = new PatientDatabase(PATIENTS, records);
+        objectMapper = Fixtures.objectMapper();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public byte[] findPatient() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(database.findPatient(mapping, nextId()));
+    }
+
+    @Benchmark
+    public byte[] listPatients() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(database.listPatients(mapping, 0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public void updatePatient() {
+        int id = nextId();
+        database.updatePatient(mapping, id, id % 2 == 0 ? "Madison" : "Monona");
+    }
+
+    private int nextId() {
+        nextId = nextId % PATIENTS + 1;
+        return nextId;
+    }
+}
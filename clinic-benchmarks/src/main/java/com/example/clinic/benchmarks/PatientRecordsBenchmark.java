@@ -0,0 +1,109 @@
+package com.example.clinic.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.clinic.benchmarks.baseline.BaselineMedicalRecord;
+import com.example.clinic.benchmarks.baseline.BaselinePatient;
+import com.example.clinic.patientservice.model.MedicalRecord;
+import com.example.clinic.patientservice.model.Patient;
+
+/**
+ * The record collection of a patient: reading it through getRecords(), adding to it, loading it, and the
+ * hashCode / toString work done per record. <code>collection</code> selects the mapping: "set" is the
+ * <code>HashSet</code> of records with field-based equality the patient used to have (see
+ * {@link BaselinePatient}), "bag" the list of records with id-based equality it has now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientRecordsBenchmark {
+
+    @Param({"set", "bag"})
+    public String collection;
+
+    @Param({"10", "100", "500"})
+    public int records;
+
+    private boolean set;
+    private Patient patient;
+    private List<MedicalRecord> recordList;
+    private BaselinePatient baselinePatient;
+    private List<BaselineMedicalRecord> baselineRecordList;
+
+    @Setup
+    public void setUp() {
+        set = switch (collection) {
+            case "set" -> true;
+            case "bag" -> false;
+            default -> throw new IllegalArgumentException("Unknown collection " + collection);
+        };
+        patient = Fixtures.patientWithRecords(records);
+        recordList = patient.getRecords();
+        baselinePatient = Fixtures.baselinePatientWithRecords(records);
+        baselineRecordList = baselinePatient.getRecords();
+    }
+
+    @Benchmark
+    public List<?> getRecords() {
+        return set ? baselinePatient.getRecords() : patient.getRecords();
+    }
+
+    /**
+     * What Hibernate does with the rows when it initializes the collection: add each record to a
+     * <code>HashSet</code> for the set, append it to an <code>ArrayList</code> for the bag.
+     */
+    @Benchmark
+    public Collection<?> loadRecords() {
+        return set ? new HashSet<>(baselineRecordList) : new ArrayList<>(recordList);
+    }
+
+    @Benchmark
+    public void hashCodes(Blackhole bh) {
+        for (Object record : set ? baselineRecordList : recordList) {
+            bh.consume(record.hashCode());
+        }
+    }
+
+    @Benchmark
+    public void toStrings(Blackhole bh) {
+        for (Object record : set ? baselineRecordList : recordList) {
+            bh.consume(record.toString());
+        }
+    }
+
+    @Benchmark
+    public Object addRecords() {
+        if (set) {
+            BaselinePatient fresh = Fixtures.baselinePatientWithRecords(0);
+            for (int i = 0; i < records; i++) {
+                fresh.addRecord(Fixtures.baselineMedicalRecord(i + 1));
+            }
+            return fresh;
+        }
+        Patient fresh = Fixtures.patient();
+        for (int i = 0; i < records; i++) {
+            fresh.addRecord(Fixtures.medicalRecord(i + 1));
+        }
+        return fresh;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.clinic.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.clinic.doctorservice.model.doctor;
+import com.example.clinic.patientservice.model.Patient;
+import com.example.clinic.visitservice.model.Visit;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson serialization of the entities returned by the REST endpoints.
+ * Run with -prof gc to see bytes allocated per operation next to the timings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int records;
+
+    @Param({"256", "8192"})
+    public int visitDescriptionLength;
+
+    private ObjectMapper objectMapper;
+    private Patient patient;
+    private Visit visit;
+    private doctor doctor;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Fixtures.objectMapper();
+        patient = Fixtures.patientWithRecords(records);
+        visit = Fixtures.visit(1, 1, visitDescriptionLength);
+        doctor = Fixtures.doctor(1, 3);
+    }
+
+    @Benchmark
+    public byte[] patientWithRecords() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(patient);
+    }
+
+    @Benchmark
+    public byte[] visit() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(visit);
+    }
+
+    @Benchmark
+    public byte[] doctor() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(doctor);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.clinic.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.clinic.visitservice.controller.Visits;
+import com.example.clinic.visitservice.model.Visit;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson serialization of the Visits wrapper returned by GET /visits/patients.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VisitsSerializationBenchmark {
+
+    @Param({"10", "100"})
+    public int patients;
+
+    @Param({"5"})
+    public int visitsPerPatient;
+
+    private ObjectMapper objectMapper;
+    private Visits visits;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Fixtures.objectMapper();
+        Map<Integer, List<Visit>> byPatient = new LinkedHashMap<>();
+        int id = 0;
+        for (int p = 1; p <= patients; p++) {
+            List<Visit> list = new ArrayList<>();
+            for (int v = 0; v < visitsPerPatient; v++) {
+                list.add(Fixtures.visit(++id, p, 256));
+            }
+            byPatient.put(p, list);
+        }
+        visits = new Visits(byPatient);
+    }
+
+    @Benchmark
+    public byte[] visitsWrapper() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(visits);
+    }
+}
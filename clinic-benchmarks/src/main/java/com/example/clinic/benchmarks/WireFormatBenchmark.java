@@ -0,0 +1,55 @@
+package com.example.clinic.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * CPU cost of producing a response body on the wire: serialization to JSON, Smile or CBOR followed by the
+ * Content-Encoding, per endpoint (see {@link Fixtures#responseBody}). The bytes each combination puts on the
+ * wire are printed by {@link WireSizeReport}; read the two side by side.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"patients", "patient-records", "visits", "doctors"})
+    public String endpoint;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"identity", "gzip", "br"})
+    public String encoding;
+
+    private ObjectMapper objectMapper;
+    private Object body;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Fixtures.objectMapper(format);
+        body = Fixtures.responseBody(endpoint);
+    }
+
+    @Benchmark
+    public byte[] encode() throws JsonProcessingException {
+        return ContentEncoding.encode(encoding, objectMapper.writeValueAsBytes(body));
+    }
+}
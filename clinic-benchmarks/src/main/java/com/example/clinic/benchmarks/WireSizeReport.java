@@ -0,0 +1,39 @@
+package com.example.clinic.benchmarks;
+
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Prints the bytes on the wire of each endpoint's response body per format and Content-Encoding, with the
+ * share of plain JSON, for the same combinations {@link WireFormatBenchmark} times.
+ * <pre>
+ * java -cp clinic-benchmarks/target/benchmarks.jar com.example.clinic.benchmarks.WireSizeReport
+ * </pre>
+ */
+public final class WireSizeReport {
+
+    private static final List<String> ENDPOINTS = List.of("patients", "patient-records", "visits", "doctors");
+    private static final List<String> FORMATS = List.of("json", "smile", "cbor");
+    private static final List<String> ENCODINGS = List.of("identity", "gzip", "br");
+
+    private WireSizeReport() {
+    }
+
+    public static void main(String[] args) throws JsonProcessingException {
+        System.out.printf("%-16s %-6s %18s %18s %18s%n", "endpoint", "format", "identity", "gzip", "br");
+        for (String endpoint : ENDPOINTS) {
+            Object body = Fixtures.responseBody(endpoint);
+            long json = Fixtures.objectMapper("json").writeValueAsBytes(body).length;
+            for (String format : FORMATS) {
+                byte[] serialized = Fixtures.objectMapper(format).writeValueAsBytes(body);
+                StringBuilder line = new StringBuilder(String.format("%-16s %-6s", endpoint, format));
+                for (String encoding : ENCODINGS) {
+                    long size = ContentEncoding.encode(encoding, serialized).length;
+                    line.append(String.format(" %10d (%4.0f%%)", size, 100.0 * size / json));
+                }
+                System.out.println(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.clinic.benchmarks.baseline;
+
+import java.util.Date;
+import java.util.Objects;
+
+import org.springframework.core.style.ToStringCreator;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+/**
+ * The medical record mapping as it was before records became lazy: an eager many-to-one back to the
+ * patient and value-based equals / hashCode, which the patient's record set hashes on every load.
+ */
+@Entity
+@Table(name = "medical_records")
+public class BaselineMedicalRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "record_type", nullable = false)
+    private String recordType;
+
+    @Column(name = "description")
+    private String description;
+
+    @Column(name = "record_date", nullable = false)
+    private Date recordDate;
+
+    @ManyToOne
+    @JoinColumn(name = "patient_id")
+    @JsonIgnore
+    private BaselinePatient patient;
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("id", this.getId())
+                .append("recordType", this.getRecordType())
+                .append("description", this.getDescription())
+                .append("recordDate", this.getRecordDate())
+                .append("patientFirstName", this.getPatient().getFirstName())
+                .append("patientLastName", this.getPatient().getLastName())
+                .toString();
+    }
+
+    public Integer getId() { return this.id; }
+    public String getRecordType() { return this.recordType; }
+    public String getDescription() { return this.description; }
+    public Date getRecordDate() { return this.recordDate; }
+    public BaselinePatient getPatient() { return this.patient; }
+
+    public void setId(Integer id) { this.id = id; }
+    public void setRecordType(String recordType) { this.recordType = recordType; }
+    public void setDescription(String description) { this.description = description; }
+    public void setRecordDate(Date recordDate) { this.recordDate = recordDate; }
+    public void setPatient(BaselinePatient patient) { this.patient = patient; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        BaselineMedicalRecord that = (BaselineMedicalRecord) o;
+        return Objects.equals(id, that.id)
+                && Objects.equals(recordType, that.recordType)
+                && Objects.equals(description, that.description)
+                && Objects.equals(recordDate, that.recordDate)
+                && Objects.equals(patient, that.patient);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, recordType, description, recordDate, patient);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.clinic.benchmarks.baseline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.core.style.ToStringCreator;
+
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+
+/**
+ * The patient mapping as it was before records became lazy: an eagerly fetched set of records, copied and
+ * sorted in Java on every getRecords(). Maps the same tables as the service's <code>Patient</code>, so
+ * {@link com.example.clinic.benchmarks.PatientReadBenchmark} can run both against the same rows, and
+ * {@link com.example.clinic.benchmarks.PatientRecordsBenchmark} compares its record set with the bag.
+ */
+@Entity
+@Table(name = "patients")
+public class BaselinePatient {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "first_name")
+    private String firstName;
+
+    @Column(name = "last_name")
+    private String lastName;
+
+    @Column(name = "gender")
+    private String gender;
+
+    @Column(name = "date_of_birth")
+    @Temporal(TemporalType.DATE)
+    private Date dateOfBirth;
+
+    @Column(name = "address")
+    private String address;
+
+    @Column(name = "city")
+    private String city;
+
+    @Column(name = "telephone")
+    private String telephone;
+
+    @Column(name = "email")
+    private String email;
+
+    @Column(name = "blood_type")
+    private String bloodType;
+
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "patient")
+    private Set<BaselineMedicalRecord> records;
+
+    protected Set<BaselineMedicalRecord> getRecordsInternal() {
+        if (this.records == null) {
+            this.records = new HashSet<>();
+        }
+        return this.records;
+    }
+
+    public List<BaselineMedicalRecord> getRecords() {
+        List<BaselineMedicalRecord> sortedRecords = new ArrayList<>(getRecordsInternal());
+        PropertyComparator.sort(sortedRecords, new MutableSortDefinition("date", true, true));
+        return Collections.unmodifiableList(sortedRecords);
+    }
+
+    public void addRecord(BaselineMedicalRecord record) {
+        getRecordsInternal().add(record);
+        record.setPatient(this);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("id", this.getId())
+                .append("firstName", this.getFirstName())
+                .append("lastName", this.getLastName())
+                .append("gender", this.gender)
+                .append("dateOfBirth", this.dateOfBirth)
+                .append("address", this.address)
+                .append("city", this.city)
+                .append("telephone", this.telephone)
+                .append("email", this.email)
+                .append("bloodType", this.bloodType)
+                .toString();
+    }
+
+    public Integer getId() { return this.id; }
+    public String getFirstName() { return this.firstName; }
+    public String getLastName() { return this.lastName; }
+    public String getGender() { return this.gender; }
+    public Date getDateOfBirth() { return this.dateOfBirth; }
+    public String getAddress() { return this.address; }
+    public String getCity() { return this.city; }
+    public String getTelephone() { return this.telephone; }
+    public String getEmail() { return this.email; }
+    public String getBloodType() { return this.bloodType; }
+
+    public void setFirstName(String firstName) { this.firstName = firstName; }
+    public void setLastName(String lastName) { this.lastName = lastName; }
+    public void setGender(String gender) { this.gender = gender; }
+    public void setDateOfBirth(Date dateOfBirth) { this.dateOfBirth = dateOfBirth; }
+    public void setAddress(String address) { this.address = address; }
+    public void setCity(String city) { this.city = city; }
+    public void setTelephone(String telephone) { this.telephone = telephone; }
+    public void setEmail(String email) { this.email = email; }
+    public void setBloodType(String bloodType) { this.bloodType = bloodType; }
+}
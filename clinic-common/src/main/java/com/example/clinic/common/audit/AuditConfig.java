@@ -0,0 +1,32 @@
+package com.example.clinic.common.audit;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Audit trail of the service's writes, see {@link AuditLog}. The file defaults to
+ * <code>&lt;audit.dir&gt;/&lt;spring.application.name&gt;-audit.log</code>.
+ */
+@Configuration
+public class AuditConfig {
+
+    @Bean
+    AuditLog auditLog(
+            @Value("${audit.file:${audit.dir:logs}/${spring.application.name}-audit.log}") Path file,
+            @Value("${audit.capacity:8192}") int capacity,
+            @Value("${audit.batch-size:512}") int batchSize,
+            @Value("${audit.max-file-size:64MB}") DataSize maxFileSize,
+            @Value("${audit.max-files:10}") int maxFiles,
+            @Value("${audit.offer-timeout:0ms}") Duration offerTimeout,
+            ObjectMapper objectMapper, MeterRegistry registry) {
+        return new AuditLog(file, capacity, batchSize, maxFileSize.toBytes(), maxFiles, offerTimeout,
+            objectMapper, registry);
+    }
+}
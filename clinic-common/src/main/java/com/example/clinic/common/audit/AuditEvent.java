@@ -0,0 +1,29 @@
+package com.example.clinic.common.audit;
+
+import java.time.Instant;
+
+/**
+ * One audited write: what happened, to which entity and patient, and when.
+ * Deliberately small and flat; the entity itself is never captured, so recording an event costs
+ * an allocation rather than formatting a record with its description and relations.
+ *
+ * @param action dotted name such as <code>patient.updated</code> or <code>visit.created</code>
+ * @param entityId id of the written entity, null for batch events
+ * @param detail optional short free text, e.g. batch counts
+ */
+public record AuditEvent(
+    Instant timestamp,
+    String action,
+    Integer entityId,
+    Integer patientId,
+    String detail
+) {
+
+    public static AuditEvent of(String action, Integer entityId, Integer patientId) {
+        return new AuditEvent(Instant.now(), action, entityId, patientId, null);
+    }
+
+    public static AuditEvent of(String action, Integer entityId, Integer patientId, String detail) {
+        return new AuditEvent(Instant.now(), action, entityId, patientId, detail);
+    }
+}
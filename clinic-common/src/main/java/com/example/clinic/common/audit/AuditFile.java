@@ -0,0 +1,94 @@
+package com.example.clinic.common.audit;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file that rotates by size, logrotate style: when the next write would take
+ * <code>audit.log</code> past the limit it becomes <code>audit.log.1</code>, older files shift up by one
+ * and the one beyond <code>maxFiles</code> is deleted.
+ * <p>
+ * Not thread-safe; used by the audit writer thread only.
+ */
+final class AuditFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final long maxBytes;
+    private final int maxFiles;
+
+    private OutputStream out;
+    private long size;
+
+    AuditFile(Path path, long maxBytes, int maxFiles) {
+        this.path = path.toAbsolutePath();
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    void write(byte[] line) throws IOException {
+        if (out == null) {
+            open();
+        }
+        if (size > 0 && size + line.length > maxBytes) {
+            rotate();
+        }
+        out.write(line);
+        size += line.length;
+    }
+
+    void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            try {
+                out.close();
+            } finally {
+                out = null;
+            }
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(path.getParent());
+        out = new BufferedOutputStream(
+            Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE);
+        size = Files.size(path);
+    }
+
+    private void rotate() throws IOException {
+        close();
+        Files.deleteIfExists(rotated(maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            if (Files.exists(rotated(i))) {
+                Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(path, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(path);
+        }
+        open();
+    }
+
+    private Path rotated(int generation) {
+        return path.resolveSibling(path.getFileName() + "." + generation);
+    }
+}
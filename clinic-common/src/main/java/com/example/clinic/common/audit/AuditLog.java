@@ -0,0 +1,214 @@
+package com.example.clinic.common.audit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Audit trail written off the request thread.
+ * <p>
+ * {@link #record} puts the event into a bounded {@link RingBuffer} and returns; a single writer thread
+ * drains it in batches, writes each event as one JSON line to a rotating {@link AuditFile} and flushes
+ * once per batch. When the buffer is full the caller waits up to the offer timeout for room (zero by
+ * default, so requests never wait) and the event is then dropped and counted: losing audit lines under
+ * overload is preferred to slowing down the writes being audited.
+ * <p>
+ * Meters: <code>clinic.audit.events</code> tagged result=accepted|dropped|failed,
+ * <code>clinic.audit.queue.size</code>, <code>clinic.audit.batch.size</code> and <code>clinic.audit.write</code>.
+ */
+public class AuditLog implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final long OFFER_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(10);
+
+    private final RingBuffer<AuditEvent> buffer;
+    private final AuditFile file;
+    private final ObjectWriter writer;
+    private final int batchSize;
+    private final long offerTimeoutNanos;
+
+    private final Counter accepted;
+    private final Counter dropped;
+    private final Counter failed;
+    private final DistributionSummary batches;
+    private final Timer writeTimer;
+
+    private volatile Thread thread;
+    private volatile boolean running;
+    // writer thread only
+    private boolean failing;
+
+    public AuditLog(Path file, int capacity, int batchSize, long maxFileBytes, int maxFiles, Duration offerTimeout,
+                    ObjectMapper objectMapper, MeterRegistry registry) {
+        this.buffer = new RingBuffer<>(capacity);
+        this.file = new AuditFile(file, maxFileBytes, maxFiles);
+        this.writer = objectMapper.writerFor(AuditEvent.class);
+        this.batchSize = batchSize;
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+
+        this.accepted = events(registry, "accepted");
+        this.dropped = events(registry, "dropped");
+        this.failed = events(registry, "failed");
+        this.batches = DistributionSummary.builder("clinic.audit.batch.size")
+            .description("Audit events written per batch")
+            .register(registry);
+        this.writeTimer = Timer.builder("clinic.audit.write")
+            .description("Time to write and flush one batch of audit events")
+            .register(registry);
+        Gauge.builder("clinic.audit.queue.size", buffer, RingBuffer::size)
+            .description("Audit events waiting for the writer")
+            .register(registry);
+        Gauge.builder("clinic.audit.queue.capacity", buffer, RingBuffer::capacity)
+            .description("Capacity of the audit event buffer")
+            .register(registry);
+    }
+
+    /**
+     * Queue an event for the audit trail; never throws and never blocks longer than the offer timeout.
+     */
+    public void record(AuditEvent event) {
+        if (buffer.offer(event)) {
+            accepted.increment();
+            return;
+        }
+        if (offerTimeoutNanos > 0) {
+            final long deadline = System.nanoTime() + offerTimeoutNanos;
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(OFFER_BACKOFF_NANOS);
+                if (buffer.offer(event)) {
+                    accepted.increment();
+                    return;
+                }
+            }
+        }
+        dropped.increment();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "audit-writer");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Writing audit trail to {}", file.path());
+    }
+
+    /**
+     * Stop accepting work and wait for the writer to drain the buffer.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        final Thread writerThread = thread;
+        if (writerThread == null) {
+            return;
+        }
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(STOP_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stopped after the web server has finished its graceful shutdown, so in-flight writes still get audited.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    private void run() {
+        final List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
+            } else {
+                write(batch);
+            }
+        }
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            log.warn("Could not close audit trail {}", file.path(), e);
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        final long start = System.nanoTime();
+        try {
+            for (AuditEvent event : batch) {
+                file.write(line(event));
+            }
+            file.flush();
+            if (failing) {
+                log.info("Audit trail {} writable again", file.path());
+                failing = false;
+            }
+        } catch (IOException e) {
+            failed.increment(batch.size());
+            closeQuietly();
+            if (!failing) {
+                // logged once per outage, not once per batch
+                log.warn("Could not write audit trail {}, dropping events until it is writable", file.path(), e);
+                failing = true;
+            }
+        } finally {
+            writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batches.record(batch.size());
+            batch.clear();
+        }
+    }
+
+    private byte[] line(AuditEvent event) throws JsonProcessingException {
+        final byte[] json = writer.writeValueAsBytes(event);
+        final byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private void closeQuietly() {
+        try {
+            file.close();
+        } catch (IOException ignored) {
+            // reopened on the next batch
+        }
+    }
+
+    private static Counter events(MeterRegistry registry, String result) {
+        return Counter.builder("clinic.audit.events")
+            .description("Audit events by outcome")
+            .tag("result", result)
+            .register(registry);
+    }
+}
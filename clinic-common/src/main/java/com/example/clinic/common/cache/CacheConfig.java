@@ -0,0 +1,27 @@
+package com.example.clinic.common.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Local read-through caches. Size and TTL come from spring.cache.caffeine.spec; caches listed in
+ * spring.cache.cache-names are bound to Micrometer (hits, misses, evictions) at startup.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.channel", havingValue = "local", matchIfMissing = true)
+    CacheInvalidationChannel cacheInvalidationChannel() {
+        return new LocalCacheInvalidationChannel();
+    }
+
+    @Bean
+    CacheInvalidator cacheInvalidator(CacheManager cacheManager, CacheInvalidationChannel channel) {
+        return new CacheInvalidator(cacheManager, channel);
+    }
+}
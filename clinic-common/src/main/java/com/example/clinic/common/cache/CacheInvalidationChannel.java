@@ -0,0 +1,22 @@
+package com.example.clinic.common.cache;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Carries cache invalidations to every instance of the service, including this one.
+ * The default {@link LocalCacheInvalidationChannel} only reaches the local instance; when several
+ * instances run behind Eureka, set cache.invalidation.channel to another value and register a
+ * broadcasting implementation (message broker, Redis pub/sub, ...) as a bean.
+ */
+public interface CacheInvalidationChannel {
+
+    /**
+     * Announce that the entry <code>key</code> of cache <code>cacheName</code> is stale.
+     */
+    void publish(String cacheName, Object key);
+
+    /**
+     * Register a listener called for every invalidation published by any instance.
+     */
+    void subscribe(BiConsumer<String, Object> listener);
+}
@@ -0,0 +1,39 @@
+package com.example.clinic.common.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Evicts local cache entries when an invalidation arrives on the {@link CacheInvalidationChannel},
+ * and publishes invalidations for writes made by this instance.
+ */
+public class CacheInvalidator {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidator.class);
+
+    private final CacheManager cacheManager;
+    private final CacheInvalidationChannel channel;
+
+    public CacheInvalidator(CacheManager cacheManager, CacheInvalidationChannel channel) {
+        this.cacheManager = cacheManager;
+        this.channel = channel;
+        channel.subscribe(this::evict);
+    }
+
+    /**
+     * Invalidate an entry on every instance.
+     */
+    public void invalidate(String cacheName, Object key) {
+        channel.publish(cacheName, key);
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            log.debug("Evicting {} from cache {}", key, cacheName);
+            cache.evict(key);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.clinic.common.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * In-process {@link CacheInvalidationChannel}: invalidations reach the listeners of this instance only.
+ * Enough for a single instance and for tests.
+ */
+public class LocalCacheInvalidationChannel implements CacheInvalidationChannel {
+
+    private final List<BiConsumer<String, Object>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String cacheName, Object key) {
+        for (BiConsumer<String, Object> listener : listeners) {
+            listener.accept(cacheName, key);
+        }
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, Object> listener) {
+        listeners.add(listener);
+    }
+}
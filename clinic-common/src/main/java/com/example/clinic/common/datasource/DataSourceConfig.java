@@ -0,0 +1,81 @@
+package com.example.clinic.common.datasource;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Primary pool from spring.datasource.*, plus a read-only replica pool when spring.datasource.replica.url is set.
+ * Read-only transactions go to the replica, see {@link ReadWriteRoutingDataSource}; the replica pool takes its
+ * settings (driver properties, timeouts, size) from the primary unless overridden under spring.datasource.replica.
+ * <p>
+ * Both pools report to Micrometer as hikaricp.connections.*{pool}: acquire (time spent waiting for a
+ * connection), usage (time a connection is held), active, idle, pending and timeout. A service that observes
+ * JDBC calls should leave the pools out (jdbc.excluded-datasource-bean-names), so each query is observed once,
+ * through the routing DataSource.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties, MeterRegistry registry) {
+        final HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnExpression("!'${spring.datasource.replica.url:}'.isEmpty()")
+    HikariDataSource replicaDataSource(
+            @Qualifier("primaryDataSource") HikariDataSource primary,
+            @Value("${spring.datasource.replica.url}") String url,
+            @Value("${spring.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${spring.datasource.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${spring.datasource.replica.pool-name:replica}") String poolName,
+            @Value("${spring.datasource.replica.maximum-pool-size:0}") int maximumPoolSize) {
+        final HikariDataSource replica = new HikariDataSource();
+        primary.copyStateTo(replica);
+        replica.setJdbcUrl(url);
+        replica.setUsername(username);
+        replica.setPassword(password);
+        replica.setPoolName(poolName);
+        if (maximumPoolSize > 0) {
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setMinimumIdle(maximumPoolSize);
+        }
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    /**
+     * The DataSource JPA and everything else uses. Physical connections are only fetched at the first
+     * statement, so transactions that never reach the database do not take one from the pool.
+     */
+    @Bean
+    @Primary
+    DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                          @Qualifier("replicaDataSource") ObjectProvider<DataSource> replica,
+                          MeterRegistry registry) {
+        final DataSource replicaDataSource = replica.getIfAvailable();
+        return new LazyConnectionDataSourceProxy(replicaDataSource == null
+            ? primary
+            : new ReadWriteRoutingDataSource(primary, replicaDataSource, registry));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.clinic.common.datasource;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hands out replica connections inside <code>@Transactional(readOnly = true)</code> transactions and primary
+ * connections everywhere else, including outside transactions.
+ * <p>
+ * The read-only flag of a transaction is only published after the transaction manager has asked for its
+ * connection, so this must sit behind a <code>LazyConnectionDataSourceProxy</code>, which defers the choice to
+ * the first statement.
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final Counter primaryCounter;
+    private final Counter replicaCounter;
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry registry) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+        this.primaryCounter = counter(registry, "primary");
+        this.replicaCounter = counter(registry, "replica");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            replicaCounter.increment();
+            return Target.REPLICA;
+        }
+        primaryCounter.increment();
+        return Target.PRIMARY;
+    }
+
+    private static Counter counter(MeterRegistry registry, String target) {
+        return Counter.builder("clinic.datasource.routed")
+            .description("Connections handed out by the read/write router, by target pool")
+            .tag("target", target)
+            .register(registry);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.clinic.common.runtime;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Refuses to start when spring.threads.virtual.enabled is set on a JVM without virtual threads.
+ * Spring Boot ignores the property below Java 21, so the virtual-threads profile would otherwise run on
+ * the platform-thread defaults it replaces (Tomcat's 200 threads) with the pool sizes tuned for virtual
+ * threads. Run the profile from an image built with <code>--build-arg JAVA_VERSION=21</code> and
+ * <code>mvn -Pjava21</code>.
+ */
+@Configuration
+@ConditionalOnProperty("spring.threads.virtual.enabled")
+public class VirtualThreadsConfig {
+
+    static final int MINIMUM_JAVA_VERSION = 21;
+
+    public VirtualThreadsConfig() {
+        requireVirtualThreads(Runtime.version().feature());
+    }
+
+    static void requireVirtualThreads(int javaVersion) {
+        if (javaVersion < MINIMUM_JAVA_VERSION) {
+            throw new IllegalStateException("spring.threads.virtual.enabled needs Java " + MINIMUM_JAVA_VERSION
+                + " or later, but this is Java " + javaVersion + "; build the image with --build-arg JAVA_VERSION="
+                + MINIMUM_JAVA_VERSION + " and mvn -Pjava21, or drop the virtual-threads profile");
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.clinic.common.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over a few text fields of a set of documents.
+ * <p>
+ * Terms live in a sorted dictionary, so every term starting with a prefix is one contiguous range
+ * (the same walk a trie would do). A query matches documents containing every query token, as a
+ * whole term or as a prefix of one; documents are ranked by the boost of the fields that matched,
+ * with whole-term matches ahead of prefix matches. Completion walks a separate dictionary of the
+ * "name" fields and stops after <code>limit</code> documents, so its cost does not depend on index size.
+ * <p>
+ * Reads share a lock and writes are exclusive; writes are single-document and cheap.
+ *
+ * @param <T> payload returned for a matching document
+ */
+public class SearchIndex<T> {
+
+    // request limits of the services' search endpoints; page and size together bound the hits ordered per query
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_PAGE = 49;
+    public static final int DEFAULT_COMPLETIONS = 10;
+    public static final int MAX_COMPLETIONS = 50;
+
+    // tokens shorter than this only match whole terms, so "s" does not expand to half the dictionary
+    static final int MIN_PREFIX_LENGTH = 2;
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    private final Map<String, Double> boosts;
+    private final Set<String> completionFields;
+
+    private final NavigableMap<String, Map<Integer, Double>> postings = new TreeMap<>();
+    private final NavigableMap<String, Set<Integer>> completions = new TreeMap<>();
+    private final Map<Integer, Document<T>> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param boosts weight of each indexed field; fields not listed are ignored
+     * @param completionFields fields whose terms are offered for completion
+     */
+    public SearchIndex(Map<String, Double> boosts, Set<String> completionFields) {
+        this.boosts = Map.copyOf(boosts);
+        this.completionFields = Set.copyOf(completionFields);
+    }
+
+    /**
+     * Add or replace a document.
+     * @param label short text shown for the document in completions
+     * @param fields indexed text per field name
+     */
+    public void put(int id, T payload, String label, Map<String, String> fields) {
+        final Document<T> document = analyze(payload, label, fields);
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+            index(id, document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a document unless one with this id is already indexed.
+     * Used by bulk loads, so they never overwrite a newer version written concurrently through {@link #put}.
+     */
+    public void putIfAbsent(int id, T payload, String label, Map<String, String> fields) {
+        final Document<T> document = analyze(payload, label, fields);
+        lock.writeLock().lock();
+        try {
+            if (!documents.containsKey(id)) {
+                index(id, document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked search; only the top <code>(page + 1) * size</code> hits are ever ordered.
+     */
+    public Page<T> search(String query, int page, int size) {
+        final List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Page<>(List.of(), 0, page, size);
+        }
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (String token : tokens) {
+                final Map<Integer, Double> matches = match(token);
+                if (scores == null) {
+                    scores = matches;
+                } else {
+                    final Map<Integer, Double> both = new HashMap<>();
+                    for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                        final Double score = matches.get(entry.getKey());
+                        if (score != null) {
+                            both.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                    scores = both;
+                }
+                if (scores.isEmpty()) {
+                    return new Page<>(List.of(), 0, page, size);
+                }
+            }
+
+            final Comparator<Map.Entry<Integer, Double>> ranking = Map.Entry.<Integer, Double>comparingByValue()
+                .reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+            final int keep = (page + 1) * size;
+            final PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(keep + 1, ranking.reversed());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                top.add(entry);
+                if (top.size() > keep) {
+                    top.poll();
+                }
+            }
+            final List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(top);
+            ranked.sort(ranking);
+
+            final List<Hit<T>> hits = new ArrayList<>(size);
+            for (int i = page * size; i < ranked.size(); i++) {
+                final Map.Entry<Integer, Double> entry = ranked.get(i);
+                hits.add(new Hit<>(documents.get(entry.getKey()).payload(), entry.getValue()));
+            }
+            return new Page<>(hits, scores.size(), page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to <code>limit</code> documents with a name term starting with the last token of <code>prefix</code>,
+     * in term order; earlier tokens must match those documents too.
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        final List<String> tokens = tokenize(prefix);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        final String last = tokens.get(tokens.size() - 1);
+        final List<String> others = tokens.subList(0, tokens.size() - 1);
+        lock.readLock().lock();
+        try {
+            final Map<Integer, Suggestion> found = new LinkedHashMap<>();
+            for (Set<Integer> ids : completions.subMap(last, true, last + Character.MAX_VALUE, false).values()) {
+                for (Integer id : ids) {
+                    if (!found.containsKey(id) && matchesAll(documents.get(id), others)) {
+                        found.put(id, new Suggestion(id, documents.get(id).label()));
+                        if (found.size() == limit) {
+                            return List.copyOf(found.values());
+                        }
+                    }
+                }
+            }
+            return List.copyOf(found.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cased letter/digit runs; "555-123 4567" gives three tokens, "O'Brien" two.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        final List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<Integer, Double> match(String token) {
+        final Map<Integer, Double> scores = new HashMap<>();
+        final Map<String, Map<Integer, Double>> terms = token.length() < MIN_PREFIX_LENGTH
+            ? exact(token)
+            : postings.subMap(token, true, token + Character.MAX_VALUE, false);
+        for (Map.Entry<String, Map<Integer, Double>> term : terms.entrySet()) {
+            final double factor = term.getKey().equals(token)
+                ? 1.0
+                : PREFIX_MATCH_FACTOR * token.length() / term.getKey().length();
+            for (Map.Entry<Integer, Double> posting : term.getValue().entrySet()) {
+                scores.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private Map<String, Map<Integer, Double>> exact(String token) {
+        final Map<Integer, Double> posting = postings.get(token);
+        return posting == null ? Map.of() : Map.of(token, posting);
+    }
+
+    private static boolean matchesAll(Document<?> document, List<String> tokens) {
+        for (String token : tokens) {
+            boolean matched = false;
+            for (String term : document.terms().keySet()) {
+                if (term.startsWith(token)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Document<T> analyze(T payload, String label, Map<String, String> fields) {
+        final Map<String, Double> terms = new HashMap<>();
+        final Set<String> completionTerms = new HashSet<>();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            final Double boost = boosts.get(field.getKey());
+            if (boost == null) {
+                continue;
+            }
+            for (String term : tokenize(field.getValue())) {
+                terms.merge(term, boost, Math::max);
+                if (completionFields.contains(field.getKey())) {
+                    completionTerms.add(term);
+                }
+            }
+        }
+        return new Document<>(payload, label, terms, completionTerms);
+    }
+
+    private void index(int id, Document<T> document) {
+        documents.put(id, document);
+        document.terms().forEach((term, boost) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, boost));
+        document.completionTerms().forEach(term -> completions.computeIfAbsent(term, t -> new TreeSet<>()).add(id));
+    }
+
+    private void unindex(int id) {
+        final Document<T> previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms().keySet()) {
+            final Map<Integer, Double> posting = postings.get(term);
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        for (String term : previous.completionTerms()) {
+            final Set<Integer> ids = completions.get(term);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                completions.remove(term);
+            }
+        }
+    }
+
+    private record Document<T>(T payload, String label, Map<String, Double> terms, Set<String> completionTerms) {
+    }
+
+    /**
+     * One search result and its relevance score.
+     */
+    public record Hit<T>(T item, double score) {
+    }
+
+    /**
+     * One page of ranked hits; <code>total</code> counts every matching document.
+     */
+    public record Page<T>(List<Hit<T>> items, int total, int page, int size) {
+
+        public Page {
+            items = Collections.unmodifiableList(items);
+        }
+    }
+
+    /**
+     * A completion: the document id and its label.
+     */
+    public record Suggestion(int id, String label) {
+    }
+}
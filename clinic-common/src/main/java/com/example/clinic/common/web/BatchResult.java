@@ -0,0 +1,30 @@
+package com.example.clinic.common.web;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk insert: one item per submitted element, in submission order.
+ */
+public record BatchResult(
+    int created,
+    int rejected,
+    List<Item> items
+) {
+
+    public static BatchResult of(List<Item> items) {
+        final int created = (int) items.stream().filter(item -> item.errors().isEmpty()).count();
+        return new BatchResult(created, items.size() - created, items);
+    }
+
+    /**
+     * @param index position of the element in the request body
+     * @param id generated id, or null when the element was rejected
+     * @param errors validation messages, empty when the element was created
+     */
+    public record Item(
+        int index,
+        Integer id,
+        List<String> errors
+    ) {
+    }
+}
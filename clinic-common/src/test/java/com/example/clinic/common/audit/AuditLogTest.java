@@ -0,0 +1,63 @@
+package com.example.clinic.common.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AuditLogTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesEveryAcceptedEventAsOneJsonLineBeforeStopping() throws Exception {
+        Path file = dir.resolve("audit.log");
+        AuditLog auditLog = new AuditLog(file, 64, 8, 1 << 20, 2, Duration.ZERO, objectMapper, registry);
+        auditLog.start();
+        for (int i = 1; i <= 20; i++) {
+            auditLog.record(AuditEvent.of("visit.created", i, 100 + i));
+        }
+        auditLog.stop();
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(20);
+        AuditEvent first = objectMapper.readValue(lines.get(0), AuditEvent.class);
+        assertThat(first.action()).isEqualTo("visit.created");
+        assertThat(first.entityId()).isEqualTo(1);
+        assertThat(first.patientId()).isEqualTo(101);
+        assertThat(events("accepted")).isEqualTo(20);
+        assertThat(events("dropped")).isZero();
+    }
+
+    @Test
+    void dropsAndCountsEventsWhenTheBufferIsFull() {
+        // not started, so nothing drains the buffer
+        AuditLog auditLog = new AuditLog(dir.resolve("audit.log"), 4, 8, 1 << 20, 2, Duration.ZERO,
+            objectMapper, registry);
+        for (int i = 0; i < 6; i++) {
+            auditLog.record(AuditEvent.of("patient.updated", i, i));
+        }
+
+        assertThat(events("accepted")).isEqualTo(4);
+        assertThat(events("dropped")).isEqualTo(2);
+        assertThat(registry.get("clinic.audit.queue.size").gauge().value()).isEqualTo(4);
+    }
+
+    private double events(String result) {
+        return registry.get("clinic.audit.events").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.clinic.common.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+/**
+ * The in-process channel stands in for a broker: two invalidators subscribed to one channel behave
+ * like two instances of a service.
+ */
+class CacheInvalidatorTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+        .withUserConfiguration(CacheConfig.class)
+        .withBean(CacheManager.class, () -> new ConcurrentMapCacheManager("patients"))
+        .withBean(Lookup.class);
+
+    @Test
+    void invalidateEvictsTheCachedEntry() {
+        runner.run(context -> {
+            Lookup lookup = context.getBean(Lookup.class);
+            assertThat(lookup.find(1)).isEqualTo("patient 1 #1");
+            assertThat(lookup.find(1)).isEqualTo("patient 1 #1");
+            assertThat(lookup.find(2)).isEqualTo("patient 2 #2");
+
+            context.getBean(CacheInvalidator.class).invalidate("patients", 1);
+
+            assertThat(lookup.find(1)).isEqualTo("patient 1 #3");
+            assertThat(lookup.find(2)).isEqualTo("patient 2 #2");
+        });
+    }
+
+    @Test
+    void localChannelIsTheDefault() {
+        runner.run(context -> assertThat(context).getBean(CacheInvalidationChannel.class)
+            .isInstanceOf(LocalCacheInvalidationChannel.class));
+        runner.withPropertyValues("cache.invalidation.channel=local")
+            .run(context -> assertThat(context).getBean(CacheInvalidationChannel.class)
+                .isInstanceOf(LocalCacheInvalidationChannel.class));
+    }
+
+    @Test
+    void otherChannelsReplaceTheLocalOne() {
+        RecordingChannel channel = new RecordingChannel();
+        runner.withPropertyValues("cache.invalidation.channel=broker")
+            .withBean(CacheInvalidationChannel.class, () -> channel)
+            .run(context -> {
+                assertThat(context).hasSingleBean(CacheInvalidationChannel.class);
+                context.getBean(CacheInvalidator.class).invalidate("patients", 7);
+                assertThat(channel.published).containsExactly("patients:7");
+            });
+    }
+
+    @Test
+    void invalidationsReachEveryInstanceOnTheChannel() {
+        CacheInvalidationChannel channel = new LocalCacheInvalidationChannel();
+        CacheManager first = new ConcurrentMapCacheManager("patients");
+        CacheManager second = new ConcurrentMapCacheManager("patients");
+        CacheInvalidator invalidator = new CacheInvalidator(first, channel);
+        new CacheInvalidator(second, channel);
+        for (CacheManager cacheManager : List.of(first, second)) {
+            cacheManager.getCache("patients").put(1, "stale");
+            cacheManager.getCache("patients").put(2, "fresh");
+        }
+
+        invalidator.invalidate("patients", 1);
+
+        for (CacheManager cacheManager : List.of(first, second)) {
+            assertThat(cacheManager.getCache("patients").get(1)).isNull();
+            assertThat(cacheManager.getCache("patients").get(2).get()).isEqualTo("fresh");
+        }
+    }
+
+    @Test
+    void unknownCachesAreIgnored() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("patients");
+        CacheInvalidator invalidator = new CacheInvalidator(cacheManager, new LocalCacheInvalidationChannel());
+
+        invalidator.invalidate("doctors", 1);
+
+        assertThat(cacheManager.getCacheNames()).containsExactly("patients");
+    }
+
+    static class Lookup {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Cacheable("patients")
+        public String find(int id) {
+            return "patient " + id + " #" + calls.incrementAndGet();
+        }
+    }
+
+    private static class RecordingChannel implements CacheInvalidationChannel {
+
+        private final List<String> published = new ArrayList<>();
+
+        @Override
+        public void publish(String cacheName, Object key) {
+            published.add(cacheName + ":" + key);
+        }
+
+        @Override
+        public void subscribe(BiConsumer<String, Object> listener) {
+        }
+    }
+}
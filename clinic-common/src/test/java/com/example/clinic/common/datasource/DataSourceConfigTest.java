@@ -0,0 +1,127 @@
+package com.example.clinic.common.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Routes against two embedded HSQLDB databases, each holding one row that names it.
+ */
+class DataSourceConfigTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class,
+            DataSourceTransactionManagerAutoConfiguration.class, TransactionAutoConfiguration.class))
+        .withUserConfiguration(DataSourceConfig.class)
+        .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+        .withPropertyValues("spring.datasource.username=SA", "spring.datasource.password=");
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        runner.withPropertyValues("spring.datasource.url=" + database("primary"),
+                "spring.datasource.replica.url=" + database("replica"))
+            .run(context -> {
+                probed(context);
+                double replicaBefore = routed(context, "replica");
+                double primaryBefore = routed(context, "primary");
+
+                String reader = readOnly(context).execute(status -> servedBy(context));
+                String writer = readWrite(context).execute(status -> servedBy(context));
+
+                assertThat(reader).isEqualTo("replica");
+                assertThat(writer).isEqualTo("primary");
+                assertThat(servedBy(context)).isEqualTo("primary");
+                assertThat(routed(context, "replica") - replicaBefore).isEqualTo(1);
+                assertThat(routed(context, "primary") - primaryBefore).isEqualTo(2);
+            });
+    }
+
+    @Test
+    void readOnlyTransactionWithoutStatementsTakesNoConnection() {
+        runner.withPropertyValues("spring.datasource.url=" + database("primary"),
+                "spring.datasource.replica.url=" + database("replica"))
+            .run(context -> {
+                probed(context);
+                double replicaBefore = routed(context, "replica");
+                double primaryBefore = routed(context, "primary");
+
+                readOnly(context).executeWithoutResult(status -> { });
+
+                assertThat(routed(context, "replica")).isEqualTo(replicaBefore);
+                assertThat(routed(context, "primary")).isEqualTo(primaryBefore);
+            });
+    }
+
+    @Test
+    void everythingGoesToThePrimaryWithoutReplica() {
+        runner.withPropertyValues("spring.datasource.url=" + database("primary"))
+            .run(context -> {
+                assertThat(context).doesNotHaveBean("replicaDataSource");
+
+                String reader = readOnly(context).execute(status -> servedBy(context));
+                String writer = readWrite(context).execute(status -> servedBy(context));
+
+                assertThat(reader).isEqualTo("primary");
+                assertThat(writer).isEqualTo("primary");
+            });
+    }
+
+    /**
+     * A new in-memory database holding the row <code>name</code>; the replica pool opens its connections
+     * read-only, so both are filled before the context starts.
+     */
+    private static String database(String name) {
+        String url = "jdbc:hsqldb:mem:routing-" + DATABASES.incrementAndGet();
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(url, "SA", ""));
+        jdbc.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return url;
+    }
+
+    private static String servedBy(ApplicationContext context) {
+        return new JdbcTemplate(context.getBean("dataSource", DataSource.class))
+            .queryForObject("SELECT name FROM node", String.class);
+    }
+
+    /**
+     * The connection proxy takes one connection from the router for its default auto-commit and isolation the
+     * first time it is asked for a connection; tests count what is routed after that.
+     */
+    private static void probed(ApplicationContext context) {
+        readWrite(context).executeWithoutResult(status -> { });
+    }
+
+    private static double routed(ApplicationContext context, String target) {
+        return context.getBean(MeterRegistry.class).get("clinic.datasource.routed").tag("target", target)
+            .counter().count();
+    }
+
+    private static TransactionTemplate readWrite(ApplicationContext context) {
+        return new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    private static TransactionTemplate readOnly(ApplicationContext context) {
+        TransactionTemplate template = readWrite(context);
+        template.setReadOnly(true);
+        return template;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.clinic.common.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+class VirtualThreadsConfigTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+        .withUserConfiguration(VirtualThreadsConfig.class);
+
+    @Test
+    void virtualThreadsNeedJava21() {
+        assertThatIllegalStateException()
+            .isThrownBy(() -> VirtualThreadsConfig.requireVirtualThreads(17))
+            .withMessageContaining("Java 21")
+            .withMessageContaining("JAVA_VERSION=21");
+        assertThatCode(() -> VirtualThreadsConfig.requireVirtualThreads(21)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void startsOnTheRunningJvmOnlyIfItHasVirtualThreads() {
+        runner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            if (Runtime.version().feature() < VirtualThreadsConfig.MINIMUM_JAVA_VERSION) {
+                assertThat(context).hasFailed();
+                assertThat(context.getStartupFailure()).rootCause().hasMessageContaining("needs Java 21");
+            } else {
+                assertThat(context).hasNotFailed();
+            }
+        });
+    }
+
+    @Test
+    void isNotCheckedWithoutTheProperty() {
+        runner.run(context -> assertThat(context).hasNotFailed().doesNotHaveBean(VirtualThreadsConfig.class));
+        runner.withPropertyValues("spring.threads.virtual.enabled=false")
+            .run(context -> assertThat(context).hasNotFailed().doesNotHaveBean(VirtualThreadsConfig.class));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.clinic.common.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchIndexTest {
+
+    private SearchIndex<String> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SearchIndex<>(Map.of("lastName", 3.0, "firstName", 2.0, "city", 1.0), Set.of("lastName", "firstName"));
+        put(1, "John", "Smith", "Boston");
+        put(2, "Anna", "Smithers", "Springfield");
+        put(3, "Smith", "Jones", "Boston");
+    }
+
+    @Test
+    void ranksByFieldBoostWithWholeTermsAheadOfPrefixes() {
+        SearchIndex.Page<String> page = index.search("Smith", 0, 10);
+
+        assertThat(page.total()).isEqualTo(3);
+        assertThat(items(page)).containsExactly("Smith, John", "Jones, Smith", "Smithers, Anna");
+        assertThat(page.items().get(0).score()).isEqualTo(3.0);
+        assertThat(page.items().get(1).score()).isEqualTo(2.0);
+        // prefix match on a lastName term: 3.0 * 0.5 * 5 / 8
+        assertThat(page.items().get(2).score()).isEqualTo(0.9375);
+    }
+
+    @Test
+    void everyTokenMustMatchAndScoresAddUp() {
+        SearchIndex.Page<String> page = index.search("smith boston", 0, 10);
+
+        assertThat(page.total()).isEqualTo(2);
+        assertThat(items(page)).containsExactly("Smith, John", "Jones, Smith");
+        assertThat(page.items().get(0).score()).isEqualTo(4.0);
+        assertThat(index.search("smith chicago", 0, 10).total()).isZero();
+    }
+
+    @Test
+    void pagesCountEveryMatch() {
+        SearchIndex.Page<String> second = index.search("smith", 1, 2);
+
+        assertThat(second.total()).isEqualTo(3);
+        assertThat(second.page()).isEqualTo(1);
+        assertThat(second.size()).isEqualTo(2);
+        assertThat(items(second)).containsExactly("Smithers, Anna");
+        assertThat(index.search("smith", 2, 2).items()).isEmpty();
+    }
+
+    @Test
+    void shortTokensOnlyMatchWholeTerms() {
+        assertThat(index.search("s", 0, 10).total()).isZero();
+        put(4, "S", "Lee", "Boston");
+        assertThat(items(index.search("s", 0, 10))).containsExactly("Lee, S");
+    }
+
+    @Test
+    void blankQueriesAndUnboostedFieldsMatchNothing() {
+        index.put(5, "Doe, Jane", "Doe, Jane", Map.of("lastName", "Doe", "email", "jane@example.com"));
+
+        assertThat(index.search("  ", 0, 10).items()).isEmpty();
+        assertThat(index.search(null, 0, 10).items()).isEmpty();
+        assertThat(index.search("jane", 0, 10).total()).isZero();
+        assertThat(index.search("doe", 0, 10).total()).isEqualTo(1);
+    }
+
+    @Test
+    void putReplacesAndPutIfAbsentKeeps() {
+        put(1, "John", "Brown", "Boston");
+        assertThat(items(index.search("brown", 0, 10))).containsExactly("Brown, John");
+        assertThat(items(index.search("smith", 0, 10))).doesNotContain("Smith, John");
+
+        index.putIfAbsent(1, "Green, John", "Green, John", Map.of("lastName", "Green", "firstName", "John"));
+        assertThat(index.search("green", 0, 10).total()).isZero();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void removeDropsTermsAndCompletions() {
+        index.remove(2);
+        index.remove(42);
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("smithers", 0, 10).total()).isZero();
+        assertThat(index.complete("smithe", 10)).isEmpty();
+    }
+
+    @Test
+    void completesNameTermsInTermOrderUpToLimit() {
+        assertThat(index.complete("smi", 10)).extracting(SearchIndex.Suggestion::id).containsExactly(1, 3, 2);
+        assertThat(index.complete("smi", 2)).extracting(SearchIndex.Suggestion::label)
+            .containsExactly("Smith, John", "Jones, Smith");
+        // city is searchable but not offered for completion
+        assertThat(index.complete("bos", 10)).isEmpty();
+    }
+
+    @Test
+    void earlierCompletionTokensMustMatchToo() {
+        assertThat(index.complete("john smi", 10)).containsExactly(new SearchIndex.Suggestion(1, "Smith, John"));
+        assertThat(index.complete("anna smi", 10)).extracting(SearchIndex.Suggestion::id).containsExactly(2);
+        assertThat(index.complete("", 10)).isEmpty();
+    }
+
+    @Test
+    void tokenizesOnNonLetterOrDigitRuns() {
+        assertThat(SearchIndex.tokenize("555-123 4567")).containsExactly("555", "123", "4567");
+        assertThat(SearchIndex.tokenize("O'Brien")).containsExactly("o", "brien");
+        assertThat(SearchIndex.tokenize("  Müller,  ANNA ")).containsExactly("müller", "anna");
+        assertThat(SearchIndex.tokenize(null)).isEmpty();
+    }
+
+    private void put(int id, String firstName, String lastName, String city) {
+        String label = lastName + ", " + firstName;
+        index.put(id, label, label, Map.of("firstName", firstName, "lastName", lastName, "city", city));
+    }
+
+    private static List<String> items(SearchIndex.Page<String> page) {
+        return page.items().stream().map(SearchIndex.Hit::item).toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.clinic.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The clinic without docker-compose: the embedded database, doctor-, patient-, visits- and gen-ai-service,
+ * and the api-gateway in front of them. gen-ai-service answers from its local stub model (profile "stub-model").
+ * <p>
+ * Config server and Eureka are replaced by command line properties: the config client and the Eureka
+ * client are disabled, and the gateway resolves <code>lb://</code> routes through Spring Cloud's simple
+ * discovery client, whose instances point at the ports chosen here.
+ */
+class ClinicStack implements AutoCloseable {
+
+    static final String GATEWAY = "api-gateway";
+    static final String GEN_AI = "gen-ai-service";
+    static final List<String> SERVICES = List.of("doctor-service", "patient-service", "visits-service", GEN_AI);
+
+    private final LoadTestSettings settings;
+    private final EmbeddedDatabase database;
+    private final Map<String, ServiceProcess> processes = new LinkedHashMap<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ClinicStack(LoadTestSettings settings) {
+        this.settings = settings;
+        this.database = new EmbeddedDatabase(settings.dbPath(), settings.dbPort(), settings.dbReplicaPort());
+    }
+
+    EmbeddedDatabase database() {
+        return database;
+    }
+
+    /**
+     * Start everything and wait until each service reports healthy.
+     * The services create their tables on startup, so the database can be seeded once this returns.
+     */
+    void start(HttpClient client) throws IOException, SQLException, InterruptedException {
+        database.start();
+
+        final Path logDir = settings.outputDir().resolve("logs");
+        final List<String> jvmArgs = settings.serviceJvmArgs().isBlank()
+            ? List.of()
+            : Arrays.asList(settings.serviceJvmArgs().trim().split("\\s+"));
+
+        int port = settings.basePort();
+        for (String service : SERVICES) {
+            final List<String> args = GEN_AI.equals(service) ? genAiArgs() : serviceArgs();
+            processes.put(service, ServiceProcess.start(service, jar(service), ++port, jvmArgs, args, logDir));
+        }
+        for (String service : SERVICES) {
+            processes.get(service).awaitHealthy(client, settings.startupTimeout());
+        }
+
+        final ServiceProcess gateway = ServiceProcess.start(GATEWAY, jar(GATEWAY), settings.basePort(), jvmArgs,
+            gatewayArgs(), logDir);
+        processes.put(GATEWAY, gateway);
+        gateway.awaitHealthy(client, settings.startupTimeout());
+    }
+
+    /**
+     * Base URL of a service, or of the gateway for {@link #GATEWAY}.
+     */
+    String baseUrl(String service) {
+        return processes.get(service).baseUrl();
+    }
+
+    private Path jar(String service) {
+        return settings.stackDir().resolve(service + ".jar");
+    }
+
+    private List<String> commonArgs() {
+        final List<String> args = new ArrayList<>();
+        args.add("--spring.cloud.config.enabled=false");
+        args.add("--eureka.client.enabled=false");
+        args.add("--management.tracing.enabled=false");
+        if (!settings.serviceProfiles().isBlank()) {
+            args.add("--spring.profiles.active=" + settings.serviceProfiles());
+        }
+        return args;
+    }
+
+    private List<String> serviceArgs() {
+        final List<String> args = commonArgs();
+        args.add("--spring.datasource.url=" + database.serviceUrl());
+        args.add("--spring.datasource.username=" + EmbeddedDatabase.USER);
+        args.add("--spring.datasource.password=" + EmbeddedDatabase.PASSWORD);
+        args.add("--spring.datasource.driver-class-name=org.hsqldb.jdbc.JDBCDriver");
+        if (database.hasReplica()) {
+            args.add("--spring.datasource.replica.url=" + database.replicaUrl());
+        }
+        // schema.sql and data.sql are MySQL dialect; Hibernate creates the tables and the seeder fills them
+        args.add("--spring.sql.init.mode=never");
+        args.add("--spring.jpa.hibernate.ddl-auto=update");
+        // audit trails next to the service logs rather than in the working directory
+        args.add("--audit.dir=" + settings.outputDir().resolve("logs").toAbsolutePath());
+        return args;
+    }
+
+    private List<String> genAiArgs() {
+        final List<String> args = commonArgs();
+        // no API key and no upstream model: answers come from the stub, on top of the compared profiles
+        args.add("--spring.profiles.include=stub-model");
+        return args;
+    }
+
+    private List<String> gatewayArgs() {
+        final List<String> args = commonArgs();
+        for (String service : SERVICES) {
+            args.add("--spring.cloud.discovery.client.simple.instances." + service + "[0].uri=" + baseUrl(service));
+        }
+        // every worker connects from this host, so all of them share one client bucket per route; scaling the
+        // per-client and route-wide token buckets keeps the run measuring the services rather than the limits
+        args.add("--gateway.rate-limit.scale=" + settings.gatewayRateLimitScale());
+        return args;
+    }
+
+    @Override
+    public void close() {
+        // also registered as a shutdown hook, so Ctrl+C does not leave service JVMs behind
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        final List<ServiceProcess> reversed = new ArrayList<>(processes.values());
+        Collections.reverse(reversed);
+        reversed.forEach(ServiceProcess::close);
+        database.close();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.clinic.loadtest;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hsqldb.server.Server;
+import org.hsqldb.server.ServerConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HSQLDB server hosted by the load-test JVM, playing the role of the shared MySQL database of docker-compose.
+ * The services connect to it over the network; the seeder talks to the same database in-process.
+ * <p>
+ * With a replica port, a second server serves the same database on that port and stands in for a read replica:
+ * the services open a separate, read-only pool against it and route their read-only transactions there. Both
+ * servers share one database, so the "replica" never lags; what it exercises is the routing and the second pool.
+ * <p>
+ * The database runs with MVCC so concurrent requests are not serialized on table locks, in MySQL syntax mode for
+ * the statements the services write in MySQL dialect, and file databases
+ * default to CACHED tables so millions of seeded rows do not all have to fit in the heap.
+ */
+class EmbeddedDatabase implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedDatabase.class);
+
+    static final String NAME = "clinic";
+    static final String USER = "SA";
+    static final String PASSWORD = "";
+
+    private final String path;
+    private final int port;
+    private final int replicaPort;
+    private final Server server;
+    private final Server replicaServer;
+
+    /**
+     * @param replicaPort port of the stand-in replica, 0 for none
+     */
+    EmbeddedDatabase(String path, int port, int replicaPort) {
+        this.path = path;
+        this.port = port;
+        this.replicaPort = replicaPort;
+        this.server = newServer(path, port);
+        this.replicaServer = replicaPort > 0 ? newServer(path, replicaPort) : null;
+    }
+
+    private static Server newServer(String path, int port) {
+        final Server server = new Server();
+        server.setDatabaseName(0, NAME);
+        server.setDatabasePath(0, path);
+        server.setPort(port);
+        server.setNoSystemExit(true);
+        server.setSilent(true);
+        server.setLogWriter(null);
+        server.setErrWriter(new PrintWriter(System.err, true));
+        return server;
+    }
+
+    void start() throws SQLException {
+        start(server, port);
+        if (replicaServer != null) {
+            // opens the database the first server already has open in this JVM
+            start(replicaServer, replicaPort);
+        }
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+            // the services' stats upserts are INSERT ... ON DUPLICATE KEY UPDATE
+            statement.execute("SET DATABASE SQL SYNTAX MYS TRUE");
+            if (path.startsWith("file:")) {
+                statement.execute("SET DATABASE DEFAULT TABLE TYPE CACHED");
+                statement.execute("SET FILES LOG FALSE");
+            }
+        }
+        log.info("HSQLDB '{}' listening on {}", path, serviceUrl());
+        if (replicaServer != null) {
+            log.info("HSQLDB '{}' also listening on {} as the replica", path, replicaUrl());
+        }
+    }
+
+    private static void start(Server server, int port) {
+        server.start();
+        if (server.getState() != ServerConstants.SERVER_STATE_ONLINE) {
+            throw new IllegalStateException("HSQLDB server did not start on port " + port, server.getServerError());
+        }
+    }
+
+    /**
+     * JDBC URL the services use.
+     */
+    String serviceUrl() {
+        return "jdbc:hsqldb:hsql://localhost:" + port + "/" + NAME;
+    }
+
+    boolean hasReplica() {
+        return replicaServer != null;
+    }
+
+    /**
+     * JDBC URL of the stand-in replica, see {@link #hasReplica()}.
+     */
+    String replicaUrl() {
+        return "jdbc:hsqldb:hsql://localhost:" + replicaPort + "/" + NAME;
+    }
+
+    /**
+     * In-process connection to the same database, used for seeding.
+     */
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection("jdbc:hsqldb:" + path, USER, PASSWORD);
+    }
+
+    @Override
+    public void close() {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            log.warn("HSQLDB shutdown failed: {}", e.getMessage());
+        }
+        if (replicaServer != null) {
+            replicaServer.stop();
+        }
+        server.stop();
+    }
+}
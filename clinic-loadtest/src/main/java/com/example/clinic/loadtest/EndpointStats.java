@@ -0,0 +1,54 @@
+package com.example.clinic.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latencies and failures of one operation, recorded concurrently by all workers.
+ * Latencies of successful responses go to an HdrHistogram in microseconds; failures (non-2xx status,
+ * timeout, connection error) are only counted, so a burst of fast errors cannot flatter the percentiles.
+ */
+final class EndpointStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final String name;
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void success(long latencyNanos) {
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    void failure() {
+        errors.increment();
+    }
+
+    /**
+     * Drop everything recorded so far, at the end of the warm-up.
+     */
+    void reset() {
+        recorder.reset();
+        errors.reset();
+    }
+
+    /**
+     * What was recorded since the last reset or snapshot.
+     */
+    Snapshot snapshot() {
+        return new Snapshot(name, recorder.getIntervalHistogram(), errors.sumThenReset());
+    }
+
+    record Snapshot(String name, Histogram histogram, long errors) { }
+}
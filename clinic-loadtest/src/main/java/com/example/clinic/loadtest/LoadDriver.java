@@ -0,0 +1,143 @@
+package com.example.clinic.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the workload with <code>--concurrency</code> workers, each sending one request at a time.
+ * <p>
+ * Without <code>--rate</code> the workers are closed-loop and send as fast as responses come back, which finds
+ * the throughput ceiling. With a rate the workers share that request rate and latency is measured from when a
+ * request was due rather than when it was sent, so a stalled service shows up in the tail percentiles instead of
+ * silently lowering the request rate (coordinated omission).
+ */
+class LoadDriver {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadDriver.class);
+
+    private final LoadTestSettings settings;
+    private final Workload workload;
+    private final Seeder.DataSet data;
+    private final ClinicStack stack;
+    private final HttpClient client;
+    private final Map<Operation, EndpointStats> stats = new LinkedHashMap<>();
+
+    private volatile boolean running = true;
+
+    LoadDriver(LoadTestSettings settings, Workload workload, Seeder.DataSet data, ClinicStack stack, HttpClient client) {
+        this.settings = settings;
+        this.workload = workload;
+        this.data = data;
+        this.stack = stack;
+        this.client = client;
+        workload.operations().forEach(operation -> stats.put(operation, new EndpointStats(operation.name())));
+    }
+
+    /**
+     * Warm up, measure, and return what was recorded during the measurement window.
+     */
+    Report run() throws InterruptedException {
+        final ExecutorService workers = Executors.newFixedThreadPool(settings.concurrency(), runnable -> {
+            final Thread thread = new Thread(runnable, "loadtest-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final SplittableRandom seeds = new SplittableRandom(settings.randomSeed());
+        for (int i = 0; i < settings.concurrency(); i++) {
+            final SplittableRandom random = seeds.split();
+            workers.execute(() -> work(random));
+        }
+
+        log.info("Warming up for {}", settings.warmup());
+        TimeUnit.NANOSECONDS.sleep(settings.warmup().toNanos());
+        stats.values().forEach(EndpointStats::reset);
+
+        log.info("Measuring for {}", settings.duration());
+        final long start = System.nanoTime();
+        TimeUnit.NANOSECONDS.sleep(settings.duration().toNanos());
+        final List<EndpointStats.Snapshot> snapshots = new ArrayList<>();
+        stats.values().forEach(endpoint -> snapshots.add(endpoint.snapshot()));
+        final Duration measured = Duration.ofNanos(System.nanoTime() - start);
+
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(settings.requestTimeout().toSeconds() + 5, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+        return new Report(settings, workload, data, measured, snapshots);
+    }
+
+    private void work(SplittableRandom random) {
+        final Operation.Args args = new Operation.Args(random, data);
+        final long interval = settings.rate() > 0 ? (long) (settings.concurrency() * 1e9 / settings.rate()) : 0;
+        // stagger paced workers so they do not fire in lockstep
+        long due = System.nanoTime() + (interval > 0 ? random.nextLong(interval) : 0);
+        while (running) {
+            if (interval > 0) {
+                final long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            final Operation operation = workload.next(random);
+            final long start = interval > 0 ? due : System.nanoTime();
+            final boolean ok = send(operation, args);
+            final long latency = System.nanoTime() - start;
+            if (ok) {
+                stats.get(operation).success(latency);
+            } else {
+                stats.get(operation).failure();
+            }
+            due += interval;
+        }
+    }
+
+    private boolean send(Operation operation, Operation.Args args) {
+        final HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url(operation, args)))
+            .timeout(settings.requestTimeout())
+            .header("Accept", "application/json");
+        if (operation.write()) {
+            request.header("Content-Type", "application/json")
+                .method(operation.method(), HttpRequest.BodyPublishers.ofString(operation.body().apply(args)));
+        } else {
+            request.method(operation.method(), HttpRequest.BodyPublishers.noBody());
+        }
+        try {
+            final int status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return false;
+        }
+    }
+
+    private String url(Operation operation, Operation.Args args) {
+        final String path = operation.path().apply(args);
+        if (ClinicStack.GATEWAY.equals(operation.service())) {
+            return stack.baseUrl(ClinicStack.GATEWAY) + path;
+        }
+        if (settings.throughGateway()) {
+            return stack.baseUrl(ClinicStack.GATEWAY) + "/api/v1" + path;
+        }
+        return stack.baseUrl(operation.service()) + path;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.clinic.loadtest;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry point of loadtest.jar: start the stack, seed it, run the workload, report; with
+ * <code>--compare-profiles</code> once per profile set, then the runs side by side.
+ * <pre>
+ * mvn -pl clinic-loadtest -am package -DskipTests
+ * java -Xmx4g -jar clinic-loadtest/target/loadtest.jar --patients=200000 --visits=5000000 --concurrency=64
+ * </pre>
+ * See clinic-loadtest/README.md for all options.
+ */
+public final class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final LoadTestSettings settings = LoadTestSettings.parse(args);
+        final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+        if (settings.compareProfiles().isBlank()) {
+            run(settings, client);
+            return;
+        }
+        final ProfileComparison comparison = new ProfileComparison();
+        for (String profiles : settings.comparedProfileSets()) {
+            log.info("Running with profiles '{}'", profiles);
+            comparison.add(profiles, run(settings.forProfiles(profiles), client));
+        }
+        comparison.print(System.out);
+        comparison.write(settings.outputDir());
+        log.info("Comparison written to {}", settings.outputDir().resolve("comparison.json"));
+    }
+
+    private static Report run(LoadTestSettings settings, HttpClient client) throws Exception {
+        try (ClinicStack stack = new ClinicStack(settings)) {
+            final Thread shutdown = new Thread(stack::close, "loadtest-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdown);
+            stack.start(client);
+
+            final Seeder.DataSet data = new Seeder(stack.database(), settings).seed();
+            final Workload workload = Workload.parse(settings.mix());
+            log.info("Running '{}' against the {}", workload, settings.throughGateway() ? "gateway" : "services");
+
+            final Report report = new LoadDriver(settings, workload, data, stack, client).run();
+            report.print(System.out);
+            report.write(settings.outputDir());
+            log.info("Results written to {}", settings.outputDir().resolve("results.json"));
+
+            if (settings.keepRunning()) {
+                log.info("Stack left running (gateway {}), press Ctrl+C to stop", stack.baseUrl(ClinicStack.GATEWAY));
+                Thread.currentThread().join();
+            }
+            Runtime.getRuntime().removeShutdownHook(shutdown);
+            return report;
+        }
+    }
+}
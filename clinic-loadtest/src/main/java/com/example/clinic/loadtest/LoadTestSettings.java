@@ -0,0 +1,150 @@
+package com.example.clinic.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of a load-test run, parsed from <code>--name=value</code> arguments.
+ * Every option has a default, so a bare <code>java -jar loadtest.jar</code> runs the "mixed" workload
+ * against a moderately sized data set.
+ */
+public record LoadTestSettings(
+    Path stackDir,
+    Path outputDir,
+    int basePort,
+    int dbPort,
+    int dbReplicaPort,
+    String dbPath,
+    String serviceJvmArgs,
+    String serviceProfiles,
+    String compareProfiles,
+    Duration startupTimeout,
+    int specialties,
+    int doctors,
+    int patients,
+    int recordsPerPatient,
+    long visits,
+    int seedBatchSize,
+    String target,
+    double gatewayRateLimitScale,
+    String mix,
+    int concurrency,
+    double rate,
+    Duration warmup,
+    Duration duration,
+    Duration requestTimeout,
+    long randomSeed,
+    boolean keepRunning
+) {
+
+    static final String TARGET_GATEWAY = "gateway";
+    static final String TARGET_DIRECT = "direct";
+
+    public static LoadTestSettings parse(String[] args) {
+        final Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument '" + arg + "', expected --name=value");
+            }
+            final int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+
+        final LoadTestSettings settings = new LoadTestSettings(
+            Path.of(take(options, "stack-dir", defaultStackDir())),
+            Path.of(take(options, "output-dir", "loadtest-results")),
+            Integer.parseInt(take(options, "base-port", "18080")),
+            Integer.parseInt(take(options, "db-port", "19001")),
+            Integer.parseInt(take(options, "db-replica-port", "19002")),
+            take(options, "db-path", "mem:clinic"),
+            take(options, "service-jvm-args", "-Xms512m -Xmx1g"),
+            take(options, "service-profiles", ""),
+            take(options, "compare-profiles", ""),
+            Duration.parse(take(options, "startup-timeout", "PT3M")),
+            Integer.parseInt(take(options, "specialties", "12")),
+            Integer.parseInt(take(options, "doctors", "500")),
+            Integer.parseInt(take(options, "patients", "100000")),
+            Integer.parseInt(take(options, "records-per-patient", "3")),
+            Long.parseLong(take(options, "visits", "1000000")),
+            Integer.parseInt(take(options, "seed-batch-size", "5000")),
+            take(options, "target", TARGET_GATEWAY),
+            Double.parseDouble(take(options, "gateway-rate-limit-scale", "1000")),
+            take(options, "mix", "mixed"),
+            Integer.parseInt(take(options, "concurrency", "32")),
+            Double.parseDouble(take(options, "rate", "0")),
+            Duration.parse(take(options, "warmup", "PT30S")),
+            Duration.parse(take(options, "duration", "PT2M")),
+            Duration.parse(take(options, "request-timeout", "PT10S")),
+            Long.parseLong(take(options, "random-seed", "42")),
+            Boolean.parseBoolean(take(options, "keep-running", "false")));
+
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown option(s): " + options.keySet());
+        }
+        if (!TARGET_GATEWAY.equals(settings.target()) && !TARGET_DIRECT.equals(settings.target())) {
+            throw new IllegalArgumentException("--target must be 'gateway' or 'direct'");
+        }
+        if (settings.gatewayRateLimitScale() <= 0) {
+            throw new IllegalArgumentException("--gateway-rate-limit-scale must be positive");
+        }
+        if (settings.concurrency() < 1 || settings.patients() < 1 || settings.doctors() < 1 || settings.specialties() < 1) {
+            throw new IllegalArgumentException("--concurrency, --patients, --doctors and --specialties must be positive");
+        }
+        if (!settings.compareProfiles().isBlank()
+                && (!settings.serviceProfiles().isBlank() || settings.keepRunning())) {
+            throw new IllegalArgumentException("--compare-profiles cannot be combined with --service-profiles or --keep-running");
+        }
+        return settings;
+    }
+
+    boolean throughGateway() {
+        return TARGET_GATEWAY.equals(target);
+    }
+
+    /**
+     * The profile sets of <code>--compare-profiles</code>, e.g. <code>default,virtual-threads</code>;
+     * <code>+</code> joins the profiles of one set, as in <code>virtual-threads+stub-model</code>.
+     */
+    List<String> comparedProfileSets() {
+        return Arrays.stream(compareProfiles.split(","))
+            .map(String::trim)
+            .filter(profiles -> !profiles.isEmpty())
+            .toList();
+    }
+
+    /**
+     * These settings for one run of a comparison: the services run with the given profile set and the run
+     * writes its results and logs to a subdirectory named after it.
+     */
+    LoadTestSettings forProfiles(String profiles) {
+        return new LoadTestSettings(stackDir, outputDir.resolve(profiles), basePort, dbPort, dbReplicaPort, dbPath,
+            serviceJvmArgs, profiles.replace('+', ','), "", startupTimeout, specialties, doctors, patients,
+            recordsPerPatient, visits, seedBatchSize, target, gatewayRateLimitScale, mix, concurrency, rate, warmup, duration,
+            requestTimeout, randomSeed, false);
+    }
+
+    private static String take(Map<String, String> options, String name, String defaultValue) {
+        final String value = options.remove(name);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * The maven build copies the service jars next to the shaded loadtest.jar, under target/stack.
+     */
+    private static String defaultStackDir() {
+        try {
+            final Path jar = Path.of(LoadTestSettings.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return jar.resolveSibling("stack").toString();
+        } catch (Exception e) {
+            return "clinic-loadtest/target/stack";
+        }
+    }
+}
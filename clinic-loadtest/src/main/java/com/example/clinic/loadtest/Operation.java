@@ -0,0 +1,114 @@
+package com.example.clinic.loadtest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * One endpoint of the workload: which service serves it, and how to build a request for it.
+ * Paths are the services' own; through the gateway they are prefixed with /api/v1 like the routes expect.
+ */
+record Operation(
+    String name,
+    String service,
+    String method,
+    Function<Args, String> path,
+    Function<Args, String> body
+) {
+
+    /**
+     * Everything a request template may draw from: the random source of the calling worker and
+     * the size of the seeded data set.
+     */
+    record Args(SplittableRandom random, Seeder.DataSet data) {
+
+        /**
+         * A seeded patient id; 80% of the calls go to the first 20% of patients, like a working set of
+         * patients who are currently being treated.
+         */
+        int patientId() {
+            return skewed(data.patients());
+        }
+
+        int doctorId() {
+            return skewed(data.doctors());
+        }
+
+        String date() {
+            return LocalDate.now().minusDays(random.nextInt(5 * 365)).toString();
+        }
+
+        String pick(List<String> values) {
+            return values.get(random.nextInt(values.size()));
+        }
+
+        private int skewed(int n) {
+            final int hot = Math.max(1, n / 5);
+            return random.nextInt(10) < 8 ? 1 + random.nextInt(hot) : 1 + random.nextInt(n);
+        }
+    }
+
+    // a few of the names and cities the Seeder draws from
+    private static final List<String> SEARCH_TERMS = List.of("smith", "garcia", "jennifer", "springfield",
+        "davis%20mary", "lopez%20ogdenville");
+
+    // questions a patient portal might send to the assistant; repeats are answered from its cache
+    private static final List<String> AI_QUESTIONS = List.of("What%20is%20a%20fever", "Is%20ibuprofen%20safe",
+        "What%20causes%20migraines", "How%20long%20does%20a%20cold%20last", "What%20is%20high%20blood%20pressure",
+        "When%20should%20I%20see%20a%20doctor%20about%20a%20cough");
+
+    static final List<Operation> ALL = List.of(
+        get("doctors.list", "doctor-service", a -> "/doctors"),
+        get("doctors.get", "doctor-service", a -> "/doctors/" + a.doctorId()),
+        get("patients.get", "patient-service", a -> "/patients/" + a.patientId()),
+        get("patients.search", "patient-service", a -> "/patients/search?q=" + a.pick(SEARCH_TERMS)),
+        get("patients.complete", "patient-service", a -> "/patients/search/complete?prefix="
+            + a.pick(SEARCH_TERMS).substring(0, 3)),
+        get("patients.page", "patient-service", a -> "/patients?size=50&after=" + a.random().nextInt(a.data().patients())),
+        get("records.list", "patient-service", a -> "/patients/" + a.patientId() + "/records"),
+        get("visits.patient", "visits-service", a -> "/visits/patients/" + a.patientId()),
+        get("visits.lookup", "visits-service", a -> "/visits/patients?patientId=" + IntStream.generate(a::patientId)
+            .distinct()
+            .limit(Math.min(20, a.data().patients()))
+            .mapToObj(String::valueOf)
+            .collect(Collectors.joining(","))),
+        get("visits.page", "visits-service", a -> "/visits?size=100&patientId=" + a.patientId()),
+        get("visits.summary", "visits-service", a -> "/visits/patients/" + a.patientId() + "/summary"),
+        get("records.summary", "patient-service", a -> "/patients/" + a.patientId() + "/records/summary"),
+        get("charts.get", ClinicStack.GATEWAY, a -> "/api/v1/charts/" + a.patientId()),
+        get("ai.ask", ClinicStack.GEN_AI, a -> "/ai/ask?question=" + a.pick(AI_QUESTIONS)),
+        post("patients.create", "patient-service", a -> "/patients", a -> """
+            {"firstName":"Load","lastName":"Test","address":"1 Bench St","city":"Springfield",\
+            "telephone":"5550000000","gender":"Female","dateOfBirth":"%s"}""".formatted(a.date())),
+        post("records.create", "patient-service", a -> "/patients/" + a.patientId() + "/records", a -> """
+            {"date":"%s","description":"Follow-up consultation","recordType":"Consultation"}""".formatted(a.date())),
+        post("visits.create", "visits-service", a -> "/visits/patients/" + a.patientId(), a -> """
+            {"date":"%s","description":"Routine check-up"}""".formatted(a.date())),
+        post("visits.batch", "visits-service", a -> "/visits/batch", a -> IntStream.range(0, 100)
+            .mapToObj(i -> """
+                {"patientId":%d,"date":"%s","description":"Imported visit"}""".formatted(a.patientId(), a.date()))
+            .collect(Collectors.joining(",", "[", "]"))));
+
+    static Operation named(String name) {
+        return ALL.stream()
+            .filter(operation -> operation.name().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown operation '" + name + "', expected one of "
+                + ALL.stream().map(Operation::name).toList()));
+    }
+
+    boolean write() {
+        return body != null;
+    }
+
+    private static Operation get(String name, String service, Function<Args, String> path) {
+        return new Operation(name, service, "GET", path, null);
+    }
+
+    private static Operation post(String name, String service, Function<Args, String> path, Function<Args, String> body) {
+        return new Operation(name, service, "POST", path, body);
+    }
+}
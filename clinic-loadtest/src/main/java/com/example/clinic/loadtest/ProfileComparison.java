@@ -0,0 +1,76 @@
+package com.example.clinic.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * The runs of <code>--compare-profiles</code> side by side: throughput and tail latency per service, each
+ * profile set against the first one, printed and written to <code>&lt;output-dir&gt;/comparison.json</code>.
+ * Every run has its own stack and freshly seeded database, so the runs only differ in the services' profiles.
+ */
+class ProfileComparison {
+
+    private final Map<String, Report> runs = new LinkedHashMap<>();
+
+    void add(String profiles, Report report) {
+        runs.put(profiles, report);
+    }
+
+    void print(PrintStream out) {
+        final String baseline = runs.keySet().iterator().next();
+        out.printf("%nProfiles compared with '%s' (req/s and p99 / p999 ms per service)%n%n", baseline);
+        out.printf("%-16s %-24s %10s %9s %9s %8s %9s %9s%n",
+            "service", "profiles", "req/s", "p99 ms", "p999 ms", "errors", "req/s %", "p99 %");
+        for (String service : services()) {
+            final Report.Row base = row(runs.get(baseline), service);
+            runs.forEach((profiles, report) -> {
+                final Report.Row row = row(report, service);
+                if (row == null) {
+                    return;
+                }
+                out.printf("%-16s %-24s %10.1f %9.2f %9.2f %8d %9s %9s%n", service, profiles, row.throughput(),
+                    row.p99(), row.p999(), row.errors(),
+                    base == null ? "" : change(base.throughput(), row.throughput()),
+                    base == null ? "" : change(base.p99(), row.p99()));
+            });
+        }
+    }
+
+    void write(Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        final Map<String, Object> json = new LinkedHashMap<>();
+        runs.forEach((profiles, report) -> json.put(profiles, report.serviceRows()));
+        new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(outputDir.resolve("comparison.json").toFile(), json);
+    }
+
+    private List<String> services() {
+        final List<String> services = new ArrayList<>();
+        runs.values().forEach(report -> report.serviceRows().stream()
+            .map(Report.Row::endpoint)
+            .filter(service -> !services.contains(service))
+            .forEach(services::add));
+        return services;
+    }
+
+    private static Report.Row row(Report report, String service) {
+        return report.serviceRows().stream()
+            .filter(row -> row.endpoint().equals(service))
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static String change(double baseline, double value) {
+        return baseline > 0 ? String.format("%+.1f", (value - baseline) * 100 / baseline) : "";
+    }
+}
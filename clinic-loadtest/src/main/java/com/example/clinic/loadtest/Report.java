@@ -0,0 +1,114 @@
+package com.example.clinic.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Throughput and latency percentiles per endpoint and per service for the measurement window, printed as a
+ * table and written to <code>&lt;output-dir&gt;/results.json</code> for comparing runs.
+ */
+class Report {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LoadTestSettings settings;
+    private final Workload workload;
+    private final Seeder.DataSet data;
+    private final Duration measured;
+    private final List<Row> rows = new ArrayList<>();
+    private final List<Row> serviceRows = new ArrayList<>();
+
+    Report(LoadTestSettings settings, Workload workload, Seeder.DataSet data, Duration measured,
+           List<EndpointStats.Snapshot> snapshots) {
+        this.settings = settings;
+        this.workload = workload;
+        this.data = data;
+        this.measured = measured;
+        final Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        final Map<String, Histogram> services = new LinkedHashMap<>();
+        final Map<String, Long> serviceErrors = new LinkedHashMap<>();
+        for (EndpointStats.Snapshot snapshot : snapshots) {
+            rows.add(row(snapshot.name(), snapshot.histogram(), snapshot.errors()));
+            total.add(snapshot.histogram());
+            totalErrors += snapshot.errors();
+            final String service = Operation.named(snapshot.name()).service();
+            services.computeIfAbsent(service, s -> new Histogram(3)).add(snapshot.histogram());
+            serviceErrors.merge(service, snapshot.errors(), Long::sum);
+        }
+        rows.add(row("TOTAL", total, totalErrors));
+        services.forEach((service, histogram) -> serviceRows.add(row(service, histogram, serviceErrors.get(service))));
+        serviceRows.add(row("TOTAL", total, totalErrors));
+    }
+
+    /**
+     * One row per service the workload called, with all of its endpoints together, then the total.
+     */
+    List<Row> serviceRows() {
+        return serviceRows;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%nTarget: %s, concurrency %d, %s, measured %ds, mix: %s%n", settings.target(),
+            settings.concurrency(), settings.rate() > 0 ? settings.rate() + " req/s" : "closed loop",
+            measured.toSeconds(), workload);
+        out.printf("Data: %d doctors, %d patients, %d visits%n%n", data.doctors(), data.patients(), data.visits());
+        out.printf("%-16s %10s %8s %10s %9s %9s %9s %9s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        print(out, rows);
+        out.println();
+        print(out, serviceRows);
+    }
+
+    private static void print(PrintStream out, List<Row> rows) {
+        for (Row row : rows) {
+            out.printf("%-16s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", row.endpoint(), row.requests(), row.errors(),
+                row.throughput(), row.p50(), row.p99(), row.p999(), row.max());
+        }
+    }
+
+    void write(Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        final Map<String, Object> json = new LinkedHashMap<>();
+        json.put("target", settings.target());
+        json.put("concurrency", settings.concurrency());
+        json.put("rate", settings.rate());
+        json.put("measuredSeconds", measured.toMillis() / 1000.0);
+        json.put("mix", workload.toString());
+        json.put("data", data);
+        json.put("endpoints", rows);
+        json.put("services", serviceRows);
+        new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(outputDir.resolve("results.json").toFile(), json);
+    }
+
+    private Row row(String endpoint, Histogram histogram, long errors) {
+        final long requests = histogram.getTotalCount() + errors;
+        return new Row(endpoint, requests, errors,
+            requests / (measured.toNanos() / 1e9),
+            millis(histogram.getValueAtPercentile(50.0)),
+            millis(histogram.getValueAtPercentile(99.0)),
+            millis(histogram.getValueAtPercentile(99.9)),
+            millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+
+    record Row(String endpoint, long requests, long errors, double throughput,
+               double p50, double p99, double p999, double max) { }
+}
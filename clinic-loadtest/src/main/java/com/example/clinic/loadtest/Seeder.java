@@ -0,0 +1,269 @@
+package com.example.clinic.loadtest;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fills the tables the services created with a data set of the configured size, using JDBC batches.
+ * Rows are inserted without ids, so on a fresh database the identity columns hand out 1..n and the
+ * workload can address every seeded row by id.
+ * <p>
+ * A file database that already holds patients is reused as is, which saves re-seeding millions of
+ * visits between runs.
+ */
+class Seeder {
+
+    private static final Logger log = LoggerFactory.getLogger(Seeder.class);
+
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer",
+        "Michael", "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia",
+        "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson"};
+    private static final String[] CITIES = {"Springfield", "Shelbyville", "Ogdenville", "North Haverbrook",
+        "Capital City", "Brockway"};
+    private static final String[] BLOOD_TYPES = {"O+", "O-", "A+", "A-", "B+", "B-", "AB+", "AB-"};
+    private static final String[] RECORD_TYPES = {"Consultation", "Prescription", "Lab Test", "Imaging",
+        "Surgery", "Vaccination"};
+    private static final String[] VISIT_REASONS = {"Annual physical check-up", "Blood pressure follow-up",
+        "Diabetes management consultation", "Flu symptoms", "Sprained ankle", "Allergy review",
+        "Post-operative check", "Vaccination appointment", "Persistent cough", "Routine blood work"};
+
+    private final EmbeddedDatabase database;
+    private final LoadTestSettings settings;
+    private final SplittableRandom random;
+
+    Seeder(EmbeddedDatabase database, LoadTestSettings settings) {
+        this.database = database;
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.randomSeed());
+    }
+
+    /**
+     * Seed the database, or describe what is already there.
+     */
+    DataSet seed() throws SQLException {
+        try (Connection connection = database.connect()) {
+            connection.setAutoCommit(false);
+            if (count(connection, "patients") > 0) {
+                final DataSet existing = describe(connection);
+                log.info("Reusing seeded data: {}", existing);
+                return existing;
+            }
+
+            final long start = System.nanoTime();
+            seedSpecialties(connection);
+            seedDoctors(connection);
+            seedPatients(connection);
+            seedRecords(connection);
+            seedVisits(connection);
+            seedAggregates(connection);
+            final DataSet seeded = describe(connection);
+            log.info("Seeded {} in {}s", seeded, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+            return seeded;
+        }
+    }
+
+    private void seedSpecialties(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO specialties (name) VALUES (?)")) {
+            for (int i = 1; i <= settings.specialties(); i++) {
+                ps.setString(1, "specialty-" + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private void seedDoctors(Connection connection) throws SQLException {
+        try (PreparedStatement doctors = connection.prepareStatement(
+                "INSERT INTO doctors (first_name, last_name, email, phone) VALUES (?, ?, ?, ?)");
+             PreparedStatement specialties = connection.prepareStatement(
+                "INSERT INTO doctor_specialties (doctor_id, specialty_id) VALUES (?, ?)")) {
+            for (int i = 1; i <= settings.doctors(); i++) {
+                doctors.setString(1, pick(FIRST_NAMES));
+                doctors.setString(2, pick(LAST_NAMES));
+                doctors.setString(3, "doctor" + i + "@clinic.example.com");
+                doctors.setString(4, phone());
+                doctors.addBatch();
+            }
+            doctors.executeBatch();
+
+            for (int i = 1; i <= settings.doctors(); i++) {
+                final int first = 1 + random.nextInt(settings.specialties());
+                final int count = Math.min(1 + random.nextInt(3), settings.specialties());
+                for (int s = 0; s < count; s++) {
+                    specialties.setInt(1, i);
+                    specialties.setInt(2, 1 + (first - 1 + s) % settings.specialties());
+                    specialties.addBatch();
+                }
+            }
+            specialties.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private void seedPatients(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO patients (first_name, last_name, gender, date_of_birth, address, city, telephone, email, blood_type)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            final Batches batches = new Batches(ps, connection, "patients", settings.patients());
+            for (int i = 1; i <= settings.patients(); i++) {
+                final String first = pick(FIRST_NAMES);
+                final String last = pick(LAST_NAMES);
+                ps.setString(1, first);
+                ps.setString(2, last);
+                ps.setString(3, random.nextBoolean() ? "Female" : "Male");
+                ps.setDate(4, Date.valueOf(LocalDate.of(1940, 1, 1).plusDays(random.nextInt(30_000))));
+                ps.setString(5, (1 + random.nextInt(999)) + " Main St");
+                ps.setString(6, pick(CITIES));
+                ps.setString(7, phone());
+                ps.setString(8, first.toLowerCase() + "." + last.toLowerCase() + i + "@example.com");
+                ps.setString(9, pick(BLOOD_TYPES));
+                batches.add();
+            }
+            batches.flush();
+        }
+    }
+
+    private void seedRecords(Connection connection) throws SQLException {
+        final long total = (long) settings.patients() * settings.recordsPerPatient();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO medical_records (record_type, description, record_date, patient_id) VALUES (?, ?, ?, ?)")) {
+            final Batches batches = new Batches(ps, connection, "medical_records", total);
+            for (int patient = 1; patient <= settings.patients(); patient++) {
+                for (int r = 0; r < settings.recordsPerPatient(); r++) {
+                    ps.setString(1, pick(RECORD_TYPES));
+                    ps.setString(2, pick(VISIT_REASONS) + ", notes attached");
+                    ps.setTimestamp(3, recentTimestamp());
+                    ps.setInt(4, patient);
+                    batches.add();
+                }
+            }
+            batches.flush();
+        }
+    }
+
+    private void seedVisits(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO visits (patient_id, visit_date, description) VALUES (?, ?, ?)")) {
+            final Batches batches = new Batches(ps, connection, "visits", settings.visits());
+            for (long i = 0; i < settings.visits(); i++) {
+                ps.setInt(1, 1 + random.nextInt(settings.patients()));
+                ps.setTimestamp(2, recentTimestamp());
+                ps.setString(3, pick(VISIT_REASONS));
+                batches.add();
+            }
+            batches.flush();
+        }
+    }
+
+    /**
+     * The per-patient summary rows the services maintain on every write, computed once for the seeded rows.
+     */
+    private void seedAggregates(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                INSERT INTO patient_record_stats (patient_id, record_type, record_count, last_record_date)
+                SELECT patient_id, record_type, COUNT(*), MAX(record_date)
+                FROM medical_records
+                GROUP BY patient_id, record_type""");
+            statement.executeUpdate("""
+                INSERT INTO patient_visit_stats (patient_id, visit_year, visit_count, last_visit_date)
+                SELECT patient_id, COALESCE(EXTRACT(YEAR FROM visit_date), 0), COUNT(*), MAX(visit_date)
+                FROM visits
+                GROUP BY patient_id, COALESCE(EXTRACT(YEAR FROM visit_date), 0)""");
+        }
+        connection.commit();
+        log.info("Computed patient record and visit aggregates");
+    }
+
+    private DataSet describe(Connection connection) throws SQLException {
+        return new DataSet((int) maxId(connection, "doctors"), (int) maxId(connection, "patients"),
+            count(connection, "visits"));
+    }
+
+    private static long count(Connection connection, String table) throws SQLException {
+        return single(connection, "SELECT COUNT(*) FROM " + table);
+    }
+
+    private static long maxId(Connection connection, String table) throws SQLException {
+        return single(connection, "SELECT COALESCE(MAX(id), 0) FROM " + table);
+    }
+
+    private static long single(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private String phone() {
+        return "555" + (1_000_000 + random.nextInt(9_000_000));
+    }
+
+    private Timestamp recentTimestamp() {
+        return Timestamp.valueOf(LocalDate.now().minusDays(random.nextInt(5 * 365)).atStartOfDay());
+    }
+
+    /**
+     * Row counts of a seeded database; doctors and patients are addressable as 1..n.
+     */
+    record DataSet(int doctors, int patients, long visits) { }
+
+    /**
+     * Executes and commits every <code>seed-batch-size</code> rows and logs progress every 10%.
+     */
+    private final class Batches {
+
+        private final PreparedStatement ps;
+        private final Connection connection;
+        private final String table;
+        private final long total;
+        private long added;
+        private long nextReport;
+
+        Batches(PreparedStatement ps, Connection connection, String table, long total) {
+            this.ps = ps;
+            this.connection = connection;
+            this.table = table;
+            this.total = total;
+            this.nextReport = Math.max(total / 10, 1);
+        }
+
+        void add() throws SQLException {
+            ps.addBatch();
+            added++;
+            if (added % settings.seedBatchSize() == 0) {
+                ps.executeBatch();
+                connection.commit();
+            }
+            if (added >= nextReport) {
+                log.info("{}: {}/{}", table, added, total);
+                nextReport += Math.max(total / 10, 1);
+            }
+        }
+
+        void flush() throws SQLException {
+            // HSQLDB rejects executing an empty batch, which is what is left when the rows fill whole batches
+            if (added % settings.seedBatchSize() != 0) {
+                ps.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.clinic.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A weighted mix of {@link Operation}s.
+ * <p>
+ * <code>--mix</code> takes a preset name (read-heavy, mixed, write-heavy) or explicit weights such as
+ * <code>patients.get=50,visits.create=5</code>. The NDJSON / SSE exports are left out on purpose: they are
+ * bulk downloads, not interactive traffic, and their MySQL streaming fetch size is not accepted by HSQLDB.
+ */
+final class Workload {
+
+    private static final Map<String, String> PRESETS = Map.of(
+        "read-heavy", "doctors.list=2,doctors.get=10,patients.get=25,patients.page=5,records.list=10,"
+            + "visits.patient=20,visits.lookup=5,visits.page=8,visits.summary=6,records.summary=4,charts.get=10,ai.ask=2,"
+            + "patients.search=4,patients.complete=6,patients.create=1,records.create=2,visits.create=2",
+        "mixed", "doctors.list=2,doctors.get=8,patients.get=18,patients.page=4,records.list=8,"
+            + "visits.patient=15,visits.lookup=4,visits.page=6,visits.summary=5,records.summary=3,charts.get=8,ai.ask=2,"
+            + "patients.search=2,patients.complete=3,patients.create=4,records.create=8,visits.create=14,visits.batch=1",
+        "write-heavy", "doctors.get=5,patients.get=15,records.list=5,visits.patient=15,charts.get=5,ai.ask=1,"
+            + "patients.create=10,records.create=20,visits.create=22,visits.batch=3");
+
+    private final Map<Operation, Integer> weights;
+    private final Operation[] operations;
+    private final int[] cumulative;
+
+    private Workload(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.operations = weights.keySet().toArray(Operation[]::new);
+        this.cumulative = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += weights.get(operations[i]);
+            cumulative[i] = sum;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("Workload has no operation with a positive weight");
+        }
+    }
+
+    static Workload parse(String mix) {
+        final String spec = PRESETS.getOrDefault(mix, mix);
+        final Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            final String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Bad --mix entry '" + entry + "', expected name=weight or one of "
+                    + PRESETS.keySet());
+            }
+            weights.put(Operation.named(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return new Workload(weights);
+    }
+
+    Operation next(SplittableRandom random) {
+        final int ticket = random.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (ticket < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    List<Operation> operations() {
+        return List.of(operations);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder();
+        weights.forEach((operation, weight) -> text.append(text.isEmpty() ? "" : ", ")
+            .append(operation.name()).append('=').append(weight));
+        return text.toString();
+    }
+}
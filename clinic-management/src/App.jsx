@@ -5,11 +5,27 @@ import remarkGfm from 'remark-gfm';
 
 // API Service
 const API_BASE_URL = '/api/v1';
+// Rows per page of the patient and visit lists
+const PAGE_SIZE = 50;
+
+// Times a request rejected by the gateway's rate limiter (429) is sent again, after its Retry-After
+const MAX_RETRIES = 2;
 
 const api = {
+  // fetch that waits out 429 responses: a rejected request was not processed, so sending it again is safe
+  async fetch(url, options, retries = MAX_RETRIES) {
+    const response = await fetch(url, options);
+    if (response.status !== 429 || retries === 0) {
+      return response;
+    }
+    const seconds = Number(response.headers.get('Retry-After')) || 1;
+    await new Promise((resolve) => setTimeout(resolve, Math.min(seconds, 10) * 1000));
+    return api.fetch(url, options, retries - 1);
+  },
+
   async request(endpoint, options = {}) {
     try {
-      const response = await fetch(`${API_BASE_URL}${endpoint}`, {
+      const response = await api.fetch(`${API_BASE_URL}${endpoint}`, {
         ...options,
         headers: {
           'Content-Type': 'application/json',
@@ -34,6 +50,24 @@ const api = {
     }
   },
 
+  // One page of a keyset-paginated list; nextCursor is the X-Next-Cursor to pass as `after`, null on the last page
+  async requestPage(endpoint, params) {
+    try {
+      const response = await api.fetch(`${API_BASE_URL}${endpoint}?${new URLSearchParams(params)}`, {
+        headers: { 'Content-Type': 'application/json' },
+      });
+
+      if (!response.ok) {
+        throw new Error(`HTTP error! status: ${response.status}`);
+      }
+
+      return { items: await response.json(), nextCursor: response.headers.get('X-Next-Cursor') };
+    } catch (error) {
+      console.error('API Error:', error);
+      throw error;
+    }
+  },
+
 
   doctors: {
     getAll: () => api.request('/doctors'),
@@ -43,8 +77,12 @@ const api = {
   },
 
   patients: {
-    getAll: () => api.request('/patients'),
+    getPage: (after = '0') => api.requestPage('/patients', { size: PAGE_SIZE, after }),
     getById: (id) => api.request(`/patients/${id}`),
+    getSummary: (id) => api.request(`/patients/${id}/summary`),
+    search: (query) => api.request(`/patients/search?q=${encodeURIComponent(query)}&size=${PAGE_SIZE}`),
+    complete: (prefix) => api.request(`/patients/search/complete?prefix=${encodeURIComponent(prefix)}`),
+    count: () => api.request('/patients/count'),
     create: (data) => api.request('/patients', { method: 'POST', body: JSON.stringify(data) }),
     update: (id, data) => api.request(`/patients/${id}`, { method: 'PUT', body: JSON.stringify(data) }),
     getRecords: (patientId) => api.request(`/patients/${patientId}/records`),
@@ -52,7 +90,9 @@ const api = {
   },
 
   visits: {
-    getAll: () => api.request('/visits'),
+    getPage: (after = '0') => api.requestPage('/visits', { size: PAGE_SIZE, after }),
+    getById: (id) => api.request(`/visits/${id}`),
+    count: () => api.request('/visits/count'),
     getByPatient: (patientId) => api.request(`/visits/patients/${patientId}`),
     create: (patientId, data) => api.request(`/visits/patients/${patientId}`, { method: 'POST', body: JSON.stringify(data) }),
   },
@@ -426,7 +466,10 @@ const DoctorsPage = ({ showToast }) => {
 // Patients Page
 const PatientsPage = ({ showToast }) => {
   const [patients, setPatients] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [searchResults, setSearchResults] = useState(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [isModalOpen, setIsModalOpen] = useState(false);
   const [editingPatient, setEditingPatient] = useState(null);
   const [searchTerm, setSearchTerm] = useState('');
@@ -447,11 +490,31 @@ const PatientsPage = ({ showToast }) => {
     loadPatients();
   }, []);
 
+  // Searches go to the server's index rather than filtering the pages loaded so far
+  useEffect(() => {
+    const query = searchTerm.trim();
+    if (!query) {
+      setSearchResults(null);
+      return;
+    }
+    const timer = setTimeout(async () => {
+      try {
+        const page = await api.patients.search(query);
+        setSearchResults(page.items.map((hit) => hit.item));
+      } catch (error) {
+        showToast('Failed to search patients', 'error');
+      }
+    }, 300);
+    return () => clearTimeout(timer);
+  }, [searchTerm]);
+
+  // First page only; further pages are fetched on demand by loadMorePatients
   const loadPatients = async () => {
     try {
       setLoading(true);
-      const data = await api.patients.getAll();
-      setPatients(data);
+      const page = await api.patients.getPage();
+      setPatients(page.items);
+      setNextCursor(page.nextCursor);
     } catch (error) {
       showToast('Failed to load patients', 'error');
     } finally {
@@ -459,6 +522,19 @@ const PatientsPage = ({ showToast }) => {
     }
   };
 
+  const loadMorePatients = async () => {
+    try {
+      setLoadingMore(true);
+      const page = await api.patients.getPage(nextCursor);
+      setPatients((loaded) => [...loaded, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      showToast('Failed to load patients', 'error');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const handleSubmit = async (e) => {
     e.preventDefault();
     try {
@@ -508,9 +584,7 @@ const PatientsPage = ({ showToast }) => {
     setIsModalOpen(true);
   };
 
-  const filteredPatients = patients.filter(patient =>
-    `${patient.firstName} ${patient.lastName} ${patient.city}`.toLowerCase().includes(searchTerm.toLowerCase())
-  );
+  const filteredPatients = searchResults ?? patients;
 
   return (
     <div>
@@ -582,6 +656,17 @@ const PatientsPage = ({ showToast }) => {
               ))}
             </tbody>
           </table>
+          {!searchResults && nextCursor && (
+            <div className="p-4 border-t border-gray-200 flex justify-center">
+              <button
+                onClick={loadMorePatients}
+                disabled={loadingMore}
+                className="text-green-600 hover:text-green-800 flex items-center gap-2 disabled:opacity-50"
+              >
+                {loadingMore && <Loader2 className="animate-spin" size={16} />} Load more
+              </button>
+            </div>
+          )}
         </div>
       )}
 
@@ -758,9 +843,16 @@ const PatientsPage = ({ showToast }) => {
 
 const VisitsPage = ({ showToast }) => {
   const [visits, setVisits] = useState([]);
-  const [patients, setPatients] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+  // visit id -> description, for the visits whose description was opened; pages leave descriptions out
+  const [descriptions, setDescriptions] = useState({});
+  // patient id -> display name, for the patients of the visits shown so far
+  const [patientNames, setPatientNames] = useState({});
   const [loading, setLoading] = useState(true);
   const [isModalOpen, setIsModalOpen] = useState(false);
+  const [patientQuery, setPatientQuery] = useState("");
+  const [patientSuggestions, setPatientSuggestions] = useState([]);
   const [formData, setFormData] = useState({
     patientId: "",
     date: "",
@@ -769,15 +861,36 @@ const VisitsPage = ({ showToast }) => {
 
   useEffect(() => {
     loadVisits();
-    loadPatients();
   }, []);
 
+  useEffect(() => {
+    loadPatientNames(visits);
+  }, [visits]);
+
+  // Type-ahead over patient names for the new visit form, instead of a list of every patient
+  useEffect(() => {
+    const prefix = patientQuery.trim();
+    if (!prefix || formData.patientId) {
+      setPatientSuggestions([]);
+      return;
+    }
+    const timer = setTimeout(async () => {
+      try {
+        setPatientSuggestions(await api.patients.complete(prefix));
+      } catch (error) {
+        setPatientSuggestions([]);
+      }
+    }, 300);
+    return () => clearTimeout(timer);
+  }, [patientQuery, formData.patientId]);
+
+  // First page only; further pages are fetched on demand by loadMoreVisits
   const loadVisits = async () => {
     try {
       setLoading(true);
-      const data = await api.visits.getAll();
-      console.log("Visits data example:", data[0]); // Debugging
-      setVisits(data);
+      const page = await api.visits.getPage();
+      setVisits(page.items);
+      setNextCursor(page.nextCursor);
     } catch (error) {
       showToast("Failed to load visits", "error");
     } finally {
@@ -785,18 +898,50 @@ const VisitsPage = ({ showToast }) => {
     }
   };
 
-  const loadPatients = async () => {
+  const loadMoreVisits = async () => {
+    try {
+      setLoadingMore(true);
+      const page = await api.visits.getPage(nextCursor);
+      setVisits((loaded) => [...loaded, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      showToast("Failed to load visits", "error");
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
+  const showDescription = async (visitId) => {
     try {
-      const data = await api.patients.getAll();
-      setPatients(data);
+      const visit = await api.visits.getById(visitId);
+      setDescriptions((known) => ({ ...known, [visitId]: visit.description ?? "" }));
     } catch (error) {
-      console.error("Failed to load patients", error);
-      showToast("Failed to load patients", "error");
+      showToast("Failed to load the visit", "error");
     }
   };
 
+  // Summaries of the patients not named yet, from the patient service's cache
+  const loadPatientNames = async (shown) => {
+    const missing = [...new Set(shown.map((visit) => visit.patient))]
+      .filter((id) => id && !(id in patientNames));
+    if (missing.length === 0) return;
+    const summaries = await Promise.all(
+      missing.map((id) => api.patients.getSummary(id).catch(() => null))
+    );
+    const names = {};
+    missing.forEach((id, i) => {
+      const p = summaries[i];
+      names[id] = p ? `${p.firstName} ${p.lastName}` : `Unknown (ID ${id})`;
+    });
+    setPatientNames((known) => ({ ...known, ...names }));
+  };
+
   const handleSubmit = async (e) => {
     e.preventDefault();
+    if (!formData.patientId) {
+      showToast("Select a patient from the suggestions", "error");
+      return;
+    }
     try {
       await api.visits.create(formData.patientId, {
         date: formData.date,
@@ -805,27 +950,20 @@ const VisitsPage = ({ showToast }) => {
       showToast("Visit created successfully");
       setIsModalOpen(false);
       setFormData({ patientId: "", date: "", description: "" });
+      setPatientQuery("");
       loadVisits();
     } catch (error) {
       showToast("Failed to create visit", "error");
     }
   };
 
-  // ✅ Corrected: works with backend where visit.patient is numeric ID
   const getPatientName = (visit) => {
     const pid =
       visit.patient ?? visit.patientId ?? visit.patient_id; // pick correct field
 
     if (!pid) return "Unknown";
 
-    // Find the patient by numeric ID
-    const p = patients.find((x) => String(x.id) === String(pid));
-
-    if (p) {
-      return `${p.firstName} ${p.lastName}`;
-    }
-
-    return `Unknown (ID ${pid})`;
+    return patientNames[pid] ?? `Patient ${pid}`;
   };
 
   return (
@@ -878,12 +1016,32 @@ const VisitsPage = ({ showToast }) => {
                     {visit.date}
                   </td>
                   <td className="px-6 py-4 text-sm text-gray-600">
-                    {visit.description}
+                    {visit.id in descriptions ? (
+                      descriptions[visit.id]
+                    ) : (
+                      <button
+                        onClick={() => showDescription(visit.id)}
+                        className="text-purple-600 hover:text-purple-800"
+                      >
+                        <Eye size={18} />
+                      </button>
+                    )}
                   </td>
                 </tr>
               ))}
             </tbody>
           </table>
+          {nextCursor && (
+            <div className="p-4 border-t border-gray-200 flex justify-center">
+              <button
+                onClick={loadMoreVisits}
+                disabled={loadingMore}
+                className="text-purple-600 hover:text-purple-800 flex items-center gap-2 disabled:opacity-50"
+              >
+                {loadingMore && <Loader2 className="animate-spin" size={16} />} Load more
+              </button>
+            </div>
+          )}
         </div>
       )}
 
@@ -898,21 +1056,35 @@ const VisitsPage = ({ showToast }) => {
             <label className="block text-sm font-medium text-gray-700 mb-1">
               Patient *
             </label>
-            <select
+            <input
+              type="text"
               required
-              value={formData.patientId}
-              onChange={(e) =>
-                setFormData({ ...formData, patientId: e.target.value })
-              }
+              placeholder="Start typing a name..."
+              value={patientQuery}
+              onChange={(e) => {
+                setPatientQuery(e.target.value);
+                setFormData({ ...formData, patientId: "" });
+              }}
               className="w-full px-3 py-2 border border-gray-300 rounded-lg focus:outline-none focus:ring-2 focus:ring-purple-500"
-            >
-              <option value="">Select patient...</option>
-              {patients.map((patient) => (
-                <option key={patient.id} value={patient.id}>
-                  {patient.firstName} {patient.lastName}
-                </option>
-              ))}
-            </select>
+            />
+            {patientSuggestions.length > 0 && (
+              <ul className="mt-1 border border-gray-200 rounded-lg divide-y divide-gray-100">
+                {patientSuggestions.map((suggestion) => (
+                  <li key={suggestion.id}>
+                    <button
+                      type="button"
+                      onClick={() => {
+                        setFormData({ ...formData, patientId: String(suggestion.id) });
+                        setPatientQuery(suggestion.label);
+                      }}
+                      className="w-full text-left px-3 py-2 text-sm hover:bg-purple-50"
+                    >
+                      {suggestion.label} <span className="text-gray-400">(ID {suggestion.id})</span>
+                    </button>
+                  </li>
+                ))}
+              </ul>
+            )}
           </div>
 
           <div>
@@ -1076,13 +1248,13 @@ const DashboardPage = () => {
       setLoading(true);
       const [doctors, patients, visits] = await Promise.all([
         api.doctors.getAll(),
-        api.patients.getAll(),
-        api.visits.getAll(),
+        api.patients.count(),
+        api.visits.count(),
       ]);
       setStats({
         doctors: doctors.length,
-        patients: patients.length,
-        visits: visits.length,
+        patients: patients.total,
+        visits: visits.total,
       });
     } catch (error) {
       console.error('Failed to load stats');
@@ -1,15 +1,19 @@
 package com.example.clinic.doctorservice;
 
+import com.example.clinic.common.cache.CacheInvalidator;
+import com.example.clinic.common.search.SearchIndex;
 import com.example.clinic.doctorservice.model.doctor;
 import com.example.clinic.doctorservice.model.DocRepository;
 import com.example.clinic.doctorservice.model.Specialty;
-import com.example.clinic.doctorservice.model.SpecialtyRepository;
+import com.example.clinic.doctorservice.search.DoctorSearch;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Email;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -24,23 +28,48 @@ import java.util.Set;
 public class DoctorController {
 
     private final DocRepository docRepository;
-    private final SpecialtyRepository specialtyRepository;
+    private final SpecialtyCache specialtyCache;
+    private final CacheInvalidator cacheInvalidator;
+    private final DoctorSearch doctorSearch;
+    private final TransactionTemplate transactionTemplate;
 
-    public DoctorController(DocRepository docRepository, SpecialtyRepository specialtyRepository) {
+    public DoctorController(DocRepository docRepository, SpecialtyCache specialtyCache,
+                            CacheInvalidator cacheInvalidator, DoctorSearch doctorSearch,
+                            TransactionTemplate transactionTemplate) {
         this.docRepository = docRepository;
-        this.specialtyRepository = specialtyRepository;
+        this.specialtyCache = specialtyCache;
+        this.cacheInvalidator = cacheInvalidator;
+        this.doctorSearch = doctorSearch;
+        this.transactionTemplate = transactionTemplate;
     }
 
     // LIST
     @GetMapping("/doctors")
     public List<doctor> list() {
-        return docRepository.findAll();
+        return docRepository.findAllWithSpecialties();
+    }
+
+    // SEARCH by name, specialty or phone, best matches first; page is zero-based
+    @GetMapping("/doctors/search")
+    public SearchIndex.Page<doctor> search(@RequestParam("q") String q,
+                                           @RequestParam(defaultValue = "0") @Min(0) @Max(SearchIndex.MAX_PAGE) int page,
+                                           @RequestParam(defaultValue = "" + SearchIndex.DEFAULT_PAGE_SIZE)
+                                           @Min(1) @Max(SearchIndex.MAX_PAGE_SIZE) int size) {
+        return doctorSearch.search(q, page, size);
+    }
+
+    // Type-ahead on names and specialties; the last word of prefix may be partial
+    @GetMapping("/doctors/search/complete")
+    public List<SearchIndex.Suggestion> complete(@RequestParam("prefix") String prefix,
+                                                 @RequestParam(defaultValue = "" + SearchIndex.DEFAULT_COMPLETIONS)
+                                                 @Min(1) @Max(SearchIndex.MAX_COMPLETIONS) int limit) {
+        return doctorSearch.complete(prefix, limit);
     }
 
     // GET by id
     @GetMapping("/doctors/{id}")
     public doctor get(@PathVariable @Min(1) int id) {
-        return docRepository.findById(id)
+        return docRepository.findCachedById(id)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Doctor " + id + " not found"));
     }
 
@@ -50,18 +79,25 @@ public class DoctorController {
         doctor d = new doctor();
         apply(d, req);
         d = docRepository.save(d);
+        cacheInvalidator.invalidate("doctors", d.getId());
+        doctorSearch.index(d);
         return ResponseEntity.created(URI.create("/doctors/" + d.getId())).body(d);
     }
 
     // UPDATE (full)
     @PutMapping("/doctors/{id}")
     public ResponseEntity<doctor> update(@PathVariable @Min(1) int id, @Valid @RequestBody DoctorRequest req) {
-    doctor d = docRepository.findById(id)
-        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Doctor " + id + " not found"));
-    apply(d, req);
-    d = docRepository.save(d);
-    return ResponseEntity.ok(d);
-}
+        // read and write in one read-write transaction, so the doctor is read from the primary, not the replica
+        doctor d = transactionTemplate.execute(status -> {
+            doctor existing = docRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Doctor " + id + " not found"));
+            apply(existing, req);
+            return docRepository.save(existing);
+        });
+        cacheInvalidator.invalidate("doctors", id);
+        doctorSearch.index(d);
+        return ResponseEntity.ok(d);
+    }
 
     /** copy fields from request to entity */
     private void apply(doctor d, DoctorRequest req) {
@@ -72,11 +108,10 @@ public class DoctorController {
 
         if (req.specialtyIds() != null) {
             var specs = new HashSet<Specialty>();
-            for (Integer sid : req.specialtyIds()) {
-                Specialty s = specialtyRepository.findById(sid)
-                    .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.BAD_REQUEST, "Unknown specialty id: " + sid));
-                specs.add(s);
+            Set<Integer> unknown = specialtyCache.resolve(req.specialtyIds(), specs);
+            if (!unknown.isEmpty()) {
+                throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "Unknown specialty id: " + unknown.iterator().next());
             }
             d.setSpecialties(specs);
         }
@@ -2,8 +2,18 @@ package com.example.clinic.doctorservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.example.clinic.common.cache.CacheConfig;
+import com.example.clinic.common.datasource.DataSourceConfig;
+import com.example.clinic.common.runtime.VirtualThreadsConfig;
+import com.example.clinic.common.web.BinaryFormatsConfig;
 
 @SpringBootApplication
+@EnableScheduling
+@Import({CacheConfig.class, DataSourceConfig.class, BinaryFormatsConfig.class,
+    VirtualThreadsConfig.class})
 public class DoctorServiceApplication {
   public static void main(String[] args) {
     SpringApplication.run(DoctorServiceApplication.class, args);
@@ -0,0 +1,81 @@
+package com.example.clinic.doctorservice;
+
+import com.example.clinic.doctorservice.model.Specialty;
+import com.example.clinic.doctorservice.model.SpecialtyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory copy of the (small, rarely changing) specialties table.
+ * Loaded at startup, reloaded periodically, and topped up with a single findAllById
+ * when a request names ids that are not cached yet.
+ */
+@Component
+public class SpecialtyCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SpecialtyCache.class);
+
+    private final SpecialtyRepository specialtyRepository;
+
+    // replaced wholesale, never mutated after publication
+    private volatile Map<Integer, Specialty> byId = Map.of();
+
+    public SpecialtyCache(SpecialtyRepository specialtyRepository) {
+        this.specialtyRepository = specialtyRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${doctors.specialty-cache.refresh-interval:PT10M}",
+               initialDelayString = "${doctors.specialty-cache.refresh-interval:PT10M}")
+    public void refresh() {
+        Map<Integer, Specialty> loaded = new HashMap<>();
+        for (Specialty s : specialtyRepository.findAll()) {
+            loaded.put(s.getId(), s);
+        }
+        byId = Map.copyOf(loaded);
+        log.debug("Loaded {} specialties", loaded.size());
+    }
+
+    /**
+     * Resolve specialty ids, hitting the database at most once for ids not cached yet.
+     * @return the ids that could not be found, empty when all were resolved into <code>into</code>
+     */
+    public Set<Integer> resolve(Collection<Integer> ids, Set<Specialty> into) {
+        Map<Integer, Specialty> current = byId;
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            Specialty s = current.get(id);
+            if (s != null) {
+                into.add(s);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<Integer, Specialty> merged = new HashMap<>(current);
+        for (Specialty s : specialtyRepository.findAllById(missing)) {
+            merged.put(s.getId(), s);
+            into.add(s);
+        }
+        byId = Map.copyOf(merged);
+
+        Set<Integer> unknown = new HashSet<>(missing);
+        unknown.removeAll(merged.keySet());
+        return unknown;
+    }
+}
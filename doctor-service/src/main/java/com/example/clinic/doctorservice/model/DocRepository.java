@@ -1,7 +1,29 @@
 
 package com.example.clinic.doctorservice.model;
 
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface DocRepository extends JpaRepository<doctor, Integer> {
+
+    // All doctors with their specialties in one statement; read-only, so served by the replica when there is one
+    @Transactional(readOnly = true)
+    @Query("SELECT DISTINCT d FROM doctor d LEFT JOIN FETCH d.specialties ORDER BY d.id")
+    List<doctor> findAllWithSpecialties();
+
+    @Override
+    @EntityGraph(attributePaths = "specialties")
+    Optional<doctor> findById(Integer id);
+
+    // Read-only lookup served from the "doctors" cache; evicted through CacheInvalidator on writes.
+    // Entities handed out here are shared between requests and must not be modified.
+    @Cacheable(cacheNames = "doctors", key = "#p0", unless = "#result == null")
+    @EntityGraph(attributePaths = "specialties")
+    Optional<doctor> findCachedById(int id);
 }
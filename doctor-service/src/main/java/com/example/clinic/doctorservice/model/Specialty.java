@@ -3,6 +3,8 @@ package com.example.clinic.doctorservice.model;
 
 import jakarta.persistence.*;
 
+import java.util.Objects;
+
 @Entity
 @Table(name = "specialties")
 public class Specialty {
@@ -24,4 +26,16 @@ public class Specialty {
     public void setName(String name) {
         this.name = name;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Specialty s)) return false;
+        return id != null && Objects.equals(id, s.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
 }
@@ -47,7 +47,7 @@ public class doctor {
     @Column(name = "phone", length = 32)
     private String phone;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "doctor_specialties",
         joinColumns = @JoinColumn(name = "doctor_id"),
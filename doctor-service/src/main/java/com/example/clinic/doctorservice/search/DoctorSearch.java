@@ -0,0 +1,78 @@
+package com.example.clinic.doctorservice.search;
+
+import com.example.clinic.common.search.SearchIndex;
+import com.example.clinic.doctorservice.model.DocRepository;
+import com.example.clinic.doctorservice.model.Specialty;
+import com.example.clinic.doctorservice.model.doctor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Search index over doctor names, specialties and phone numbers.
+ * Loaded at startup with one query (the doctors table is small) and kept current by the
+ * create and update endpoints through {@link #index}.
+ * <p>
+ * Each instance only sees its own writes: doctors changed through another instance are picked up at its next restart.
+ */
+@Component
+public class DoctorSearch {
+
+    private static final Logger log = LoggerFactory.getLogger(DoctorSearch.class);
+
+    private final DocRepository docRepository;
+    private final SearchIndex<doctor> index = new SearchIndex<>(
+        Map.of("lastName", 3.0, "firstName", 2.0, "specialties", 2.0, "phone", 1.5),
+        Set.of("lastName", "firstName", "specialties"));
+
+    public DoctorSearch(DocRepository docRepository) {
+        this.docRepository = docRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        // putIfAbsent: a doctor written while the query ran is already indexed in its newer version
+        for (doctor d : docRepository.findAllWithSpecialties()) {
+            index.putIfAbsent(d.getId(), d, label(d), fields(d));
+        }
+        log.info("Doctor search index loaded with {} doctors", index.size());
+    }
+
+    /**
+     * Index a doctor that has just been created or updated; its specialties must be initialized.
+     */
+    public void index(doctor d) {
+        index.put(d.getId(), d, label(d), fields(d));
+    }
+
+    public SearchIndex.Page<doctor> search(String query, int page, int size) {
+        return index.search(query, page, size);
+    }
+
+    public List<SearchIndex.Suggestion> complete(String prefix, int limit) {
+        return index.complete(prefix, limit);
+    }
+
+    private static String label(doctor d) {
+        return d.getLastName() + ", " + d.getFirstName();
+    }
+
+    private static Map<String, String> fields(doctor d) {
+        return Map.of(
+            "firstName", nonNull(d.getFirstName()),
+            "lastName", nonNull(d.getLastName()),
+            "phone", nonNull(d.getPhone()),
+            "specialties", d.getSpecialties().stream().map(Specialty::getName).collect(Collectors.joining(" ")));
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.clinic.doctorservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Set;
+
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.clinic.doctorservice.model.DocRepository;
+import com.example.clinic.doctorservice.model.Specialty;
+import com.example.clinic.doctorservice.model.SpecialtyRepository;
+import com.example.clinic.doctorservice.model.doctor;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Statements issued by GET /doctors and specialty validation on writes, on an embedded HSQLDB in MySQL syntax mode.
+ */
+@SpringBootTest(properties = {
+    "spring.cloud.config.enabled=false",
+    "eureka.client.enabled=false",
+    "spring.datasource.url=jdbc:hsqldb:mem:doctor-service;sql.syntax_mys=true",
+    "spring.datasource.username=SA",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.hsqldb.jdbc.JDBCDriver",
+    "spring.sql.init.mode=never",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class DoctorControllerTest {
+
+    private static final int DOCTORS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DocRepository docRepository;
+
+    @Autowired
+    private SpecialtyRepository specialtyRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Specialty cardiology;
+
+    @BeforeEach
+    void setUp() {
+        docRepository.deleteAll();
+        specialtyRepository.deleteAll();
+        cardiology = specialtyRepository.save(specialty("cardiology"));
+        Specialty radiology = specialtyRepository.save(specialty("radiology"));
+        for (int i = 0; i < DOCTORS; i++) {
+            doctor d = new doctor();
+            d.setFirstName("First" + i);
+            d.setLastName("Last" + i);
+            d.setEmail("doctor" + i + "@clinic.example");
+            d.setSpecialties(i % 2 == 0 ? Set.of(cardiology, radiology) : Set.of(cardiology));
+            docRepository.save(d);
+        }
+    }
+
+    @Test
+    void listsDoctorsWithTheirSpecialtiesInOneStatement() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/doctors").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(DOCTORS))
+            .andExpect(jsonPath("$[0].specialties.length()").value(2))
+            .andExpect(jsonPath("$[1].specialties[*].name", Matchers.contains("cardiology")));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAnUnknownSpecialtyWith400() throws Exception {
+        int unknown = cardiology.getId() + 1000;
+
+        mockMvc.perform(post("/doctors").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"firstName":"Ada","lastName":"Byron","email":"ada@clinic.example","specialtyIds":[%d,%d]}"""
+                    .formatted(cardiology.getId(), unknown)))
+            .andExpect(status().isBadRequest());
+
+        assertThat(docRepository.count()).isEqualTo(DOCTORS);
+    }
+
+    @Test
+    void createsADoctorWithKnownSpecialties() throws Exception {
+        mockMvc.perform(post("/doctors").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"firstName":"Ada","lastName":"Byron","email":"ada@clinic.example","specialtyIds":[%d]}"""
+                    .formatted(cardiology.getId())))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.specialties[*].name", Matchers.contains("cardiology")));
+    }
+
+    private static Specialty specialty(String name) {
+        Specialty specialty = new Specialty();
+        specialty.setName(name);
+        return specialty;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.clinic.doctorservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.clinic.doctorservice.model.Specialty;
+import com.example.clinic.doctorservice.model.SpecialtyRepository;
+
+/**
+ * Database round trips of {@link SpecialtyCache#resolve}, against a mocked repository holding specialties 1 and 2.
+ */
+class SpecialtyCacheTest {
+
+    private final Specialty cardiology = specialty(1, "cardiology");
+    private final Specialty radiology = specialty(2, "radiology");
+
+    private SpecialtyRepository repository;
+    private SpecialtyCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(SpecialtyRepository.class);
+        when(repository.findAll()).thenReturn(List.of(cardiology));
+        cache = new SpecialtyCache(repository);
+        cache.refresh();
+    }
+
+    @Test
+    void cachedIdsAreResolvedWithoutTheDatabase() {
+        Set<Specialty> into = new HashSet<>();
+
+        assertThat(cache.resolve(List.of(1), into)).isEmpty();
+
+        assertThat(into).containsExactly(cardiology);
+        verify(repository, never()).findAllById(any());
+    }
+
+    @Test
+    void missingIdsAreLoadedWithOneFindAllByIdAndThenCached() {
+        when(repository.findAllById(List.of(2, 3))).thenReturn(List.of(radiology));
+        Set<Specialty> into = new HashSet<>();
+
+        Set<Integer> unknown = cache.resolve(List.of(1, 2, 3), into);
+
+        assertThat(unknown).containsExactly(3);
+        assertThat(into).containsExactlyInAnyOrder(cardiology, radiology);
+        verify(repository, times(1)).findAllById(any());
+
+        Set<Specialty> again = new HashSet<>();
+        assertThat(cache.resolve(List.of(2), again)).isEmpty();
+        assertThat(again).containsExactly(radiology);
+        verify(repository, times(1)).findAllById(any());
+    }
+
+    private static Specialty specialty(int id, String name) {
+        Specialty specialty = new Specialty();
+        ReflectionTestUtils.setField(specialty, "id", id);
+        specialty.setName(name);
+        return specialty;
+    }
+}
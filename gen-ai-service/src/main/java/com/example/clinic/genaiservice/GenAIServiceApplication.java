@@ -3,9 +3,13 @@ package com.example.clinic.genaiservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.context.annotation.Import;
+
+import com.example.clinic.common.runtime.VirtualThreadsConfig;
 
 @SpringBootApplication
 @EnableDiscoveryClient
+@Import(VirtualThreadsConfig.class)
 public class GenAIServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(GenAIServiceApplication.class, args);
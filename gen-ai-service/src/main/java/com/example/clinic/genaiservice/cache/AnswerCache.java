@@ -0,0 +1,234 @@
+package com.example.clinic.genaiservice.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache of LLM answers.
+ *
+ * Exact tier: keyed on a hash of the system prompt plus the normalized question (lower case, collapsed
+ * whitespace, no trailing punctuation), bounded by size and TTL, and exposed to Micrometer as the
+ * "ai.answers" cache.
+ * Semantic tier (ai.cache.semantic.enabled): on an exact miss the question is embedded and the closest
+ * cached question for the same system prompt is reused when its cosine similarity reaches the threshold.
+ * Concurrent misses for one key share a single load, which runs outside any cache lock.
+ */
+@Component
+public class AnswerCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerCache.class);
+
+    // in-flight loads are incomplete futures, so callers share a load without holding a map lock through it
+    private final AsyncCache<String, String> answers;
+    private final VectorIndex index;
+    private final EmbeddingModel embeddingModel;
+    private final double similarityThreshold;
+    private final Counter semanticHits;
+
+    public AnswerCache(@Value("${ai.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${ai.cache.ttl:24h}") Duration ttl,
+                       @Value("${ai.cache.semantic.enabled:false}") boolean semanticEnabled,
+                       @Value("${ai.cache.semantic.similarity-threshold:0.95}") double similarityThreshold,
+                       @Value("${ai.cache.semantic.maximum-size:2000}") int semanticMaximumSize,
+                       ObjectProvider<EmbeddingModel> embeddingModels,
+                       MeterRegistry registry) {
+        this.embeddingModel = semanticEnabled ? embeddingModels.getIfAvailable() : null;
+        this.index = this.embeddingModel != null ? new VectorIndex(semanticMaximumSize, ttl) : null;
+        this.similarityThreshold = similarityThreshold;
+        this.answers = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttl)
+            .removalListener((String key, String answer, RemovalCause cause) -> onRemoval(key, cause))
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, answers.synchronous(), "ai.answers");
+        this.semanticHits = Counter.builder("ai.answers.semantic.hits").register(registry);
+        if (index != null) {
+            Gauge.builder("ai.answers.semantic.size", index, VectorIndex::size).register(registry);
+        } else if (semanticEnabled) {
+            log.warn("ai.cache.semantic.enabled is set but no EmbeddingModel is available; using exact matching only");
+        }
+    }
+
+    /**
+     * Return the cached answer for the question, or compute it with <code>loader</code> and cache it.
+     * Concurrent calls for the same key share a single load.
+     */
+    public String get(String systemPrompt, String question, Supplier<String> loader) {
+        return get(lookup(systemPrompt, question), loader);
+    }
+
+    /**
+     * Same as {@link #get(String, String, Supplier)} for a question already looked up.
+     * The loader runs on the calling thread; callers arriving while it runs wait for its result.
+     */
+    public String get(Lookup lookup, Supplier<String> loader) {
+        if (lookup.answer != null) {
+            return lookup.answer;
+        }
+        final CompletableFuture<String> mine = new CompletableFuture<>();
+        // through the map view so the miss recorded by the lookup is not counted twice
+        final CompletableFuture<String> shared = answers.asMap().putIfAbsent(lookup.key, mine);
+        if (shared != null) {
+            return join(shared);
+        }
+        final String answer;
+        try {
+            answer = loader.get();
+        } catch (RuntimeException e) {
+            // a failed future is dropped by the cache, so the next caller loads again
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        mine.complete(answer);
+        index(lookup);
+        return answer;
+    }
+
+    /**
+     * Look up an answer without loading it. The question is embedded at most once; the returned
+     * {@link Lookup} carries the embedding on to {@link #get(Lookup, Supplier)} or {@link #put}.
+     */
+    public Lookup lookup(String systemPrompt, String question) {
+        final String key = key(systemPrompt, question);
+        final CompletableFuture<String> exact = answers.getIfPresent(key);
+        if (exact != null) {
+            final String answer = completed(exact);
+            // a load in flight is joined by get(); embedding for it would be wasted
+            return new Lookup(key, null, answer);
+        }
+        final float[] embedding = embed(question);
+        return new Lookup(key, embedding, findSimilar(systemPrompt, embedding));
+    }
+
+    /**
+     * Cache an answer obtained outside {@link #get(Lookup, Supplier)}, e.g. by streaming.
+     */
+    public void put(Lookup lookup, String answer) {
+        answers.put(lookup.key, CompletableFuture.completedFuture(answer));
+        index(lookup);
+    }
+
+    private void index(Lookup lookup) {
+        if (index != null && lookup.embedding != null) {
+            index.add(lookup.key, lookup.embedding);
+        }
+    }
+
+    private void onRemoval(String key, RemovalCause cause) {
+        // a replaced entry keeps its key and vector; the listener runs asynchronously, so the key may also
+        // have been cached again, with its vector re-added, since this entry was evicted
+        if (index != null && key != null && cause != RemovalCause.REPLACED && !answers.asMap().containsKey(key)) {
+            index.remove(key);
+        }
+    }
+
+    private String findSimilar(String systemPrompt, float[] embedding) {
+        if (embedding == null) {
+            return null;
+        }
+        final String similarKey = index.nearest(embedding, promptHash(systemPrompt) + ':', similarityThreshold);
+        final String answer = similarKey != null ? completed(answers.getIfPresent(similarKey)) : null;
+        if (answer != null) {
+            semanticHits.increment();
+        }
+        return answer;
+    }
+
+    /**
+     * The answer of a finished load, null for none or one still in flight or failed.
+     */
+    private static String completed(CompletableFuture<String> future) {
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.getNow(null);
+    }
+
+    private static String join(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private float[] embed(String question) {
+        if (embeddingModel == null) {
+            return null;
+        }
+        try {
+            return embeddingModel.embed(normalize(question));
+        } catch (RuntimeException e) {
+            log.warn("Embedding failed, skipping semantic lookup: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Cache key for a question: questions with the same key get the same answer.
+     */
+    public static String key(String systemPrompt, String question) {
+        return promptHash(systemPrompt) + ':' + normalize(question);
+    }
+
+    public static String promptHash(String systemPrompt) {
+        return DigestUtils.md5DigestAsHex(systemPrompt.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String normalize(String question) {
+        return question.strip()
+            .toLowerCase(Locale.ROOT)
+            .replaceAll("\\s+", " ")
+            .replaceAll("[?.!\\s]+$", "");
+    }
+
+    /**
+     * Outcome of {@link #lookup}: the cached answer, if any, and the question's cache key and embedding.
+     */
+    public static final class Lookup {
+
+        private final String key;
+        private final float[] embedding;
+        private final String answer;
+
+        private Lookup(String key, float[] embedding, String answer) {
+            this.key = key;
+            this.embedding = embedding;
+            this.answer = answer;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public Optional<String> answer() {
+            return Optional.ofNullable(answer);
+        }
+    }
+}
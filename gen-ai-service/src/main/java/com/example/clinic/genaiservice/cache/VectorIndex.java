@@ -0,0 +1,89 @@
+package com.example.clinic.genaiservice.cache;
+
+import java.time.Duration;
+import java.util.Map;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Small in-memory nearest-neighbour index over question embeddings.
+ * Vectors are stored normalized, so cosine similarity is a dot product; lookups scan every entry,
+ * which stays cheap at the few thousand entries the index is capped to.
+ * Like the answers, vectors expire after the cache TTL, and a full index evicts to make room for new ones
+ * rather than refusing them; {@link AnswerCache} also removes the vector of every answer it evicts.
+ */
+class VectorIndex {
+
+    private final Cache<String, float[]> vectors;
+
+    VectorIndex(int maximumSize, Duration ttl) {
+        this.vectors = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttl)
+            // evict on the writing thread, so the index never holds more than maximumSize vectors for long
+            .executor(Runnable::run)
+            .build();
+    }
+
+    /**
+     * Index <code>vector</code> under <code>key</code>, evicting another vector when the index is full.
+     */
+    void add(String key, float[] vector) {
+        vectors.put(key, normalize(vector));
+    }
+
+    void remove(String key) {
+        vectors.invalidate(key);
+    }
+
+    long size() {
+        return vectors.estimatedSize();
+    }
+
+    /**
+     * @return the key of the most similar vector among keys starting with <code>keyPrefix</code>,
+     *         or null when none reaches <code>threshold</code>
+     */
+    String nearest(float[] vector, String keyPrefix, double threshold) {
+        final float[] query = normalize(vector);
+        String best = null;
+        double bestScore = threshold;
+        for (Map.Entry<String, float[]> entry : vectors.asMap().entrySet()) {
+            if (!entry.getKey().startsWith(keyPrefix)) {
+                continue;
+            }
+            final double score = dot(query, entry.getValue());
+            if (score >= bestScore) {
+                bestScore = score;
+                best = entry.getKey();
+            }
+        }
+        return best;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        final int n = Math.min(a.length, b.length);
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        final float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+}
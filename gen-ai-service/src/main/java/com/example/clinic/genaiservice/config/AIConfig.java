@@ -1,8 +1,17 @@
 package com.example.clinic.genaiservice.config;
 
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.example.clinic.genaiservice.limiter.ConcurrencyLimiter;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class AIConfig {
@@ -11,4 +20,34 @@ public class AIConfig {
     public ChatClient chatClient(ChatClient.Builder builder) {
         return builder.build();
     }
+
+    /**
+     * Shared limit on in-flight LLM calls, so a burst of questions waits or is rejected
+     * instead of exhausting threads or the upstream rate limit.
+     */
+    @Bean
+    public ConcurrencyLimiter llmLimiter(
+            @Value("${ai.limiter.max-concurrent:8}") int maxConcurrent,
+            @Value("${ai.limiter.max-queue:32}") int maxQueue,
+            @Value("${ai.limiter.max-wait:2s}") Duration maxWait,
+            MeterRegistry registry) {
+        return new ConcurrencyLimiter("llm", maxConcurrent, maxQueue, maxWait, registry);
+    }
+
+    /**
+     * Runs the questions of /ai/ask/batch concurrently, one thread per limiter slot a batch holds
+     * (at most ai.batch.max-concurrent); this pool only needs enough threads to keep the limiter busy.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor aiBatchExecutor(
+            @Value("${ai.batch.threads:8}") int threads,
+            @Value("${ai.batch.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ai-batch-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
 }
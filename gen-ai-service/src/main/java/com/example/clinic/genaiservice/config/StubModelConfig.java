@@ -0,0 +1,49 @@
+package com.example.clinic.genaiservice.config;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Local stand-in for the upstream LLM (profile "stub-model"), for tests and load runs without an API key.
+ * Answers every prompt with the same text, streamed word by word with a fixed delay; like real model tokens,
+ * every word but the first carries its leading space.
+ */
+@Configuration
+@Profile("stub-model")
+public class StubModelConfig {
+
+    public static final String ANSWER =
+        "This is a stubbed answer from the local model. A doctor must be consulted for medical advice.";
+
+    @Bean
+    @Primary
+    public ChatModel stubChatModel(@Value("${ai.stub.token-delay:20ms}") Duration tokenDelay) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                return new ChatResponse(List.of(new Generation(new AssistantMessage(ANSWER))));
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return Flux.fromIterable(Arrays.asList(ANSWER.split("(?= )")))
+                    .delayElements(tokenDelay)
+                    .map(token -> new ChatResponse(List.of(new Generation(new AssistantMessage(token)))));
+            }
+        };
+    }
+}
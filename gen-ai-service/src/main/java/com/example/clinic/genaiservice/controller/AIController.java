@@ -3,19 +3,63 @@ import java.util.Map;
 
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.example.clinic.genaiservice.cache.AnswerCache;
+import com.example.clinic.genaiservice.limiter.ConcurrencyLimiter;
+import com.example.clinic.genaiservice.limiter.TooManyRequestsException;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/ai")
 public class AIController {
 
+    private static final ServerSentEvent<Map<String, String>> DONE_EVENT =
+        ServerSentEvent.<Map<String, String>>builder(Map.of()).event("done").build();
+
     @Autowired
     private ChatClient chatClient; // Spring AI auto-configures this
 
+    @Autowired
+    private ConcurrencyLimiter llmLimiter;
+
+    @Autowired
+    private AnswerCache answerCache;
+
+    @Autowired
+    @Qualifier("aiBatchExecutor")
+    private TaskExecutor aiBatchExecutor;
+
+    @Value("${ai.batch.max-concurrent:8}")
+    private int batchMaxConcurrent;
+
     // --- PASTE THE SYSTEM PROMPT FROM STEP 1 HERE ---
     private final String systemPrompt = """
         You are "Doc-Assistant," a helpful AI guide for general medical information.
@@ -39,13 +83,152 @@ public class AIController {
 
     @GetMapping("/ask")
     public Map<String,String> ask(@RequestParam String question) {
-       String response = chatClient.prompt()
+        String response = answer(question);
+
+        // ✅ Return JSON instead of raw text
+        return Map.of("answer", response);
+    }
+
+    /**
+     * Answer several questions in one request.
+     * Identical questions (after normalization) are asked once, and cached ones are answered right away.
+     * For the rest the batch takes up to ai.batch.max-concurrent slots of the shared LLM limiter in one go
+     * (never overtaking callers already waiting) and works through its questions over those slots. The batch
+     * waits for the limiter once: it is either turned away as a whole with 429, or all of its questions are
+     * asked, taking several rounds of LLM latency when it got fewer slots than questions.
+     * Items come back in request order with their own latency and status ("ok", "error", or "rejected" when
+     * another request was already asking the same question and the limiter turned that one away).
+     */
+    @PostMapping("/ask/batch")
+    public BatchAnswers askBatch(@Valid @RequestBody BatchQuestions request) {
+        long start = System.nanoTime();
+        Map<String, String> distinct = new LinkedHashMap<>();
+        for (String question : request.questions()) {
+            distinct.putIfAbsent(AnswerCache.key(systemPrompt, question), question);
+        }
+
+        Map<String, BatchAnswer> byKey = new ConcurrentHashMap<>();
+        Queue<PendingQuestion> pending = new ConcurrentLinkedQueue<>();
+        for (String question : distinct.values()) {
+            long itemStart = System.nanoTime();
+            AnswerCache.Lookup lookup = answerCache.lookup(systemPrompt, question);
+            if (lookup.answer().isPresent()) {
+                byKey.put(lookup.key(), new BatchAnswer(question, lookup.answer().get(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - itemStart), "ok", null));
+            } else {
+                pending.add(new PendingQuestion(question, lookup));
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            try (ConcurrencyLimiter.Permit permit = llmLimiter.acquire(Math.min(pending.size(), batchMaxConcurrent))) {
+                List<CompletableFuture<Void>> lanes = new ArrayList<>(permit.count());
+                for (int i = 0; i < permit.count(); i++) {
+                    lanes.add(CompletableFuture.runAsync(() -> {
+                        PendingQuestion next;
+                        while ((next = pending.poll()) != null) {
+                            byKey.put(next.lookup().key(), timedAnswer(next));
+                        }
+                    }, aiBatchExecutor));
+                }
+                CompletableFuture.allOf(lanes.toArray(CompletableFuture[]::new)).join();
+            }
+        }
+
+        List<BatchAnswer> items = new ArrayList<>(request.questions().size());
+        for (String question : request.questions()) {
+            BatchAnswer shared = byKey.get(AnswerCache.key(systemPrompt, question));
+            items.add(new BatchAnswer(question, shared.answer(), shared.latencyMs(), shared.status(), shared.error()));
+        }
+        return new BatchAnswers(items, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Ask one question of a batch, on a limiter slot the batch already holds.
+     */
+    private BatchAnswer timedAnswer(PendingQuestion pending) {
+        long start = System.nanoTime();
+        String answer = null;
+        String status = "ok";
+        String error = null;
+        try {
+            answer = answerCache.get(pending.lookup(), () -> call(pending.question()));
+        } catch (TooManyRequestsException e) {
+            status = "rejected";
+            error = e.getMessage();
+        } catch (RuntimeException e) {
+            status = "error";
+            error = e.getMessage();
+        }
+        return new BatchAnswer(pending.question(), answer, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            status, error);
+    }
+
+    private String answer(String question) {
+        return answerCache.get(systemPrompt, question, () -> {
+            try (ConcurrencyLimiter.Permit permit = llmLimiter.acquire()) {
+                return call(question);
+            }
+        });
+    }
+
+    private String call(String question) {
+        return chatClient.prompt()
             .system(systemPrompt)
             .user(question)
             .call()
             .content();
+    }
 
-        // ✅ Return JSON instead of raw text
-        return Map.of("answer", response);
+    /**
+     * Same as /ask, but tokens are sent as Server-Sent Events as soon as the model produces them.
+     * Each event carries its token as JSON, <code>{"t": "..."}</code>: SSE strips the first space of a raw data
+     * line, and model tokens usually start with one. The stream ends with a "done" event.
+     * The limiter slot is taken when the stream is subscribed and held until the model's stream terminates.
+     * A cached answer is sent as a single event; a fully streamed answer is added to the cache.
+     */
+    @GetMapping(path = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, String>>> askStream(@RequestParam String question) {
+        AnswerCache.Lookup lookup = answerCache.lookup(systemPrompt, question);
+        Optional<String> cached = lookup.answer();
+        if (cached.isPresent()) {
+            return Flux.just(tokenEvent(cached.get()), DONE_EVENT);
+        }
+
+        return Flux.using(llmLimiter::acquire, permit -> {
+                StringBuilder answer = new StringBuilder();
+                return chatClient.prompt()
+                    .system(systemPrompt)
+                    .user(question)
+                    .stream()
+                    .content()
+                    .doOnNext(answer::append)
+                    .doOnComplete(() -> answerCache.put(lookup, answer.toString()));
+            }, ConcurrencyLimiter.Permit::release)
+            .map(AIController::tokenEvent)
+            .concatWith(Mono.just(DONE_EVENT));
+    }
+
+    private static ServerSentEvent<Map<String, String>> tokenEvent(String token) {
+        return ServerSentEvent.<Map<String, String>>builder(Map.of("t", token)).build();
     }
-}
\ No newline at end of file
+
+    private record PendingQuestion(String question, AnswerCache.Lookup lookup) { }
+
+    public record BatchQuestions(
+        @NotEmpty @Size(max = 20) List<@NotBlank String> questions
+    ) { }
+
+    public record BatchAnswer(
+        String question,
+        String answer,
+        long latencyMs,
+        String status,
+        String error
+    ) { }
+
+    public record BatchAnswers(
+        List<BatchAnswer> items,
+        long latencyMs
+    ) { }
+}
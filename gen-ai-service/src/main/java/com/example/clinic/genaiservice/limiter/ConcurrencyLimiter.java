@@ -0,0 +1,143 @@
+package com.example.clinic.genaiservice.limiter;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Caps the number of concurrent upstream LLM calls.
+ * Callers beyond the limit wait in a bounded queue for at most <code>maxWait</code>;
+ * when the queue is full they are rejected immediately.
+ */
+public class ConcurrencyLimiter {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Counter admitted;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+    private final Timer waitTimer;
+
+    public ConcurrencyLimiter(String name, int maxConcurrent, int maxQueue, Duration maxWait,
+                              MeterRegistry registry) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        this.admitted = Counter.builder("ai.limiter.admitted").tag("limiter", name).register(registry);
+        this.rejectedQueueFull = Counter.builder("ai.limiter.rejected")
+            .tag("limiter", name).tag("reason", "queue_full").register(registry);
+        this.rejectedTimeout = Counter.builder("ai.limiter.rejected")
+            .tag("limiter", name).tag("reason", "timeout").register(registry);
+        this.waitTimer = Timer.builder("ai.limiter.wait").tag("limiter", name).register(registry);
+        Gauge.builder("ai.limiter.active", this, ConcurrencyLimiter::active).tag("limiter", name).register(registry);
+        Gauge.builder("ai.limiter.queued", waiting, AtomicInteger::get).tag("limiter", name).register(registry);
+    }
+
+    /**
+     * Take a slot, waiting in the queue if necessary.
+     * @return the permit, to be released exactly once when the upstream call is done
+     * @throws TooManyRequestsException when the queue is full or the wait times out
+     */
+    public Permit acquire() {
+        if (permits.tryAcquire()) {
+            admitted.increment();
+            return new Permit(1);
+        }
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            rejectedQueueFull.increment();
+            throw new TooManyRequestsException(name + " is at capacity, try again later");
+        }
+        final long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                rejectedTimeout.increment();
+                throw new TooManyRequestsException(name + " is at capacity, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TooManyRequestsException(name + " wait was interrupted");
+        } finally {
+            waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        admitted.increment();
+        return new Permit(1);
+    }
+
+    /**
+     * Take up to <code>maxPermits</code> slots for a batch of calls: the first as {@link #acquire()} does,
+     * waiting if necessary, the others only while no one else is waiting for a slot. The batch then runs its
+     * calls over the slots it holds instead of queueing for each, so it is rejected as a whole or not at all.
+     * @return a permit holding between 1 and <code>maxPermits</code> slots, see {@link Permit#count()}
+     * @throws TooManyRequestsException when not even one slot can be had
+     */
+    public Permit acquire(int maxPermits) {
+        final Permit first = acquire();
+        int extra = 0;
+        try {
+            // the timed tryAcquire honours fairness, so this does not overtake queued callers
+            while (extra < maxPermits - 1 && permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                extra++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        admitted.increment(extra);
+        return first.plus(extra);
+    }
+
+    private int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * One or more held slots; {@link #release()} is idempotent.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final int count;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int count) {
+            this.count = count;
+        }
+
+        private Permit plus(int extra) {
+            return extra == 0 ? this : new Permit(count + extra);
+        }
+
+        /**
+         * Number of slots held, that many upstream calls may run at once.
+         */
+        public int count() {
+            return count;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release(count);
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.clinic.genaiservice.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Exact and semantic tiers against a mocked embedding model; questions are embedded after normalization.
+ */
+class AnswerCacheTest {
+
+    private static final String PROMPT = "You are a clinic assistant.";
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesANormalizedRepeatFromTheExactTier() {
+        AnswerCache cache = cache(100, false);
+
+        assertThat(cache.get(PROMPT, "What is a fever?", () -> load("fever"))).isEqualTo("fever");
+        assertThat(cache.get(PROMPT, "  what IS a   fever ", () -> load("other"))).isEqualTo("fever");
+        assertThat(cache.get("Another prompt", "What is a fever?", () -> load("other"))).isEqualTo("other");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void reusesTheAnswerOfASimilarQuestion() {
+        embed("what is a fever", 1, 0, 0);
+        embed("what does fever mean", 0.98f, 0.2f, 0);
+        AnswerCache cache = cache(100, true);
+
+        cache.get(PROMPT, "What is a fever?", () -> load("fever"));
+
+        assertThat(cache.get(PROMPT, "What does fever mean?", () -> load("other"))).isEqualTo("fever");
+        assertThat(loads).hasValue(1);
+        assertThat(registry.get("ai.answers.semantic.hits").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void loadsAQuestionBelowTheThreshold() {
+        embed("what is a fever", 1, 0, 0);
+        embed("what is a cold", 0.8f, 0.6f, 0);
+        AnswerCache cache = cache(100, true);
+
+        cache.get(PROMPT, "What is a fever?", () -> load("fever"));
+
+        assertThat(cache.get(PROMPT, "What is a cold?", () -> load("cold"))).isEqualTo("cold");
+        assertThat(cache.get("Another prompt", "What is a fever?", () -> load("other"))).isEqualTo("other");
+        assertThat(loads).hasValue(3);
+        assertThat(registry.get("ai.answers.semantic.hits").counter().count()).isZero();
+    }
+
+    @Test
+    void answersEvictedFromTheExactTierLeaveTheIndex() throws InterruptedException {
+        AnswerCache cache = cache(3, true);
+        for (int i = 0; i < 20; i++) {
+            embed("question " + i, 1, i, 0);
+            cache.get(PROMPT, "Question " + i, () -> load("answer"));
+        }
+
+        // evictions and the removal listener run asynchronously
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (semanticSize() > 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(semanticSize()).isLessThanOrEqualTo(3);
+    }
+
+    private AnswerCache cache(long maximumSize, boolean semantic) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("embeddingModel", embeddingModel);
+        return new AnswerCache(maximumSize, Duration.ofHours(1), semantic, 0.95, 100,
+            beans.getBeanProvider(EmbeddingModel.class), registry);
+    }
+
+    private void embed(String normalizedQuestion, float... vector) {
+        when(embeddingModel.embed(normalizedQuestion)).thenReturn(vector);
+    }
+
+    private String load(String answer) {
+        loads.incrementAndGet();
+        return answer;
+    }
+
+    private double semanticSize() {
+        return registry.get("ai.answers.semantic.size").gauge().value();
+    }
+}
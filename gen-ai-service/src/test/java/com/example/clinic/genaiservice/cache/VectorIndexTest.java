@@ -0,0 +1,59 @@
+package com.example.clinic.genaiservice.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class VectorIndexTest {
+
+    private final VectorIndex index = new VectorIndex(100, Duration.ofHours(1));
+
+    @Test
+    void findsTheMostSimilarVectorAtOrAboveTheThreshold() {
+        index.add("p:fever", new float[] {1, 0, 0});
+        index.add("p:cold", new float[] {0.8f, 0.6f, 0});
+
+        // cosine 0.8 with fever, 0.96 with cold; scale does not matter
+        assertThat(index.nearest(new float[] {2.8f, 2.4f, 0}, "p:", 0.9)).isEqualTo("p:cold");
+        assertThat(index.nearest(new float[] {5, 0, 0}, "p:", 1.0 - 1e-6)).isEqualTo("p:fever");
+    }
+
+    @Test
+    void missesBelowTheThreshold() {
+        index.add("p:fever", new float[] {1, 0, 0});
+
+        // cosine 0.6
+        assertThat(index.nearest(new float[] {0.6f, 0.8f, 0}, "p:", 0.95)).isNull();
+        assertThat(index.nearest(new float[] {0.6f, 0.8f, 0}, "p:", 0.6 - 1e-6)).isEqualTo("p:fever");
+        assertThat(index.nearest(new float[] {0, 0, 0}, "p:", 0.1)).isNull();
+    }
+
+    @Test
+    void onlyMatchesKeysForTheSameSystemPrompt() {
+        index.add("a:fever", new float[] {1, 0, 0});
+
+        assertThat(index.nearest(new float[] {1, 0, 0}, "b:", 0.5)).isNull();
+    }
+
+    @Test
+    void evictsToMakeRoomOnceFull() {
+        VectorIndex small = new VectorIndex(2, Duration.ofHours(1));
+        for (int i = 0; i < 10; i++) {
+            small.add("p:" + i, new float[] {1, i});
+        }
+
+        assertThat(small.size()).isLessThanOrEqualTo(2);
+        assertThat(small.nearest(new float[] {1, 9}, "p:", 0.5)).isNotNull();
+    }
+
+    @Test
+    void removesAVector() {
+        index.add("p:fever", new float[] {1, 0, 0});
+        index.remove("p:fever");
+
+        assertThat(index.size()).isZero();
+        assertThat(index.nearest(new float[] {1, 0, 0}, "p:", 0.5)).isNull();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.clinic.genaiservice.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+class StubModelConfigTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+        .withInitializer(context -> context.getBeanFactory()
+            .setConversionService(ApplicationConversionService.getSharedInstance()))
+        .withUserConfiguration(StubModelConfig.class)
+        .withPropertyValues("ai.stub.token-delay=1ms");
+
+    @Test
+    void onlyActiveWithTheStubModelProfile() {
+        runner.run(context -> assertThat(context).doesNotHaveBean(ChatModel.class));
+        runner.withPropertyValues("spring.profiles.active=stub-model")
+            .run(context -> assertThat(context).hasSingleBean(ChatModel.class));
+    }
+
+    @Test
+    void answersEveryPromptWithTheSameText() {
+        runner.withPropertyValues("spring.profiles.active=stub-model").run(context -> {
+            ChatModel model = context.getBean(ChatModel.class);
+
+            assertThat(text(model.call(new Prompt("What is a fever?")))).isEqualTo(StubModelConfig.ANSWER);
+            assertThat(text(model.call(new Prompt("Is aspirin safe?")))).isEqualTo(StubModelConfig.ANSWER);
+        });
+    }
+
+    @Test
+    void streamsTheAnswerWordByWord() {
+        runner.withPropertyValues("spring.profiles.active=stub-model").run(context -> {
+            List<String> tokens = context.getBean(ChatModel.class).stream(new Prompt("What is a fever?"))
+                .map(StubModelConfigTest::text)
+                .collectList()
+                .block();
+
+            assertThat(tokens).hasSize(StubModelConfig.ANSWER.split(" ").length).startsWith("This", " is", " a");
+            assertThat(String.join("", tokens)).isEqualTo(StubModelConfig.ANSWER);
+        });
+    }
+
+    private static String text(ChatResponse response) {
+        return response.getResult().getOutput().getText();
+    }
+}
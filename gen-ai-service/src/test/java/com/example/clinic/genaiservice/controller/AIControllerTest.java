@@ -0,0 +1,125 @@
+package com.example.clinic.genaiservice.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.clinic.genaiservice.config.StubModelConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The whole service against the local stub model, without an API key, config server or Eureka.
+ */
+@SpringBootTest(properties = {
+    "spring.cloud.config.enabled=false",
+    "eureka.client.enabled=false",
+    "ai.stub.token-delay=1ms"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("stub-model")
+class AIControllerTest {
+
+    private static final String STUB_ANSWER = "This is a stubbed answer";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void answersAQuestion() throws Exception {
+        mockMvc.perform(get("/ai/ask").param("question", "What is a fever?"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.answer", startsWith(STUB_ANSWER)));
+    }
+
+    @Test
+    void answersABatchInRequestOrder() throws Exception {
+        mockMvc.perform(post("/ai/ask/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"questions\": [\"Is aspirin safe?\", \"What is a cold?\", \"  is aspirin SAFE \"]}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items", hasSize(3)))
+            .andExpect(jsonPath("$.items[*].status", everyItem(is("ok"))))
+            .andExpect(jsonPath("$.items[*].answer", everyItem(startsWith(STUB_ANSWER))))
+            .andExpect(jsonPath("$.items[2].question").value("  is aspirin SAFE "));
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() throws Exception {
+        mockMvc.perform(post("/ai/ask/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"questions\": []}"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/ai/ask/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"questions\": [" + String.join(",", Collections.nCopies(21, "\"Why?\"")) + "]}"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamsTheAnswerAsServerSentEvents() throws Exception {
+        String body = stream("How long does a cold last?");
+
+        assertThat(body).contains("data:{\"t\":\"This\"}", "data:{\"t\":\" stubbed\"}", "event:done");
+        assertThat(body.indexOf("event:done")).isGreaterThan(body.indexOf("data:{\"t\":\" stubbed\"}"));
+        assertThat(answerOf(body)).isEqualTo(StubModelConfig.ANSWER);
+        assertThat(registry.get("ai.limiter.active").gauge().value()).isZero();
+    }
+
+    @Test
+    void streamsACachedAnswerAsOneEvent() throws Exception {
+        String streamed = answerOf(stream("Can a cold turn into the flu?"));
+        String cached = stream("Can a cold turn into the flu?");
+
+        assertThat(cached.split("\n\n")).hasSize(2);
+        assertThat(answerOf(cached)).isEqualTo(streamed).isEqualTo(StubModelConfig.ANSWER);
+    }
+
+    private String stream(String question) throws Exception {
+        MvcResult result = mockMvc.perform(get("/ai/ask/stream").param("question", question))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        result.getAsyncResult(5000);
+        return result.getResponse().getContentAsString();
+    }
+
+    /**
+     * The answer a client rebuilds from the token events, stopping at "done".
+     */
+    private String answerOf(String body) throws Exception {
+        StringBuilder answer = new StringBuilder();
+        for (String event : body.split("\n\n")) {
+            if (event.contains("event:done")) {
+                break;
+            }
+            String data = event.substring(event.indexOf("data:") + "data:".length());
+            answer.append(objectMapper.readTree(data).get("t").asText());
+        }
+        return answer.toString();
+    }
+}
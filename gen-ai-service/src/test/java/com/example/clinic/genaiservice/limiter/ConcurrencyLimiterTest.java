@@ -0,0 +1,111 @@
+package com.example.clinic.genaiservice.limiter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConcurrencyLimiterTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void admitsUpToTheLimitAndReleasesOnce() {
+        ConcurrencyLimiter limiter = limiter(2, 0, Duration.ofSeconds(1));
+
+        ConcurrencyLimiter.Permit first = limiter.acquire();
+        ConcurrencyLimiter.Permit second = limiter.acquire();
+        assertThat(first.count()).isEqualTo(1);
+        assertThat(gauge("ai.limiter.active")).isEqualTo(2);
+
+        first.release();
+        first.close();
+        assertThat(gauge("ai.limiter.active")).isEqualTo(1);
+        second.close();
+        assertThat(gauge("ai.limiter.active")).isZero();
+        assertThat(registry.get("ai.limiter.admitted").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsRightAwayWhenTheQueueIsFull() {
+        ConcurrencyLimiter limiter = limiter(1, 0, Duration.ofSeconds(5));
+        limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire).isInstanceOf(TooManyRequestsException.class);
+        assertThat(rejected("queue_full")).isEqualTo(1);
+        assertThat(gauge("ai.limiter.queued")).isZero();
+    }
+
+    @Test
+    void rejectsWhenTheWaitTimesOut() {
+        ConcurrencyLimiter limiter = limiter(1, 1, Duration.ofMillis(50));
+        limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire).isInstanceOf(TooManyRequestsException.class);
+        assertThat(rejected("timeout")).isEqualTo(1);
+        assertThat(gauge("ai.limiter.queued")).isZero();
+        assertThat(registry.get("ai.limiter.wait").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void queuedCallersGetReleasedSlots() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(5));
+        ConcurrencyLimiter.Permit held = limiter.acquire();
+
+        CompletableFuture<ConcurrencyLimiter.Permit> waiting = CompletableFuture.supplyAsync(limiter::acquire);
+        awaitQueued(1);
+        assertThat(waiting).isNotDone();
+        held.release();
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS).count()).isEqualTo(1);
+        assertThat(gauge("ai.limiter.queued")).isZero();
+        assertThat(gauge("ai.limiter.active")).isEqualTo(1);
+    }
+
+    @Test
+    void batchesTakeTheFreeSlotsUpToTheirMaximum() {
+        ConcurrencyLimiter limiter = limiter(4, 0, Duration.ofSeconds(1));
+        ConcurrencyLimiter.Permit held = limiter.acquire();
+
+        ConcurrencyLimiter.Permit batch = limiter.acquire(10);
+        assertThat(batch.count()).isEqualTo(3);
+        assertThat(gauge("ai.limiter.active")).isEqualTo(4);
+        // no slot at all: the batch is turned away as a whole
+        assertThatThrownBy(() -> limiter.acquire(2)).isInstanceOf(TooManyRequestsException.class);
+
+        batch.release();
+        batch.release();
+        assertThat(gauge("ai.limiter.active")).isEqualTo(1);
+        assertThat(limiter.acquire(2).count()).isEqualTo(2);
+        held.release();
+        assertThat(limiter.acquire(1).count()).isEqualTo(1);
+        assertThat(registry.get("ai.limiter.admitted").counter().count()).isEqualTo(7);
+    }
+
+    private ConcurrencyLimiter limiter(int maxConcurrent, int maxQueue, Duration maxWait) {
+        return new ConcurrencyLimiter("test", maxConcurrent, maxQueue, maxWait, registry);
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).tag("limiter", "test").gauge().value();
+    }
+
+    private double rejected(String reason) {
+        return registry.get("ai.limiter.rejected").tag("reason", reason).counter().count();
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gauge("ai.limiter.queued") != expected) {
+            assertThat(System.nanoTime() - deadline).isNegative();
+            Thread.sleep(1);
+        }
+    }
+}
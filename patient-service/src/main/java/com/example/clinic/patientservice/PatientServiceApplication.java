@@ -3,9 +3,20 @@ package com.example.clinic.patientservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.example.clinic.common.audit.AuditConfig;
+import com.example.clinic.common.cache.CacheConfig;
+import com.example.clinic.common.datasource.DataSourceConfig;
+import com.example.clinic.common.runtime.VirtualThreadsConfig;
+import com.example.clinic.common.web.BinaryFormatsConfig;
 
 @SpringBootApplication
 @EnableDiscoveryClient
+@EnableScheduling
+@Import({AuditConfig.class, CacheConfig.class, DataSourceConfig.class, BinaryFormatsConfig.class,
+        VirtualThreadsConfig.class})
 public class PatientServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(PatientServiceApplication.class, args);
@@ -0,0 +1,178 @@
+package com.example.clinic.patientservice;
+
+import com.example.clinic.patientservice.model.PatientRecordStatsRepository;
+import com.example.clinic.patientservice.model.RecordTypeCount;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory catalog of the medical record types that have at least one record, kept sorted.
+ * Built from the per-patient record aggregates (patient_record_stats) in the background once the application
+ * is ready and again every <code>patients.record-types.refresh-interval</code>; until the first build has
+ * finished, lookups go to the database.
+ * <p>
+ * Between refreshes the write paths report their changes with {@link #recordsAdded} and
+ * {@link #recordTypeChanged}, which take effect when the writing transaction commits, so a rollback leaves
+ * the catalog untouched. A type whose last record changes to another type drops out. Writes made through
+ * other instances show up here at the next refresh, as do removals committed while a rebuild is running.
+ */
+@Component
+public class RecordTypeCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordTypeCatalog.class);
+
+    private final PatientRecordStatsRepository recordStatsRepository;
+    private final TaskExecutor taskExecutor;
+    private final Timer rebuildTimer;
+
+    // record count per type, only types with a positive count; replaced wholesale by each rebuild
+    private volatile ConcurrentSkipListMap<String, Long> counts = new ConcurrentSkipListMap<>();
+    private volatile boolean built;
+
+    // orders deltas against the swap at the end of a rebuild
+    private final Object deltaLock = new Object();
+    // types added while a rebuild's query runs, null outside a rebuild; guarded by deltaLock
+    private List<String> addedDuringRebuild;
+    private volatile long lastRebuildMillis;
+
+    public RecordTypeCatalog(PatientRecordStatsRepository recordStatsRepository,
+                             @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                             MeterRegistry registry) {
+        this.recordStatsRepository = recordStatsRepository;
+        this.taskExecutor = taskExecutor;
+        this.rebuildTimer = Timer.builder("clinic.recordtypes.rebuild")
+            .description("Time to rebuild the record type catalog from the database")
+            .register(registry);
+        Gauge.builder("clinic.recordtypes.size", this, catalog -> catalog.counts.size())
+            .description("Distinct record types in the catalog")
+            .register(registry);
+        Gauge.builder("clinic.recordtypes.last.rebuild", this, catalog -> catalog.lastRebuildMillis / 1000.0)
+            .description("Epoch time of the last completed catalog rebuild, 0 before the first one")
+            .baseUnit("seconds")
+            .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        taskExecutor.execute(this::rebuild);
+    }
+
+    /**
+     * Replace the catalog with the record counts per type summed over the aggregates.
+     * Additions that commit while the query runs are logged and applied again to the new counts before they
+     * are swapped in, so a type first written during a rebuild is never lost. One the query already saw is
+     * counted twice, which only keeps its type listed a little longer. Removals made while the query runs are
+     * not replayed, since applying one the query already saw would drop a type that still has records; they
+     * take effect at the next rebuild.
+     */
+    @Scheduled(fixedDelayString = "${patients.record-types.refresh-interval:PT5M}",
+               initialDelayString = "${patients.record-types.refresh-interval:PT5M}")
+    public synchronized void rebuild() {
+        synchronized (deltaLock) {
+            addedDuringRebuild = new ArrayList<>();
+        }
+        try {
+            final ConcurrentSkipListMap<String, Long> loaded = new ConcurrentSkipListMap<>();
+            rebuildTimer.record(() -> {
+                for (RecordTypeCount count : recordStatsRepository.countRecordsByType()) {
+                    loaded.put(count.recordType(), count.recordCount());
+                }
+            });
+            synchronized (deltaLock) {
+                addedDuringRebuild.forEach(type -> adjust(loaded, type, 1));
+                counts = loaded;
+            }
+            lastRebuildMillis = System.currentTimeMillis();
+            built = true;
+            log.info("Record type catalog built with {} types", loaded.size());
+        } catch (RuntimeException e) {
+            log.warn("Record type catalog rebuild failed, keeping the previous one until the next", e);
+        } finally {
+            synchronized (deltaLock) {
+                addedDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * All record types in alphabetical order.
+     */
+    public List<String> types() {
+        if (!built) {
+            return recordStatsRepository.countRecordsByType().stream()
+                .map(RecordTypeCount::recordType)
+                .toList();
+        }
+        return List.copyOf(counts.keySet());
+    }
+
+    /**
+     * Records of these types are being written by the current transaction.
+     */
+    public void recordsAdded(Collection<String> recordTypes) {
+        final List<String> added = List.copyOf(recordTypes);
+        afterCommit(() -> added.forEach(type -> adjust(type, 1)));
+    }
+
+    /**
+     * The current transaction changes a record's type from <code>oldType</code> to <code>newType</code>.
+     */
+    public void recordTypeChanged(String oldType, String newType) {
+        if (Objects.equals(oldType, newType)) {
+            return;
+        }
+        afterCommit(() -> {
+            adjust(newType, 1);
+            adjust(oldType, -1);
+        });
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private void adjust(String recordType, long delta) {
+        if (recordType == null) {
+            return;
+        }
+        synchronized (deltaLock) {
+            adjust(counts, recordType, delta);
+            if (addedDuringRebuild != null && delta > 0) {
+                addedDuringRebuild.add(recordType);
+            }
+        }
+    }
+
+    private static void adjust(ConcurrentSkipListMap<String, Long> counts, String recordType, long delta) {
+        counts.compute(recordType, (type, count) -> {
+            final long updated = (count == null ? 0 : count) + delta;
+            return updated > 0 ? updated : null;
+        });
+    }
+}
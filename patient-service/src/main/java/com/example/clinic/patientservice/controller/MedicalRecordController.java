@@ -1,10 +1,14 @@
 package com.example.clinic.patientservice.controller;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,13 +17,24 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.clinic.common.audit.AuditEvent;
+import com.example.clinic.common.audit.AuditLog;
+import com.example.clinic.common.cache.CacheInvalidator;
+import com.example.clinic.common.web.BatchResult;
+import com.example.clinic.patientservice.RecordTypeCatalog;
 import com.example.clinic.patientservice.model.MedicalRecord;
 import com.example.clinic.patientservice.model.MedicalRecordRepository;
 import com.example.clinic.patientservice.model.Patient;
+import com.example.clinic.patientservice.model.PatientRecordStats;
+import com.example.clinic.patientservice.model.PatientRecordStatsRepository;
 import com.example.clinic.patientservice.model.PatientRepository;
 
 import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 
 /**
  * REST Controller for Medical Records
@@ -28,50 +43,170 @@ import jakarta.validation.constraints.Min;
 @Timed("clinic.medicalrecord")
 class MedicalRecordResource {
 
-    private static final Logger log = LoggerFactory.getLogger(MedicalRecordResource.class);
+    static final int MAX_BATCH_SIZE = 10000;
 
     private final MedicalRecordRepository medicalRecordRepository;
     private final PatientRepository patientRepository;
+    private final PatientRecordStatsRepository recordStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final RecordTypeCatalog recordTypeCatalog;
+    private final AuditLog auditLog;
+    private final CacheInvalidator cacheInvalidator;
 
     MedicalRecordResource(MedicalRecordRepository medicalRecordRepository,
-                          PatientRepository patientRepository) {
+                          PatientRepository patientRepository,
+                          PatientRecordStatsRepository recordStatsRepository,
+                          TransactionTemplate transactionTemplate,
+                          Validator validator,
+                          RecordTypeCatalog recordTypeCatalog,
+                          AuditLog auditLog,
+                          CacheInvalidator cacheInvalidator) {
         this.medicalRecordRepository = medicalRecordRepository;
         this.patientRepository = patientRepository;
+        this.recordStatsRepository = recordStatsRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.recordTypeCatalog = recordTypeCatalog;
+        this.auditLog = auditLog;
+        this.cacheInvalidator = cacheInvalidator;
     }
 
+    /**
+     * Distinct record types, served from the in-memory catalog.
+     */
     @GetMapping("/recordTypes")
     public List<String> getRecordTypes() {
-        return medicalRecordRepository.findRecordTypes();
+        return recordTypeCatalog.types();
     }
 
     @PostMapping("/patients/{patientId}/records")
     @ResponseStatus(HttpStatus.CREATED)
     public MedicalRecord createRecord(
-        @RequestBody MedicalRecordRequest recordRequest,
+        @Valid @RequestBody MedicalRecordRequest recordRequest,
         @PathVariable("patientId") @Min(1) int patientId) {
 
-        Patient patient = patientRepository.findById(patientId)
-            .orElseThrow(() -> new ResourceNotFoundException("Patient " + patientId + " not found"));
+        // the record and the patient's record summary are written together
+        final MedicalRecord created = transactionTemplate.execute(status -> {
+            Patient patient = patientRepository.findById(patientId)
+                .orElseThrow(() -> new ResourceNotFoundException("Patient " + patientId + " not found"));
+
+            final MedicalRecord record = new MedicalRecord();
+            patient.addRecord(record);
+            final MedicalRecord saved = save(record, recordRequest);
+            recordStatsRepository.addRecords(List.of(saved));
+            recordTypeCatalog.recordsAdded(List.of(saved.getRecordType()));
+            return saved;
+        });
+        cacheInvalidator.invalidate("patientRecords", patientId);
+        auditLog.record(AuditEvent.of("record.created", created.getId(), patientId));
+        return created;
+    }
+
+    /**
+     * Create many records for one patient with batched inserts.
+     * Each element is validated on its own; invalid ones are reported and skipped, the rest are created.
+     * An unknown patient, or one deleted while the batch is being written, fails the batch with 404.
+     */
+    @PostMapping("/patients/{patientId}/records/batch")
+    public BatchResult createRecords(
+        @RequestBody @Size(max = MAX_BATCH_SIZE) List<MedicalRecordRequest> recordRequests,
+        @PathVariable("patientId") @Min(1) int patientId) {
 
-        final MedicalRecord record = new MedicalRecord();
-        patient.addRecord(record);
-        return save(record, recordRequest);
+        final List<BatchResult.Item> items = new ArrayList<>(recordRequests.size());
+        final List<MedicalRecord> valid = new ArrayList<>(recordRequests.size());
+        for (MedicalRecordRequest recordRequest : recordRequests) {
+            final List<String> errors = new ArrayList<>();
+            for (ConstraintViolation<MedicalRecordRequest> violation : validator.validate(recordRequest)) {
+                errors.add(violation.getPropertyPath() + " " + violation.getMessage());
+            }
+            if (errors.isEmpty()) {
+                final MedicalRecord record = new MedicalRecord();
+                apply(record, recordRequest);
+                valid.add(record);
+            }
+            items.add(new BatchResult.Item(items.size(), null, errors));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // looked up in the writing transaction, so on the primary rather than a lagging replica
+                final Patient patient = patientRepository.findById(patientId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Patient " + patientId + " not found"));
+                valid.forEach(record -> record.setPatient(patient));
+                medicalRecordRepository.insertAll(valid);
+                recordStatsRepository.addRecords(valid);
+                recordTypeCatalog.recordsAdded(valid.stream().map(MedicalRecord::getRecordType).toList());
+            });
+        } catch (DataIntegrityViolationException e) {
+            // the patients foreign key: the patient was deleted after the lookup
+            throw new ResourceNotFoundException("Patient " + patientId + " not found");
+        }
+        cacheInvalidator.invalidate("patientRecords", patientId);
+        auditLog.record(AuditEvent.of("record.batch.created", null, patientId,
+            valid.size() + " created, " + (recordRequests.size() - valid.size()) + " rejected"));
+
+        int next = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).errors().isEmpty()) {
+                items.set(i, new BatchResult.Item(i, valid.get(next++).getId(), List.of()));
+            }
+        }
+        return BatchResult.of(items);
     }
 
     @PutMapping("/patients/*/records/{recordId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void updateRecord(@RequestBody MedicalRecordRequest recordRequest) {
+    public void updateRecord(@Valid @RequestBody MedicalRecordRequest recordRequest) {
         int recordId = recordRequest.id();
-        MedicalRecord record = findRecordById(recordId);
-        save(record, recordRequest);
+        final int patientId = transactionTemplate.execute(status -> {
+            MedicalRecord record = findRecordById(recordId);
+            final String previousType = record.getRecordType();
+            save(record, recordRequest);
+            recordTypeCatalog.recordTypeChanged(previousType, record.getRecordType());
+            // type or date may have changed: recount the patient's few rows from its records
+            medicalRecordRepository.flush();
+            recordStatsRepository.rebuild(record.getPatient().getId());
+            return record.getPatient().getId();
+        });
+        cacheInvalidator.invalidate("patientRecords", patientId);
+        auditLog.record(AuditEvent.of("record.updated", recordId, patientId));
     }
 
     private MedicalRecord save(final MedicalRecord record, final MedicalRecordRequest recordRequest) {
+        apply(record, recordRequest);
+
+        return medicalRecordRepository.save(record);
+    }
+
+    /** copy fields from request to entity */
+    private void apply(final MedicalRecord record, final MedicalRecordRequest recordRequest) {
         record.setDescription(recordRequest.description());
         record.setRecordDate(recordRequest.date());
+        if (recordRequest.recordType() != null) {
+            record.setRecordType(recordRequest.recordType());
+        }
+    }
 
-        log.info("Saving medical record {}", record);
-        return medicalRecordRepository.save(record);
+    /**
+     * Record counts per type and latest record date of a patient, without loading its records.
+     */
+    @GetMapping("/patients/{patientId}/records/summary")
+    public RecordSummary summarizeRecords(@PathVariable("patientId") @Min(1) int patientId) {
+        patientRepository.findSummaryById(patientId)
+            .orElseThrow(() -> new ResourceNotFoundException("Patient " + patientId + " not found"));
+
+        final Map<String, Long> byType = new LinkedHashMap<>();
+        long total = 0;
+        Date last = null;
+        for (PatientRecordStats stats : recordStatsRepository.findByPatientIdOrderByRecordTypeAsc(patientId)) {
+            byType.put(stats.getRecordType(), stats.getRecordCount());
+            total += stats.getRecordCount();
+            if (last == null || (stats.getLastRecordDate() != null && stats.getLastRecordDate().after(last))) {
+                last = stats.getLastRecordDate();
+            }
+        }
+        return new RecordSummary(patientId, total, last, byType);
     }
 
     @GetMapping("/patients/{patientId}/records")
@@ -16,6 +16,8 @@
 package com.example.clinic.patientservice.controller;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
 import java.util.Date;
@@ -25,9 +27,13 @@ import java.util.Date;
  */
 public record MedicalRecordRequest(
         int id,
+        @NotNull
         @JsonFormat(pattern = "yyyy-MM-dd")
         Date date,
         @Size(min = 5, message = "Description must be at least 5 characters long")
         String description,
-        int typeId
+        int typeId,
+        @NotBlank
+        @Size(max = 60)
+        String recordType
 ) { }
@@ -15,33 +15,75 @@
  */
 package com.example.clinic.patientservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.example.clinic.common.audit.AuditEvent;
+import com.example.clinic.common.audit.AuditLog;
+import com.example.clinic.common.cache.CacheInvalidator;
+import com.example.clinic.common.search.SearchIndex;
 import com.example.clinic.patientservice.controller.mapper.PatientEntityMapper;
 import com.example.clinic.patientservice.model.Patient;
 import com.example.clinic.patientservice.model.PatientRepository;
+import com.example.clinic.patientservice.model.PatientSummary;
+import com.example.clinic.patientservice.search.PatientSearch;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @RequestMapping("/patients")
 @RestController
 @Timed("clinic.patient")
 class PatientResource {
 
-    private static final Logger log = LoggerFactory.getLogger(PatientResource.class);
+    static final String NDJSON = "application/x-ndjson";
+    static final String CBOR_SEQ = "application/cbor-seq";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_FLUSH_INTERVAL = 100;
 
     private final PatientRepository patientRepository;
     private final PatientEntityMapper patientEntityMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborObjectMapper;
+    private final CacheInvalidator cacheInvalidator;
+    private final PatientSearch patientSearch;
+    private final AuditLog auditLog;
 
-    PatientResource(PatientRepository patientRepository, PatientEntityMapper patientEntityMapper) {
+    PatientResource(PatientRepository patientRepository, PatientEntityMapper patientEntityMapper,
+                    TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                    MappingJackson2CborHttpMessageConverter cborConverter,
+                    CacheInvalidator cacheInvalidator, PatientSearch patientSearch, AuditLog auditLog) {
         this.patientRepository = patientRepository;
         this.patientEntityMapper = patientEntityMapper;
+        this.transactionTemplate = transactionTemplate;
+        // exports run read-only, so they are served by the replica when there is one
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.cborObjectMapper = cborConverter.getObjectMapper();
+        this.cacheInvalidator = cacheInvalidator;
+        this.patientSearch = patientSearch;
+        this.auditLog = auditLog;
     }
 
     /**
@@ -51,23 +93,121 @@ class PatientResource {
     @ResponseStatus(HttpStatus.CREATED)
     public Patient createPatient(@Valid @RequestBody PatientRequest patientRequest) {
         Patient patient = patientEntityMapper.map(new Patient(), patientRequest);
-        return patientRepository.save(patient);
+        patient = patientRepository.save(patient);
+        cacheInvalidator.invalidate("patients", patient.getId());
+        cacheInvalidator.invalidate("patientRecords", patient.getId());
+        patientSearch.index(patient);
+        auditLog.record(AuditEvent.of("patient.created", patient.getId(), patient.getId()));
+        return patient;
     }
 
     /**
-     * Read single Patient
+     * Read single Patient, with its medical records, from the "patientRecords" cache
      */
     @GetMapping("/{patientId}")
     public Optional<Patient> findPatient(@PathVariable("patientId") @Min(1) int patientId) {
-        return patientRepository.findById(patientId);
+        return patientRepository.findWithRecordsById(patientId);
     }
 
     /**
-     * Read List of Patients
+     * Read single Patient without its medical records, from the "patients" cache
+     */
+    @GetMapping("/{patientId}/summary")
+    public Optional<PatientSummary> findPatientSummary(@PathVariable("patientId") @Min(1) int patientId) {
+        return patientRepository.findSummaryById(patientId);
+    }
+
+    /**
+     * Read a page of Patients, keyset-paginated on id.
+     * The id to pass as <code>after</code> for the next page is returned in the X-Next-Cursor header;
+     * the header is absent on the last page.
      */
     @GetMapping
-    public List<Patient> findAll() {
-        return patientRepository.findAll();
+    public ResponseEntity<List<PatientSummary>> findAll(
+            @RequestParam(name = "after", defaultValue = "0") @Min(0) int after,
+            @RequestParam(name = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) int size) {
+        final List<PatientSummary> page = patientRepository.findSummariesByIdGreaterThanOrderByIdAsc(after, Limit.of(size));
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == size) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).id()));
+        }
+        return response.body(page);
+    }
+
+    /**
+     * Number of Patients, for the dashboard; an index count instead of a walk over every page
+     */
+    @GetMapping("/count")
+    public PatientCount count() {
+        return new PatientCount(patientRepository.count());
+    }
+
+    /**
+     * Search Patients by name, city or telephone, best matches first.
+     * Every word of <code>q</code> must match a whole word or the start of one; <code>page</code> is zero-based.
+     */
+    @GetMapping("/search")
+    public SearchIndex.Page<PatientSummary> search(
+            @RequestParam("q") String query,
+            @RequestParam(name = "page", defaultValue = "0") @Min(0) @Max(SearchIndex.MAX_PAGE) int page,
+            @RequestParam(name = "size", defaultValue = "" + SearchIndex.DEFAULT_PAGE_SIZE)
+                @Min(1) @Max(SearchIndex.MAX_PAGE_SIZE) int size) {
+        return patientSearch.search(query, page, size);
+    }
+
+    /**
+     * Type-ahead completion on Patient names: the last word of <code>prefix</code> may be partial.
+     */
+    @GetMapping("/search/complete")
+    public List<SearchIndex.Suggestion> complete(
+            @RequestParam("prefix") String prefix,
+            @RequestParam(name = "limit", defaultValue = "" + SearchIndex.DEFAULT_COMPLETIONS)
+                @Min(1) @Max(SearchIndex.MAX_COMPLETIONS) int limit) {
+        return patientSearch.complete(prefix, limit);
+    }
+
+    /**
+     * Stream all Patients as newline-delimited JSON.
+     * Rows are written as they are read from the JDBC cursor as unmanaged summaries,
+     * so memory use does not grow with the size of the table.
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .body(out -> stream(out, objectMapper.writer().withRootValueSeparator("\n"), true));
+    }
+
+    /**
+     * Stream all Patients as a CBOR sequence (RFC 8742, one CBOR item per patient back to back),
+     * the compact form for bulk exports between services.
+     */
+    @GetMapping(produces = CBOR_SEQ)
+    public ResponseEntity<StreamingResponseBody> streamAllCbor() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(CBOR_SEQ))
+            .body(out -> stream(out, cborObjectMapper.writer(), false));
+    }
+
+    private void stream(OutputStream out, ObjectWriter objectWriter, boolean newlineTerminated) {
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<PatientSummary> patients = patientRepository.streamAllSummaries();
+                 SequenceWriter writer = objectWriter.writeValues(out)) {
+                int written = 0;
+                for (PatientSummary patient : (Iterable<PatientSummary>) patients::iterator) {
+                    writer.write(patient);
+                    if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                        writer.flush();
+                    }
+                }
+                writer.flush();
+                if (newlineTerminated && written > 0) {
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
     /**
@@ -77,11 +217,22 @@ class PatientResource {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void updatePatient(@PathVariable("patientId") @Min(1) int patientId,
                               @Valid @RequestBody PatientRequest patientRequest) {
-        final Patient patientModel = patientRepository.findById(patientId)
-                .orElseThrow(() -> new ResourceNotFoundException("Patient " + patientId + " not found"));
+        // read and write in one read-write transaction, so the patient is read from the primary, not the replica
+        final Patient patientModel = transactionTemplate.execute(status -> {
+            final Patient patient = patientRepository.findById(patientId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Patient " + patientId + " not found"));
+            patientEntityMapper.map(patient, patientRequest);
+            return patientRepository.save(patient);
+        });
+        cacheInvalidator.invalidate("patients", patientId);
+        cacheInvalidator.invalidate("patientRecords", patientId);
+        patientSearch.index(patientModel);
+        auditLog.record(AuditEvent.of("patient.updated", patientId, patientId));
+    }
 
-        patientEntityMapper.map(patientModel, patientRequest);
-        log.info("Saving patient {}", patientModel);
-        patientRepository.save(patientModel);
+    /**
+     * Body of GET /patients/count.
+     */
+    record PatientCount(long total) {
     }
 }
@@ -0,0 +1,22 @@
+package com.example.clinic.patientservice.controller;
+
+import java.util.Date;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Medical record counts of one patient, read from the maintained per-type aggregates.
+ *
+ * @param patientId ID of the patient
+ * @param totalRecords number of records of all types
+ * @param lastRecordDate date of the most recent record, null when there is none
+ * @param recordsByType number of records per record type, ordered by type
+ */
+record RecordSummary(
+    int patientId,
+    long totalRecords,
+    @JsonFormat(pattern = "yyyy-MM-dd") Date lastRecordDate,
+    Map<String, Long> recordsByType
+) {
+}
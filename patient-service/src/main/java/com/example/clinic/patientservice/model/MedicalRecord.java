@@ -5,7 +5,6 @@ import jakarta.persistence.*;
 import org.springframework.core.style.ToStringCreator;
 
 import java.util.Date;
-import java.util.Objects;
 
 /**
  * Simple business object representing a patient's medical record.
@@ -27,7 +26,7 @@ public class MedicalRecord {
     @Column(name = "record_date", nullable = false)
     private Date recordDate;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id")
     @JsonIgnore
     private Patient patient;
@@ -39,8 +38,7 @@ public class MedicalRecord {
                 .append("recordType", this.getRecordType())
                 .append("description", this.getDescription())
                 .append("recordDate", this.getRecordDate())
-                .append("patientFirstName", this.getPatient().getFirstName())
-                .append("patientLastName", this.getPatient().getLastName())
+                .append("patientId", this.patient != null ? this.patient.getId() : null)
                 .toString();
     }
 
@@ -57,19 +55,20 @@ public class MedicalRecord {
     public void setRecordDate(Date recordDate) { this.recordDate = recordDate; }
     public void setPatient(Patient patient) { this.patient = patient; }
 
+    /**
+     * Equal when both have the same id; a record that is not persisted yet is only equal to itself.
+     * The hash code is constant per class so it does not change when persist assigns the id, and
+     * neither method touches the patient.
+     */
     @Override
     public boolean equals(Object o) {
-        if (o == null || getClass() != o.getClass()) return false;
-        MedicalRecord that = (MedicalRecord) o;
-        return Objects.equals(id, that.id)
-                && Objects.equals(recordType, that.recordType)
-                && Objects.equals(description, that.description)
-                && Objects.equals(recordDate, that.recordDate)
-                && Objects.equals(patient, that.patient);
+        if (this == o) return true;
+        if (!(o instanceof MedicalRecord that)) return false;
+        return this.id != null && this.id.equals(that.getId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, recordType, description, recordDate, patient);
+        return MedicalRecord.class.hashCode();
     }
 }
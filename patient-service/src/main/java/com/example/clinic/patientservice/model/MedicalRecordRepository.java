@@ -5,6 +5,7 @@ import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Repository interface for <code>MedicalRecord</code> domain objects.
@@ -12,21 +13,16 @@ import org.springframework.data.repository.query.Param;
  * All method names are compliant with Spring Data naming
  * conventions so this interface can easily be extended for Spring Data.
  */
-public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Integer> {
+public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Integer>, MedicalRecordRepositoryCustom {
 
     /**
      * Find all medical records belonging to a given patient.
      * @param patientId ID of the patient
      * @return list of medical records
      */
+    @Transactional(readOnly = true)
     @Query("SELECT m FROM MedicalRecord m WHERE m.patient.id = :patientId ORDER BY m.recordDate DESC")
     List<MedicalRecord> findByPatientId(@Param("patientId") int patientId);
 
-    /**
-     * Retrieve all available record types as distinct strings.
-     */
-    @Query("SELECT DISTINCT m.recordType FROM MedicalRecord m ORDER BY m.recordType")
-    List<String> findRecordTypes();
-
     List<MedicalRecord> findByPatient_Id(int patientId);
 }
@@ -0,0 +1,16 @@
+package com.example.clinic.patientservice.model;
+
+import java.util.List;
+
+/**
+ * Bulk write operations for <code>MedicalRecord</code> domain objects.
+ */
+public interface MedicalRecordRepositoryCustom {
+
+    /**
+     * Insert all medical records with JDBC batching and set their generated ids.
+     * Every record must already reference its patient.
+     * @param records records to insert
+     */
+    void insertAll(List<MedicalRecord> records);
+}
@@ -0,0 +1,68 @@
+package com.example.clinic.patientservice.model;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * JDBC implementation of {@link MedicalRecordRepositoryCustom}.
+ *
+ * Hibernate cannot batch inserts of IDENTITY entities, so records are written with plain JDBC batches.
+ * With rewriteBatchedStatements the MySQL driver sends each batch as one multi-row INSERT and still
+ * returns every AUTO_INCREMENT id.
+ */
+class MedicalRecordRepositoryImpl implements MedicalRecordRepositoryCustom {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO medical_records (record_type, description, record_date, patient_id) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    MedicalRecordRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                @Value("${patients.records.batch.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<MedicalRecord> records) {
+        for (int from = 0; from < records.size(); from += batchSize) {
+            final List<MedicalRecord> batch = records.subList(from, Math.min(from + batchSize, records.size()));
+            final KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        final MedicalRecord record = batch.get(i);
+                        ps.setString(1, record.getRecordType());
+                        ps.setString(2, record.getDescription());
+                        ps.setDate(3, new Date(record.getRecordDate().getTime()));
+                        ps.setInt(4, record.getPatient().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                },
+                keys);
+            final List<Map<String, Object>> generated = keys.getKeyList();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(((Number) generated.get(i).values().iterator().next()).intValue());
+            }
+        }
+    }
+}
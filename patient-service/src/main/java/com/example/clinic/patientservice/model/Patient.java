@@ -4,8 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.core.style.ToStringCreator;
 
 import java.util.*;
@@ -57,20 +56,22 @@ public class Patient {
     @Column(name = "blood_type")
     private String bloodType;
 
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "patient")
-    private Set<MedicalRecord> records;
+    // Loaded on first access, for up to 32 patients of the session at once, already ordered by the database.
+    // A bag rather than a set: adding a record neither hashes it nor loads the patient's other records.
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "patient")
+    @BatchSize(size = 32)
+    @OrderBy("recordDate ASC")
+    private List<MedicalRecord> records;
 
-    protected Set<MedicalRecord> getRecordsInternal() {
+    protected List<MedicalRecord> getRecordsInternal() {
         if (this.records == null) {
-            this.records = new HashSet<>();
+            this.records = new ArrayList<>();
         }
         return this.records;
     }
 
     public List<MedicalRecord> getRecords() {
-        List<MedicalRecord> sortedRecords = new ArrayList<>(getRecordsInternal());
-        PropertyComparator.sort(sortedRecords, new MutableSortDefinition("date", true, true));
-        return Collections.unmodifiableList(sortedRecords);
+        return List.copyOf(getRecordsInternal());
     }
 
     public void addRecord(MedicalRecord record) {
@@ -123,6 +124,22 @@ public class Patient {
     public void setEmail(String email) { this.email = email; }
     public void setBloodType(String bloodType) { this.bloodType = bloodType; }
 
+    /**
+     * Equal when both have the same id; a patient that is not persisted yet is only equal to itself.
+     * The hash code is constant per class so it does not change when persist assigns the id.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Patient that)) return false;
+        return this.id != null && this.id.equals(that.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Patient.class.hashCode();
+    }
+
     // Placeholder methods to satisfy MedicalRecordResource dependencies
     public void findRecordTypeById(int typeId) {
         // This can be implemented in MedicalRecordRepository or service layer
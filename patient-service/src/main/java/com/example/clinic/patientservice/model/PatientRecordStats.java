@@ -0,0 +1,70 @@
+package com.example.clinic.patientservice.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Number of medical records of one type for one patient, and the date of the latest one.
+ * Maintained incrementally by the medical record write paths, in the same transaction as the records.
+ */
+@Entity
+@Table(name = "patient_record_stats")
+@IdClass(PatientRecordStats.Key.class)
+public class PatientRecordStats {
+
+    @Id
+    @Column(name = "patient_id")
+    private int patientId;
+
+    @Id
+    @Column(name = "record_type", length = 60)
+    private String recordType;
+
+    @Column(name = "record_count", nullable = false)
+    private long recordCount;
+
+    @Column(name = "last_record_date")
+    @Temporal(TemporalType.DATE)
+    private Date lastRecordDate;
+
+    // Getters
+    public int getPatientId() { return this.patientId; }
+    public String getRecordType() { return this.recordType; }
+    public long getRecordCount() { return this.recordCount; }
+    public Date getLastRecordDate() { return this.lastRecordDate; }
+
+    /**
+     * Composite key of {@link PatientRecordStats}.
+     */
+    public static class Key implements Serializable {
+
+        private int patientId;
+        private String recordType;
+
+        public Key() {
+        }
+
+        public Key(int patientId, String recordType) {
+            this.patientId = patientId;
+            this.recordType = recordType;
+        }
+
+        public int getPatientId() { return this.patientId; }
+        public String getRecordType() { return this.recordType; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return patientId == key.patientId && Objects.equals(recordType, key.recordType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patientId, recordType);
+        }
+    }
+}
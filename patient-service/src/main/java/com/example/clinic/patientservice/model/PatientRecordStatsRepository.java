@@ -0,0 +1,34 @@
+package com.example.clinic.patientservice.model;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository interface for <code>PatientRecordStats</code> aggregates.
+ */
+public interface PatientRecordStatsRepository
+    extends JpaRepository<PatientRecordStats, PatientRecordStats.Key>, PatientRecordStatsRepositoryCustom {
+
+    /**
+     * All per-type rows of one patient.
+     * @param patientId ID of the patient
+     * @return one row per record type the patient has, ordered by type
+     */
+    List<PatientRecordStats> findByPatientIdOrderByRecordTypeAsc(int patientId);
+
+    /**
+     * Record count per type summed over all patients, only types that have records, ordered by type.
+     * Reads the aggregates rather than medical_records; serves RecordTypeCatalog.
+     */
+    @Transactional(readOnly = true)
+    @Query("""
+        SELECT new com.example.clinic.patientservice.model.RecordTypeCount(s.recordType, SUM(s.recordCount))
+        FROM PatientRecordStats s
+        GROUP BY s.recordType
+        HAVING SUM(s.recordCount) > 0
+        ORDER BY s.recordType""")
+    List<RecordTypeCount> countRecordsByType();
+}
@@ -0,0 +1,23 @@
+package com.example.clinic.patientservice.model;
+
+import java.util.Collection;
+
+/**
+ * Incremental maintenance of <code>PatientRecordStats</code>.
+ * Both operations must run in the transaction that wrote the records.
+ */
+public interface PatientRecordStatsRepositoryCustom {
+
+    /**
+     * Add newly inserted records to their patients' per-type rows.
+     * @param records records that were just inserted, each referencing its patient
+     */
+    void addRecords(Collection<MedicalRecord> records);
+
+    /**
+     * Recompute all rows of one patient from its medical records, after a record changed type or date.
+     * Pending changes to medical records must have been flushed.
+     * @param patientId ID of the patient
+     */
+    void rebuild(int patientId);
+}
@@ -0,0 +1,112 @@
+package com.example.clinic.patientservice.model;
+
+import java.sql.DatabaseMetaData;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+/**
+ * JDBC implementation of {@link PatientRecordStatsRepositoryCustom}.
+ *
+ * New records are tallied per (patient, record type) and each tally is added to its patient_record_stats row
+ * with one upsert, which creates the row for a patient's first record of a type. Tallies are sent in key
+ * order, so two batches touching the same patients lock their rows in the same order.
+ * On MySQL the upsert names the incoming row (VALUES ... AS new); HSQLDB in MySQL syntax mode, used by the
+ * tests and clinic-loadtest, only knows the older VALUES(column) form.
+ */
+class PatientRecordStatsRepositoryImpl implements PatientRecordStatsRepositoryCustom {
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO patient_record_stats (patient_id, record_type, record_count, last_record_date) VALUES (?, ?, ?, ?)
+        AS new
+        ON DUPLICATE KEY UPDATE
+            record_count = patient_record_stats.record_count + new.record_count,
+            last_record_date = CASE WHEN patient_record_stats.last_record_date IS NULL
+                    OR patient_record_stats.last_record_date < new.last_record_date
+                THEN new.last_record_date ELSE patient_record_stats.last_record_date END""";
+
+    private static final String UPSERT_SQL_VALUES_FUNCTION = """
+        INSERT INTO patient_record_stats (patient_id, record_type, record_count, last_record_date) VALUES (?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            record_count = record_count + VALUES(record_count),
+            last_record_date = CASE WHEN last_record_date IS NULL OR last_record_date < VALUES(last_record_date)
+                THEN VALUES(last_record_date) ELSE last_record_date END""";
+
+    private static final String DELETE_PATIENT_SQL = "DELETE FROM patient_record_stats WHERE patient_id = ?";
+
+    private static final String REBUILD_PATIENT_SQL = """
+        INSERT INTO patient_record_stats (patient_id, record_type, record_count, last_record_date)
+        SELECT patient_id, record_type, COUNT(*), MAX(record_date)
+        FROM medical_records
+        WHERE patient_id = ?
+        GROUP BY patient_id, record_type""";
+
+    private static final Comparator<PatientRecordStats.Key> KEY_ORDER =
+        Comparator.comparingInt(PatientRecordStats.Key::getPatientId).thenComparing(PatientRecordStats.Key::getRecordType);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsertSql;
+
+    PatientRecordStatsRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsertSql = upsertSql(databaseProductName(jdbcTemplate));
+    }
+
+    static String upsertSql(String databaseProductName) {
+        return "MySQL".equals(databaseProductName) ? UPSERT_SQL : UPSERT_SQL_VALUES_FUNCTION;
+    }
+
+    private static String databaseProductName(JdbcTemplate jdbcTemplate) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                DatabaseMetaData::getDatabaseProductName);
+        } catch (MetaDataAccessException ex) {
+            // the database is not reachable yet; assume the production one
+            return "MySQL";
+        }
+    }
+
+    @Override
+    public void addRecords(Collection<MedicalRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        // per patient and type: how many records were added, and the latest record date among them
+        final Map<PatientRecordStats.Key, Tally> tallies = records.stream()
+            .collect(Collectors.groupingBy(
+                record -> new PatientRecordStats.Key(record.getPatient().getId(), record.getRecordType()),
+                () -> new TreeMap<>(KEY_ORDER),
+                Collectors.teeing(
+                    Collectors.counting(),
+                    Collectors.mapping(MedicalRecord::getRecordDate,
+                        Collectors.filtering(date -> date != null, Collectors.maxBy(Comparator.naturalOrder()))),
+                    Tally::new)));
+        final List<Object[]> rows = tallies.entrySet().stream()
+            .map(entry -> new Object[] {
+                entry.getKey().getPatientId(),
+                entry.getKey().getRecordType(),
+                entry.getValue().count(),
+                entry.getValue().lastRecordDate().map(date -> new java.sql.Date(date.getTime())).orElse(null)
+            })
+            .toList();
+        jdbcTemplate.batchUpdate(upsertSql, rows);
+    }
+
+    @Override
+    public void rebuild(int patientId) {
+        jdbcTemplate.update(DELETE_PATIENT_SQL, patientId);
+        jdbcTemplate.update(REBUILD_PATIENT_SQL, patientId);
+    }
+
+    private record Tally(long count, Optional<Date> lastRecordDate) {
+    }
+}
@@ -1,6 +1,20 @@
 package com.example.clinic.patientservice.model;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 
 /**
@@ -12,4 +26,49 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * Example: http://docs.spring.io/spring-data/jpa/docs/current/reference/html/#repositories.query-methods.query-creation
  */
 public interface PatientRepository extends JpaRepository<Patient, Integer> {
+
+    /**
+     * A single patient with its medical records, fetched together in one statement.
+     * Served from the "patientRecords" cache; patient and record writes evict it through <code>CacheInvalidator</code>.
+     * The cached instance is detached and only ever serialized: writes load the patient through the uncached findById.
+     * @param id ID of the patient
+     * @return the patient, if found
+     */
+    @Cacheable(cacheNames = "patientRecords", key = "#p0", unless = "#result == null")
+    @EntityGraph(attributePaths = "records")
+    @Transactional(readOnly = true)
+    @Query("SELECT p FROM Patient p WHERE p.id = :id")
+    Optional<Patient> findWithRecordsById(@Param("id") int id);
+
+    /**
+     * Summary of a single patient, without loading its medical records.
+     * Served from the "patients" cache; writes evict it through <code>CacheInvalidator</code>.
+     * @param id ID of the patient
+     * @return the patient summary, if found
+     */
+    @Cacheable(cacheNames = "patients", key = "#p0", unless = "#result == null")
+    Optional<PatientSummary> findSummaryById(int id);
+
+    /**
+     * Keyset page: summaries of the next <code>limit</code> patients whose id is greater than <code>afterId</code>.
+     * @param afterId last id of the previous page, 0 for the first page
+     * @param limit maximum number of rows to return
+     * @return patient summaries ordered by id
+     */
+    @Transactional(readOnly = true)
+    List<PatientSummary> findSummariesByIdGreaterThanOrderByIdAsc(int afterId, Limit limit);
+
+    /**
+     * Forward-only stream over all patient summaries, ordered by id.
+     * Rows are fetched 500 at a time: with useCursorFetch (see application.yml) the MySQL driver reads them
+     * through a server-side cursor instead of buffering the whole result, and HSQLDB takes the size as is.
+     * Must be consumed inside a transaction and closed by the caller.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+        SELECT new com.example.clinic.patientservice.model.PatientSummary(
+            p.id, p.firstName, p.lastName, p.gender, p.dateOfBirth,
+            p.address, p.city, p.telephone, p.email, p.bloodType)
+        FROM Patient p ORDER BY p.id""")
+    Stream<PatientSummary> streamAllSummaries();
 }
@@ -0,0 +1,20 @@
+package com.example.clinic.patientservice.model;
+
+import java.util.Date;
+
+/**
+ * Read-only projection of a <code>Patient</code> without its medical records,
+ * used by the list and lookup endpoints.
+ */
+public record PatientSummary(
+        Integer id,
+        String firstName,
+        String lastName,
+        String gender,
+        Date dateOfBirth,
+        String address,
+        String city,
+        String telephone,
+        String email,
+        String bloodType
+) { }
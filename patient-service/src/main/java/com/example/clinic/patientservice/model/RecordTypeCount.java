@@ -0,0 +1,7 @@
+package com.example.clinic.patientservice.model;
+
+/**
+ * Number of medical records of one type, over all patients.
+ */
+public record RecordTypeCount(String recordType, long recordCount) {
+}
@@ -0,0 +1,118 @@
+package com.example.clinic.patientservice.search;
+
+import com.example.clinic.common.search.SearchIndex;
+import com.example.clinic.patientservice.model.Patient;
+import com.example.clinic.patientservice.model.PatientRepository;
+import com.example.clinic.patientservice.model.PatientSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Search index over patient names, city and telephone.
+ * Loaded in the background once the application is ready, in keyset pages so the load never holds
+ * the whole table; the create and update endpoints keep it current through {@link #index}.
+ * Until the load has finished, searches only see the patients loaded so far.
+ * <p>
+ * Each instance only sees its own writes: patients changed through another instance are picked up at its next restart.
+ */
+@Component
+public class PatientSearch {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientSearch.class);
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final PatientRepository patientRepository;
+    private final TaskExecutor taskExecutor;
+    private final Timer loadTimer;
+    private final SearchIndex<PatientSummary> index = new SearchIndex<>(
+        Map.of("lastName", 3.0, "firstName", 2.0, "telephone", 1.5, "city", 1.0),
+        Set.of("lastName", "firstName"));
+
+    public PatientSearch(PatientRepository patientRepository,
+                         @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                         MeterRegistry registry) {
+        this.patientRepository = patientRepository;
+        this.taskExecutor = taskExecutor;
+        this.loadTimer = Timer.builder("clinic.patients.search.load")
+            .description("Time to load the patient search index from the database")
+            .register(registry);
+        Gauge.builder("clinic.patients.search.size", index, SearchIndex::size)
+            .description("Patients in the search index")
+            .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        taskExecutor.execute(this::load);
+    }
+
+    /**
+     * Add every patient not indexed yet. Patients written meanwhile through {@link #index} are kept as written.
+     */
+    public void load() {
+        try {
+            loadTimer.record(() -> {
+                int after = 0;
+                List<PatientSummary> page;
+                do {
+                    page = patientRepository.findSummariesByIdGreaterThanOrderByIdAsc(after, Limit.of(LOAD_PAGE_SIZE));
+                    for (PatientSummary patient : page) {
+                        index.putIfAbsent(patient.id(), patient, label(patient), fields(patient));
+                        after = patient.id();
+                    }
+                } while (page.size() == LOAD_PAGE_SIZE);
+            });
+            log.info("Patient search index loaded with {} patients", index.size());
+        } catch (RuntimeException e) {
+            log.warn("Patient search index load failed, searches only cover patients written since startup", e);
+        }
+    }
+
+    /**
+     * Index a patient that has just been created or updated.
+     */
+    public void index(Patient patient) {
+        final PatientSummary summary = new PatientSummary(patient.getId(), patient.getFirstName(), patient.getLastName(),
+            patient.getGender(), patient.getDateOfBirth(), patient.getAddress(), patient.getCity(),
+            patient.getTelephone(), patient.getEmail(), patient.getBloodType());
+        index.put(summary.id(), summary, label(summary), fields(summary));
+    }
+
+    public SearchIndex.Page<PatientSummary> search(String query, int page, int size) {
+        return index.search(query, page, size);
+    }
+
+    public List<SearchIndex.Suggestion> complete(String prefix, int limit) {
+        return index.complete(prefix, limit);
+    }
+
+    private static String label(PatientSummary patient) {
+        return patient.lastName() + ", " + patient.firstName() + (patient.city() == null ? "" : " (" + patient.city() + ")");
+    }
+
+    private static Map<String, String> fields(PatientSummary patient) {
+        return Map.of(
+            "firstName", nonNull(patient.firstName()),
+            "lastName", nonNull(patient.lastName()),
+            "city", nonNull(patient.city()),
+            "telephone", nonNull(patient.telephone()));
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+}
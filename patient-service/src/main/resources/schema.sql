@@ -27,3 +27,12 @@ CREATE TABLE IF NOT EXISTS medical_records (
     ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+
+-- Per-patient, per-type medical record aggregates, maintained by the medical record write paths
+CREATE TABLE IF NOT EXISTS patient_record_stats (
+  patient_id INT NOT NULL,
+  record_type VARCHAR(60) NOT NULL,
+  record_count BIGINT NOT NULL,
+  last_record_date DATE NULL,
+  PRIMARY KEY (patient_id, record_type)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
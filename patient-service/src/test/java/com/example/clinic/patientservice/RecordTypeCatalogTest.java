@@ -0,0 +1,73 @@
+package com.example.clinic.patientservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import com.example.clinic.patientservice.model.PatientRecordStatsRepository;
+import com.example.clinic.patientservice.model.RecordTypeCount;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Catalog updates racing a rebuild: outside a transaction the deltas apply immediately, as an afterCommit would.
+ */
+class RecordTypeCatalogTest {
+
+    private PatientRecordStatsRepository repository;
+    private RecordTypeCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(PatientRecordStatsRepository.class);
+        catalog = new RecordTypeCatalog(repository, new SyncTaskExecutor(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void anAdditionCommittedDuringTheQueryOutlivesTheSwap() {
+        when(repository.countRecordsByType()).thenAnswer(invocation -> {
+            catalog.recordsAdded(List.of("Surgery"));
+            return List.of(new RecordTypeCount("Consultation", 3));
+        });
+
+        catalog.rebuild();
+
+        assertThat(catalog.types()).containsExactly("Consultation", "Surgery");
+    }
+
+    @Test
+    void aRemovalCommittedDuringTheQueryWaitsForTheNextRebuild() {
+        when(repository.countRecordsByType()).thenReturn(List.of(new RecordTypeCount("Lab", 1)));
+        catalog.rebuild();
+
+        when(repository.countRecordsByType()).thenAnswer(invocation -> {
+            // the query already saw the change: Lab is gone, Imaging has the record
+            catalog.recordTypeChanged("Lab", "Imaging");
+            return List.of(new RecordTypeCount("Imaging", 1));
+        });
+        catalog.rebuild();
+        assertThat(catalog.types()).containsExactly("Imaging");
+
+        when(repository.countRecordsByType()).thenReturn(List.of(new RecordTypeCount("Imaging", 1)));
+        catalog.rebuild();
+        catalog.recordTypeChanged("Imaging", "Lab");
+        assertThat(catalog.types()).containsExactly("Lab");
+    }
+
+    @Test
+    void deltasAfterTheRebuildApplyToTheNewCounts() {
+        when(repository.countRecordsByType()).thenReturn(List.of(new RecordTypeCount("Consultation", 1)));
+        catalog.rebuild();
+
+        catalog.recordsAdded(List.of("Vaccination"));
+        catalog.recordTypeChanged("Consultation", "Vaccination");
+
+        assertThat(catalog.types()).containsExactly("Vaccination");
+    }
+}
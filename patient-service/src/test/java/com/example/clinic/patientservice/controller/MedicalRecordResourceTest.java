@@ -0,0 +1,169 @@
+package com.example.clinic.patientservice.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.clinic.patientservice.model.MedicalRecord;
+import com.example.clinic.patientservice.model.MedicalRecordRepository;
+import com.example.clinic.patientservice.model.Patient;
+import com.example.clinic.patientservice.model.PatientRepository;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Validation of the single and batch medical record writes, on the same embedded database as
+ * {@link PatientResourceTest}.
+ */
+@SpringBootTest(properties = {
+    "spring.cloud.config.enabled=false",
+    "eureka.client.enabled=false",
+    "spring.datasource.url=jdbc:hsqldb:mem:patient-service;sql.syntax_mys=true",
+    "spring.datasource.username=SA",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.hsqldb.jdbc.JDBCDriver",
+    "spring.sql.init.mode=never",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "audit.dir=target/test-audit"
+})
+@AutoConfigureMockMvc
+class MedicalRecordResourceTest {
+
+    private static final String VALID = """
+        {"date":"2024-03-10","description":"Annual check-up","recordType":"Consultation"}""";
+    private static final String WITHOUT_TYPE = """
+        {"date":"2024-03-10","description":"Annual check-up"}""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    private int patientId;
+
+    @BeforeEach
+    void setUp() {
+        patientRepository.deleteAll();
+        Patient patient = new Patient();
+        patient.setFirstName("Jane");
+        patient.setLastName("Doe");
+        patient.setGender("female");
+        patient.setAddress("1 Main Street");
+        patient.setCity("Springfield");
+        patient.setTelephone("5550001");
+        patientId = patientRepository.save(patient).getId();
+    }
+
+    @Test
+    void createsARecord() throws Exception {
+        mockMvc.perform(json(post("/patients/{patientId}/records", patientId), VALID))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.id").isNumber())
+            .andExpect(jsonPath("$.recordType").value("Consultation"));
+    }
+
+    @Test
+    void rejectsARecordWithoutType() throws Exception {
+        mockMvc.perform(json(post("/patients/{patientId}/records", patientId), WITHOUT_TYPE))
+            .andExpect(status().isBadRequest());
+
+        assertThat(medicalRecordRepository.findByPatientId(patientId)).isEmpty();
+    }
+
+    @Test
+    void rejectsAnUpdateWithoutType() throws Exception {
+        MvcResult created = mockMvc.perform(json(post("/patients/{patientId}/records", patientId), VALID))
+            .andExpect(status().isCreated())
+            .andReturn();
+        int recordId = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(json(put("/patients/{patientId}/records/{recordId}", patientId, recordId),
+                "{\"id\":" + recordId + ",\"date\":\"2024-04-01\",\"description\":\"Follow-up visit\"}"))
+            .andExpect(status().isBadRequest());
+
+        assertThat(medicalRecordRepository.findById(recordId)).get()
+            .extracting(MedicalRecord::getDescription).isEqualTo("Annual check-up");
+    }
+
+    @Test
+    void aBatchCreatesTheValidRecordsAndReportsTheOthers() throws Exception {
+        String body = "[" + VALID + "," + WITHOUT_TYPE + ","
+            + "{\"date\":\"2024-03-11\",\"description\":\"x\",\"recordType\":\"Surgery\"}," + VALID + "]";
+
+        MvcResult result = mockMvc.perform(json(post("/patients/{patientId}/records/batch", patientId), body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(2))
+            .andExpect(jsonPath("$.rejected").value(2))
+            .andExpect(jsonPath("$.items[*].index", Matchers.contains(0, 1, 2, 3)))
+            .andExpect(jsonPath("$.items[0].errors").isEmpty())
+            .andExpect(jsonPath("$.items[1].id").doesNotExist())
+            .andExpect(jsonPath("$.items[1].errors[0]", Matchers.startsWith("recordType ")))
+            .andExpect(jsonPath("$.items[2].id").doesNotExist())
+            .andExpect(jsonPath("$.items[2].errors[0]", Matchers.startsWith("description ")))
+            .andExpect(jsonPath("$.items[3].errors").isEmpty())
+            .andReturn();
+
+        String response = result.getResponse().getContentAsString();
+        List<Integer> ids = List.of(JsonPath.read(response, "$.items[0].id"), JsonPath.read(response, "$.items[3].id"));
+        assertThat(medicalRecordRepository.findByPatientId(patientId))
+            .extracting(MedicalRecord::getId)
+            .containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    void aBatchForAnUnknownPatientFailsWith404() throws Exception {
+        mockMvc.perform(json(post("/patients/{patientId}/records/batch", patientId + 1000), "[" + VALID + "]"))
+            .andExpect(status().isNotFound());
+
+        assertThat(medicalRecordRepository.count()).isZero();
+    }
+
+    @Test
+    void recordWritesEvictThePatientFromTheCache() throws Exception {
+        mockMvc.perform(get("/patients/{patientId}", patientId).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.records").isEmpty());
+
+        MvcResult created = mockMvc.perform(json(post("/patients/{patientId}/records", patientId), VALID))
+            .andExpect(status().isCreated())
+            .andReturn();
+        int recordId = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+        mockMvc.perform(get("/patients/{patientId}", patientId).accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.records[*].description", Matchers.contains("Annual check-up")));
+
+        mockMvc.perform(json(put("/patients/{patientId}/records/{recordId}", patientId, recordId),
+                "{\"id\":" + recordId + ",\"date\":\"2024-04-01\",\"description\":\"Follow-up visit\","
+                    + "\"recordType\":\"Consultation\"}"))
+            .andExpect(status().isNoContent());
+        mockMvc.perform(get("/patients/{patientId}", patientId).accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.records[*].description", Matchers.contains("Follow-up visit")));
+
+        mockMvc.perform(json(post("/patients/{patientId}/records/batch", patientId), "[" + VALID + "]"))
+            .andExpect(status().isOk());
+        mockMvc.perform(get("/patients/{patientId}", patientId).accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.records.length()").value(2));
+    }
+
+    private static MockHttpServletRequestBuilder json(MockHttpServletRequestBuilder request, String body) {
+        return request.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON).content(body);
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.clinic.patientservice.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.clinic.patientservice.model.Patient;
+import com.example.clinic.patientservice.model.PatientRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Keyset pagination and NDJSON / CBOR sequence exports of GET /patients on an embedded HSQLDB in MySQL syntax mode, as clinic-loadtest runs the service.
+ */
+@SpringBootTest(properties = {
+    "spring.cloud.config.enabled=false",
+    "eureka.client.enabled=false",
+    "spring.datasource.url=jdbc:hsqldb:mem:patient-service;sql.syntax_mys=true",
+    "spring.datasource.username=SA",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.hsqldb.jdbc.JDBCDriver",
+    "spring.sql.init.mode=never",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "audit.dir=target/test-audit"
+})
+@AutoConfigureMockMvc
+class PatientResourceTest {
+
+    private static final int PATIENTS = 7;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    private final List<Integer> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        patientRepository.deleteAll();
+        for (int i = 0; i < PATIENTS; i++) {
+            ids.add(patientRepository.save(patient(i)).getId());
+        }
+    }
+
+    @Test
+    void pagesFollowTheCursorInIdOrder() throws Exception {
+        List<Integer> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = "0";
+        while (cursor != null) {
+            MvcResult result = mockMvc.perform(patients().param("after", cursor).param("size", "3"))
+                .andExpect(status().isOk())
+                .andReturn();
+            List<Integer> page = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+            seen.addAll(page);
+            pageSizes.add(page.size());
+            cursor = result.getResponse().getHeader(PatientResource.NEXT_CURSOR_HEADER);
+        }
+
+        assertThat(seen).isEqualTo(ids);
+        assertThat(pageSizes).containsExactly(3, 3, 1);
+    }
+
+    @Test
+    void aFullLastPageIsFollowedByAnEmptyOne() throws Exception {
+        mockMvc.perform(patients().param("size", String.valueOf(PATIENTS)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(PATIENTS))
+            .andExpect(header().string(PatientResource.NEXT_CURSOR_HEADER, String.valueOf(ids.get(PATIENTS - 1))));
+
+        mockMvc.perform(patients().param("after", String.valueOf(ids.get(PATIENTS - 1))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(0))
+            .andExpect(header().doesNotExist(PatientResource.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void pagesCarrySummariesWithoutRecords() throws Exception {
+        mockMvc.perform(patients().param("after", String.valueOf(ids.get(1))).param("size", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value(ids.get(2)))
+            .andExpect(jsonPath("$[0].lastName").value("Last2"))
+            .andExpect(jsonPath("$[0].records").doesNotExist());
+    }
+
+    @Test
+    void countsEveryPatient() throws Exception {
+        mockMvc.perform(get("/patients/count").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(PATIENTS));
+    }
+
+    @Test
+    void rejectsOutOfRangeParameters() throws Exception {
+        mockMvc.perform(patients().param("size", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(patients().param("size", String.valueOf(PatientResource.MAX_PAGE_SIZE + 1)))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(patients().param("after", "-1")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamsEveryPatientAsNdjsonInIdOrder() throws Exception {
+        MvcResult result = export(PatientResource.NDJSON);
+
+        String body = result.getResponse().getContentAsString();
+        assertThat(body).endsWith("\n");
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            rows.add(new ObjectMapper().readTree(line));
+        }
+        assertThat(rows).extracting(row -> row.get("id").asInt()).isEqualTo(ids);
+        assertThat(rows).extracting(row -> row.get("lastName").asText())
+            .containsExactly("Last0", "Last1", "Last2", "Last3", "Last4", "Last5", "Last6");
+        assertThat(rows).allSatisfy(row -> assertThat(row.has("records")).isFalse());
+    }
+
+    @Test
+    void streamsEveryPatientAsACborSequenceInIdOrder() throws Exception {
+        MvcResult result = export(PatientResource.CBOR_SEQ);
+
+        List<JsonNode> rows = new CBORMapper().readerFor(JsonNode.class)
+            .<JsonNode>readValues(result.getResponse().getContentAsByteArray())
+            .readAll();
+        assertThat(rows).extracting(row -> row.get("id").asInt()).isEqualTo(ids);
+        assertThat(rows).extracting(row -> row.get("firstName").asText())
+            .containsExactly("First0", "First1", "First2", "First3", "First4", "First5", "First6");
+    }
+
+    @Test
+    void streamsAnEmptyTableAsAnEmptyBody() throws Exception {
+        patientRepository.deleteAll();
+
+        assertThat(export(PatientResource.NDJSON).getResponse().getContentAsString()).isEmpty();
+    }
+
+    private MvcResult export(String mediaType) throws Exception {
+        MvcResult started = mockMvc.perform(get("/patients").accept(mediaType))
+            .andExpect(status().isOk())
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(mediaType))
+            .andReturn();
+    }
+
+    private static MockHttpServletRequestBuilder patients() {
+        return get("/patients").accept(MediaType.APPLICATION_JSON);
+    }
+
+    private static Patient patient(int i) {
+        Patient patient = new Patient();
+        patient.setFirstName("First" + i);
+        patient.setLastName("Last" + i);
+        patient.setGender("female");
+        patient.setAddress(i + " Main Street");
+        patient.setCity("Springfield");
+        patient.setTelephone("555000" + i);
+        return patient;
+    }
+}
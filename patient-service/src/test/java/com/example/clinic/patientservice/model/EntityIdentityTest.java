@@ -0,0 +1,127 @@
+package com.example.clinic.patientservice.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Id-based equals/hashCode and the lazy-safe toString of {@link Patient} and {@link MedicalRecord}, on the same
+ * embedded database as the controller tests.
+ */
+@SpringBootTest(properties = {
+    "spring.cloud.config.enabled=false",
+    "eureka.client.enabled=false",
+    "spring.datasource.url=jdbc:hsqldb:mem:patient-service;sql.syntax_mys=true",
+    "spring.datasource.username=SA",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.hsqldb.jdbc.JDBCDriver",
+    "spring.sql.init.mode=never",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "audit.dir=target/test-audit"
+})
+class EntityIdentityTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void aTransientEntityEqualsOnlyItself() {
+        Patient patient = patient();
+        MedicalRecord record = record(patient);
+
+        assertThat(patient).isEqualTo(patient).isNotEqualTo(patient());
+        assertThat(record).isEqualTo(record).isNotEqualTo(record(patient));
+        assertThat(new HashSet<>(Set.of(patient, patient()))).hasSize(2);
+    }
+
+    @Test
+    void equalityIsIdBased() {
+        // Patient has no id setter: only persist assigns ids
+        Patient patient = patient();
+        ReflectionTestUtils.setField(patient, "id", 7);
+        Patient sameRow = patient();
+        ReflectionTestUtils.setField(sameRow, "id", 7);
+        sameRow.setFirstName("Someone else");
+        Patient otherRow = patient();
+        ReflectionTestUtils.setField(otherRow, "id", 8);
+        MedicalRecord recordWithTheSameId = record(patient);
+        recordWithTheSameId.setId(7);
+
+        assertThat(patient).isEqualTo(sameRow).hasSameHashCodeAs(sameRow).isNotEqualTo(otherRow);
+        assertThat(patient).isNotEqualTo(patient()).isNotEqualTo(recordWithTheSameId);
+        assertThat(patient()).isNotEqualTo(patient);
+    }
+
+    @Test
+    void theHashCodeIsStableAcrossPersist() {
+        Patient patient = patient();
+        MedicalRecord record = record(patient);
+        int patientHash = patient.hashCode();
+        int recordHash = record.hashCode();
+        Set<Object> entities = new HashSet<>(Set.of(patient, record));
+
+        persist(patient, record);
+
+        assertThat(patient.getId()).isNotNull();
+        assertThat(record.getId()).isNotNull();
+        assertThat(patient.hashCode()).isEqualTo(patientHash);
+        assertThat(record.hashCode()).isEqualTo(recordHash);
+        assertThat(entities).contains(patient, record);
+    }
+
+    @Test
+    void toStringDoesNotLoadTheLazyPatient() {
+        Patient patient = patient();
+        MedicalRecord record = record(patient);
+        persist(patient, record);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            MedicalRecord loaded = entityManager.find(MedicalRecord.class, record.getId());
+
+            assertThat(loaded.toString()).contains("patientId = " + patient.getId());
+            assertThat(Hibernate.isInitialized(loaded.getPatient())).isFalse();
+            assertThat(loaded).isEqualTo(record).hasSameHashCodeAs(record);
+        });
+    }
+
+    private void persist(Patient patient, MedicalRecord record) {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.persist(patient);
+            entityManager.persist(record);
+        });
+    }
+
+    private static Patient patient() {
+        Patient patient = new Patient();
+        patient.setFirstName("Jane");
+        patient.setLastName("Doe");
+        patient.setGender("female");
+        patient.setAddress("1 Main Street");
+        patient.setCity("Springfield");
+        patient.setTelephone("5550001");
+        return patient;
+    }
+
+    private static MedicalRecord record(Patient patient) {
+        MedicalRecord record = new MedicalRecord();
+        record.setRecordType("Consultation");
+        record.setDescription("Annual check-up");
+        record.setRecordDate(new Date());
+        record.setPatient(patient);
+        return record;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.clinic.patientservice.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Runs the MySQL upsert and rebuild against an embedded HSQLDB in MySQL syntax mode, as clinic-loadtest does.
+ */
+class PatientRecordStatsRepositoryImplTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private JdbcTemplate jdbcTemplate;
+    private PatientRecordStatsRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:hsqldb:mem:record-stats-" + DATABASES.incrementAndGet() + ";sql.syntax_mys=true", "SA", ""));
+        jdbcTemplate.execute("""
+            CREATE TABLE medical_records (
+              id INT AUTO_INCREMENT PRIMARY KEY,
+              record_type VARCHAR(60) NOT NULL,
+              description VARCHAR(255) NULL,
+              record_date DATE NOT NULL,
+              patient_id INT NOT NULL
+            )""");
+        jdbcTemplate.execute("""
+            CREATE TABLE patient_record_stats (
+              patient_id INT NOT NULL,
+              record_type VARCHAR(60) NOT NULL,
+              record_count BIGINT NOT NULL,
+              last_record_date DATE NULL,
+              PRIMARY KEY (patient_id, record_type)
+            )""");
+        repository = new PatientRecordStatsRepositoryImpl(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void insertsOneRowPerPatientAndType() {
+        Patient first = patient(1);
+        Patient second = patient(2);
+
+        repository.addRecords(List.of(
+            record(first, "lab", LocalDate.of(2024, 3, 1)),
+            record(first, "lab", LocalDate.of(2024, 1, 1)),
+            record(first, "imaging", LocalDate.of(2023, 5, 5)),
+            record(second, "lab", LocalDate.of(2024, 2, 2))));
+
+        assertThat(rows()).containsExactly(
+            new Row(1, "imaging", 1, LocalDate.of(2023, 5, 5)),
+            new Row(1, "lab", 2, LocalDate.of(2024, 3, 1)),
+            new Row(2, "lab", 1, LocalDate.of(2024, 2, 2)));
+    }
+
+    @Test
+    void addsToExistingRowsAndKeepsTheLatestDate() {
+        Patient patient = patient(1);
+        repository.addRecords(List.of(record(patient, "lab", LocalDate.of(2024, 6, 1))));
+
+        repository.addRecords(List.of(record(patient, "lab", LocalDate.of(2024, 4, 1))));
+        assertThat(rows()).containsExactly(new Row(1, "lab", 2, LocalDate.of(2024, 6, 1)));
+
+        repository.addRecords(List.of(record(patient, "lab", LocalDate.of(2024, 7, 1))));
+        assertThat(rows()).containsExactly(new Row(1, "lab", 3, LocalDate.of(2024, 7, 1)));
+
+        repository.addRecords(List.of());
+        assertThat(rows()).hasSize(1);
+    }
+
+    @Test
+    void rebuildRecomputesOnePatientFromItsRecords() {
+        insertRecord(1, "lab", LocalDate.of(2024, 3, 1));
+        insertRecord(1, "imaging", LocalDate.of(2024, 5, 1));
+        insertRecord(1, "imaging", LocalDate.of(2024, 4, 1));
+        // stale: one record of patient 1 changed from lab to imaging after these were counted
+        jdbcTemplate.update("INSERT INTO patient_record_stats VALUES (1, 'lab', 2, DATE '2024-05-01')");
+        jdbcTemplate.update("INSERT INTO patient_record_stats VALUES (1, 'imaging', 1, DATE '2024-04-01')");
+        jdbcTemplate.update("INSERT INTO patient_record_stats VALUES (2, 'lab', 7, DATE '2020-01-01')");
+
+        repository.rebuild(1);
+
+        assertThat(rows()).containsExactly(
+            new Row(1, "imaging", 2, LocalDate.of(2024, 5, 1)),
+            new Row(1, "lab", 1, LocalDate.of(2024, 3, 1)),
+            new Row(2, "lab", 7, LocalDate.of(2020, 1, 1)));
+    }
+
+    @Test
+    void rebuildWithoutRecordsLeavesNoRows() {
+        jdbcTemplate.update("INSERT INTO patient_record_stats VALUES (1, 'lab', 2, DATE '2024-05-01')");
+
+        repository.rebuild(1);
+
+        assertThat(rows()).isEmpty();
+    }
+
+    @Test
+    void namesTheIncomingRowOnMySqlOnly() {
+        assertThat(PatientRecordStatsRepositoryImpl.upsertSql("MySQL")).contains("AS new").contains("new.record_count").doesNotContain("VALUES(record_count)");
+        assertThat(PatientRecordStatsRepositoryImpl.upsertSql("HSQL Database Engine")).contains("VALUES(record_count)").doesNotContain("AS new");
+    }
+
+    private void insertRecord(int patientId, String recordType, LocalDate date) {
+        jdbcTemplate.update("INSERT INTO medical_records (record_type, record_date, patient_id) VALUES (?, ?, ?)",
+            recordType, Date.valueOf(date), patientId);
+    }
+
+    private List<Row> rows() {
+        return jdbcTemplate.query(
+            "SELECT * FROM patient_record_stats ORDER BY patient_id, record_type",
+            (rs, rowNum) -> {
+                Date last = rs.getDate("last_record_date");
+                return new Row(rs.getInt("patient_id"), rs.getString("record_type"), rs.getLong("record_count"),
+                    last == null ? null : last.toLocalDate());
+            });
+    }
+
+    private static Patient patient(int id) {
+        Patient patient = new Patient();
+        ReflectionTestUtils.setField(patient, "id", id);
+        return patient;
+    }
+
+    private static MedicalRecord record(Patient patient, String recordType, LocalDate date) {
+        MedicalRecord record = new MedicalRecord();
+        record.setPatient(patient);
+        record.setRecordType(recordType);
+        record.setRecordDate(Date.valueOf(date));
+        return record;
+    }
+
+    private record Row(int patientId, String recordType, long count, LocalDate lastRecordDate) {
+    }
+}
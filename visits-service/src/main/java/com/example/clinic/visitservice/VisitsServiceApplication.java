@@ -4,9 +4,17 @@ package com.example.clinic.visitservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.context.annotation.Import;
+
+import com.example.clinic.common.audit.AuditConfig;
+import com.example.clinic.common.datasource.DataSourceConfig;
+import com.example.clinic.common.runtime.VirtualThreadsConfig;
+import com.example.clinic.common.web.BinaryFormatsConfig;
 
 @EnableDiscoveryClient
 @SpringBootApplication
+@Import({AuditConfig.class, DataSourceConfig.class, BinaryFormatsConfig.class,
+        VirtualThreadsConfig.class})
 public class VisitsServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,30 @@
+package com.example.clinic.visitservice.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class LookupConfig {
+
+  /**
+   * Bounded pool that runs the chunked IN-list queries of a bulk visit lookup.
+   * When the queue is full the request thread runs the chunk itself, which throttles callers
+   * instead of rejecting them.
+   */
+  @Bean
+  ThreadPoolTaskExecutor visitLookupExecutor(
+      @Value("${visits.lookup.threads:4}") int threads,
+      @Value("${visits.lookup.queue-capacity:64}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("visit-lookup-");
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    return executor;
+  }
+}
@@ -1,14 +1,47 @@
 package com.example.clinic.visitservice.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.annotation.Timed;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.example.clinic.common.audit.AuditEvent;
+import com.example.clinic.common.audit.AuditLog;
+import com.example.clinic.common.web.BatchResult;
+import com.example.clinic.visitservice.model.PatientVisitStats;
+import com.example.clinic.visitservice.model.PatientVisitStatsRepository;
 import com.example.clinic.visitservice.model.Visit;
+import com.example.clinic.visitservice.model.VisitListItem;
 import com.example.clinic.visitservice.model.VisitRepository;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -18,6 +51,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 /**
@@ -28,16 +63,51 @@ import org.springframework.web.bind.annotation.RequestMapping;
 @Timed("clinic.visit")
 class VisitResource {
 
-    private static final Logger log = LoggerFactory.getLogger(VisitResource.class);
+    static final String NDJSON = "application/x-ndjson";
+    static final String CBOR_SEQ = "application/cbor-seq";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_LOOKUP_PATIENTS = 1000;
+    static final int MAX_BATCH_SIZE = 10000;
+    private static final int STREAM_FLUSH_INTERVAL = 100;
+    private static final Date MIN_DATE = Date.from(LocalDate.of(1000, 1, 1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    private static final Date MAX_DATE = Date.from(LocalDate.of(9999, 12, 31).atStartOfDay(ZoneId.systemDefault()).toInstant());
 
     private final VisitRepository visitRepository;
+    private final PatientVisitStatsRepository visitStatsRepository;
+    private final VisitLookup visitLookup;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborObjectMapper;
+    private final Validator validator;
+    private final AuditLog auditLog;
 
-    VisitResource(VisitRepository visitRepository) {
+    VisitResource(VisitRepository visitRepository, PatientVisitStatsRepository visitStatsRepository,
+                  VisitLookup visitLookup, TransactionTemplate transactionTemplate,
+                  EntityManager entityManager, ObjectMapper objectMapper,
+                  MappingJackson2CborHttpMessageConverter cborConverter, Validator validator,
+                  AuditLog auditLog) {
         this.visitRepository = visitRepository;
+        this.visitStatsRepository = visitStatsRepository;
+        this.visitLookup = visitLookup;
+        this.transactionTemplate = transactionTemplate;
+        // exports run read-only, so they are served by the replica when there is one
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.cborObjectMapper = cborConverter.getObjectMapper();
+        this.validator = validator;
+        this.auditLog = auditLog;
     }
 
     /**
-     * Create a new visit for a patient.
+     * Create a new visit for a patient, updating the patient's visit summary in the same transaction.
+     * An unknown patient is answered 404; any constraint the database still rejects, such as the patient
+     * being deleted meanwhile, 409.
      */
     @PostMapping("/patients/{patientId}")
     @ResponseStatus(HttpStatus.CREATED)
@@ -46,14 +116,221 @@ class VisitResource {
         @PathVariable("patientId") @Min(1) int patientId) {
 
         visit.setPatientId(patientId);
-        log.info("Saving visit for patient {} -> {}", patientId, visit);
-        return visitRepository.save(visit);
+        final Visit created;
+        try {
+            created = transactionTemplate.execute(status -> {
+                // checked in the writing transaction, so against the primary rather than a lagging replica
+                if (visitRepository.findExistingPatientIds(List.of(patientId)).isEmpty()) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Patient " + patientId + " not found");
+                }
+                final Visit saved = visitRepository.save(visit);
+                visitStatsRepository.addVisits(List.of(saved));
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Visit rejected by a database constraint", e);
+        }
+        auditLog.record(AuditEvent.of("visit.created", created.getId(), patientId));
+        return created;
     }
 
+    /**
+     * Create many visits in one request with batched inserts.
+     * Each element is validated on its own, and its patient must exist; invalid ones are reported and skipped,
+     * the rest are created. A patient deleted while the batch is being written fails it with 409.
+     */
+    @PostMapping("/batch")
+    public BatchResult createBatch(@RequestBody @Size(max = MAX_BATCH_SIZE) List<Visit> visits) {
+        final List<BatchResult.Item> items = new ArrayList<>(visits.size());
+        final List<Visit> valid = new ArrayList<>(visits.size());
+        for (Visit visit : visits) {
+            final List<String> errors = new ArrayList<>();
+            for (ConstraintViolation<Visit> violation : validator.validate(visit)) {
+                errors.add(violation.getPropertyPath() + " " + violation.getMessage());
+            }
+            if (visit.getPatient() < 1) {
+                errors.add("patientId must be greater than or equal to 1");
+            }
+            if (errors.isEmpty()) {
+                valid.add(visit);
+            }
+            items.add(new BatchResult.Item(items.size(), null, errors));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // checked in the writing transaction, so against the primary rather than a lagging replica
+                final Set<Integer> existing = visitRepository.findExistingPatientIds(
+                    valid.stream().map(Visit::getPatient).toList());
+                valid.removeIf(visit -> !existing.contains(visit.getPatient()));
+                visitRepository.insertAll(valid);
+                visitStatsRepository.addVisits(valid);
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A patient of the batch was deleted, retry");
+        }
+
+        int next = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (!items.get(i).errors().isEmpty()) {
+                continue;
+            }
+            final Visit visit = next < valid.size() ? valid.get(next) : null;
+            if (visit != null && visit == visits.get(i)) {
+                items.set(i, new BatchResult.Item(i, visit.getId(), List.of()));
+                next++;
+            } else {
+                items.set(i, new BatchResult.Item(i, null,
+                    List.of("patientId " + visits.get(i).getPatient() + " does not exist")));
+            }
+        }
+        final BatchResult result = BatchResult.of(items);
+        auditLog.record(AuditEvent.of("visit.batch.created", null, null,
+            result.created() + " created, " + result.rejected() + " rejected"));
+        return result;
+    }
+
+    /**
+     * Get a page of visits, keyset-paginated and optionally filtered by patient and an inclusive visit date range,
+     * without their descriptions. Pages are ordered by id, or by date then id when <code>from</code> or
+     * <code>to</code> is given, in which case visits without a date are left out. The cursor to pass as
+     * <code>after</code> for the next page is returned in the X-Next-Cursor header; the header is absent on
+     * the last page.
+     */
     @GetMapping
-        public List<Visit> readAll() {
-        return visitRepository.findAll();
+    public ResponseEntity<List<VisitListItem>> readAll(
+        @RequestParam(name = "patientId", required = false) @Min(1) Integer patientId,
+        @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+        @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+        @RequestParam(name = "after", defaultValue = "0") String after,
+        @RequestParam(name = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) int size) {
+
+        final boolean dateRange = from != null || to != null;
+        final VisitCursor cursor = VisitCursor.parse(after, dateRange);
+        final List<VisitListItem> page;
+        if (dateRange) {
+            final Date afterDate = cursor.date() != null ? cursor.date() : orMin(from);
+            page = patientId != null
+                ? visitRepository.findPageByPatientInRange(patientId, orMax(to), afterDate, cursor.id(), Limit.of(size))
+                : visitRepository.findPageInRange(orMax(to), afterDate, cursor.id(), Limit.of(size));
+        } else {
+            page = patientId != null
+                ? visitRepository.findPageByPatient(patientId, cursor.id(), Limit.of(size))
+                : visitRepository.findPage(cursor.id(), Limit.of(size));
+        }
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == size) {
+            final VisitListItem last = page.get(page.size() - 1);
+            response.header(NEXT_CURSOR_HEADER, VisitCursor.after(last, dateRange).toString());
+        }
+        return response.body(page);
+    }
+
+    /**
+     * Stream all matching visits as newline-delimited JSON.
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAll(
+        @RequestParam(name = "patientId", required = false) @Min(1) Integer patientId,
+        @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+        @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .body(out -> stream(out, patientId, from, to, objectMapper, "", "\n"));
+    }
+
+    /**
+     * Stream all matching visits as a CBOR sequence (RFC 8742, one CBOR item per visit back to back),
+     * the compact form for bulk exports between services.
+     */
+    @GetMapping(produces = CBOR_SEQ)
+    public ResponseEntity<StreamingResponseBody> streamAllCbor(
+        @RequestParam(name = "patientId", required = false) @Min(1) Integer patientId,
+        @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+        @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(CBOR_SEQ))
+            .body(out -> stream(out, patientId, from, to, cborObjectMapper, "", ""));
+    }
+
+    /**
+     * Stream all matching visits as Server-Sent Events, one visit per event.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamEvents(
+        @RequestParam(name = "patientId", required = false) @Min(1) Integer patientId,
+        @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+        @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.TEXT_EVENT_STREAM)
+            .body(out -> stream(out, patientId, from, to, objectMapper, "data: ", "\n\n"));
+    }
+
+    /**
+     * Write each visit read from the forward-only cursor, serialized by <code>mapper</code>, between
+     * <code>prefix</code> and <code>suffix</code>, detaching it once written so the persistence context stays empty.
+     * Visits come in the order of the list endpoint: by id, or by date then id for a date range.
+     */
+    private void stream(OutputStream out, Integer patientId, Date from, Date to, ObjectMapper mapper,
+                        String prefix, String suffix) {
+        final byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        final byte[] suffixBytes = suffix.getBytes(StandardCharsets.UTF_8);
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Visit> visits = streamMatching(patientId, from, to)) {
+                int written = 0;
+                for (Visit visit : (Iterable<Visit>) visits::iterator) {
+                    out.write(prefixBytes);
+                    out.write(mapper.writeValueAsBytes(visit));
+                    out.write(suffixBytes);
+                    entityManager.detach(visit);
+                    if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Stream<Visit> streamMatching(Integer patientId, Date from, Date to) {
+        if (from != null || to != null) {
+            return patientId != null
+                ? visitRepository.streamByPatientInRange(patientId, orMin(from), orMax(to))
+                : visitRepository.streamInRange(orMin(from), orMax(to));
+        }
+        return patientId != null ? visitRepository.streamByPatient(patientId) : visitRepository.streamAll();
+    }
+
+    // Bounds of an open-ended date range: the limits of a MySQL DATE column
+    private static Date orMin(Date from) {
+        return from != null ? from : MIN_DATE;
+    }
+
+    private static Date orMax(Date to) {
+        return to != null ? to : MAX_DATE;
+    }
+
+    /**
+     * Get a single visit, with its description.
+     */
+    @GetMapping("{visitId}")
+    public Visit readOne(@PathVariable("visitId") @Min(1) int visitId) {
+        return visitRepository.findById(visitId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Visit " + visitId + " not found"));
+    }
+
+    /**
+     * Number of visits in total and in the current calendar year, for the dashboard.
+     * Summed from the maintained per-patient aggregates, so it does not scan the visits table.
+     */
+    @GetMapping("count")
+    public VisitCount count() {
+        return new VisitCount(visitStatsRepository.sumVisitCount(),
+            visitStatsRepository.sumVisitCountByYear(Year.now().getValue()));
     }
+
     /**
      * Get all visits for a single patient.
      */
@@ -63,19 +340,63 @@ class VisitResource {
     }
 
     /**
-     * Get visits for multiple patients.
+     * Visit counts and latest visit of a patient, read from the maintained per-year aggregates
+     * instead of the patient's visit history.
+     */
+    @GetMapping("patients/{patientId}/summary")
+    public VisitSummary summary(@PathVariable("patientId") @Min(1) int patientId) {
+        final int currentYear = Year.now().getValue();
+        final Map<Integer, Long> byYear = new LinkedHashMap<>();
+        long total = 0;
+        long thisYear = 0;
+        long undated = 0;
+        Date lastVisit = null;
+        for (PatientVisitStats stats : visitStatsRepository.findByPatientIdOrderByYearDesc(patientId)) {
+            total += stats.getVisitCount();
+            if (stats.getYear() == PatientVisitStats.UNDATED_YEAR) {
+                undated = stats.getVisitCount();
+                continue;
+            }
+            byYear.put(stats.getYear(), stats.getVisitCount());
+            if (stats.getYear() == currentYear) {
+                thisYear = stats.getVisitCount();
+            }
+            if (lastVisit == null || (stats.getLastVisitDate() != null && stats.getLastVisitDate().after(lastVisit))) {
+                lastVisit = stats.getLastVisitDate();
+            }
+        }
+        return new VisitSummary(patientId, total, thisYear, undated, lastVisit, byYear);
+    }
+
+    /**
+     * Get visits for multiple patients, grouped by patient id. Each id may be given once.
      */
     @GetMapping("patients")
-    public Visits read(@RequestParam("patientId") List<Integer> patientIds) {
-        final List<Visit> byPatientIdIn = visitRepository.findByPatientIdIn(patientIds);
-        return new Visits(byPatientIdIn);
+    public Visits read(@RequestParam("patientId") @Size(max = MAX_LOOKUP_PATIENTS)
+                       List<@NotNull @Min(1) Integer> patientIds) {
+        if (new HashSet<>(patientIds).size() < patientIds.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "patientId must not repeat");
+        }
+        return new Visits(visitLookup.findByPatientIds(patientIds));
     }
 
     /**
-     * Wrapper record to return a list of visits.
+     * Visit summary of one patient; <code>visitsByYear</code> is keyed by calendar year, newest first, and leaves
+     * out the <code>undatedVisits</code>, which <code>totalVisits</code> includes.
      */
-    record Visits(
-        List<Visit> items
+    record VisitSummary(
+        int patientId,
+        long totalVisits,
+        long visitsThisYear,
+        long undatedVisits,
+        @JsonFormat(pattern = "yyyy-MM-dd") Date lastVisit,
+        Map<Integer, Long> visitsByYear
     ) {
     }
+
+    /**
+     * Body of GET /visits/count; <code>total</code> includes visits without a date.
+     */
+    record VisitCount(long total, long thisYear) {
+    }
 }
@@ -0,0 +1,47 @@
+package com.example.clinic.visitservice.controller;
+
+import java.util.Date;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.clinic.visitservice.model.VisitListItem;
+
+/**
+ * Position after the last visit of a GET /visits page.
+ * Pages ordered by id carry the id alone ("42"); date-range pages, ordered by date then id, carry both as
+ * "&lt;epoch millis&gt;_&lt;id&gt;", so the next page resumes inside a day that has more visits. "0" starts a listing.
+ */
+record VisitCursor(Date date, int id) {
+
+    private static final VisitCursor START = new VisitCursor(null, 0);
+
+    static VisitCursor after(VisitListItem visit, boolean dateRange) {
+        return new VisitCursor(dateRange ? visit.date() : null, visit.id());
+    }
+
+    static VisitCursor parse(String value, boolean dateRange) {
+        if ("0".equals(value)) {
+            return START;
+        }
+        final int separator = value.indexOf('_');
+        try {
+            final VisitCursor cursor = dateRange && separator > 0
+                ? new VisitCursor(new Date(Long.parseLong(value.substring(0, separator))),
+                    Integer.parseInt(value.substring(separator + 1)))
+                : !dateRange && separator < 0 ? new VisitCursor(null, Integer.parseInt(value)) : null;
+            if (cursor != null && cursor.id() >= 0) {
+                return cursor;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "after must be a cursor returned in " + VisitResource.NEXT_CURSOR_HEADER + " for the same filters");
+    }
+
+    @Override
+    public String toString() {
+        return date == null ? String.valueOf(id) : date.getTime() + "_" + id;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.clinic.visitservice.controller;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.example.clinic.visitservice.model.Visit;
+import com.example.clinic.visitservice.model.VisitRepository;
+
+/**
+ * Looks up the visits of many patients at once.
+ * Ids are split into IN-lists of one fixed size, the last one padded by repeating its final id,
+ * so every query has the same SQL shape and reuses one prepared statement and plan.
+ * Chunks run in parallel on the bounded lookup executor.
+ */
+@Component
+class VisitLookup {
+
+    private final VisitRepository visitRepository;
+    private final ThreadPoolTaskExecutor executor;
+    private final int chunkSize;
+
+    VisitLookup(VisitRepository visitRepository,
+                @Qualifier("visitLookupExecutor") ThreadPoolTaskExecutor executor,
+                @Value("${visits.lookup.chunk-size:50}") int chunkSize) {
+        this.visitRepository = visitRepository;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return visits grouped by patient id, with an entry (possibly empty) for every requested id
+     */
+    Map<Integer, List<Visit>> findByPatientIds(Collection<Integer> patientIds) {
+        final Map<Integer, List<Visit>> byPatient = new LinkedHashMap<>();
+        for (Integer patientId : new LinkedHashSet<>(patientIds)) {
+            byPatient.put(patientId, new ArrayList<>());
+        }
+        if (byPatient.isEmpty()) {
+            return byPatient;
+        }
+
+        final List<CompletableFuture<List<Visit>>> chunks = new ArrayList<>();
+        for (List<Integer> chunk : chunk(new ArrayList<>(byPatient.keySet()))) {
+            chunks.add(CompletableFuture.supplyAsync(() -> visitRepository.findByPatientIdIn(chunk), executor));
+        }
+        for (CompletableFuture<List<Visit>> chunk : chunks) {
+            for (Visit visit : chunk.join()) {
+                byPatient.get(visit.getPatient()).add(visit);
+            }
+        }
+        return byPatient;
+    }
+
+    private List<List<Integer>> chunk(List<Integer> ids) {
+        final List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            final List<Integer> chunk = new ArrayList<>(chunkSize);
+            chunk.addAll(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+            chunk.addAll(Collections.nCopies(chunkSize - chunk.size(), chunk.get(chunk.size() - 1)));
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
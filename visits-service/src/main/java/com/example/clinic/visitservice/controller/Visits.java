@@ -0,0 +1,14 @@
+package com.example.clinic.visitservice.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import com.example.clinic.visitservice.model.Visit;
+
+/**
+ * Wrapper record to return visits keyed by patient id.
+ */
+public record Visits(
+    Map<Integer, List<Visit>> items
+) {
+}
@@ -0,0 +1,85 @@
+package com.example.clinic.visitservice.model;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+
+/**
+ * Visit count and latest visit date of one patient in one calendar year.
+ * Maintained incrementally by the visit write paths, in the same transaction as the visits.
+ */
+@Entity
+@Table(name = "patient_visit_stats")
+@IdClass(PatientVisitStats.Key.class)
+public class PatientVisitStats {
+
+    /**
+     * Year under which visits without a date are counted.
+     */
+    public static final int UNDATED_YEAR = 0;
+
+    @Id
+    @Column(name = "patient_id")
+    private int patientId;
+
+    @Id
+    @Column(name = "visit_year")
+    private int year;
+
+    @Column(name = "visit_count", nullable = false)
+    private long visitCount;
+
+    @Column(name = "last_visit_date")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastVisitDate;
+
+    public int getPatientId() {
+        return this.patientId;
+    }
+
+    public int getYear() {
+        return this.year;
+    }
+
+    public long getVisitCount() {
+        return this.visitCount;
+    }
+
+    public Date getLastVisitDate() {
+        return this.lastVisitDate;
+    }
+
+    public static class Key implements Serializable {
+
+        private int patientId;
+        private int year;
+
+        public Key() {
+        }
+
+        public Key(int patientId, int year) {
+            this.patientId = patientId;
+            this.year = year;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return patientId == key.patientId && year == key.year;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patientId, year);
+        }
+    }
+}
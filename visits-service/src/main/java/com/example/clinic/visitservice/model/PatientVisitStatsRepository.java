@@ -0,0 +1,25 @@
+package com.example.clinic.visitservice.model;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface PatientVisitStatsRepository
+    extends JpaRepository<PatientVisitStats, PatientVisitStats.Key>, PatientVisitStatsRepositoryCustom {
+
+    // All yearly rows of one patient, newest year first
+    List<PatientVisitStats> findByPatientIdOrderByYearDesc(int patientId);
+
+    // Visits of every patient, summed over the yearly rows instead of counted over the visits table
+    @Query("SELECT COALESCE(SUM(s.visitCount), 0) FROM PatientVisitStats s")
+    @Transactional(readOnly = true)
+    long sumVisitCount();
+
+    // Visits of every patient in one calendar year
+    @Query("SELECT COALESCE(SUM(s.visitCount), 0) FROM PatientVisitStats s WHERE s.year = :year")
+    @Transactional(readOnly = true)
+    long sumVisitCountByYear(@Param("year") int year);
+}
@@ -0,0 +1,9 @@
+package com.example.clinic.visitservice.model;
+
+import java.util.Collection;
+
+public interface PatientVisitStatsRepositoryCustom {
+
+    // Add the given visits to their patients' yearly rows; call in the transaction that wrote them
+    void addVisits(Collection<Visit> visits);
+}
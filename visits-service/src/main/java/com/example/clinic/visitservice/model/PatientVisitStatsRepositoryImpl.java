@@ -0,0 +1,106 @@
+package com.example.clinic.visitservice.model;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+/**
+ * Incremental update fragment of {@link PatientVisitStatsRepository}.
+ * New visits are bucketed by patient and calendar year (in the server's time zone), then every bucket becomes
+ * one upsert of its patient_visit_stats row: the first visit of a year creates the row, later ones add to its
+ * count and move its last visit date forward. Buckets are sent ordered by patient, then year, so concurrent
+ * batches lock shared rows in the same order.
+ * Visits without a date are counted under {@link PatientVisitStats#UNDATED_YEAR}.
+ * MySQL gets the row-alias upsert; HSQLDB in MySQL syntax mode (tests, clinic-loadtest) gets VALUES(column).
+ */
+class PatientVisitStatsRepositoryImpl implements PatientVisitStatsRepositoryCustom {
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO patient_visit_stats (patient_id, visit_year, visit_count, last_visit_date) VALUES (?, ?, ?, ?)
+        AS new
+        ON DUPLICATE KEY UPDATE
+            visit_count = patient_visit_stats.visit_count + new.visit_count,
+            last_visit_date = CASE WHEN patient_visit_stats.last_visit_date IS NULL
+                    OR patient_visit_stats.last_visit_date < new.last_visit_date
+                THEN new.last_visit_date ELSE patient_visit_stats.last_visit_date END""";
+
+    private static final String UPSERT_SQL_VALUES_FUNCTION = """
+        INSERT INTO patient_visit_stats (patient_id, visit_year, visit_count, last_visit_date) VALUES (?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            visit_count = visit_count + VALUES(visit_count),
+            last_visit_date = CASE WHEN last_visit_date IS NULL OR last_visit_date < VALUES(last_visit_date)
+                THEN VALUES(last_visit_date) ELSE last_visit_date END""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsertSql;
+
+    PatientVisitStatsRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsertSql = upsertSql(databaseProductName(jdbcTemplate));
+    }
+
+    static String upsertSql(String databaseProductName) {
+        return "MySQL".equals(databaseProductName) ? UPSERT_SQL : UPSERT_SQL_VALUES_FUNCTION;
+    }
+
+    private static String databaseProductName(JdbcTemplate jdbcTemplate) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                DatabaseMetaData::getDatabaseProductName);
+        } catch (MetaDataAccessException ex) {
+            // the database is not reachable yet; assume the production one
+            return "MySQL";
+        }
+    }
+
+    @Override
+    public void addVisits(Collection<Visit> visits) {
+        // patient id -> year -> visits of that year
+        final Map<Integer, Map<Integer, YearBucket>> buckets = new TreeMap<>();
+        for (Visit visit : visits) {
+            final int year = visit.getDate() == null
+                ? PatientVisitStats.UNDATED_YEAR
+                : Instant.ofEpochMilli(visit.getDate().getTime()).atZone(ZoneId.systemDefault()).getYear();
+            buckets.computeIfAbsent(visit.getPatient(), patientId -> new TreeMap<>())
+                .computeIfAbsent(year, y -> new YearBucket())
+                .add(visit.getDate());
+        }
+        if (buckets.isEmpty()) {
+            return;
+        }
+        final List<Object[]> rows = buckets.entrySet().stream()
+            .flatMap(patient -> patient.getValue().entrySet().stream()
+                .map(year -> new Object[] {
+                    patient.getKey(),
+                    year.getKey(),
+                    year.getValue().visitCount,
+                    year.getValue().lastVisitDate != null ? new Timestamp(year.getValue().lastVisitDate.getTime()) : null
+                }))
+            .toList();
+        jdbcTemplate.batchUpdate(upsertSql, rows);
+    }
+
+    // Visits of one patient in one year: how many, and the latest visit date among them
+    private static final class YearBucket {
+
+        private long visitCount;
+        private Date lastVisitDate;
+
+        void add(Date date) {
+            visitCount++;
+            if (date != null && (lastVisitDate == null || date.after(lastVisitDate))) {
+                lastVisitDate = date;
+            }
+        }
+    }
+}
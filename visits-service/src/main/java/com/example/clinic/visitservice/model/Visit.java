@@ -8,7 +8,10 @@ import jakarta.validation.constraints.Size;
 import java.util.Date;
 
 @Entity
-@Table(name = "visits")
+@Table(name = "visits", indexes = {
+    @Index(name = "idx_visits_patient_date", columnList = "patient_id, visit_date"),
+    @Index(name = "idx_visits_date", columnList = "visit_date, id, patient_id")
+})
 public class Visit {
 
     @Id
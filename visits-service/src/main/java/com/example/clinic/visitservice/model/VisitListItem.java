@@ -0,0 +1,17 @@
+package com.example.clinic.visitservice.model;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Read-only projection of a <code>Visit</code> without its description, used by the list endpoint.
+ * Its columns are all in the visits indexes, so pages are read from the index alone.
+ * Serializes like <code>Visit</code> minus <code>description</code>; <code>patient</code> is the patient id.
+ */
+public record VisitListItem(
+    Integer id,
+    @JsonFormat(pattern = "yyyy-MM-dd") Date date,
+    int patient
+) {
+}
@@ -1,16 +1,110 @@
-
 package com.example.clinic.visitservice.model;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
-public interface VisitRepository extends JpaRepository<Visit, Integer> {
+public interface VisitRepository extends JpaRepository<Visit, Integer>, VisitRepositoryCustom {
+
+    // Reads below are read-only transactions, served by the replica when there is one
 
     // Find visits for a single patient
+    @Transactional(readOnly = true)
     List<Visit> findByPatientId(int patientId);
 
     // Find visits for multiple patients
+    @Transactional(readOnly = true)
     List<Visit> findByPatientIdIn(Collection<Integer> patientIds);
+
+    // Keyset pages of the list endpoint, one query per filter combination so each can use its own index:
+    // unfiltered and per-patient pages are ordered by id, date ranges by (date, id). The date ranges are
+    // inclusive and skip visits without a date; a page starts after (afterDate, afterId), and the first page
+    // of a range passes afterDate = from, afterId = 0.
+
+    // Primary key range
+    @Query("""
+        SELECT new com.example.clinic.visitservice.model.VisitListItem(v.id, v.date, v.patientId)
+        FROM Visit v
+        WHERE v.id > :afterId
+        ORDER BY v.id""")
+    @Transactional(readOnly = true)
+    List<VisitListItem> findPage(@Param("afterId") int afterId, Limit limit);
+
+    // The patient's entries of idx_visits_patient_date, sorted by id
+    @Query("""
+        SELECT new com.example.clinic.visitservice.model.VisitListItem(v.id, v.date, v.patientId)
+        FROM Visit v
+        WHERE v.patientId = :patientId AND v.id > :afterId
+        ORDER BY v.id""")
+    @Transactional(readOnly = true)
+    List<VisitListItem> findPageByPatient(@Param("patientId") int patientId,
+                                          @Param("afterId") int afterId,
+                                          Limit limit);
+
+    // Range of idx_visits_patient_date (patient_id, visit_date, id), read in index order
+    @Query("""
+        SELECT new com.example.clinic.visitservice.model.VisitListItem(v.id, v.date, v.patientId)
+        FROM Visit v
+        WHERE v.patientId = :patientId
+          AND v.date >= :afterDate AND v.date <= :to
+          AND (v.date > :afterDate OR v.id > :afterId)
+        ORDER BY v.date, v.id""")
+    @Transactional(readOnly = true)
+    List<VisitListItem> findPageByPatientInRange(@Param("patientId") int patientId,
+                                                 @Param("to") Date to,
+                                                 @Param("afterDate") Date afterDate,
+                                                 @Param("afterId") int afterId,
+                                                 Limit limit);
+
+    // Range of idx_visits_date (visit_date, id, patient_id), read in index order
+    @Query("""
+        SELECT new com.example.clinic.visitservice.model.VisitListItem(v.id, v.date, v.patientId)
+        FROM Visit v
+        WHERE v.date >= :afterDate AND v.date <= :to
+          AND (v.date > :afterDate OR v.id > :afterId)
+        ORDER BY v.date, v.id""")
+    @Transactional(readOnly = true)
+    List<VisitListItem> findPageInRange(@Param("to") Date to,
+                                        @Param("afterDate") Date afterDate,
+                                        @Param("afterId") int afterId,
+                                        Limit limit);
+
+    // Forward-only streams of whole visits for the exports, with the same split and order as the pages.
+    // Rows are fetched 500 at a time, through a server-side cursor on MySQL (useCursorFetch, see application.yml).
+    // Must be consumed inside a transaction and closed by the caller.
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT v FROM Visit v ORDER BY v.id")
+    Stream<Visit> streamAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT v FROM Visit v WHERE v.patientId = :patientId ORDER BY v.id")
+    Stream<Visit> streamByPatient(@Param("patientId") int patientId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+        SELECT v FROM Visit v
+        WHERE v.patientId = :patientId AND v.date >= :from AND v.date <= :to
+        ORDER BY v.date, v.id""")
+    Stream<Visit> streamByPatientInRange(@Param("patientId") int patientId,
+                                         @Param("from") Date from,
+                                         @Param("to") Date to);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+        SELECT v FROM Visit v
+        WHERE v.date >= :from AND v.date <= :to
+        ORDER BY v.date, v.id""")
+    Stream<Visit> streamInRange(@Param("from") Date from, @Param("to") Date to);
 }
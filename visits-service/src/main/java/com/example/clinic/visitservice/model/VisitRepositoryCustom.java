@@ -0,0 +1,15 @@
+
+package com.example.clinic.visitservice.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface VisitRepositoryCustom {
+
+    // Insert all visits with JDBC batching and set their generated ids
+    void insertAll(List<Visit> visits);
+
+    // The given patient ids that exist in the patients table
+    Set<Integer> findExistingPatientIds(Collection<Integer> patientIds);
+}
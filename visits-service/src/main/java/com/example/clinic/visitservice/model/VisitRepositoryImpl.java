@@ -0,0 +1,91 @@
+
+package com.example.clinic.visitservice.model;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Bulk insert fragment of {@link VisitRepository}.
+ * Hibernate cannot batch inserts of IDENTITY entities, so this goes through plain JDBC batches;
+ * with rewriteBatchedStatements the MySQL driver sends each batch as one multi-row INSERT and
+ * still returns every AUTO_INCREMENT id, so the single-row path and data.sql keep allocating
+ * from the same counter.
+ */
+class VisitRepositoryImpl implements VisitRepositoryCustom {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO visits (patient_id, visit_date, description) VALUES (?, ?, ?)";
+
+    // ids per existence query, well below the placeholder limits of the drivers
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    VisitRepositoryImpl(JdbcTemplate jdbcTemplate,
+                        @Value("${visits.batch.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<Visit> visits) {
+        for (int from = 0; from < visits.size(); from += batchSize) {
+            final List<Visit> batch = visits.subList(from, Math.min(from + batchSize, visits.size()));
+            final KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        final Visit visit = batch.get(i);
+                        ps.setInt(1, visit.getPatient());
+                        if (visit.getDate() != null) {
+                            ps.setTimestamp(2, new Timestamp(visit.getDate().getTime()));
+                        } else {
+                            ps.setNull(2, Types.TIMESTAMP);
+                        }
+                        ps.setString(3, visit.getDescription());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                },
+                keys);
+            final List<Map<String, Object>> generated = keys.getKeyList();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(((Number) generated.get(i).values().iterator().next()).intValue());
+            }
+        }
+    }
+
+    @Override
+    public Set<Integer> findExistingPatientIds(Collection<Integer> patientIds) {
+        final List<Integer> ids = List.copyOf(new HashSet<>(patientIds));
+        final Set<Integer> existing = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            final List<Integer> chunk = ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size()));
+            final String sql = "SELECT id FROM patients WHERE id IN (" + "?,".repeat(chunk.size() - 1) + "?)";
+            existing.addAll(jdbcTemplate.queryForList(sql, Integer.class, chunk.toArray()));
+        }
+        return existing;
+    }
+}
@@ -1,14 +1,24 @@
+-- Explicit ids make the seed a no-op on every start after the first
+
 -- Patient 1 visits
-INSERT IGNORE INTO visits (patient_id, visit_date, description) VALUES (1, '2024-05-12', 'Annual physical check-up');
-INSERT IGNORE INTO visits (patient_id, visit_date, description) VALUES (1, '2024-07-10', 'Blood pressure follow-up');
-INSERT IGNORE INTO visits (patient_id, visit_date, description) VALUES (1, '2024-09-18', 'Diabetes management consultation');
+INSERT IGNORE INTO visits (id, patient_id, visit_date, description) VALUES (1, 1, '2024-05-12', 'Annual physical check-up');
+INSERT IGNORE INTO visits (id, patient_id, visit_date, description) VALUES (2, 1, '2024-07-10', 'Blood pressure follow-up');
+INSERT IGNORE INTO visits (id, patient_id, visit_date, description) VALUES (3, 1, '2024-09-18', 'Diabetes management consultation');
 
 -- Patient 2 visits
-INSERT IGNORE INTO visits (patient_id, visit_date, description) VALUES (2, '2024-06-20', 'Flu vaccination');
-INSERT IGNORE INTO visits (patient_id, visit_date, description) VALUES (2, '2024-08-05', 'Treatment for seasonal allergy');
-INSERT IGNORE INTO visits (patient_id, visit_date, description) VALUES (2, '2024-10-22', 'Dental cleaning and check-up');
+INSERT IGNORE INTO visits (id, patient_id, visit_date, description) VALUES (4, 2, '2024-06-20', 'Flu vaccination');
+INSERT IGNORE INTO visits (id, patient_id, visit_date, description) VALUES (5, 2, '2024-08-05', 'Treatment for seasonal allergy');
+INSERT IGNORE INTO visits (id, patient_id, visit_date, description) VALUES (6, 2, '2024-10-22', 'Dental cleaning and check-up');
 
 -- Patient 3 visits
-INSERT IGNORE INTO visits (patient_id, visit_date, description) VALUES (3, '2024-07-15', 'Fracture follow-up');
-INSERT IGNORE INTO visits (patient_id, visit_date, description) VALUES (3, '2024-09-02', 'COVID-19 booster vaccination');
-INSERT IGNORE INTO visits (patient_id, visit_date, description) VALUES (3, '2024-11-12', 'Skin rash treatment');
+INSERT IGNORE INTO visits (id, patient_id, visit_date, description) VALUES (7, 3, '2024-07-15', 'Fracture follow-up');
+INSERT IGNORE INTO visits (id, patient_id, visit_date, description) VALUES (8, 3, '2024-09-02', 'COVID-19 booster vaccination');
+INSERT IGNORE INTO visits (id, patient_id, visit_date, description) VALUES (9, 3, '2024-11-12', 'Skin rash treatment');
+
+-- Build the visit aggregates from existing visits the first time the table is created;
+-- visits without a date go under year 0, as PatientVisitStats.UNDATED_YEAR
+INSERT INTO patient_visit_stats (patient_id, visit_year, visit_count, last_visit_date)
+SELECT patient_id, COALESCE(EXTRACT(YEAR FROM visit_date), 0), COUNT(*), MAX(visit_date)
+FROM visits
+WHERE NOT EXISTS (SELECT 1 FROM patient_visit_stats)
+GROUP BY patient_id, COALESCE(EXTRACT(YEAR FROM visit_date), 0);
@@ -7,5 +7,17 @@ CREATE TABLE IF NOT EXISTS visits (
   patient_id INT NOT NULL,
   visit_date DATE,
   description VARCHAR(8192),
+  INDEX idx_visits_patient_date (patient_id, visit_date),
+  -- date ranges across patients: (visit_date, id) is the page order, patient_id makes the pages index-only
+  INDEX idx_visits_date (visit_date, id, patient_id),
   FOREIGN KEY (patient_id) REFERENCES patients(id)
-) ENGINE=InnoDB;
\ No newline at end of file
+) ENGINE=InnoDB;
+
+-- Per-patient, per-year visit aggregates, maintained by the visit write paths
+CREATE TABLE IF NOT EXISTS patient_visit_stats (
+  patient_id INT NOT NULL,
+  visit_year INT NOT NULL,
+  visit_count BIGINT NOT NULL,
+  last_visit_date DATETIME NULL,
+  PRIMARY KEY (patient_id, visit_year)
+) ENGINE=InnoDB;
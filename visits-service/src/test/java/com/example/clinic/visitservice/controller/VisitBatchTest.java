@@ -0,0 +1,183 @@
+package com.example.clinic.visitservice.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Year;
+import java.util.Collections;
+import java.util.List;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.clinic.visitservice.model.Visit;
+import com.example.clinic.visitservice.model.VisitRepository;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * POST /visits/batch and POST /visits/patients/{id}, and the counts they maintain, on the same embedded database as {@link VisitResourceTest}, with a patients table standing
+ * in for patient-service's.
+ */
+@SpringBootTest(properties = {
+    "spring.cloud.config.enabled=false",
+    "eureka.client.enabled=false",
+    "management.tracing.enabled=false",
+    "spring.datasource.url=jdbc:hsqldb:mem:visits-service;sql.syntax_mys=true",
+    "spring.datasource.username=SA",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.hsqldb.jdbc.JDBCDriver",
+    "spring.sql.init.mode=never",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "audit.dir=target/test-audit"
+})
+@AutoConfigureMockMvc
+class VisitBatchTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        visitRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM patient_visit_stats");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS patients (id INT PRIMARY KEY)");
+        jdbcTemplate.update("DELETE FROM patients");
+        jdbcTemplate.batchUpdate("INSERT INTO patients (id) VALUES (?)", List.of(new Object[] {1}, new Object[] {2}));
+    }
+
+    @Test
+    void createsTheValidVisitsAndReportsTheOthers() throws Exception {
+        String body = "[" + visit(1, "check-up") + ","
+            + visit(2, "x".repeat(8193)) + ","
+            + visit(0, "check-up") + ","
+            + visit(99, "check-up") + ","
+            + visit(2, "follow-up") + "]";
+
+        MvcResult result = mockMvc.perform(batch(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(2))
+            .andExpect(jsonPath("$.rejected").value(3))
+            .andExpect(jsonPath("$.items[*].index", Matchers.contains(0, 1, 2, 3, 4)))
+            .andExpect(jsonPath("$.items[0].errors").isEmpty())
+            .andExpect(jsonPath("$.items[1].id").doesNotExist())
+            .andExpect(jsonPath("$.items[1].errors[0]", Matchers.startsWith("description ")))
+            .andExpect(jsonPath("$.items[2].errors[0]").value("patientId must be greater than or equal to 1"))
+            .andExpect(jsonPath("$.items[3].id").doesNotExist())
+            .andExpect(jsonPath("$.items[3].errors[0]").value("patientId 99 does not exist"))
+            .andExpect(jsonPath("$.items[4].errors").isEmpty())
+            .andReturn();
+
+        String response = result.getResponse().getContentAsString();
+        int first = JsonPath.read(response, "$.items[0].id");
+        int last = JsonPath.read(response, "$.items[4].id");
+        assertThat(visitRepository.findById(first)).get().extracting(Visit::getPatient).isEqualTo(1);
+        assertThat(visitRepository.findById(last)).get()
+            .extracting(Visit::getPatient, Visit::getDescription)
+            .containsExactly(2, "follow-up");
+        assertThat(visitRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void aBatchOfUnknownPatientsCreatesNothing() throws Exception {
+        mockMvc.perform(batch("[" + visit(98, "check-up") + "," + visit(99, "check-up") + "]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(0))
+            .andExpect(jsonPath("$.rejected").value(2))
+            .andExpect(jsonPath("$.items[0].errors[0]").value("patientId 98 does not exist"));
+
+        assertThat(visitRepository.count()).isZero();
+    }
+
+    @Test
+    void rejectsBatchesOverTheLimit() throws Exception {
+        String body = "[" + String.join(",", Collections.nCopies(VisitResource.MAX_BATCH_SIZE + 1,
+            visit(1, "check-up"))) + "]";
+
+        mockMvc.perform(batch(body)).andExpect(status().isBadRequest());
+        assertThat(visitRepository.count()).isZero();
+    }
+
+    @Test
+    void createsASingleVisitOfAKnownPatient() throws Exception {
+        mockMvc.perform(create(2, "check-up"))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.patient").value(2));
+
+        assertThat(visitRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void aSingleVisitOfAnUnknownPatientIsNotFound() throws Exception {
+        mockMvc.perform(create(99, "check-up")).andExpect(status().isNotFound());
+
+        assertThat(visitRepository.count()).isZero();
+    }
+
+    @Test
+    void otherConstraintViolationsOfASingleVisitAreConflicts() throws Exception {
+        jdbcTemplate.execute("ALTER TABLE visits ADD CONSTRAINT visits_described CHECK (description <> '')");
+        try {
+            mockMvc.perform(create(1, "")).andExpect(status().isConflict());
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE visits DROP CONSTRAINT visits_described");
+        }
+
+        assertThat(visitRepository.count()).isZero();
+    }
+
+    @Test
+    void countsCreatedVisitsFromTheAggregates() throws Exception {
+        String thisYear = Year.now() + "-01-15";
+        mockMvc.perform(batch("[" + visit(1, "check-up") + "," + visit(2, "check-up") + ","
+                + visit(1, thisYear, "follow-up") + "]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(3));
+
+        mockMvc.perform(get("/visits/count").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(3))
+            .andExpect(jsonPath("$.thisYear").value(1));
+    }
+
+    private static MockHttpServletRequestBuilder create(int patientId, String description) {
+        return post("/visits/patients/{patientId}", patientId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .content("""
+                {"date":"2024-03-10","description":"%s"}""".formatted(description));
+    }
+
+    private static MockHttpServletRequestBuilder batch(String body) {
+        return post("/visits/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .content(body);
+    }
+
+    private static String visit(int patientId, String description) {
+        return visit(patientId, "2024-03-10", description);
+    }
+
+    private static String visit(int patientId, String date, String description) {
+        return """
+            {"patientId":%d,"date":"%s","description":"%s"}""".formatted(patientId, date, description);
+    }
+}
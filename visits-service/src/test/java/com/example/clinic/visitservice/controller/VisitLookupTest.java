@@ -0,0 +1,108 @@
+package com.example.clinic.visitservice.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.example.clinic.visitservice.model.Visit;
+import com.example.clinic.visitservice.model.VisitRepository;
+
+/**
+ * Chunking and grouping of {@link VisitLookup} against a repository that answers each IN-list from a fixed set of
+ * visits and records the lists it was queried with.
+ */
+class VisitLookupTest {
+
+    private static final int CHUNK_SIZE = 3;
+
+    private final VisitRepository visitRepository = mock(VisitRepository.class);
+    private final List<List<Integer>> queries = Collections.synchronizedList(new ArrayList<>());
+    private final List<Visit> visits = new ArrayList<>();
+    private ThreadPoolTaskExecutor executor;
+    private VisitLookup visitLookup;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.initialize();
+        visitLookup = new VisitLookup(visitRepository, executor, CHUNK_SIZE);
+        when(visitRepository.findByPatientIdIn(anyCollection())).thenAnswer(invocation -> {
+            final Collection<Integer> ids = invocation.getArgument(0);
+            queries.add(List.copyOf(ids));
+            return visits.stream().filter(visit -> ids.contains(visit.getPatient())).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void padsTheLastChunkWithItsFinalId() {
+        visitLookup.findByPatientIds(List.of(4, 8));
+
+        assertThat(queries).containsExactly(List.of(4, 8, 8));
+    }
+
+    @Test
+    void splitsIdsIntoChunksOfOneSize() {
+        visitLookup.findByPatientIds(List.of(1, 2, 3, 4, 5, 6, 7));
+
+        assertThat(queries).hasSize(3).allSatisfy(query -> assertThat(query).hasSize(CHUNK_SIZE));
+        assertThat(queries).containsExactlyInAnyOrder(List.of(1, 2, 3), List.of(4, 5, 6), List.of(7, 7, 7));
+    }
+
+    @Test
+    void aFullLastChunkIsNotPadded() {
+        visitLookup.findByPatientIds(List.of(1, 2, 3, 4, 5, 6));
+
+        assertThat(queries).containsExactlyInAnyOrder(List.of(1, 2, 3), List.of(4, 5, 6));
+    }
+
+    @Test
+    void groupsVisitsByPatientInRequestOrder() {
+        final Visit first = visit(5, "check-up");
+        final Visit second = visit(2, "check-up");
+        final Visit third = visit(5, "follow-up");
+        final Visit fourth = visit(9, "vaccination");
+        visits.addAll(List.of(first, second, third, fourth));
+
+        final Map<Integer, List<Visit>> byPatient = visitLookup.findByPatientIds(List.of(9, 5, 7, 2, 1));
+
+        assertThat(byPatient).containsOnlyKeys(9, 5, 7, 2, 1);
+        assertThat(byPatient.keySet()).containsExactly(9, 5, 7, 2, 1);
+        assertThat(byPatient.get(5)).containsExactly(first, third);
+        assertThat(byPatient.get(2)).containsExactly(second);
+        assertThat(byPatient.get(9)).containsExactly(fourth);
+        assertThat(byPatient.get(7)).isEmpty();
+        assertThat(byPatient.get(1)).isEmpty();
+    }
+
+    @Test
+    void noIdsRunNoQuery() {
+        assertThat(visitLookup.findByPatientIds(List.of())).isEmpty();
+
+        verify(visitRepository, never()).findByPatientIdIn(anyCollection());
+    }
+
+    private static Visit visit(int patientId, String description) {
+        return Visit.VisitBuilder.aVisit().patient(patientId).description(description).build();
+    }
+}
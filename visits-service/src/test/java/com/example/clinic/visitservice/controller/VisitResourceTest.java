@@ -0,0 +1,270 @@
+package com.example.clinic.visitservice.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.clinic.visitservice.model.Visit;
+import com.example.clinic.visitservice.model.VisitRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Keyset pagination, filters and NDJSON / CBOR sequence / SSE exports of GET /visits, and the bulk lookup of GET /visits/patients, on an embedded HSQLDB
+ * in MySQL syntax mode, as clinic-loadtest runs the service.
+ */
+@SpringBootTest(properties = {
+    "spring.cloud.config.enabled=false",
+    "eureka.client.enabled=false",
+    "management.tracing.enabled=false",
+    "spring.datasource.url=jdbc:hsqldb:mem:visits-service;sql.syntax_mys=true",
+    "spring.datasource.username=SA",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.hsqldb.jdbc.JDBCDriver",
+    "spring.sql.init.mode=never",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "audit.dir=target/test-audit"
+})
+@AutoConfigureMockMvc
+class VisitResourceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    // ids of the visits of patients 1, 2 and 3, interleaved so a patient's visits are not contiguous ids
+    private final List<Integer> ids = new ArrayList<>();
+    private final List<Integer> patientOneIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        visitRepository.deleteAll();
+        for (int month = 1; month <= 4; month++) {
+            for (int patient = 1; patient <= 3; patient++) {
+                if (patient == 3 && month > 2) {
+                    continue;
+                }
+                Visit visit = visitRepository.save(Visit.VisitBuilder.aVisit()
+                    .patient(patient)
+                    .date(date(LocalDate.of(2024, month, 10)))
+                    .description("check-up")
+                    .build());
+                ids.add(visit.getId());
+                if (patient == 1) {
+                    patientOneIds.add(visit.getId());
+                }
+            }
+        }
+    }
+
+    @Test
+    void pagesFollowTheCursorInIdOrder() throws Exception {
+        Pages pages = readAll(request -> request.param("size", "4"));
+
+        assertThat(pages.ids()).isEqualTo(ids);
+        assertThat(pages.sizes()).containsExactly(4, 4, 2);
+    }
+
+    @Test
+    void filtersApplyOnEveryPage() throws Exception {
+        Pages pages = readAll(request -> request.param("patientId", "1").param("size", "3"));
+
+        assertThat(pages.ids()).isEqualTo(patientOneIds);
+        assertThat(pages.sizes()).containsExactly(3, 1);
+    }
+
+    @Test
+    void dateRangeIsInclusive() throws Exception {
+        Pages pages = readAll(request -> request
+            .param("patientId", "1")
+            .param("from", "2024-02-10")
+            .param("to", "2024-03-10"));
+
+        assertThat(pages.ids()).containsExactly(patientOneIds.get(1), patientOneIds.get(2));
+        assertThat(readAll(request -> request.param("from", "2024-03-01")).ids()).hasSize(4);
+    }
+
+    @Test
+    void dateRangesArePagedInDateOrderAcrossVisitsOfTheSameDay() throws Exception {
+        // newest id, earliest date
+        int early = visitRepository.save(visit(2, LocalDate.of(2024, 1, 5))).getId();
+
+        Pages pages = readAll(request -> request.param("from", "2024-01-01").param("to", "2024-02-10").param("size", "2"));
+
+        // January 10th and February 10th each have three visits, so pages end in the middle of a day
+        assertThat(pages.ids()).containsExactly(early, ids.get(0), ids.get(1), ids.get(2), ids.get(3), ids.get(4),
+            ids.get(5));
+        assertThat(pages.sizes()).containsExactly(2, 2, 2, 1);
+        assertThat(readAll(request -> request.param("patientId", "2").param("to", "2024-01-31")).ids())
+            .containsExactly(early, ids.get(1));
+    }
+
+    @Test
+    void pagesLeaveOutDescriptions() throws Exception {
+        mockMvc.perform(visits().param("size", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value(ids.get(0)))
+            .andExpect(jsonPath("$[0].patient").value(1))
+            .andExpect(jsonPath("$[0].date").value("2024-01-10"))
+            .andExpect(jsonPath("$[0].description").doesNotExist());
+    }
+
+    @Test
+    void readsOneVisitWithItsDescription() throws Exception {
+        mockMvc.perform(get("/visits/{visitId}", ids.get(3)).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.patient").value(1))
+            .andExpect(jsonPath("$.description").value("check-up"));
+        mockMvc.perform(get("/visits/{visitId}", ids.get(ids.size() - 1) + 1)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void rejectsCursorsOfOtherListings() throws Exception {
+        mockMvc.perform(visits().param("after", "1710028800000_3")).andExpect(status().isBadRequest());
+        mockMvc.perform(visits().param("from", "2024-01-01").param("after", "3")).andExpect(status().isBadRequest());
+        mockMvc.perform(visits().param("from", "2024-01-01").param("after", "x_3")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamsMatchingVisitsAsNdjson() throws Exception {
+        String body = export(VisitResource.NDJSON, "patientId", "1").getResponse().getContentAsString();
+
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            rows.add(new ObjectMapper().readTree(line));
+        }
+        assertThat(rows).extracting(row -> row.get("id").asInt()).isEqualTo(patientOneIds);
+        assertThat(rows).extracting(row -> row.get("description").asText()).containsOnly("check-up");
+        assertThat(body).endsWith("\n");
+    }
+
+    @Test
+    void streamsDateRangesAsACborSequenceInDateOrder() throws Exception {
+        int early = visitRepository.save(visit(3, LocalDate.of(2024, 1, 5))).getId();
+
+        MvcResult result = export(VisitResource.CBOR_SEQ, "to", "2024-01-31");
+
+        List<JsonNode> rows = new CBORMapper().readerFor(JsonNode.class)
+            .<JsonNode>readValues(result.getResponse().getContentAsByteArray())
+            .readAll();
+        assertThat(rows).extracting(row -> row.get("id").asInt())
+            .containsExactly(early, ids.get(0), ids.get(1), ids.get(2));
+        assertThat(rows.get(0).get("date").asText()).isEqualTo("2024-01-05");
+    }
+
+    @Test
+    void streamsMatchingVisitsAsServerSentEvents() throws Exception {
+        String body = export(MediaType.TEXT_EVENT_STREAM_VALUE, "from", "2024-04-01").getResponse().getContentAsString();
+
+        String[] events = body.split("\n\n");
+        assertThat(events).hasSize(2).allSatisfy(event -> assertThat(event).startsWith("data: {"));
+        assertThat(events).extracting(event -> new ObjectMapper().readTree(event.substring("data: ".length())).get("id").asInt())
+            .containsExactly(ids.get(8), ids.get(9));
+    }
+
+    @Test
+    void rejectsOutOfRangeParameters() throws Exception {
+        mockMvc.perform(visits().param("size", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(visits().param("size", String.valueOf(VisitResource.MAX_PAGE_SIZE + 1)))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(visits().param("after", "-1")).andExpect(status().isBadRequest());
+        mockMvc.perform(visits().param("patientId", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(visits().param("from", "10/02/2024")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void lookupGroupsVisitsByPatient() throws Exception {
+        MvcResult result = mockMvc.perform(get("/visits/patients")
+                .param("patientId", "3", "1", "4")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        String response = result.getResponse().getContentAsString();
+        Map<String, List<?>> items = JsonPath.read(response, "$.items");
+        assertThat(items.keySet()).containsExactly("3", "1", "4");
+        assertThat(JsonPath.<List<Integer>>read(response, "$.items.1[*].id")).isEqualTo(patientOneIds);
+        assertThat(JsonPath.<List<Integer>>read(response, "$.items.3[*].patient")).containsExactly(3, 3);
+        assertThat(items.get("4")).isEmpty();
+    }
+
+    @Test
+    void lookupRejectsMissingAndRepeatedIds() throws Exception {
+        mockMvc.perform(get("/visits/patients").param("patientId", "1", "", "2"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/visits/patients").param("patientId", "1,,2"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/visits/patients").param("patientId", "1", "2", "1"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/visits/patients").param("patientId", "0"))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Read every page of GET /visits with the given filters, passing each X-Next-Cursor on as <code>after</code>.
+     */
+    private Pages readAll(UnaryOperator<MockHttpServletRequestBuilder> filters) throws Exception {
+        Pages pages = new Pages(new ArrayList<>(), new ArrayList<>());
+        String cursor = "0";
+        while (cursor != null) {
+            MvcResult result = mockMvc.perform(filters.apply(visits().param("after", cursor)))
+                .andExpect(status().isOk())
+                .andReturn();
+            List<Integer> page = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+            pages.ids().addAll(page);
+            pages.sizes().add(page.size());
+            cursor = result.getResponse().getHeader(VisitResource.NEXT_CURSOR_HEADER);
+        }
+        return pages;
+    }
+
+    private MvcResult export(String mediaType, String filter, String value) throws Exception {
+        MvcResult started = mockMvc.perform(get("/visits").param(filter, value).accept(mediaType))
+            .andExpect(status().isOk())
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(mediaType))
+            .andReturn();
+    }
+
+    private static Visit visit(int patient, LocalDate date) {
+        return Visit.VisitBuilder.aVisit().patient(patient).date(date(date)).description("check-up").build();
+    }
+
+    private static MockHttpServletRequestBuilder visits() {
+        return get("/visits").accept(MediaType.APPLICATION_JSON);
+    }
+
+    private static Date date(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private record Pages(List<Integer> ids, List<Integer> sizes) {
+    }
+}
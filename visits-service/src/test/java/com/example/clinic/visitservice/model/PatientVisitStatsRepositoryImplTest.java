@@ -0,0 +1,137 @@
+package com.example.clinic.visitservice.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Runs the MySQL upsert against an embedded HSQLDB in MySQL syntax mode, as clinic-loadtest does.
+ */
+class PatientVisitStatsRepositoryImplTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private JdbcTemplate jdbcTemplate;
+    private PatientVisitStatsRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:hsqldb:mem:visit-stats-" + DATABASES.incrementAndGet() + ";sql.syntax_mys=true", "SA", ""));
+        jdbcTemplate.execute("""
+            CREATE TABLE patient_visit_stats (
+              patient_id INT NOT NULL,
+              visit_year INT NOT NULL,
+              visit_count BIGINT NOT NULL,
+              last_visit_date DATETIME NULL,
+              PRIMARY KEY (patient_id, visit_year)
+            )""");
+        repository = new PatientVisitStatsRepositoryImpl(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void insertsOneRowPerPatientAndYear() {
+        repository.addVisits(List.of(
+            visit(1, LocalDate.of(2024, 3, 1)),
+            visit(1, LocalDate.of(2024, 6, 1)),
+            visit(1, LocalDate.of(2023, 1, 15)),
+            visit(1, null),
+            visit(2, LocalDate.of(2024, 2, 2))));
+
+        assertThat(rows()).containsExactly(
+            new Row(1, PatientVisitStats.UNDATED_YEAR, 1, null),
+            new Row(1, 2023, 1, LocalDate.of(2023, 1, 15)),
+            new Row(1, 2024, 2, LocalDate.of(2024, 6, 1)),
+            new Row(2, 2024, 1, LocalDate.of(2024, 2, 2)));
+    }
+
+    @Test
+    void addsToExistingRowsAndKeepsTheLatestDate() {
+        repository.addVisits(List.of(visit(1, LocalDate.of(2024, 6, 1)), visit(1, null)));
+
+        repository.addVisits(List.of(visit(1, LocalDate.of(2024, 4, 1)), visit(1, null)));
+        assertThat(rows()).containsExactly(
+            new Row(1, PatientVisitStats.UNDATED_YEAR, 2, null),
+            new Row(1, 2024, 2, LocalDate.of(2024, 6, 1)));
+
+        repository.addVisits(List.of(visit(1, LocalDate.of(2024, 12, 1))));
+        assertThat(rows()).contains(new Row(1, 2024, 3, LocalDate.of(2024, 12, 1)));
+    }
+
+    @Test
+    void nothingToAddWritesNothing() {
+        repository.addVisits(List.of());
+
+        assertThat(rows()).isEmpty();
+    }
+
+    @Test
+    void concurrentWritersLoseNoIncrements() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < 4; writer++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        repository.addVisits(List.of(visit(1, LocalDate.of(2024, 1, 1 + i % 28)), visit(2, null)));
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(rows()).containsExactly(
+            new Row(1, 2024, 200, LocalDate.of(2024, 1, 28)),
+            new Row(2, PatientVisitStats.UNDATED_YEAR, 200, null));
+    }
+
+    @Test
+    void namesTheIncomingRowOnMySqlOnly() {
+        assertThat(PatientVisitStatsRepositoryImpl.upsertSql("MySQL")).contains("AS new").contains("new.visit_count").doesNotContain("VALUES(visit_count)");
+        assertThat(PatientVisitStatsRepositoryImpl.upsertSql("HSQL Database Engine")).contains("VALUES(visit_count)").doesNotContain("AS new");
+    }
+
+    private List<Row> rows() {
+        return jdbcTemplate.query(
+            "SELECT * FROM patient_visit_stats ORDER BY patient_id, visit_year",
+            (rs, rowNum) -> {
+                Timestamp last = rs.getTimestamp("last_visit_date");
+                return new Row(rs.getInt("patient_id"), rs.getInt("visit_year"), rs.getLong("visit_count"),
+                    last == null ? null : last.toLocalDateTime().toLocalDate());
+            });
+    }
+
+    private static Visit visit(int patientId, LocalDate date) {
+        return Visit.VisitBuilder.aVisit()
+            .patient(patientId)
+            .date(date == null ? null : Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()))
+            .build();
+    }
+
+    private record Row(int patientId, int year, long count, LocalDate lastVisitDate) {
+    }
+}